@@ -0,0 +1,47 @@
+package com.classviewer.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 基准测试入口
+ * 支持JMH的全部命令行参数；未指定结果格式时默认输出JSON到 target/jmh-result.json，便于跟踪性能回退
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListProfilers()
+                || cmd.shouldListResultFormats() || cmd.shouldListWithParams()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        Path fixtures = Fixtures.root();
+        // 隔离用户目录，避免基准测试改写真实的 ~/.classviewer 配置
+        Path benchHome = fixtures.resolveSibling("bench-home");
+        benchHome.toFile().mkdirs();
+
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(cmd)
+                .jvmArgsAppend("-D" + Fixtures.PROPERTY + "=" + fixtures,
+                        "-Duser.home=" + benchHome);
+        if (!cmd.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmd.getResult().hasValue()) {
+            File result = Paths.get("target", "jmh-result.json").toFile();
+            result.getParentFile().mkdirs();
+            builder.result(result.getPath());
+        }
+
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,150 @@
+package com.classviewer.benchmark;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/**
+ * 基准测试夹具生成器
+ * 在构建时生成不同规模的CLASS文件、STORED/DEFLATED两种JAR以及批量反编译用的目录，
+ * 基准测试运行时不依赖网络或外部样本。
+ */
+public class FixtureGenerator {
+
+    public static void main(String[] args) throws Exception {
+        Path root = Paths.get(args.length > 0 ? args[0] : Fixtures.DEFAULT_ROOT).toAbsolutePath();
+        Path classes = root.resolve(Fixtures.CLASSES_DIR);
+        if (Files.exists(classes.resolve(Fixtures.HUGE + ".class"))) {
+            System.out.println("夹具已存在，跳过生成: " + root);
+            return;
+        }
+
+        Path sources = root.resolve("src");
+        Files.createDirectories(sources);
+        Files.createDirectories(classes);
+
+        writeSource(sources, Fixtures.SMALL, 2, 1);
+        writeSource(sources, Fixtures.MEDIUM, 40, 6);
+        writeSource(sources, Fixtures.HUGE, 120, 12);
+        compile(sources, classes);
+
+        byte[] small = Files.readAllBytes(classes.resolve(Fixtures.SMALL + ".class"));
+        byte[] medium = Files.readAllBytes(classes.resolve(Fixtures.MEDIUM + ".class"));
+        byte[] huge = Files.readAllBytes(classes.resolve(Fixtures.HUGE + ".class"));
+
+        writeJar(root.resolve(Fixtures.STORED_JAR), ZipEntry.STORED, small, medium);
+        writeJar(root.resolve(Fixtures.DEFLATED_JAR), ZipEntry.DEFLATED, small, medium);
+        writeBatchDirectory(root.resolve(Fixtures.BATCH_DIR), small, medium, huge);
+
+        System.out.println("夹具生成完成: " + root);
+    }
+
+    /**
+     * 生成测试源码，方法数量和每个方法的分支数量决定类的规模
+     */
+    private static void writeSource(Path dir, String className, int methods, int branches) throws IOException {
+        StringBuilder src = new StringBuilder();
+        src.append("import java.util.*;\n\n");
+        src.append("public class ").append(className).append(" {\n");
+        src.append("    private final Map<String, Integer> counters = new HashMap<>();\n");
+        src.append("    private final List<String> names = new ArrayList<>();\n\n");
+        for (int m = 0; m < methods; m++) {
+            src.append("    public int method").append(m).append("(int value, String key) {\n");
+            src.append("        int acc = value;\n");
+            src.append("        switch (value % ").append(branches + 1).append(") {\n");
+            for (int b = 0; b < branches; b++) {
+                src.append("            case ").append(b).append(":\n");
+                src.append("                for (int i = 0; i < ").append(b + 2).append("; i++) {\n");
+                src.append("                    acc += key.length() * ").append(b + m).append(" + i;\n");
+                src.append("                    if ((acc & 1) == 0) { names.add(key + \"_").append(b).append("\"); }\n");
+                src.append("                }\n");
+                src.append("                break;\n");
+            }
+            src.append("            default:\n");
+            src.append("                try {\n");
+            src.append("                    acc = Integer.parseInt(key) + counters.getOrDefault(key, 0);\n");
+            src.append("                } catch (NumberFormatException e) {\n");
+            src.append("                    acc = -acc;\n");
+            src.append("                }\n");
+            src.append("        }\n");
+            src.append("        counters.merge(key, acc, Integer::sum);\n");
+            src.append("        return acc;\n");
+            src.append("    }\n\n");
+        }
+        src.append("}\n");
+        Files.write(dir.resolve(className + ".java"), src.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void compile(Path sources, Path classes) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("生成夹具需要JDK（当前运行环境没有Java编译器）");
+        }
+        int exitCode = compiler.run(null, null, null,
+                "-d", classes.toString(),
+                "-source", "8", "-target", "8", "-nowarn",
+                sources.resolve(Fixtures.SMALL + ".java").toString(),
+                sources.resolve(Fixtures.MEDIUM + ".java").toString(),
+                sources.resolve(Fixtures.HUGE + ".java").toString());
+        if (exitCode != 0) {
+            throw new IllegalStateException("编译夹具源码失败，退出码: " + exitCode);
+        }
+    }
+
+    /**
+     * 生成JAR：若干包目录下的CLASS文件和少量资源文件
+     */
+    private static void writeJar(Path jarPath, int method, byte[] small, byte[] medium) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
+        try (OutputStream out = Files.newOutputStream(jarPath);
+             JarOutputStream jar = new JarOutputStream(out, manifest)) {
+            jar.setMethod(method);
+            for (int pkg = 0; pkg < Fixtures.JAR_PACKAGES; pkg++) {
+                for (int i = 0; i < Fixtures.JAR_CLASSES_PER_PACKAGE; i++) {
+                    byte[] data = i % 4 == 0 ? medium : small;
+                    putEntry(jar, "com/example/pkg" + pkg + "/Class" + i + ".class", data, method);
+                }
+                byte[] resource = ("name=pkg" + pkg + "\n").getBytes(StandardCharsets.UTF_8);
+                putEntry(jar, "com/example/pkg" + pkg + "/messages.properties", resource, method);
+            }
+        }
+    }
+
+    private static void putEntry(JarOutputStream jar, String name, byte[] data, int method) throws IOException {
+        JarEntry entry = new JarEntry(name);
+        entry.setMethod(method);
+        if (method == ZipEntry.STORED) {
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            entry.setSize(data.length);
+            entry.setCompressedSize(data.length);
+            entry.setCrc(crc.getValue());
+        }
+        jar.putNextEntry(entry);
+        jar.write(data);
+        jar.closeEntry();
+    }
+
+    /**
+     * 生成批量反编译目录：以中小类为主，少量大类
+     */
+    private static void writeBatchDirectory(Path dir, byte[] small, byte[] medium, byte[] huge) throws IOException {
+        for (int i = 0; i < Fixtures.BATCH_CLASSES; i++) {
+            byte[] data = i % 50 == 0 ? huge : (i % 3 == 0 ? medium : small);
+            Path target = dir.resolve("pkg" + (i % 10)).resolve("Batch" + i + ".class");
+            Files.createDirectories(target.getParent());
+            Files.write(target, data);
+        }
+    }
+}
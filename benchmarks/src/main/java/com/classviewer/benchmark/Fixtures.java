@@ -0,0 +1,46 @@
+package com.classviewer.benchmark;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 基准测试夹具位置
+ * 默认位于 benchmarks/target/fixtures，可通过系统属性 classviewer.fixtures 指定
+ */
+public final class Fixtures {
+
+    public static final String DEFAULT_ROOT = "target/fixtures";
+    public static final String PROPERTY = "classviewer.fixtures";
+
+    public static final String CLASSES_DIR = "classes";
+    public static final String SMALL = "SmallFixture";
+    public static final String MEDIUM = "MediumFixture";
+    public static final String HUGE = "HugeFixture";
+
+    public static final String STORED_JAR = "stored.jar";
+    public static final String DEFLATED_JAR = "deflated.jar";
+    public static final int JAR_PACKAGES = 20;
+    public static final int JAR_CLASSES_PER_PACKAGE = 50;
+
+    public static final String BATCH_DIR = "batch";
+    public static final int BATCH_CLASSES = 200;
+
+    private Fixtures() {
+    }
+
+    public static Path root() {
+        Path root = Paths.get(System.getProperty(PROPERTY, DEFAULT_ROOT)).toAbsolutePath();
+        if (!root.resolve(CLASSES_DIR).toFile().isDirectory()) {
+            throw new IllegalStateException("找不到基准测试夹具，请先执行 mvn package 生成: " + root);
+        }
+        return root;
+    }
+
+    public static Path classFile(String name) {
+        return root().resolve(CLASSES_DIR).resolve(name + ".class");
+    }
+
+    public static Path resolve(String name) {
+        return root().resolve(name);
+    }
+}
@@ -0,0 +1,39 @@
+package com.classviewer.service;
+
+import com.classviewer.benchmark.Fixtures;
+import com.classviewer.metrics.MetricsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量反编译端到端基准：不同线程数下反编译整个夹具目录
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BatchDecompilerBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private BatchDecompilerService batchDecompilerService;
+    private Path batchDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        MetricsService metricsService = new MetricsService();
+        batchDecompilerService = new BatchDecompilerService(new DecompilerService(metricsService), metricsService);
+        batchDir = Fixtures.resolve(Fixtures.BATCH_DIR);
+    }
+
+    @Benchmark
+    public BatchDecompilerService.BatchResult batchDecompile() throws IOException {
+        return batchDecompilerService.batchDecompile(batchDir, threads, null);
+    }
+}
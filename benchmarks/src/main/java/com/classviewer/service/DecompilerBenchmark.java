@@ -0,0 +1,65 @@
+package com.classviewer.service;
+
+import com.classviewer.benchmark.Fixtures;
+import com.classviewer.metrics.MetricsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CFR单类反编译基准：小、中、大三种规模的CLASS文件，返回字符串与直接写入通道两种方式
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecompilerBenchmark {
+
+    /**
+     * 丢弃写入内容的通道，只计编码开销
+     */
+    private static final WritableByteChannel DISCARD = new WritableByteChannel() {
+        @Override
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            src.position(src.limit());
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Param({Fixtures.SMALL, Fixtures.MEDIUM, Fixtures.HUGE})
+    public String fixture;
+
+    private DecompilerService decompilerService;
+    private String classFilePath;
+
+    @Setup
+    public void setUp() throws IOException {
+        decompilerService = new DecompilerService(new MetricsService());
+        classFilePath = Fixtures.classFile(fixture).toString();
+    }
+
+    @Benchmark
+    public String decompileWithCFR() {
+        return decompilerService.decompileWithCFR(classFilePath);
+    }
+
+    @Benchmark
+    public long decompileToChannel() throws IOException {
+        return decompilerService.decompileWithCFR(classFilePath, DISCARD);
+    }
+}
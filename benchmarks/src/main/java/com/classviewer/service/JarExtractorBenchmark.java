@@ -0,0 +1,50 @@
+package com.classviewer.service;
+
+import com.classviewer.benchmark.Fixtures;
+import com.classviewer.metrics.MetricsService;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个JAR解压基准：STORED与DEFLATED两种压缩方式
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JarExtractorBenchmark {
+
+    @Param({Fixtures.STORED_JAR, Fixtures.DEFLATED_JAR})
+    public String jar;
+
+    private JarExtractorService jarExtractorService;
+    private File jarFile;
+    private Path outputDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        jarExtractorService = new JarExtractorService(new MetricsService());
+        jarFile = Fixtures.resolve(jar).toFile();
+        outputDir = Files.createTempDirectory("bench-extract-");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(outputDir.toFile());
+    }
+
+    @Benchmark
+    public JarExtractorService.ExtractionResult extractJar() throws IOException {
+        JarExtractorService.ExtractionResult result = new JarExtractorService.ExtractionResult();
+        jarExtractorService.extractJar(jarFile, outputDir, result);
+        return result;
+    }
+}
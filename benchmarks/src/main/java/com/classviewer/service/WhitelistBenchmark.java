@@ -0,0 +1,43 @@
+package com.classviewer.service;
+
+import com.classviewer.metrics.MetricsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 白名单匹配基准：使用完整的内置默认白名单，命中与未命中的JAR名称混合
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WhitelistBenchmark {
+
+    private static final String[] JAR_NAMES = {
+            "spring-core-5.3.31.jar", "order-service-1.0.0.jar", "jackson-databind-2.13.5.jar",
+            "company-common-1.2.jar", "mybatis-3.5.13.jar", "payment-gateway-2.4.1-SNAPSHOT.jar",
+            "netty-handler-4.1.100.Final.jar", "user-center-api.jar", "HikariCP-4.0.3.jar",
+            "risk-engine-core-3.2.jar", "commons-lang3-3.12.0.jar", "lib1.jar",
+            "logback-classic-1.2.12.jar", "inventory-dao-1.7.jar", "guava-31.1-jre.jar",
+            "report-export-0.9.jar"
+    };
+
+    private JarExtractorService jarExtractorService;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        // BenchmarkRunner 已将 user.home 指向隔离目录，这里重置不会影响真实配置
+        jarExtractorService = new JarExtractorService(new MetricsService());
+        jarExtractorService.resetToDefault();
+    }
+
+    @Benchmark
+    public boolean isInWhitelist() {
+        String name = JAR_NAMES[index++ & (JAR_NAMES.length - 1)];
+        return jarExtractorService.isInWhitelist(name);
+    }
+}
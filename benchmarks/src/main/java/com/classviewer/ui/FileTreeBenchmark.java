@@ -0,0 +1,53 @@
+package com.classviewer.ui;
+
+import javafx.scene.control.TreeItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件树构建基准：模拟解压并反编译后的目录结构（每个CLASS旁边有对应的JAVA文件）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileTreeBenchmark {
+
+    @Param({"10000", "100000"})
+    public int files;
+
+    private List<String> entries;
+
+    @Setup
+    public void setUp() {
+        entries = new ArrayList<>(files);
+        int index = 0;
+        outer:
+        for (int module = 0; ; module++) {
+            for (int lib = 0; lib < 20; lib++) {
+                for (int pkg = 0; pkg < 10; pkg++) {
+                    for (int cls = 0; cls < 25; cls++) {
+                        if (index >= files) {
+                            break outer;
+                        }
+                        String base = "module" + module + "/BOOT-INF/lib/lib" + lib
+                                + "/com/example/pkg" + pkg + "/Class" + cls;
+                        entries.add(base + ".class");
+                        entries.add(base + ".java");
+                        index += 2;
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public TreeItem<String> buildFileTree() {
+        return MainViewController.buildFileTree("root", entries);
+    }
+}
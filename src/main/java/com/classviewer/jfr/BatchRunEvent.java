@@ -0,0 +1,33 @@
+package com.classviewer.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JFR事件：一次批量反编译
+ */
+@Name("com.classviewer.BatchRun")
+@Label("Batch Decompile Run")
+@Description("批量反编译整个目录")
+@Category({"ClassViewer", "Batch"})
+@StackTrace(false)
+public class BatchRunEvent extends Event {
+
+    @Label("Directory")
+    public String directory;
+
+    @Label("Threads")
+    public int threads;
+
+    @Label("Total Files")
+    public int totalFiles;
+
+    @Label("Success")
+    public int successCount;
+
+    @Label("Failed")
+    public int failCount;
+
+    @Label("Duplicates")
+    @Description("复用代表文件结果的重复CLASS数")
+    public int duplicateCount;
+}
@@ -0,0 +1,28 @@
+package com.classviewer.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JFR事件：批量反编译中单个文件的完整处理（反编译 + 写入结果）
+ */
+@Name("com.classviewer.BatchTask")
+@Label("Batch Decompile Task")
+@Description("批量反编译工作线程处理单个CLASS文件")
+@Category({"ClassViewer", "Batch"})
+@StackTrace(false)
+public class BatchTaskEvent extends Event {
+
+    @Label("Class File")
+    public String classFile;
+
+    @Label("Class Size")
+    @DataAmount
+    public long classSize;
+
+    @Label("Output Size")
+    @DataAmount
+    public long outputSize;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,38 @@
+package com.classviewer.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JFR事件：批量反编译线程数调整
+ */
+@Name("com.classviewer.ConcurrencyChange")
+@Label("Batch Concurrency Change")
+@Description("自适应控制器调整批量反编译的线程数")
+@Category({"ClassViewer", "Batch"})
+@StackTrace(false)
+public class ConcurrencyChangeEvent extends Event {
+
+    @Label("Old Threads")
+    public int oldThreads;
+
+    @Label("New Threads")
+    public int newThreads;
+
+    @Label("Reason")
+    public String reason;
+
+    @Label("Throughput")
+    @Description("上一个采样周期每秒完成的CLASS数")
+    public double throughput;
+
+    @Label("GC Ratio")
+    @Description("上一个采样周期中GC耗时占比")
+    public double gcRatio;
+
+    @Label("Old Gen Occupancy")
+    public double oldGenOccupancy;
+
+    @Label("CPU Ratio")
+    @Description("任务CPU时间与墙钟时间之比，明显小于1表示在等待I/O")
+    public double cpuRatio;
+}
@@ -0,0 +1,29 @@
+package com.classviewer.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JFR事件：单个CLASS的CFR反编译
+ * 事件线程由JFR自动记录，可与同一时间段内的CPU采样、内存分配事件关联
+ */
+@Name("com.classviewer.Decompile")
+@Label("Decompile Class")
+@Description("使用CFR反编译单个CLASS文件")
+@Category({"ClassViewer", "Decompile"})
+@StackTrace(false)
+public class DecompileEvent extends Event {
+
+    @Label("Class File")
+    public String classFile;
+
+    @Label("Class Size")
+    @DataAmount
+    public long classSize;
+
+    @Label("Output Size")
+    @Description("反编译输出的大小：返回字符串时为字符数，直接写入通道时为字节数")
+    public long outputSize;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,34 @@
+package com.classviewer.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JFR事件：解压单个JAR
+ */
+@Name("com.classviewer.ExtractJar")
+@Label("Extract Jar")
+@Description("将单个JAR解压到输出目录")
+@Category({"ClassViewer", "Extract"})
+@StackTrace(false)
+public class ExtractJarEvent extends Event {
+
+    @Label("Jar File")
+    public String jarFile;
+
+    @Label("Jar Size")
+    @DataAmount
+    public long jarSize;
+
+    @Label("Entries")
+    public int entries;
+
+    @Label("Class Files")
+    public int classFiles;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+
+    @Label("Outcome")
+    public String outcome;
+}
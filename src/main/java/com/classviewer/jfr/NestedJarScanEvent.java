@@ -0,0 +1,29 @@
+package com.classviewer.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JFR事件：处理一层嵌套JAR（包含该层查找、过滤及递归解压的全部耗时）
+ */
+@Name("com.classviewer.NestedJarScan")
+@Label("Process Nested Jars")
+@Description("在目录中查找并递归解压嵌套JAR")
+@Category({"ClassViewer", "Extract"})
+@StackTrace(false)
+public class NestedJarScanEvent extends Event {
+
+    @Label("Directory")
+    public String directory;
+
+    @Label("Depth")
+    public int depth;
+
+    @Label("Jars Found")
+    public int jarsFound;
+
+    @Label("Jars Skipped")
+    public int jarsSkipped;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,14 @@
+package com.classviewer.jfr;
+
+/**
+ * JFR事件中的处理结果取值
+ */
+public final class Outcome {
+
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+    public static final String ERROR = "ERROR";
+
+    private Outcome() {
+    }
+}
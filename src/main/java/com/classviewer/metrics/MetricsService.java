@@ -0,0 +1,55 @@
+package com.classviewer.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * 性能指标服务
+ * 每次自动反编译流程开始时创建新的运行指标，结束时导出JSON/HTML报告
+ */
+@Slf4j
+@Service
+public class MetricsService {
+
+    private volatile RunMetrics current = new RunMetrics("空闲");
+
+    /**
+     * 开始新的运行
+     */
+    public RunMetrics startRun(String name) {
+        current = new RunMetrics(name);
+        return current;
+    }
+
+    /**
+     * 当前运行的指标（未开始运行时记录到空闲指标中）
+     */
+    public RunMetrics current() {
+        return current;
+    }
+
+    /**
+     * 结束当前运行并导出报告
+     * @return JSON报告路径
+     */
+    public Path finishRun() throws IOException {
+        RunMetrics metrics = current;
+        metrics.finish();
+
+        Path reportDir = Paths.get(System.getProperty("user.home"), ".classviewer", "reports");
+        Files.createDirectories(reportDir);
+        String baseName = "run-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(metrics.getStartMillis()));
+        Path jsonFile = reportDir.resolve(baseName + ".json");
+        RunReportWriter.writeJson(metrics, jsonFile);
+        RunReportWriter.writeHtml(metrics, reportDir.resolve(baseName + ".html"));
+        log.info("运行报告已导出: {}", jsonFile);
+        return jsonFile;
+    }
+}
@@ -0,0 +1,23 @@
+package com.classviewer.metrics;
+
+/**
+ * 运行阶段
+ */
+public enum Phase {
+    JAR_EXTRACT("JAR解压"),
+    WHITELIST_MATCH("白名单匹配"),
+    LIBRARY_MATCH("依赖库识别"),
+    CFR_ANALYSE("CFR反编译"),
+    OUTPUT_WRITE("结果写入"),
+    UI_RENDER("界面渲染");
+
+    private final String label;
+
+    Phase(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
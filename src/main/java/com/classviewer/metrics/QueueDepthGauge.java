@@ -0,0 +1,37 @@
+package com.classviewer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 队列深度采样
+ */
+public class QueueDepthGauge {
+
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void sample(int depth) {
+        samples.incrementAndGet();
+        sum.addAndGet(depth);
+        long currentMax;
+        while (depth > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, depth)) {
+                break;
+            }
+        }
+    }
+
+    public long getSamples() {
+        return samples.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getAverage() {
+        long n = samples.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+}
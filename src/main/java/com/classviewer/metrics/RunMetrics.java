@@ -0,0 +1,80 @@
+package com.classviewer.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单次运行的性能指标
+ * 包括各阶段延迟直方图、读写字节数、队列深度以及最慢的CLASS和JAR
+ */
+public class RunMetrics {
+
+    private static final int SLOWEST_LIMIT = 20;
+
+    private final String name;
+    private final long startMillis = System.currentTimeMillis();
+    private volatile long endMillis;
+    private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final QueueDepthGauge batchQueueDepth = new QueueDepthGauge();
+    private final SlowestItems slowestClasses = new SlowestItems(SLOWEST_LIMIT);
+    private final SlowestItems slowestJars = new SlowestItems(SLOWEST_LIMIT);
+
+    public RunMetrics(String name) {
+        this.name = name;
+        for (Phase phase : Phase.values()) {
+            histograms.put(phase, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * 记录阶段耗时
+     */
+    public void record(Phase phase, long nanos) {
+        histograms.get(phase).record(nanos);
+    }
+
+    /**
+     * 记录单个CLASS的反编译耗时
+     */
+    public void recordClass(String className, long nanos, long bytes) {
+        record(Phase.CFR_ANALYSE, nanos);
+        bytesRead.add(bytes);
+        slowestClasses.offer(className, nanos, bytes);
+    }
+
+    /**
+     * 记录单个JAR的解压耗时
+     */
+    public void recordJar(String jarName, long nanos, long bytes) {
+        record(Phase.JAR_EXTRACT, nanos);
+        slowestJars.offer(jarName, nanos, bytes);
+    }
+
+    public void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    public void addBytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    void finish() {
+        endMillis = System.currentTimeMillis();
+    }
+
+    public String getName() { return name; }
+    public long getStartMillis() { return startMillis; }
+    public long getEndMillis() { return endMillis; }
+    public long getDurationMillis() {
+        return (endMillis > 0 ? endMillis : System.currentTimeMillis()) - startMillis;
+    }
+    public LatencyHistogram getHistogram(Phase phase) { return histograms.get(phase); }
+    public long getBytesRead() { return bytesRead.sum(); }
+    public long getBytesWritten() { return bytesWritten.sum(); }
+    public QueueDepthGauge getBatchQueueDepth() { return batchQueueDepth; }
+    public SlowestItems getSlowestClasses() { return slowestClasses; }
+    public SlowestItems getSlowestJars() { return slowestJars; }
+}
@@ -0,0 +1,145 @@
+package com.classviewer.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 运行报告导出（JSON + HTML）
+ */
+public final class RunReportWriter {
+
+    private RunReportWriter() {
+    }
+
+    public static void writeJson(RunMetrics metrics, Path file) throws IOException {
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\n");
+        json.append("  \"name\": ").append(quote(metrics.getName())).append(",\n");
+        json.append("  \"startTime\": ").append(quote(formatTime(metrics.getStartMillis()))).append(",\n");
+        json.append("  \"durationMs\": ").append(metrics.getDurationMillis()).append(",\n");
+        json.append("  \"bytesRead\": ").append(metrics.getBytesRead()).append(",\n");
+        json.append("  \"bytesWritten\": ").append(metrics.getBytesWritten()).append(",\n");
+        QueueDepthGauge queue = metrics.getBatchQueueDepth();
+        json.append("  \"batchQueueDepth\": {\"max\": ").append(queue.getMax())
+                .append(", \"average\": ").append(String.format(Locale.ROOT, "%.1f", queue.getAverage()))
+                .append(", \"samples\": ").append(queue.getSamples()).append("},\n");
+        json.append("  \"phases\": {\n");
+        Phase[] phases = Phase.values();
+        for (int i = 0; i < phases.length; i++) {
+            LatencyHistogram h = metrics.getHistogram(phases[i]);
+            json.append("    ").append(quote(phases[i].name())).append(": {")
+                    .append("\"count\": ").append(h.getCount())
+                    .append(", \"totalMs\": ").append(millis(h.getTotalNanos()))
+                    .append(", \"p50Ms\": ").append(millis(h.getPercentileNanos(50)))
+                    .append(", \"p99Ms\": ").append(millis(h.getPercentileNanos(99)))
+                    .append(", \"maxMs\": ").append(millis(h.getMaxNanos()))
+                    .append("}").append(i < phases.length - 1 ? ",\n" : "\n");
+        }
+        json.append("  },\n");
+        json.append("  \"slowestClasses\": ");
+        appendItems(json, metrics.getSlowestClasses().snapshot());
+        json.append(",\n  \"slowestJars\": ");
+        appendItems(json, metrics.getSlowestJars().snapshot());
+        json.append("\n}\n");
+        Files.write(file, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void writeHtml(RunMetrics metrics, Path file) throws IOException {
+        StringBuilder html = new StringBuilder(8192);
+        html.append("<!DOCTYPE html>\n<html><head><meta charset=\"UTF-8\"><title>ClassViewer 运行报告</title>\n");
+        html.append("<style>body{font-family:sans-serif;margin:24px;color:#333}")
+                .append("table{border-collapse:collapse;margin-bottom:24px}")
+                .append("th,td{border:1px solid #ddd;padding:6px 12px;text-align:right}")
+                .append("th{background:#f5f5f5}td.name{text-align:left;font-family:monospace}</style>\n");
+        html.append("</head><body>\n");
+        html.append("<h1>ClassViewer 运行报告</h1>\n");
+        html.append("<p>运行: ").append(escape(metrics.getName()))
+                .append("<br>开始时间: ").append(formatTime(metrics.getStartMillis()))
+                .append("<br>总耗时: ").append(metrics.getDurationMillis()).append(" ms")
+                .append("<br>读取: ").append(metrics.getBytesRead()).append(" 字节")
+                .append("，写入: ").append(metrics.getBytesWritten()).append(" 字节")
+                .append("<br>批量队列深度: 最大 ").append(metrics.getBatchQueueDepth().getMax())
+                .append("，平均 ").append(String.format(Locale.ROOT, "%.1f", metrics.getBatchQueueDepth().getAverage()))
+                .append("</p>\n");
+
+        html.append("<h2>阶段耗时</h2>\n<table><tr><th>阶段</th><th>次数</th><th>总计(ms)</th>")
+                .append("<th>p50(ms)</th><th>p99(ms)</th><th>最大(ms)</th></tr>\n");
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram h = metrics.getHistogram(phase);
+            html.append("<tr><td class=\"name\">").append(phase.getLabel()).append("</td>")
+                    .append("<td>").append(h.getCount()).append("</td>")
+                    .append("<td>").append(millis(h.getTotalNanos())).append("</td>")
+                    .append("<td>").append(millis(h.getPercentileNanos(50))).append("</td>")
+                    .append("<td>").append(millis(h.getPercentileNanos(99))).append("</td>")
+                    .append("<td>").append(millis(h.getMaxNanos())).append("</td></tr>\n");
+        }
+        html.append("</table>\n");
+
+        appendItemsTable(html, "最慢的CLASS", metrics.getSlowestClasses().snapshot());
+        appendItemsTable(html, "最慢的JAR", metrics.getSlowestJars().snapshot());
+        html.append("</body></html>\n");
+        Files.write(file, html.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void appendItems(StringBuilder json, List<SlowestItems.Item> items) {
+        json.append("[");
+        for (int i = 0; i < items.size(); i++) {
+            SlowestItems.Item item = items.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"name\": ").append(quote(item.getName()))
+                    .append(", \"ms\": ").append(millis(item.getNanos()))
+                    .append(", \"bytes\": ").append(item.getBytes()).append("}");
+        }
+        json.append(items.isEmpty() ? "]" : "\n  ]");
+    }
+
+    private static void appendItemsTable(StringBuilder html, String title, List<SlowestItems.Item> items) {
+        html.append("<h2>").append(title).append("</h2>\n");
+        html.append("<table><tr><th>名称</th><th>耗时(ms)</th><th>大小(字节)</th></tr>\n");
+        for (SlowestItems.Item item : items) {
+            html.append("<tr><td class=\"name\">").append(escape(item.getName())).append("</td>")
+                    .append("<td>").append(millis(item.getNanos())).append("</td>")
+                    .append("<td>").append(item.getBytes()).append("</td></tr>\n");
+        }
+        html.append("</table>\n");
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static String formatTime(long millis) {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(millis));
+    }
+
+    private static String quote(String s) {
+        StringBuilder out = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
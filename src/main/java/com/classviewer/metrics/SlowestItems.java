@@ -0,0 +1,65 @@
+package com.classviewer.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 最慢条目统计（保留耗时最长的前N个）
+ * 大多数记录低于当前门槛，只做一次volatile读即可返回，不会竞争锁
+ */
+public class SlowestItems {
+
+    private final int capacity;
+    private final PriorityQueue<Item> heap;
+    private volatile long threshold = Long.MIN_VALUE;
+
+    public SlowestItems(int capacity) {
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(capacity + 1, Comparator.comparingLong(Item::getNanos));
+    }
+
+    public void offer(String name, long nanos, long bytes) {
+        if (nanos <= threshold) {
+            return;
+        }
+        synchronized (heap) {
+            heap.add(new Item(name, nanos, bytes));
+            if (heap.size() > capacity) {
+                heap.poll();
+            }
+            if (heap.size() == capacity) {
+                threshold = heap.peek().getNanos();
+            }
+        }
+    }
+
+    /**
+     * 按耗时从高到低返回
+     */
+    public List<Item> snapshot() {
+        List<Item> items;
+        synchronized (heap) {
+            items = new ArrayList<>(heap);
+        }
+        items.sort(Comparator.comparingLong(Item::getNanos).reversed());
+        return items;
+    }
+
+    public static class Item {
+        private final String name;
+        private final long nanos;
+        private final long bytes;
+
+        public Item(String name, long nanos, long bytes) {
+            this.name = name;
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        public String getName() { return name; }
+        public long getNanos() { return nanos; }
+        public long getBytes() { return bytes; }
+    }
+}
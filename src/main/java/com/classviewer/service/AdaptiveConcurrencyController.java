@@ -0,0 +1,219 @@
+package com.classviewer.service;
+
+import com.classviewer.jfr.ConcurrencyChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 批量反编译线程数的自适应控制器
+ * 每个采样周期根据完成速度、GC耗时占比、老年代占用率和任务的CPU时间占比调整线程池大小：
+ * <ul>
+ *     <li>老年代占用或GC耗时过高时减半（CFR分配密集，大类同时反编译容易OOM）</li>
+ *     <li>任务大部分时间不在CPU上（磁盘慢、I/O等待）或线程数少于CPU核数，且内存宽裕时加一</li>
+ *     <li>加线程后完成速度没有提高则退回，并在若干周期内不再增加</li>
+ * </ul>
+ * 老年代取堆内存池中的Old Gen/Tenured池上次GC后的占用（不含未回收的垃圾，Parallel、Serial GC
+ * 在Full GC前老年代本就会涨到很高），取不到时用当前占用；收集器没有分代时使用整个堆（MemoryMXBean）。
+ */
+@Slf4j
+class AdaptiveConcurrencyController {
+
+    private static final long INTERVAL_MILLIS = 1000;
+    private static final double HIGH_OCCUPANCY = 0.85;
+    private static final double LOW_OCCUPANCY = 0.70;
+    private static final double HIGH_GC_RATIO = 0.25;
+    private static final double LOW_GC_RATIO = 0.10;
+    private static final double IO_BOUND_CPU_RATIO = 0.70;
+    private static final double MIN_GAIN = 0.05;
+    private static final int HOLD_INTERVALS = 5;
+
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private final ThreadPoolExecutor executor;
+    private final int minThreads;
+    private final int maxThreads;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+    private final MemoryPoolMXBean oldGen = findOldGen();
+    private final boolean cpuTimeSupported;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder wallNanos = new LongAdder();
+
+    private ScheduledExecutorService scheduler;
+    private long lastTickNanos;
+    private long lastGcMillis;
+    /**
+     * 上次加线程前的完成速度，-1表示上个周期没有加线程
+     */
+    private double throughputBeforeGrow = -1;
+    private int holdIntervals;
+
+    /**
+     * @param executor 受控的线程池，核心线程数即当前线程数
+     * @param minThreads 最少线程数
+     * @param maxThreads 最多线程数
+     */
+    AdaptiveConcurrencyController(ThreadPoolExecutor executor, int minThreads, int maxThreads) {
+        this.executor = executor;
+        this.minThreads = Math.max(1, minThreads);
+        this.maxThreads = Math.max(this.minThreads, maxThreads);
+        this.cpuTimeSupported = threadBean.isCurrentThreadCpuTimeSupported();
+        if (cpuTimeSupported && !threadBean.isThreadCpuTimeEnabled()) {
+            threadBean.setThreadCpuTimeEnabled(true);
+        }
+    }
+
+    void start() {
+        lastTickNanos = System.nanoTime();
+        lastGcMillis = totalGcMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-concurrency-controller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                log.warn("调整反编译线程数失败", e);
+            }
+        }, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 执行一个任务并记录其墙钟时间和CPU时间
+     */
+    void track(Runnable task) {
+        long wallStart = System.nanoTime();
+        long cpuStart = cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : 0;
+        try {
+            task.run();
+        } finally {
+            if (cpuTimeSupported) {
+                cpuNanos.add(threadBean.getCurrentThreadCpuTime() - cpuStart);
+            }
+            wallNanos.add(System.nanoTime() - wallStart);
+            completed.increment();
+        }
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        double seconds = (now - lastTickNanos) / 1e9;
+        lastTickNanos = now;
+        long gcMillis = totalGcMillis();
+        double gcRatio = (gcMillis - lastGcMillis) / (seconds * 1000);
+        lastGcMillis = gcMillis;
+
+        long done = completed.sumThenReset();
+        long wall = wallNanos.sumThenReset();
+        long cpu = cpuNanos.sumThenReset();
+        double throughput = done / seconds;
+        double cpuRatio = cpuTimeSupported && wall > 0 ? (double) cpu / wall : 1.0;
+        double occupancy = oldGenOccupancy();
+
+        int current = executor.getCorePoolSize();
+        int target = current;
+        String reason = null;
+        if (occupancy >= HIGH_OCCUPANCY || gcRatio >= HIGH_GC_RATIO) {
+            target = Math.max(minThreads, current / 2);
+            reason = String.format("内存压力（老年代 %.0f%%，GC %.0f%%）", occupancy * 100, gcRatio * 100);
+            holdIntervals = HOLD_INTERVALS;
+        } else if (throughputBeforeGrow >= 0 && throughput < throughputBeforeGrow * (1 + MIN_GAIN)) {
+            target = Math.max(minThreads, current - 1);
+            reason = String.format("增加线程后速度未提高（%.1f -> %.1f 个/秒）", throughputBeforeGrow, throughput);
+            holdIntervals = HOLD_INTERVALS;
+        } else if (holdIntervals > 0) {
+            holdIntervals--;
+        } else if (done > 0 && current < maxThreads && executor.getQueue().size() > 0
+                && occupancy < LOW_OCCUPANCY && gcRatio < LOW_GC_RATIO
+                && (cpuRatio < IO_BOUND_CPU_RATIO || current < CPU_COUNT)) {
+            target = current + 1;
+            reason = cpuRatio < IO_BOUND_CPU_RATIO
+                    ? String.format("等待I/O（CPU占比 %.0f%%）", cpuRatio * 100)
+                    : "CPU未用满";
+        }
+        throughputBeforeGrow = target > current ? throughput : -1;
+
+        if (target != current) {
+            resize(current, target);
+            log.info("反编译线程数 {} -> {}：{}", current, target, reason);
+            ConcurrencyChangeEvent event = new ConcurrencyChangeEvent();
+            if (event.shouldCommit()) {
+                event.oldThreads = current;
+                event.newThreads = target;
+                event.reason = reason;
+                event.throughput = throughput;
+                event.gcRatio = gcRatio;
+                event.oldGenOccupancy = occupancy;
+                event.cpuRatio = cpuRatio;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * 同时调整核心线程数和最大线程数：最大线程数降低后，多余的线程完成手头任务即退出
+     */
+    private void resize(int current, int target) {
+        if (target > current) {
+            executor.setMaximumPoolSize(target);
+            executor.setCorePoolSize(target);
+        } else {
+            executor.setCorePoolSize(target);
+            executor.setMaximumPoolSize(target);
+        }
+    }
+
+    private long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : gcBeans) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private double oldGenOccupancy() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        if (oldGen == null) {
+            return heap.getMax() > 0 ? (double) heap.getUsed() / heap.getMax() : 0;
+        }
+        // 上次GC后的占用才反映存活对象；不支持时为null
+        MemoryUsage usage = oldGen.getCollectionUsage();
+        if (usage == null) {
+            usage = oldGen.getUsage();
+        }
+        long max = usage.getMax() > 0 ? usage.getMax() : heap.getMax();
+        return max > 0 ? (double) usage.getUsed() / max : 0;
+    }
+
+    private static MemoryPoolMXBean findOldGen() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            String name = pool.getName();
+            if (pool.getType() == MemoryType.HEAP && (name.contains("Old Gen") || name.contains("Tenured"))) {
+                return pool;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,127 @@
+package com.classviewer.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick自动机（不可变）
+ * 只为模式中出现过的字符分配转移列，缺失的转移沿失配链接补全为DFA，匹配时每个字符只查一次表。
+ * 每个状态记录在该处结束的最长模式（含失配链接上的模式），命中哪些规则、如何取舍由使用方决定。
+ * 白名单（{@link WhitelistMatcher}）和包过滤（{@link PackageFilter}）共用。
+ */
+final class AhoCorasick {
+
+    // 字符 -> 字母表下标，未出现在任何模式中的字符为 -1
+    private final int[] charIndex;
+    private final int alphabetSize;
+    // 完整的状态转移表：transitions[state * alphabetSize + index]
+    private final int[] transitions;
+    // 每个状态命中的最长模式在模式列表中的下标，没有命中时为 -1
+    private final int[] longestMatch;
+
+    private AhoCorasick(int[] charIndex, int alphabetSize, int[] transitions, int[] longestMatch) {
+        this.charIndex = charIndex;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.longestMatch = longestMatch;
+    }
+
+    /**
+     * 构建自动机
+     * @param patterns 互不相同的非空模式，{@link #match(int)} 返回其中的下标
+     */
+    static AhoCorasick build(List<String> patterns) {
+        // 压缩字母表，只为模式中出现过的字符分配转移列
+        int maxChar = 0;
+        int totalLength = 0;
+        for (String pattern : patterns) {
+            totalLength += pattern.length();
+            for (int i = 0; i < pattern.length(); i++) {
+                maxChar = Math.max(maxChar, pattern.charAt(i));
+            }
+        }
+        int[] charIndex = new int[maxChar + 1];
+        Arrays.fill(charIndex, -1);
+        int alphabetSize = 0;
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (charIndex[c] < 0) {
+                    charIndex[c] = alphabetSize++;
+                }
+            }
+        }
+        alphabetSize = Math.max(alphabetSize, 1);
+
+        // 构建Trie
+        int maxStates = totalLength + 1;
+        int[] transitions = new int[maxStates * alphabetSize];
+        Arrays.fill(transitions, -1);
+        int[] longestMatch = new int[maxStates];
+        Arrays.fill(longestMatch, -1);
+        int stateCount = 1;
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int slot = state * alphabetSize + charIndex[pattern.charAt(i)];
+                if (transitions[slot] < 0) {
+                    transitions[slot] = stateCount++;
+                }
+                state = transitions[slot];
+            }
+            longestMatch[state] = p;
+        }
+
+        // BFS计算失配链接，并把缺失的转移补全为DFA；
+        // 没有自身模式的状态继承失配链接上的最长模式（自身模式总比失配链接上的长）
+        int[] fail = new int[stateCount];
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int c = 0; c < alphabetSize; c++) {
+            int next = transitions[c];
+            if (next < 0) {
+                transitions[c] = 0;
+            } else {
+                fail[next] = 0;
+                queue[tail++] = next;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            if (longestMatch[state] < 0) {
+                longestMatch[state] = longestMatch[fail[state]];
+            }
+            for (int c = 0; c < alphabetSize; c++) {
+                int slot = state * alphabetSize + c;
+                int next = transitions[slot];
+                int fallback = transitions[fail[state] * alphabetSize + c];
+                if (next < 0) {
+                    transitions[slot] = fallback;
+                } else {
+                    fail[next] = fallback;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        return new AhoCorasick(charIndex, alphabetSize,
+                Arrays.copyOf(transitions, stateCount * alphabetSize), Arrays.copyOf(longestMatch, stateCount));
+    }
+
+    /**
+     * 读入一个字符后的状态，初始状态为0
+     */
+    int step(int state, char c) {
+        int index = c < charIndex.length ? charIndex[c] : -1;
+        return index < 0 ? 0 : transitions[state * alphabetSize + index];
+    }
+
+    /**
+     * 在该状态结束的最长模式的下标，没有命中时为 -1
+     */
+    int match(int state) {
+        return longestMatch[state];
+    }
+}
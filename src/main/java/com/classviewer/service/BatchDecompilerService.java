@@ -1,16 +1,34 @@
 package com.classviewer.service;
 
+import com.classviewer.jfr.BatchRunEvent;
+import com.classviewer.jfr.BatchTaskEvent;
+import com.classviewer.jfr.Outcome;
+import com.classviewer.metrics.MetricsService;
+import com.classviewer.metrics.RunMetrics;
+import com.classviewer.worker.WorkerProcessPool;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.nio.file.Paths;
 
@@ -24,10 +42,44 @@ import java.nio.file.Paths;
 public class BatchDecompilerService {
 
     private final DecompilerService decompilerService;
+    private final MetricsService metricsService;
     
     // 线程池大小
     private static final int THREAD_POOL_SIZE = Runtime.getRuntime().availableProcessors();
 
+    // 工作进程数，大于0时CFR在独立的JVM中运行，进程崩溃不影响界面
+    @Value("${classviewer.worker.processes:0}")
+    private int workerProcesses = 0;
+
+    // 每个工作进程的最大堆
+    @Value("${classviewer.worker.max-heap:512m}")
+    private String workerMaxHeap = "512m";
+
+    // 单个CLASS在工作进程中的反编译超时
+    @Value("${classviewer.worker.task-timeout-seconds:60}")
+    private int workerTaskTimeoutSeconds = 60;
+
+    // 多线程反编译时按吞吐量、GC和老年代占用自动调整线程数
+    @Value("${classviewer.batch.adaptive:true}")
+    private boolean adaptiveConcurrency = true;
+
+    @Value("${classviewer.batch.min-threads:1}")
+    private int minThreads = 1;
+
+    // 0表示CPU核数的2倍
+    @Value("${classviewer.batch.max-threads:0}")
+    private int maxThreads = 0;
+
+    // 目录文件清单：查找CLASS文件时不再遍历目录，写出的Java文件同步更新到清单
+    private volatile FileInventory inventory;
+
+    /**
+     * 设置目录文件清单，为null时查找CLASS文件回退为遍历目录
+     */
+    public void setInventory(FileInventory inventory) {
+        this.inventory = inventory;
+    }
+
     /**
      * 批量反编译目录中的所有CLASS文件
      * @param directory 目录
@@ -46,33 +98,176 @@ public class BatchDecompilerService {
      * @return 反编译结果
      */
     public BatchResult batchDecompile(Path directory, boolean useMultiThread, ProgressCallback progressCallback) throws IOException {
-        BatchResult result = new BatchResult();
-        
+        return batchDecompile(directory, useMultiThread ? THREAD_POOL_SIZE : 1, progressCallback);
+    }
+
+    /**
+     * 批量反编译目录中的所有CLASS文件（指定线程数）
+     * @param directory 目录
+     * @param threadCount 线程数，1表示在当前线程中顺序处理
+     * @param progressCallback 进度回调
+     * @return 反编译结果
+     */
+    public BatchResult batchDecompile(Path directory, int threadCount, ProgressCallback progressCallback) throws IOException {
+        return batchDecompile(directory, threadCount, progressCallback, null);
+    }
+
+    /**
+     * 批量反编译目录中的所有CLASS文件（逐文件结果回调）
+     * 每个文件的结果只通过回调和磁盘日志流式输出，BatchResult 只保留汇总计数和有限的错误样本
+     * @param directory 目录
+     * @param threadCount 线程数，1表示在当前线程中顺序处理
+     * @param progressCallback 进度回调
+     * @param resultListener 逐文件结果回调，可为null
+     * @return 反编译结果
+     */
+    public BatchResult batchDecompile(Path directory, int threadCount, ProgressCallback progressCallback,
+                                      ResultListener resultListener) throws IOException {
         log.info("开始批量反编译目录: {}", directory);
         
         // 查找所有CLASS文件
         List<Path> classFiles = findAllClassFiles(directory);
-        result.setTotalFiles(classFiles.size());
-        
         log.info("发现 {} 个CLASS文件", classFiles.size());
+
+        return runBatch(directory.toString(), classFiles, this::getJavaFilePath,
+                BatchJournal.journalFileFor(directory), null, threadCount, progressCallback, resultListener);
+    }
+
+    /**
+     * 继续目录上一次未完成的批量反编译
+     * @param useMultiThread 是否使用多线程
+     */
+    public BatchResult resumeBatchDecompile(Path directory, boolean useMultiThread,
+                                            ProgressCallback progressCallback) throws IOException {
+        return resumeBatchDecompile(directory, useMultiThread ? THREAD_POOL_SIZE : 1, progressCallback, null);
+    }
+
+    /**
+     * 继续目录上一次未完成的批量反编译
+     * 从结果日志恢复已处理的文件和计数，只处理还没有结果的CLASS文件，结果追加到同一个日志。
+     * 没有结果日志时等同于完整的批量反编译。
+     */
+    public BatchResult resumeBatchDecompile(Path directory, int threadCount, ProgressCallback progressCallback,
+                                            ResultListener resultListener) throws IOException {
+        Path journalFile = BatchJournal.journalFileFor(directory);
+        long loadStart = System.nanoTime();
+        BatchJournal.Checkpoint checkpoint = BatchJournal.load(journalFile);
+        log.info("读取检查点 {} - 已处理: {}, 耗时: {}ms", journalFile, checkpoint.getCompletedCount(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart));
+
+        List<Path> classFiles = findAllClassFiles(directory);
+        List<Path> remaining = classFiles.parallelStream()
+                .filter(classFile -> !checkpoint.isCompleted(classFile))
+                .collect(Collectors.toList());
+        log.info("继续批量反编译目录: {} - 共 {} 个CLASS文件，剩余 {} 个", directory, classFiles.size(), remaining.size());
+
+        return runBatch(directory.toString(), remaining, this::getJavaFilePath, journalFile, checkpoint,
+                threadCount, progressCallback, resultListener);
+    }
+
+    /**
+     * 批量反编译指定的CLASS文件（如分片运行），Java文件写到指定位置
+     * @param classFiles CLASS文件列表
+     * @param outputFor CLASS文件对应的Java文件路径
+     * @param journalFile 结果日志文件
+     * @param threadCount 线程数，1表示在当前线程中顺序处理
+     * @param progressCallback 进度回调
+     * @param resultListener 逐文件结果回调，可为null
+     * @return 反编译结果
+     */
+    public BatchResult batchDecompile(List<Path> classFiles, Function<Path, Path> outputFor, Path journalFile,
+                                      int threadCount, ProgressCallback progressCallback,
+                                      ResultListener resultListener) throws IOException {
+        return runBatch(journalFile.toString(), classFiles, outputFor, journalFile, null, threadCount,
+                progressCallback, resultListener);
+    }
+
+    /**
+     * 反编译目录中指定的CLASS文件（如实时监听发现的新增、修改的文件），Java文件写在CLASS文件旁边
+     * 结果记录在单独的日志中（目录结果日志名加 -watch），不影响目录的断点续传
+     */
+    public BatchResult decompileFiles(Path directory, List<Path> classFiles, boolean useMultiThread,
+                                      ProgressCallback progressCallback) throws IOException {
+        Path journalFile = BatchJournal.journalFileFor(directory);
+        String name = journalFile.getFileName().toString();
+        journalFile = journalFile.resolveSibling(name.substring(0, name.length() - ".log".length()) + "-watch.log");
+        return runBatch(directory.toString(), classFiles, this::getJavaFilePath, journalFile, null,
+                useMultiThread ? THREAD_POOL_SIZE : 1, progressCallback, null);
+    }
+
+    /**
+     * @param checkpoint 续传时上一次的进度，classFiles只包含剩余的文件；为null时开始新的任务
+     */
+    private BatchResult runBatch(String name, List<Path> classFiles, Function<Path, Path> outputFor,
+                                 Path journalFile, BatchJournal.Checkpoint checkpoint, int threadCount,
+                                 ProgressCallback progressCallback, ResultListener resultListener)
+            throws IOException {
+        BatchResult result = new BatchResult();
+        if (checkpoint != null) {
+            result.setTotalFiles(classFiles.size() + checkpoint.getCompletedCount());
+            result.addPrevious(checkpoint);
+        } else {
+            result.setTotalFiles(classFiles.size());
+        }
         
-        if (classFiles.isEmpty()) {
+        if (classFiles.isEmpty() && checkpoint == null) {
             return result;
         }
 
         long startTime = System.currentTimeMillis();
+        BatchRunEvent event = new BatchRunEvent();
+        event.begin();
+
+        // 按内容去重：相同字节的CLASS只反编译一个代表，其余复用其源码
+        DedupPlan plan = planDeduplication(classFiles);
+        if (plan.duplicateCount() > 0) {
+            log.info("发现 {} 个重复的CLASS文件，实际反编译 {} 个", plan.duplicateCount(), plan.uniqueCount());
+        }
+        // 最长任务优先：预估成本大的类先开始，避免最后只剩一个线程在处理大类
+        plan.sortLargestFirst();
+        BatchProgressEstimator estimator = new BatchProgressEstimator(plan.totalCost());
         
-        if (useMultiThread) {
-            decompileWithThreadPool(classFiles, result, progressCallback);
-        } else {
-            decompileSingleThread(classFiles, result, progressCallback);
+        try (BatchJournal journal = checkpoint != null
+                ? BatchJournal.resume(journalFile, checkpoint) : BatchJournal.create(journalFile)) {
+            result.setJournalFile(journal.getFile());
+            ResultListener listener = journal;
+            if (resultListener != null) {
+                listener = new CompositeResultListener(listener, resultListener);
+            }
+            int total = result.getTotalFiles();
+            // 未启用工作进程或工作进程无法启动时，在当前进程中反编译
+            if (plan.uniqueCount() == 0) {
+                log.info("没有需要反编译的CLASS文件");
+            } else if (workerProcesses <= 0
+                    || !decompileWithWorkers(plan, outputFor, total, estimator, result, progressCallback, listener)) {
+                if (threadCount > 1) {
+                    decompileWithThreadPool(plan, outputFor, total, threadCount, estimator, result,
+                            progressCallback, listener);
+                } else {
+                    decompileSingleThread(plan, outputFor, total, estimator, result, progressCallback, listener);
+                }
+                log.info("成本模型校准: {} ns/单位成本", String.format("%.1f", estimator.nanosPerCost()));
+            }
+            linkDuplicates(plan, outputFor, total, result, progressCallback, listener);
+            journal.markFinished();
         }
         
         long duration = System.currentTimeMillis() - startTime;
         result.setDuration(duration);
         
-        log.info("批量反编译完成 - 耗时: {}ms, 成功: {}, 失败: {}", 
-                duration, result.getSuccessCount(), result.getFailCount());
+        event.end();
+        if (event.shouldCommit()) {
+            event.directory = name;
+            event.threads = threadCount;
+            event.totalFiles = result.getTotalFiles();
+            event.successCount = result.getSuccessCount();
+            event.failCount = result.getFailCount();
+            event.duplicateCount = result.getDuplicateCount();
+            event.commit();
+        }
+        
+        log.info("批量反编译完成 - 耗时: {}ms, 成功: {}, 失败: {}, 重复: {}", 
+                duration, result.getSuccessCount(), result.getFailCount(), result.getDuplicateCount());
         
         return result;
     }
@@ -80,31 +275,18 @@ public class BatchDecompilerService {
     /**
      * 单线程反编译
      */
-    private void decompileSingleThread(List<Path> classFiles, BatchResult result, ProgressCallback progressCallback) {
-        int current = 0;
-        int total = classFiles.size();
-        
-        for (Path classFile : classFiles) {
-            current++;
-            try {
-                if (progressCallback != null) {
-                    progressCallback.onProgress(current, total, classFile.getFileName().toString());
-                }
-                
-                String sourceCode = decompilerService.decompileClass(classFile.toFile());
-                
-                // 保存反编译结果
-                Path javaFile = getJavaFilePath(classFile);
-                Files.createDirectories(javaFile.getParent());
-                Files.write(javaFile, sourceCode.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-                
-                result.incrementSuccess();
-                result.addDecompiledFile(classFile.toString(), javaFile.toString());
-                
-            } catch (Exception e) {
-                log.error("反编译失败: {}", classFile, e);
-                result.incrementFail();
-                result.addError(classFile.toString(), e.getMessage());
+    private void decompileSingleThread(DedupPlan plan, Function<Path, Path> outputFor, int total,
+                                       BatchProgressEstimator estimator, BatchResult result,
+                                       ProgressCallback progressCallback, ResultListener listener) {
+        for (int position = 0; position < plan.uniqueCount(); position++) {
+            Path classFile = plan.uniqueFile(position);
+            if (progressCallback != null) {
+                progressCallback.onProgress(position + 1, total, classFile.getFileName().toString(),
+                        estimator.remainingMillis());
+            }
+            if (!decompileFile(classFile, outputFor.apply(classFile), plan.costOf(position), estimator, result,
+                    listener)) {
+                plan.markFailed(position);
             }
         }
     }
@@ -112,49 +294,54 @@ public class BatchDecompilerService {
     /**
      * 多线程反编译
      */
-    private void decompileWithThreadPool(List<Path> classFiles, BatchResult result, ProgressCallback progressCallback) {
-        ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-        CountDownLatch latch = new CountDownLatch(classFiles.size());
-        
-        log.info("使用 {} 个线程进行并发反编译", THREAD_POOL_SIZE);
+    private void decompileWithThreadPool(DedupPlan plan, Function<Path, Path> outputFor, int total,
+                                         int threadCount, BatchProgressEstimator estimator, BatchResult result,
+                                         ProgressCallback progressCallback, ResultListener listener) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        RunMetrics metrics = metricsService.current();
+        CountDownLatch latch = new CountDownLatch(plan.uniqueCount());
+        int max = maxThreads > 0 ? maxThreads : THREAD_POOL_SIZE * 2;
+        AdaptiveConcurrencyController controller = adaptiveConcurrency
+                ? new AdaptiveConcurrencyController(executor, minThreads, max) : null;
+        if (controller != null) {
+            log.info("使用 {} 个线程进行并发反编译，自动调整范围 {}-{}", threadCount, Math.max(1, minThreads), max);
+        } else {
+            log.info("使用 {} 个线程进行并发反编译", threadCount);
+        }
         
-        int total = classFiles.size();
-        for (Path classFile : classFiles) {
+        for (int i = 0; i < plan.uniqueCount(); i++) {
+            int position = i;
+            Path classFile = plan.uniqueFile(position);
             executor.submit(() -> {
                 try {
-                    String sourceCode = decompilerService.decompileClass(classFile.toFile());
-                    
-                    // 保存反编译结果
-                    Path javaFile = getJavaFilePath(classFile);
-                    synchronized (result) {
-                        Files.createDirectories(javaFile.getParent());
-                        Files.write(javaFile, sourceCode.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                    Runnable task = () -> {
+                        if (!decompileFile(classFile, outputFor.apply(classFile), plan.costOf(position),
+                                estimator, result, listener)) {
+                            plan.markFailed(position);
+                        }
+                    };
+                    if (controller != null) {
+                        controller.track(task);
+                    } else {
+                        task.run();
                     }
                     
-                    result.incrementSuccess();
-                    result.addDecompiledFile(classFile.toString(), javaFile.toString());
-                    
                     // 进度回调
                     if (progressCallback != null) {
                         int current = result.getSuccessCount() + result.getFailCount();
-                        progressCallback.onProgress(current, total, classFile.getFileName().toString());
-                    }
-                    
-                } catch (Exception e) {
-                    log.error("反编译失败: {}", classFile, e);
-                    result.incrementFail();
-                    result.addError(classFile.toString(), e.getMessage());
-                    
-                    // 进度回调
-                    if (progressCallback != null) {
-                        int current = result.getSuccessCount() + result.getFailCount();
-                        progressCallback.onProgress(current, total, classFile.getFileName().toString());
+                        progressCallback.onProgress(current, total, classFile.getFileName().toString(),
+                                estimator.remainingMillis());
                     }
                 } finally {
+                    metrics.getBatchQueueDepth().sample(executor.getQueue().size());
                     latch.countDown();
                 }
             });
         }
+        if (controller != null) {
+            controller.start();
+        }
         
         try {
             latch.await();
@@ -162,20 +349,265 @@ public class BatchDecompilerService {
             log.error("等待反编译任务完成时被中断", e);
             Thread.currentThread().interrupt();
         } finally {
+            if (controller != null) {
+                controller.stop();
+            }
             executor.shutdown();
         }
     }
 
     /**
-     * 查找所有CLASS文件
+     * 多进程反编译：交给独立的工作进程执行
+     * @return 是否已处理；工作进程无法启动时返回false，由调用方改为在当前进程中反编译
+     */
+    private boolean decompileWithWorkers(DedupPlan plan, Function<Path, Path> outputFor, int total,
+                                         BatchProgressEstimator estimator, BatchResult result,
+                                         ProgressCallback progressCallback, ResultListener listener) {
+        WorkerProcessPool pool = new WorkerProcessPool(workerProcesses, workerMaxHeap,
+                TimeUnit.SECONDS.toMillis(workerTaskTimeoutSeconds));
+        RunMetrics metrics = metricsService.current();
+
+        log.info("使用 {} 个工作进程进行反编译", workerProcesses);
+        try {
+            pool.run(plan.uniqueFiles(), outputFor, new WorkerProcessPool.TaskListener() {
+                @Override
+                public void onCompleted(int index, Path classFile, Path javaFile, long outputBytes,
+                                        long decompileNanos) {
+                    metrics.recordClass(classFile.toString(), decompileNanos, classFile.toFile().length());
+                    metrics.addBytesWritten(outputBytes);
+                    estimator.completed(plan.costOf(index), decompileNanos);
+                    result.incrementSuccess();
+                    listener.onDecompiled(classFile, javaFile);
+                    reportProgress(classFile);
+                }
+
+                @Override
+                public void onFailed(int index, Path classFile, String error, long elapsedNanos) {
+                    // 失败（含超时）同样占用了工作进程，按分发耗时计入，避免剩余时间偏乐观
+                    estimator.completed(plan.costOf(index), elapsedNanos);
+                    plan.markFailed(index);
+                    result.incrementFail();
+                    result.addError(classFile.toString(), error);
+                    listener.onFailed(classFile, error);
+                    reportProgress(classFile);
+                }
+
+                private void reportProgress(Path classFile) {
+                    if (progressCallback != null) {
+                        int current = result.getSuccessCount() + result.getFailCount();
+                        progressCallback.onProgress(current, total, classFile.getFileName().toString(),
+                                estimator.remainingMillis());
+                    }
+                }
+            });
+            return true;
+        } catch (IOException e) {
+            log.warn("工作进程不可用，改为在当前进程中反编译", e);
+            return false;
+        } catch (InterruptedException e) {
+            log.error("等待工作进程完成时被中断", e);
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
+    /**
+     * 计算CLASS文件的内容指纹，按指纹分出代表文件和重复文件
+     * 指纹并行计算，同时从已读入的字节预估反编译成本；指纹相同时再逐字节比较，避免哈希碰撞导致误判
+     */
+    private DedupPlan planDeduplication(List<Path> classFiles) {
+        int count = classFiles.size();
+        long[] fingerprints = new long[count];
+        long[] costs = new long[count];
+        boolean[] readable = new boolean[count];
+        IntStream.range(0, count).parallel().forEach(i -> {
+            try {
+                byte[] bytes = Files.readAllBytes(classFiles.get(i));
+                fingerprints[i] = FingerprintTable.fingerprint(bytes);
+                costs[i] = ClassCost.estimate(bytes);
+                readable[i] = true;
+            } catch (IOException e) {
+                // 读取失败的文件单独处理，反编译时会记录错误
+                log.debug("计算CLASS指纹失败: {}", classFiles.get(i), e);
+            }
+        });
+
+        DedupPlan plan = new DedupPlan(classFiles, costs);
+        FingerprintTable table = new FingerprintTable(count);
+        for (int i = 0; i < count; i++) {
+            if (readable[i]) {
+                int existing = table.putIfAbsent(fingerprints[i], i);
+                if (existing >= 0 && sameContent(classFiles.get(existing), classFiles.get(i))) {
+                    plan.addDuplicate(i, existing);
+                    continue;
+                }
+            }
+            plan.addUnique(i);
+        }
+        return plan;
+    }
+
+    private boolean sameContent(Path first, Path second) {
+        try {
+            return Files.size(first) == Files.size(second)
+                    && Arrays.equals(Files.readAllBytes(first), Files.readAllBytes(second));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 重复的CLASS复用代表文件的反编译结果（优先硬链接，不支持时复制）
+     */
+    private void linkDuplicates(DedupPlan plan, Function<Path, Path> outputFor, int total,
+                                BatchResult result, ProgressCallback progressCallback, ResultListener listener) {
+        for (int i = 0; i < plan.duplicateCount(); i++) {
+            Path classFile = plan.duplicateFile(i);
+            Path source = plan.sourceFile(i);
+            if (progressCallback != null) {
+                int current = result.getSuccessCount() + result.getFailCount() + 1;
+                progressCallback.onProgress(current, total, classFile.getFileName().toString());
+            }
+
+            if (plan.sourceFailed(i)) {
+                String error = "与 " + source + " 内容相同，该文件反编译失败";
+                result.incrementFail();
+                result.addError(classFile.toString(), error);
+                listener.onFailed(classFile, error);
+                continue;
+            }
+
+            Path javaFile = outputFor.apply(classFile);
+            try {
+                linkSource(outputFor.apply(source), javaFile);
+                result.incrementSuccess();
+                result.incrementDuplicate();
+                listener.onDecompiled(classFile, javaFile);
+            } catch (IOException e) {
+                log.error("复用反编译结果失败: {}", classFile, e);
+                result.incrementFail();
+                result.addError(classFile.toString(), e.getMessage());
+                listener.onFailed(classFile, e.getMessage());
+            }
+        }
+    }
+
+    private void linkSource(Path sourceJava, Path javaFile) throws IOException {
+        Files.createDirectories(javaFile.getParent());
+        Files.deleteIfExists(javaFile);
+        try {
+            Files.createLink(javaFile, sourceJava);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(sourceJava, javaFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        recordWritten(javaFile);
+    }
+
+    /**
+     * 反编译单个文件并保存结果
+     * @return 是否成功
+     */
+    private boolean decompileFile(Path classFile, Path javaFile, long cost, BatchProgressEstimator estimator,
+                                  BatchResult result, ResultListener listener) {
+        BatchTaskEvent event = new BatchTaskEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        long outputSize = 0;
+        String outcome = Outcome.FAILED;
+        try {
+            // 反编译结果直接写入文件
+            outputSize = writeSource(classFile, javaFile);
+            
+            result.incrementSuccess();
+            listener.onDecompiled(classFile, javaFile);
+            outcome = Outcome.SUCCESS;
+            return true;
+            
+        } catch (Exception e) {
+            log.error("反编译失败: {}", classFile, e);
+            result.incrementFail();
+            result.addError(classFile.toString(), e.getMessage());
+            listener.onFailed(classFile, e.getMessage());
+            return false;
+        } finally {
+            estimator.completed(cost, System.nanoTime() - startTime);
+            event.end();
+            if (event.shouldCommit()) {
+                event.classFile = classFile.toString();
+                event.classSize = classFile.toFile().length();
+                event.outputSize = outputSize;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * 反编译并把结果直接写入文件
+     * @return 写入的字节数
      */
-    private List<Path> findAllClassFiles(Path directory) throws IOException {
+    private long writeSource(Path classFile, Path javaFile) throws Exception {
+        Files.createDirectories(javaFile.getParent());
+        // 上次运行可能为重复类建立了硬链接，先删除再写入，避免改写共享的文件内容
+        Files.deleteIfExists(javaFile);
+        long bytes;
+        try (FileChannel out = FileChannel.open(javaFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            bytes = decompilerService.decompileClassTo(classFile.toFile(), out);
+        } catch (Exception e) {
+            // 不留下写了一半的文件
+            Files.deleteIfExists(javaFile);
+            throw e;
+        }
+        recordWritten(javaFile);
+        metricsService.current().addBytesWritten(bytes);
+        return bytes;
+    }
+
+    private void recordWritten(Path javaFile) {
+        FileInventory current = inventory;
+        if (current != null) {
+            current.added(javaFile);
+        }
+    }
+
+    /**
+     * 查找目录下所有CLASS文件
+     * 目录在文件清单范围内时直接查询清单，否则遍历目录；
+     * 按相对路径排除包过滤规则中的CLASS（如业务JAR中shade进来的第三方代码）
+     */
+    public List<Path> findAllClassFiles(Path directory) throws IOException {
         List<Path> classFiles = new ArrayList<>();
-        
-        try (Stream<Path> paths = Files.walk(directory)) {
-            paths.filter(Files::isRegularFile)
-                 .filter(path -> path.toString().endsWith(".class"))
-                 .forEach(classFiles::add);
+        PackageFilter filter = PackageFilter.current();
+        int filtered = 0;
+
+        FileInventory current = inventory;
+        Iterator<Path> iterator;
+        Stream<Path> paths = null;
+        if (current != null && current.covers(directory)) {
+            directory = directory.toAbsolutePath().normalize();
+            iterator = current.find(directory, ".class").iterator();
+        } else {
+            paths = Files.walk(directory);
+            iterator = paths.filter(path -> path.toString().endsWith(".class"))
+                    .filter(Files::isRegularFile)
+                    .iterator();
+        }
+        try {
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                if (filter.accepts(directory.relativize(path).toString())) {
+                    classFiles.add(path);
+                } else {
+                    filtered++;
+                }
+            }
+        } finally {
+            if (paths != null) {
+                paths.close();
+            }
+        }
+        if (filtered > 0) {
+            log.info("按包过滤规则排除 {} 个CLASS文件", filtered);
         }
         
         return classFiles;
@@ -192,64 +624,72 @@ public class BatchDecompilerService {
 
     /**
      * 批量反编译结果
+     * 只保留汇总计数和前100条错误样本，逐文件的记录见结果日志
      */
     public static class BatchResult {
+        public static final int MAX_ERROR_SAMPLES = 100;
+
         private int totalFiles = 0;
-        private int successCount = 0;
-        private int failCount = 0;
+        private final AtomicInteger successCount = new AtomicInteger();
+        private final AtomicInteger failCount = new AtomicInteger();
+        private final AtomicInteger duplicateCount = new AtomicInteger();
         private long duration = 0;
-        private final List<DecompiledFile> decompiledFiles = new ArrayList<>();
-        private final List<ErrorFile> errorFiles = new ArrayList<>();
+        private final List<ErrorFile> errorSamples = new ArrayList<>();
+        private Path journalFile;
 
-        public synchronized void incrementSuccess() {
-            successCount++;
+        public void incrementSuccess() {
+            successCount.incrementAndGet();
         }
 
-        public synchronized void incrementFail() {
-            failCount++;
+        public void incrementFail() {
+            failCount.incrementAndGet();
         }
 
-        public synchronized void addDecompiledFile(String classFile, String javaFile) {
-            decompiledFiles.add(new DecompiledFile(classFile, javaFile));
+        public void incrementDuplicate() {
+            duplicateCount.incrementAndGet();
         }
 
         public synchronized void addError(String classFile, String error) {
-            errorFiles.add(new ErrorFile(classFile, error));
+            if (errorSamples.size() < MAX_ERROR_SAMPLES) {
+                errorSamples.add(new ErrorFile(classFile, error));
+            }
+        }
+
+        /**
+         * 计入续传前已完成的结果
+         */
+        public void addPrevious(BatchJournal.Checkpoint checkpoint) {
+            successCount.addAndGet(checkpoint.getSuccessCount());
+            failCount.addAndGet(checkpoint.getFailCount());
+            for (ErrorFile error : checkpoint.getErrorSamples()) {
+                addError(error.getClassFile(), error.getError());
+            }
         }
 
         public void setTotalFiles(int total) { this.totalFiles = total; }
         public void setDuration(long duration) { this.duration = duration; }
+        public void setJournalFile(Path journalFile) { this.journalFile = journalFile; }
         
         public int getTotalFiles() { return totalFiles; }
-        public int getSuccessCount() { return successCount; }
-        public int getFailCount() { return failCount; }
+        public int getSuccessCount() { return successCount.get(); }
+        public int getFailCount() { return failCount.get(); }
+        public int getDuplicateCount() { return duplicateCount.get(); }
+        public double getDedupRatio() { return totalFiles > 0 ? duplicateCount.get() * 1.0 / totalFiles : 0; }
         public long getDuration() { return duration; }
-        public List<DecompiledFile> getDecompiledFiles() { return decompiledFiles; }
-        public List<ErrorFile> getErrorFiles() { return errorFiles; }
+        public synchronized List<ErrorFile> getErrorFiles() { return new ArrayList<>(errorSamples); }
+        public Path getJournalFile() { return journalFile; }
 
         @Override
         public String toString() {
+            int success = getSuccessCount();
             return String.format(
-                "批量反编译结果:\n总文件数: %d\n成功: %d\n失败: %d\n耗时: %dms\n平均速度: %.2f 文件/秒",
-                totalFiles, successCount, failCount, duration, 
-                duration > 0 ? (successCount * 1000.0 / duration) : 0
+                "批量反编译结果:\n总文件数: %d\n成功: %d\n失败: %d\n重复: %d (%.1f%%)\n耗时: %dms\n平均速度: %.2f 文件/秒",
+                totalFiles, success, getFailCount(), getDuplicateCount(), getDedupRatio() * 100, duration, 
+                duration > 0 ? (success * 1000.0 / duration) : 0
             );
         }
     }
 
-    public static class DecompiledFile {
-        private final String classFile;
-        private final String javaFile;
-
-        public DecompiledFile(String classFile, String javaFile) {
-            this.classFile = classFile;
-            this.javaFile = javaFile;
-        }
-
-        public String getClassFile() { return classFile; }
-        public String getJavaFile() { return javaFile; }
-    }
-
     public static class ErrorFile {
         private final String classFile;
         private final String error;
@@ -262,6 +702,154 @@ public class BatchDecompilerService {
         public String getClassFile() { return classFile; }
         public String getError() { return error; }
     }
+
+    /**
+     * 逐文件结果回调接口
+     * 由工作线程并发调用，实现需保证线程安全
+     */
+    public interface ResultListener {
+        void onDecompiled(Path classFile, Path javaFile);
+
+        void onFailed(Path classFile, String error);
+    }
+
+    /**
+     * 去重计划：需要反编译的代表文件，以及重复文件和对应的代表文件
+     * 只保存文件在输入列表中的下标、预估成本和失败标记等基本类型数组，不为每个文件另建对象，
+     * 整个批次期间的堆占用与文件数基本无关。
+     */
+    private static class DedupPlan {
+        private final List<Path> files;
+        // 按输入下标的预估成本，读取失败的文件为0
+        private final long[] costs;
+        // 代表文件的输入下标，排序后按预估成本从大到小；以下称其中的位置为“序号”
+        private int[] unique;
+        private int uniqueCount;
+        // 重复文件及其代表文件的输入下标
+        private int[] duplicates = new int[16];
+        private int[] sources = new int[16];
+        private int duplicateCount;
+        // 反编译失败的代表文件（按输入下标）
+        private final BitSet failed = new BitSet();
+
+        DedupPlan(List<Path> files, long[] costs) {
+            this.files = files;
+            this.costs = costs;
+            this.unique = new int[files.size()];
+        }
+
+        void addUnique(int index) {
+            unique[uniqueCount++] = index;
+        }
+
+        void addDuplicate(int index, int source) {
+            if (duplicateCount == duplicates.length) {
+                duplicates = Arrays.copyOf(duplicates, duplicateCount * 2);
+                sources = Arrays.copyOf(sources, duplicateCount * 2);
+            }
+            duplicates[duplicateCount] = index;
+            sources[duplicateCount] = source;
+            duplicateCount++;
+        }
+
+        int uniqueCount() {
+            return uniqueCount;
+        }
+
+        Path uniqueFile(int position) {
+            return files.get(unique[position]);
+        }
+
+        /**
+         * 按序号排列的代表文件（只读视图）
+         */
+        List<Path> uniqueFiles() {
+            return new AbstractList<Path>() {
+                @Override
+                public Path get(int position) {
+                    return uniqueFile(position);
+                }
+
+                @Override
+                public int size() {
+                    return uniqueCount;
+                }
+            };
+        }
+
+        long costOf(int position) {
+            return costs[unique[position]];
+        }
+
+        long totalCost() {
+            long total = 0;
+            for (int position = 0; position < uniqueCount; position++) {
+                total += costOf(position);
+            }
+            return total;
+        }
+
+        synchronized void markFailed(int position) {
+            failed.set(unique[position]);
+        }
+
+        int duplicateCount() {
+            return duplicateCount;
+        }
+
+        Path duplicateFile(int i) {
+            return files.get(duplicates[i]);
+        }
+
+        Path sourceFile(int i) {
+            return files.get(sources[i]);
+        }
+
+        synchronized boolean sourceFailed(int i) {
+            return failed.get(sources[i]);
+        }
+
+        /**
+         * 按预估成本从大到小排列待反编译的文件（成本相同时保持原有顺序）
+         * 成本取反后与输入下标拼成一个long排序，不需要装箱的比较器
+         */
+        void sortLargestFirst() {
+            long[] keys = new long[uniqueCount];
+            for (int position = 0; position < uniqueCount; position++) {
+                long cost = Math.min(costOf(position), Integer.MAX_VALUE);
+                keys[position] = (Integer.MAX_VALUE - cost) << 32 | unique[position];
+            }
+            Arrays.sort(keys);
+            for (int position = 0; position < uniqueCount; position++) {
+                unique[position] = (int) keys[position];
+            }
+        }
+    }
+
+    /**
+     * 同时通知多个结果回调
+     */
+    private static class CompositeResultListener implements ResultListener {
+        private final ResultListener first;
+        private final ResultListener second;
+
+        CompositeResultListener(ResultListener first, ResultListener second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void onDecompiled(Path classFile, Path javaFile) {
+            first.onDecompiled(classFile, javaFile);
+            second.onDecompiled(classFile, javaFile);
+        }
+
+        @Override
+        public void onFailed(Path classFile, String error) {
+            first.onFailed(classFile, error);
+            second.onFailed(classFile, error);
+        }
+    }
     
     /**
      * 进度回调接口
@@ -269,5 +857,13 @@ public class BatchDecompilerService {
     @FunctionalInterface
     public interface ProgressCallback {
         void onProgress(int current, int total, String fileName);
+
+        /**
+         * 带预计剩余时间的进度，批量反编译时调用；默认忽略预估
+         * @param remainingMillis 按已完成文件的实际耗时校准得出的预计剩余毫秒数，样本不足时为-1
+         */
+        default void onProgress(int current, int total, String fileName, long remainingMillis) {
+            onProgress(current, total, fileName);
+        }
     }
 }
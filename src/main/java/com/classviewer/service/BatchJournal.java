@@ -0,0 +1,391 @@
+package com.classviewer.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量反编译结果日志，同时作为断点续传的检查点
+ * 每个文件的处理结果逐行追加写入磁盘，内存中只保留汇总计数，堆占用与文件数量无关。
+ * 行格式：OK\t类文件\tJava文件 或 FAIL\t类文件\t错误信息（字段中的制表符、换行会被转义）。
+ * 以#开头的是标记行：#start（新的批量任务）、#resume（继续上次的任务）、#end（任务正常结束）。
+ * 记录每1000条或每秒强制刷盘一次，进程崩溃或断电最多丢失最后一批记录，丢失的文件续传时会重新处理；
+ * 写了一半的最后一行在读取时忽略，续传前截掉。
+ */
+@Slf4j
+public class BatchJournal implements BatchDecompilerService.ResultListener, Closeable {
+
+    public static final String OK = "OK";
+    public static final String FAIL = "FAIL";
+
+    static final String START_MARKER = "#start";
+    static final String RESUME_MARKER = "#resume";
+    static final String END_MARKER = "#end";
+
+    private static final int SYNC_EVERY_RECORDS = 1000;
+    private static final long SYNC_INTERVAL_NANOS = 1_000_000_000L;
+    private static final int READ_CHUNK = 1024 * 1024;
+    private static final int TAIL_CHECK_BYTES = 4096;
+    /**
+     * 估算记录数用的平均行长，用于预先分配哈希表
+     */
+    private static final int ESTIMATED_LINE_BYTES = 96;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final BufferedWriter writer;
+    private int unsyncedRecords;
+    private long lastSyncNanos = System.nanoTime();
+
+    private BatchJournal(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        this.writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel),
+                StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * 创建新的结果日志（覆盖同一目录上一次的日志）
+     */
+    public static BatchJournal create(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        BatchJournal journal = new BatchJournal(file, channel);
+        journal.marker(START_MARKER);
+        return journal;
+    }
+
+    /**
+     * 在检查点之后继续追加记录，先截掉写了一半的最后一行
+     */
+    public static BatchJournal resume(Path file, Checkpoint checkpoint) throws IOException {
+        Files.createDirectories(file.getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(checkpoint.validLength);
+        channel.position(channel.size());
+        BatchJournal journal = new BatchJournal(file, channel);
+        journal.marker(RESUME_MARKER);
+        return journal;
+    }
+
+    /**
+     * 目录对应的结果日志文件：~/.classviewer/journals/目录名-路径哈希.log
+     */
+    public static Path journalFileFor(Path directory) {
+        Path absolute = directory.toAbsolutePath().normalize();
+        Path name = absolute.getFileName();
+        String baseName = name != null ? name.toString() : "root";
+        String hash = Integer.toHexString(absolute.toString().hashCode());
+        return Paths.get(System.getProperty("user.home"), ".classviewer", "journals", baseName + "-" + hash + ".log");
+    }
+
+    @Override
+    public void onDecompiled(Path classFile, Path javaFile) {
+        append(OK, classFile.toString(), javaFile.toString());
+    }
+
+    @Override
+    public void onFailed(Path classFile, String error) {
+        append(FAIL, classFile.toString(), error != null ? error : "");
+    }
+
+    /**
+     * 记录任务正常结束并刷盘，之后不会再提示续传
+     */
+    public synchronized void markFinished() throws IOException {
+        marker(END_MARKER);
+        sync();
+    }
+
+    private synchronized void marker(String marker) throws IOException {
+        writer.write(marker);
+        writer.write('\t');
+        writer.write(Long.toString(System.currentTimeMillis()));
+        writer.write('\n');
+    }
+
+    private synchronized void append(String status, String first, String second) {
+        try {
+            writer.write(status);
+            writer.write('\t');
+            writer.write(escape(first));
+            writer.write('\t');
+            writer.write(escape(second));
+            writer.write('\n');
+            if (++unsyncedRecords >= SYNC_EVERY_RECORDS || System.nanoTime() - lastSyncNanos >= SYNC_INTERVAL_NANOS) {
+                sync();
+            }
+        } catch (IOException e) {
+            log.warn("写入结果日志失败: {}", file, e);
+        }
+    }
+
+    private void sync() throws IOException {
+        writer.flush();
+        channel.force(false);
+        unsyncedRecords = 0;
+        lastSyncNanos = System.nanoTime();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * 日志是否属于一次未正常结束、且已有处理结果的任务（只读取文件末尾，可在界面线程调用）
+     */
+    public static boolean isUnfinished(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int length = (int) Math.min(size, TAIL_CHECK_BYTES);
+            ByteBuffer tail = ByteBuffer.allocate(length);
+            channel.read(tail, size - length);
+            String text = new String(tail.array(), 0, tail.position(), StandardCharsets.UTF_8);
+            int end = text.lastIndexOf('\n');
+            if (end < 0) {
+                return false;
+            }
+            String lastLine = text.substring(text.lastIndexOf('\n', end - 1) + 1, end);
+            return !lastLine.startsWith(END_MARKER) && !lastLine.startsWith(START_MARKER);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 读取检查点：已处理的CLASS文件集合及成功、失败计数
+     * 按块读取完整的行，只对路径字段计算64位哈希放入基本类型哈希表，不为每行创建字符串；
+     * 只有标记行和作为错误样本的失败记录会被解码。没有换行结尾的最后一行视为写了一半，忽略。
+     */
+    public static Checkpoint load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new Checkpoint(0);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Checkpoint checkpoint = new Checkpoint((int) Math.min(channel.size() / ESTIMATED_LINE_BYTES, 1 << 26));
+            ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK);
+            long consumedTotal = 0;
+            boolean eof = false;
+            while (!eof) {
+                eof = channel.read(buffer) < 0;
+                byte[] data = buffer.array();
+                int limit = buffer.position();
+                int consumed = checkpoint.addLines(data, limit);
+                consumedTotal += consumed;
+                checkpoint.validLength = consumedTotal;
+                // 不完整的行移到缓冲区开头，和下一块拼接
+                System.arraycopy(data, consumed, data, 0, limit - consumed);
+                buffer.position(limit - consumed);
+                if (!buffer.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    buffer = larger.put(buffer);
+                }
+            }
+            return checkpoint;
+        }
+    }
+
+    /**
+     * CLASS文件在检查点中的键：与日志中转义后的路径字段的UTF-8字节按相同方式计算
+     */
+    static long pathKey(Path classFile) {
+        String path = classFile.toString();
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c >= 0x80 || c == '\t' || c == '\n' || c == '\r' || c == '\\') {
+                // 需要转义或多字节编码的路径走完整编码
+                return hash(escape(path).getBytes(StandardCharsets.UTF_8));
+            }
+            hash = (hash ^ c) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long hash(byte[] bytes) {
+        long hash = FNV_OFFSET;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * 转义字段中的制表符、换行和反斜杠，使每条记录占一行
+     */
+    public static String escape(String value) {
+        if (value.indexOf('\t') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0
+                && value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\t': escaped.append("\\t"); break;
+                case '\n': escaped.append("\\n"); break;
+                case '\r': escaped.append("\\r"); break;
+                case '\\': escaped.append("\\\\"); break;
+                default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * 还原 {@link #escape(String)} 转义过的字段
+     */
+    public static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 't': unescaped.append('\t'); break;
+                    case 'n': unescaped.append('\n'); break;
+                    case 'r': unescaped.append('\r'); break;
+                    default: unescaped.append(next);
+                }
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    /**
+     * 结果日志中已持久化的进度
+     */
+    public static class Checkpoint {
+        private final FingerprintTable completed;
+        private final List<BatchDecompilerService.ErrorFile> errorSamples = new ArrayList<>();
+        private int successCount;
+        private int failCount;
+        private boolean finished;
+        private long validLength;
+
+        private Checkpoint(int expectedRecords) {
+            this.completed = new FingerprintTable(expectedRecords);
+        }
+
+        /**
+         * 解析缓冲区中的完整行
+         * @return 已解析的字节数（最后一个换行之后的位置）
+         */
+        private int addLines(byte[] data, int limit) {
+            int lineStart = 0;
+            while (true) {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && data[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                if (lineEnd == limit) {
+                    return lineStart;
+                }
+                if (lineEnd > lineStart) {
+                    addLine(data, lineStart, lineEnd);
+                }
+                lineStart = lineEnd + 1;
+            }
+        }
+
+        private void addLine(byte[] data, int start, int end) {
+            byte status = data[start];
+            if (status == '#') {
+                finished = new String(data, start, end - start, StandardCharsets.UTF_8).startsWith(END_MARKER);
+                return;
+            }
+            if (status != 'O' && status != 'F') {
+                return;
+            }
+            int pathStart = start;
+            while (pathStart < end && data[pathStart] != '\t') {
+                pathStart++;
+            }
+            long hash = FNV_OFFSET;
+            int pathEnd = pathStart + 1;
+            for (; pathEnd < end && data[pathEnd] != '\t'; pathEnd++) {
+                hash = (hash ^ (data[pathEnd] & 0xFF)) * FNV_PRIME;
+            }
+            if (pathEnd >= end) {
+                return;
+            }
+
+            finished = false;
+            if (completed.putIfAbsent(hash, status) >= 0) {
+                return;
+            }
+            if (status == 'O') {
+                successCount++;
+                return;
+            }
+            failCount++;
+            if (errorSamples.size() < BatchDecompilerService.BatchResult.MAX_ERROR_SAMPLES) {
+                String path = new String(data, pathStart + 1, pathEnd - pathStart - 1, StandardCharsets.UTF_8);
+                String error = new String(data, pathEnd + 1, end - pathEnd - 1, StandardCharsets.UTF_8);
+                errorSamples.add(new BatchDecompilerService.ErrorFile(unescape(path), unescape(error)));
+            }
+        }
+
+        /**
+         * 该CLASS文件是否已经处理过（成功或失败）
+         */
+        public boolean isCompleted(Path classFile) {
+            return completed.get(pathKey(classFile)) >= 0;
+        }
+
+        public int getCompletedCount() {
+            return successCount + failCount;
+        }
+
+        public int getSuccessCount() {
+            return successCount;
+        }
+
+        public int getFailCount() {
+            return failCount;
+        }
+
+        public List<BatchDecompilerService.ErrorFile> getErrorSamples() {
+            return errorSamples;
+        }
+
+        /**
+         * 上一次任务是否正常结束
+         */
+        public boolean isFinished() {
+            return finished;
+        }
+    }
+}
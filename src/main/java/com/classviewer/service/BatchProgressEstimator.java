@@ -0,0 +1,62 @@
+package com.classviewer.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 批量反编译的剩余时间预估
+ * 每完成一个文件，用它的预估成本（{@link ClassCost}）和实际反编译耗时校准每单位成本的耗时，
+ * 再用全部任务耗时之和与经过的时间之比得到实际并行度（包含线程数调整、写文件和调度开销），
+ * 剩余时间 = 剩余成本 × 每单位耗时 ÷ 并行度。线程安全。
+ */
+final class BatchProgressEstimator {
+
+    // 完成的文件少于这个数时样本不足，不给出预估
+    private static final int MIN_SAMPLES = 5;
+
+    private final long startNanos = System.nanoTime();
+    private final long totalCost;
+    private final LongAdder completedCost = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final AtomicInteger samples = new AtomicInteger();
+
+    BatchProgressEstimator(long totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    /**
+     * 记录完成（成功或失败）的文件
+     * @param cost 预估成本
+     * @param decompileNanos 实际反编译耗时
+     */
+    void completed(long cost, long decompileNanos) {
+        completedCost.add(cost);
+        busyNanos.add(decompileNanos);
+        samples.incrementAndGet();
+    }
+
+    /**
+     * @return 预计剩余毫秒数，样本不足时为-1
+     */
+    long remainingMillis() {
+        long completed = completedCost.sum();
+        long busy = busyNanos.sum();
+        long elapsed = System.nanoTime() - startNanos;
+        if (samples.get() < MIN_SAMPLES || completed <= 0 || busy <= 0) {
+            return -1;
+        }
+        double nanosPerCost = (double) busy / completed;
+        double parallelism = (double) busy / elapsed;
+        long remaining = Math.max(0, totalCost - completed);
+        return TimeUnit.NANOSECONDS.toMillis((long) (remaining * nanosPerCost / parallelism));
+    }
+
+    /**
+     * 校准得到的每单位成本耗时（纳秒），用于日志
+     */
+    double nanosPerCost() {
+        long completed = completedCost.sum();
+        return completed > 0 ? (double) busyNanos.sum() / completed : 0;
+    }
+}
@@ -0,0 +1,112 @@
+package com.classviewer.service;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * CLASS文件的反编译成本预估
+ * 只解析到方法表为止：以方法属性（字节码、异常表、栈映射帧等）的总字节数为主，每个类、每个方法和每个常量另加固定开销。
+ * 成本是相对值，只用于比较大小和按比例分配；批量反编译时按实际耗时换算为时间（见 {@link BatchProgressEstimator}）。
+ */
+public final class ClassCost {
+
+    // 权重按CFR自身约400个类的实测耗时拟合，以方法体的1个字节为1单位
+    // 每个类的固定开销（加载、类型解析、输出），小类的耗时主要是这部分
+    static final int CLASS_WEIGHT = 256;
+    // 每个方法的固定开销（控制流图、局部变量推断），大部分已体现在方法体大小中
+    static final int METHOD_WEIGHT = 8;
+    // 常量池越大，需要解析的类型、成员引用越多
+    static final int CONSTANT_WEIGHT = 2;
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private ClassCost() {
+    }
+
+    /**
+     * 预估成本，无法解析时以文件大小作为成本
+     */
+    public static long estimate(byte[] bytes) {
+        try {
+            return parse(ByteBuffer.wrap(bytes));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return bytes.length;
+        }
+    }
+
+    private static long parse(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("不是CLASS文件");
+        }
+        skip(buffer, 4);
+        int constantCount = u2(buffer);
+        for (int i = 1; i < constantCount; i++) {
+            int tag = buffer.get() & 0xFF;
+            switch (tag) {
+                case 1:
+                    skip(buffer, u2(buffer));
+                    break;
+                case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+                    skip(buffer, 4);
+                    break;
+                case 5: case 6:
+                    skip(buffer, 8);
+                    i++;
+                    break;
+                case 7: case 8: case 16: case 19: case 20:
+                    skip(buffer, 2);
+                    break;
+                case 15:
+                    skip(buffer, 3);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知的常量类型: " + tag);
+            }
+        }
+        // 访问标志、类名、父类
+        skip(buffer, 6);
+        skip(buffer, u2(buffer) * 2);
+        int fieldCount = u2(buffer);
+        for (int i = 0; i < fieldCount; i++) {
+            skip(buffer, 6);
+            skipAttributes(buffer);
+        }
+        int methodCount = u2(buffer);
+        long methodBytes = 0;
+        for (int i = 0; i < methodCount; i++) {
+            skip(buffer, 6);
+            methodBytes += skipAttributes(buffer);
+        }
+        return CLASS_WEIGHT + methodBytes + (long) methodCount * METHOD_WEIGHT
+                + (long) constantCount * CONSTANT_WEIGHT;
+    }
+
+    /**
+     * @return 属性内容的总字节数
+     */
+    private static long skipAttributes(ByteBuffer buffer) {
+        int count = u2(buffer);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            skip(buffer, 2);
+            int length = buffer.getInt();
+            if (length < 0) {
+                throw new IllegalArgumentException("属性长度无效: " + length);
+            }
+            skip(buffer, length);
+            total += length;
+        }
+        return total;
+    }
+
+    private static int u2(ByteBuffer buffer) {
+        return buffer.getShort() & 0xFFFF;
+    }
+
+    private static void skip(ByteBuffer buffer, int length) {
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        buffer.position(buffer.position() + length);
+    }
+}
@@ -1,16 +1,28 @@
 package com.classviewer.service;
 
+import com.classviewer.jfr.DecompileEvent;
+import com.classviewer.jfr.Outcome;
+import com.classviewer.metrics.MetricsService;
+import com.classviewer.metrics.Phase;
+import com.classviewer.zip.MappedZipArchive;
+import com.classviewer.zip.ZipEntryTable;
 import lombok.extern.slf4j.Slf4j;
 import org.benf.cfr.reader.api.CfrDriver;
 import org.benf.cfr.reader.api.OutputSinkFactory;
 import org.benf.cfr.reader.api.SinkReturns;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -27,15 +39,40 @@ import java.nio.file.Paths;
 public class DecompilerService {
 
     private File currentJarFile;
+    // 当前JAR的映射及中央目录条目表（超过2GB时为null，退回JarFile）
+    private MappedZipArchive currentArchive;
     private File currentDirectory;
     private List<String> jarEntries = new ArrayList<>();
     private List<String> directoryFiles = new ArrayList<>();
-    private final Path tempDir;
+    // 反编译JAR条目时的临时目录，首次使用时创建（工作进程从不使用，不留下空目录）
+    private Path tempDir;
+    private final MetricsService metricsService;
+
+    public DecompilerService(MetricsService metricsService) throws IOException {
+        this.metricsService = metricsService;
+    }
+
+    /**
+     * 获取临时目录，首次调用时创建
+     */
+    private synchronized Path tempDir() throws IOException {
+        if (tempDir == null) {
+            // 创建临时目录用于反编译输出
+            tempDir = Files.createTempDirectory("classviewer_");
+            log.info("临时目录创建: {}", tempDir);
+        }
+        return tempDir;
+    }
 
-    public DecompilerService() throws IOException {
-        // 创建临时目录用于反编译输出
-        tempDir = Files.createTempDirectory("classviewer_");
-        log.info("临时目录创建: {}", tempDir);
+    /**
+     * 删除临时目录
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (tempDir != null) {
+            deleteDirectory(tempDir.toFile());
+            tempDir = null;
+        }
     }
 
     /**
@@ -43,8 +80,23 @@ public class DecompilerService {
      */
     public void loadJarFile(File jarFile) throws IOException {
         this.currentJarFile = jarFile;
+        this.currentArchive = null;
         this.jarEntries.clear();
 
+        if (jarFile.length() <= MappedZipArchive.MAX_MAPPED_SIZE) {
+            // 直接解析中央目录，条目表已按名称排序，之后读取条目复用同一份映射
+            currentArchive = MappedZipArchive.open(jarFile.toPath());
+            ZipEntryTable entries = currentArchive.entries();
+            int fileCount = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                if (!entries.isDirectory(i)) {
+                    fileCount++;
+                }
+            }
+            log.info("JAR文件加载完成，共 {} 个文件", fileCount);
+            return;
+        }
+
         try (JarFile jar = new JarFile(jarFile)) {
             Enumeration<JarEntry> entries = jar.entries();
             while (entries.hasMoreElements()) {
@@ -83,6 +135,40 @@ public class DecompilerService {
      * 反编译CLASS文件
      */
     public String decompileClass(File classFile) throws Exception {
+        checkClassFile(classFile);
+        log.debug("准备反编译: {}, 大小: {} bytes", classFile.getName(), classFile.length());
+
+        try {
+            String result = decompileWithCFR(classFile.getAbsolutePath());
+            if (result.startsWith("// 反编译失败")) {
+                log.warn("反编译返回失败标识: {}", classFile.getName());
+            }
+            return result;
+        } catch (Exception e) {
+            log.error("反编译失败: {}", classFile.getName(), e);
+            throw new Exception("反编译失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 反编译CLASS文件，源码按UTF-8编码后直接写入通道（文件、压缩条目、缓存等，流可用 Channels.newChannel 包装）
+     * CFR每输出一段源码就立即编码写出，不再拼接完整字符串，也不再整体转换为字节数组。
+     * 反编译失败时与 {@link #decompileClass(File)} 一样写入失败提示。
+     * @return 写入的字节数
+     */
+    public long decompileClassTo(File classFile, WritableByteChannel out) throws Exception {
+        checkClassFile(classFile);
+        log.debug("准备反编译: {}, 大小: {} bytes", classFile.getName(), classFile.length());
+
+        try {
+            return decompileWithCFR(classFile.getAbsolutePath(), out);
+        } catch (Exception e) {
+            log.error("反编译失败: {}", classFile.getName(), e);
+            throw new Exception("反编译失败: " + e.getMessage(), e);
+        }
+    }
+
+    private static void checkClassFile(File classFile) {
         if (!classFile.exists()) {
             String error = "文件不存在: " + classFile.getAbsolutePath();
             log.error(error);
@@ -106,19 +192,6 @@ public class DecompilerService {
             log.error(error);
             throw new IllegalArgumentException(error);
         }
-        
-        log.info("准备反编译: {}, 大小: {} bytes", classFile.getName(), classFile.length());
-
-        try {
-            String result = decompileWithCFR(classFile.getAbsolutePath());
-            if (result.startsWith("// 反编译失败")) {
-                log.warn("反编译返回失败标识: {}", classFile.getName());
-            }
-            return result;
-        } catch (Exception e) {
-            log.error("反编译失败: {}", classFile.getName(), e);
-            throw new Exception("反编译失败: " + e.getMessage(), e);
-        }
     }
 
     /**
@@ -134,7 +207,7 @@ public class DecompilerService {
         }
 
         // 创建临时输出目录
-        Path outputDir = Files.createTempDirectory(tempDir, "decompile_");
+        Path outputDir = Files.createTempDirectory(tempDir(), "decompile_");
         Path classOutputPath = outputDir.resolve("class");
         Files.createDirectories(classOutputPath);
 
@@ -155,10 +228,125 @@ public class DecompilerService {
     /**
      * 使用CFR反编译
      */
-    private String decompileWithCFR(String classFilePath) {
-        StringBuilder result = new StringBuilder();
+    String decompileWithCFR(String classFilePath) {
+        StringOutput output = new StringOutput();
+        DecompileEvent event = new DecompileEvent();
+        event.begin();
+        boolean decompiled;
+        try {
+            decompiled = analyseWithCFR(classFilePath, output);
+        } catch (IOException e) {
+            // 内存输出不会抛出
+            throw new UncheckedIOException(e);
+        }
+        String result = output.toString();
+        event.end();
+        commit(event, classFilePath, result.length(), decompiled);
+        return result;
+    }
+
+    /**
+     * 使用CFR反编译，源码直接编码写入通道
+     * @return 写入的字节数
+     * @throws IOException 写入通道失败
+     */
+    long decompileWithCFR(String classFilePath, WritableByteChannel out) throws IOException {
+        Utf8ChannelWriter writer = Utf8ChannelWriter.open(out);
+        DecompileEvent event = new DecompileEvent();
+        event.begin();
+        boolean decompiled = analyseWithCFR(classFilePath, new SourceOutput() {
+            @Override
+            public void append(String text) throws IOException {
+                writer.write(text);
+            }
+
+            @Override
+            public long writeNanos() {
+                return writer.getWriteNanos();
+            }
+        });
+        long bytes = writer.finish();
+        event.end();
+        metricsService.current().record(Phase.OUTPUT_WRITE, writer.getWriteNanos());
+        commit(event, classFilePath, bytes, decompiled);
+        return bytes;
+    }
+
+    private static void commit(DecompileEvent event, String classFilePath, long outputSize, boolean decompiled) {
+        if (event.shouldCommit()) {
+            event.classFile = classFilePath;
+            event.classSize = new File(classFilePath).length();
+            event.outputSize = outputSize;
+            event.outcome = decompiled ? Outcome.SUCCESS : Outcome.FAILED;
+            event.commit();
+        }
+    }
+
+    /**
+     * 接收CFR输出的目标
+     */
+    private interface SourceOutput {
+
+        void append(String text) throws IOException;
+
+        /**
+         * 写入目标的耗时（纳秒），从CFR分析耗时中扣除
+         */
+        default long writeNanos() {
+            return 0;
+        }
+    }
+
+    /**
+     * 内存输出：通常只有一段，直接沿用CFR生成的字符串，不再复制
+     */
+    private static final class StringOutput implements SourceOutput {
+
+        private String single;
+        private StringBuilder builder;
+
+        @Override
+        public void append(String text) {
+            if (builder != null) {
+                builder.append(text);
+            } else if (single == null) {
+                single = text;
+            } else {
+                builder = new StringBuilder(single.length() + text.length()).append(single).append(text);
+                single = null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return builder != null ? builder.toString() : single != null ? single : "";
+        }
+    }
+
+    /**
+     * 反编译并把源码写入 out，失败时写入失败提示
+     * @return CFR是否输出了源码
+     * @throws IOException 写入 out 失败
+     */
+    private boolean analyseWithCFR(String classFilePath, SourceOutput out) throws IOException {
+        IOException[] outputError = {null};
+        String failure = runCFR(classFilePath, out, outputError);
+        if (outputError[0] != null) {
+            throw outputError[0];
+        }
+        if (failure != null) {
+            out.append(failure);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return 失败提示，成功时为null
+     */
+    private String runCFR(String classFilePath, SourceOutput out, IOException[] outputError) {
         StringBuilder errorLog = new StringBuilder();
-        final boolean[] hasOutput = {false};
+        final long[] captured = {0};
         
         try {
             log.debug("开始反编译: {}", classFilePath);
@@ -196,9 +384,8 @@ public class DecompilerService {
                                 SinkReturns.Decompiled decompiled = (SinkReturns.Decompiled) sinkable;
                                 String javaCode = decompiled.getJava();
                                 if (javaCode != null && !javaCode.trim().isEmpty()) {
-                                    result.append(javaCode);
-                                    hasOutput[0] = true;
-                                    log.info("成功捕获Java代码，长度: {}", javaCode.length());
+                                    capture(javaCode);
+                                    log.debug("成功捕获Java代码，长度: {}", javaCode.length());
                                 }
                             } else if (sinkable instanceof SinkReturns.ExceptionMessage) {
                                 SinkReturns.ExceptionMessage exMsg = (SinkReturns.ExceptionMessage) sinkable;
@@ -209,9 +396,8 @@ public class DecompilerService {
                                 // 尝试直接转换
                                 String content = sinkable.toString();
                                 if (content != null && content.length() > 50) {
-                                    result.append(content);
-                                    hasOutput[0] = true;
-                                    log.info("通过toString捕获到内容，长度: {}", content.length());
+                                    capture(content);
+                                    log.debug("通过toString捕获到内容，长度: {}", content.length());
                                 }
                             }
                         } catch (Exception e) {
@@ -220,6 +406,19 @@ public class DecompilerService {
                         }
                     };
                 }
+
+                private void capture(String javaCode) {
+                    captured[0] += javaCode.length();
+                    if (outputError[0] != null) {
+                        return;
+                    }
+                    try {
+                        out.append(javaCode);
+                    } catch (IOException e) {
+                        // 记下第一个写入错误，分析结束后抛出，CFR的剩余输出全部丢弃
+                        outputError[0] = e;
+                    }
+                }
             };
 
             // CFR选项
@@ -235,7 +434,13 @@ public class DecompilerService {
                         .build();
                 
                 log.debug("开始执行CFR分析...");
-                driver.analyse(Collections.singletonList(classFilePath));
+                long startTime = System.nanoTime();
+                try {
+                    driver.analyse(Collections.singletonList(classFilePath));
+                } finally {
+                    long nanos = System.nanoTime() - startTime - out.writeNanos();
+                    metricsService.current().recordClass(classFilePath, nanos, file.length());
+                }
                 log.debug("CFR分析完成");
             } catch (Exception e) {
                 log.error("CFR执行失败", e);
@@ -243,9 +448,9 @@ public class DecompilerService {
             }
             
             // 检查结果
-            if (result.length() > 0) {
-                log.info("反编译成功: {}, 代码长度: {}", classFilePath, result.length());
-                return result.toString();
+            if (captured[0] > 0) {
+                log.debug("反编译成功: {}, 代码长度: {}", classFilePath, captured[0]);
+                return null;
             } else if (errorLog.length() > 0) {
                 log.error("反编译失败，错误信息:\n{}", errorLog);
                 return "// 反编译失败\n// 错误信息:\n// " + 
@@ -270,16 +475,29 @@ public class DecompilerService {
      * 从JAR中提取CLASS文件
      */
     private File extractClassFromJar(String entryName, File outputDir) throws IOException {
+        // 创建输出文件
+        String fileName = Paths.get(entryName).getFileName().toString();
+        File outputFile = new File(outputDir, fileName);
+
+        MappedZipArchive archive = currentArchive;
+        if (archive != null) {
+            int entry = archive.entries().find(entryName);
+            if (entry < 0) {
+                throw new IOException("找不到条目: " + entryName);
+            }
+            try (FileChannel out = FileChannel.open(outputFile.toPath(),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                archive.copyTo(entry, out);
+            }
+            return outputFile;
+        }
+
         try (JarFile jar = new JarFile(currentJarFile)) {
             JarEntry entry = jar.getJarEntry(entryName);
             if (entry == null) {
                 throw new IOException("找不到条目: " + entryName);
             }
 
-            // 创建输出文件
-            String fileName = Paths.get(entryName).getFileName().toString();
-            File outputFile = new File(outputDir, fileName);
-
             // 复制文件内容
             Files.copy(jar.getInputStream(entry), outputFile.toPath());
             
@@ -311,6 +529,7 @@ public class DecompilerService {
      */
     public void clear() {
         this.currentJarFile = null;
+        this.currentArchive = null;
         this.currentDirectory = null;
         this.jarEntries.clear();
         this.directoryFiles.clear();
@@ -320,6 +539,18 @@ public class DecompilerService {
      * 获取JAR条目列表
      */
     public List<String> getJarEntries() {
+        MappedZipArchive archive = currentArchive;
+        if (archive != null) {
+            ZipEntryTable entries = archive.entries();
+            List<String> names = new ArrayList<>(entries.size());
+            for (int rank = 0; rank < entries.size(); rank++) {
+                int entry = entries.sortedEntry(rank);
+                if (!entries.isDirectory(entry)) {
+                    names.add(entries.name(entry));
+                }
+            }
+            return names;
+        }
         return new ArrayList<>(jarEntries);
     }
 
@@ -0,0 +1,330 @@
+package com.classviewer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 目录实时监听服务
+ * 使用 WatchService 递归监听目录中新增、修改和删除的文件，新建的子目录自动加入监听。
+ * 连续的事件（如复制一批文件、解压JAR）在静默期内合并，静默期结束或等待超过上限后一次性通知。
+ */
+@Slf4j
+@Service
+public class DirectoryWatchService {
+
+    // 最后一个事件之后的静默期
+    @Value("${classviewer.watch.debounce-millis:500}")
+    private long debounceMillis = 500;
+
+    // 事件持续不断时，最长等待静默期的这个倍数后也要通知
+    private static final int MAX_DELAY_FACTOR = 10;
+
+    private DirectoryWatch current;
+
+    /**
+     * 开始监听目录，替换之前的监听
+     */
+    public synchronized void start(Path directory, ChangeListener listener) throws IOException {
+        stop();
+        current = new DirectoryWatch(directory.toAbsolutePath().normalize(), listener);
+        current.start();
+    }
+
+    /**
+     * 停止监听
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    public synchronized boolean isWatching() {
+        return current != null;
+    }
+
+    /**
+     * 是否正在监听指定目录
+     */
+    public synchronized boolean isWatching(Path directory) {
+        return current != null && current.root.equals(directory.toAbsolutePath().normalize());
+    }
+
+    /**
+     * 文件变化监听器
+     * 在监听线程中调用，处理期间的新事件会合并到下一次通知
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+        void onChanges(Changes changes);
+    }
+
+    /**
+     * 一次合并后的文件变化（绝对路径）
+     */
+    public static class Changes {
+        private final Path root;
+        private final List<Path> added;
+        private final List<Path> modified;
+        private final List<Path> removed;
+        private final boolean overflow;
+
+        Changes(Path root, List<Path> added, List<Path> modified, List<Path> removed, boolean overflow) {
+            this.root = root;
+            this.added = added;
+            this.modified = modified;
+            this.removed = removed;
+            this.overflow = overflow;
+        }
+
+        public Path getRoot() {
+            return root;
+        }
+
+        /**
+         * 新增的文件
+         */
+        public List<Path> getAdded() {
+            return added;
+        }
+
+        /**
+         * 内容被修改或替换的文件
+         */
+        public List<Path> getModified() {
+            return modified;
+        }
+
+        /**
+         * 删除的文件或目录（目录表示其下的全部文件）
+         */
+        public List<Path> getRemoved() {
+            return removed;
+        }
+
+        /**
+         * 事件过多、系统丢弃了部分事件，需要重新扫描目录
+         */
+        public boolean isOverflow() {
+            return overflow;
+        }
+
+        public int size() {
+            return added.size() + modified.size() + removed.size();
+        }
+    }
+
+    private enum Kind {
+        CREATE, MODIFY, DELETE
+    }
+
+    /**
+     * 单个目录的监听线程
+     */
+    private final class DirectoryWatch implements Runnable {
+        private final Path root;
+        private final ChangeListener listener;
+        private final WatchService watchService;
+        private final Map<WatchKey, Path> keys = new HashMap<>();
+        private final Set<Path> directories = new HashSet<>();
+        // 静默期内累积的变化，按路径合并
+        private final Map<Path, Kind> pending = new LinkedHashMap<>();
+        private boolean overflow;
+        private int registerFailures;
+
+        DirectoryWatch(Path root, ChangeListener listener) throws IOException {
+            this.root = root;
+            this.listener = listener;
+            this.watchService = root.getFileSystem().newWatchService();
+        }
+
+        void start() throws IOException {
+            long startTime = System.currentTimeMillis();
+            try {
+                registerAll(root, false);
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+            Thread thread = new Thread(this, "directory-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            log.info("已开启目录监听: {} - 目录: {}（注册失败 {}），耗时: {}ms", root, directories.size(),
+                    registerFailures, System.currentTimeMillis() - startTime);
+        }
+
+        void close() {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("关闭目录监听失败", e);
+            }
+        }
+
+        /**
+         * 注册目录及其全部子目录
+         * @param reportFiles 是否把其中已有的文件记为新增（新建目录在注册前可能已经写入了文件）
+         */
+        private void registerAll(Path start, boolean reportFiles) throws IOException {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    register(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (reportFiles && attrs.isRegularFile()) {
+                        merge(file, Kind.CREATE);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    log.debug("读取目录失败: {}", file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        private void register(Path dir) {
+            try {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                keys.put(key, dir);
+                directories.add(dir);
+            } catch (IOException e) {
+                // 通常是超过了系统的监听数量上限（如Linux的 fs.inotify.max_user_watches）
+                if (registerFailures++ == 0) {
+                    log.warn("注册目录监听失败，该目录中的变化不会被发现: {}", dir, e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            long maxDelay = debounceMillis * MAX_DELAY_FACTOR;
+            long firstPending = 0;
+            try {
+                while (true) {
+                    WatchKey key;
+                    if (pending.isEmpty() && !overflow) {
+                        key = watchService.take();
+                        firstPending = System.currentTimeMillis();
+                    } else {
+                        long wait = Math.min(debounceMillis, firstPending + maxDelay - System.currentTimeMillis());
+                        key = wait > 0 ? watchService.poll(wait, TimeUnit.MILLISECONDS) : null;
+                        if (key == null) {
+                            flush();
+                            continue;
+                        }
+                    }
+                    process(key);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ClosedWatchServiceException e) {
+                log.debug("目录监听已关闭: {}", root);
+            }
+        }
+
+        private void process(WatchKey key) {
+            Path dir = keys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                    continue;
+                }
+                if (dir == null) {
+                    continue;
+                }
+                Path child = dir.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                        try {
+                            registerAll(child, true);
+                        } catch (IOException e) {
+                            log.debug("注册新目录失败: {}", child, e);
+                        }
+                    } else {
+                        merge(child, Kind.CREATE);
+                    }
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY) {
+                    if (!Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                        merge(child, Kind.MODIFY);
+                    }
+                } else {
+                    if (directories.contains(child)) {
+                        // 目录被删除，其下的监听已自动失效
+                        directories.removeIf(path -> path.startsWith(child));
+                        pending.keySet().removeIf(path -> path.startsWith(child) && !path.equals(child));
+                    }
+                    merge(child, Kind.DELETE);
+                }
+            }
+            if (!key.reset()) {
+                keys.remove(key);
+            }
+        }
+
+        /**
+         * 合并同一路径在静默期内的多个事件
+         */
+        private void merge(Path path, Kind kind) {
+            Kind previous = pending.get(path);
+            if (previous == null) {
+                pending.put(path, kind);
+            } else if (kind == Kind.DELETE) {
+                if (previous == Kind.CREATE) {
+                    // 新建后又删除，相当于没有变化
+                    pending.remove(path);
+                } else {
+                    pending.put(path, Kind.DELETE);
+                }
+            } else if (previous == Kind.DELETE) {
+                // 删除后重新创建，视为修改
+                pending.put(path, Kind.MODIFY);
+            }
+            // 新建后修改仍为新建，多次修改合并为一次
+        }
+
+        private void flush() {
+            List<Path> added = new ArrayList<>();
+            List<Path> modified = new ArrayList<>();
+            List<Path> removed = new ArrayList<>();
+            for (Map.Entry<Path, Kind> entry : pending.entrySet()) {
+                Path path = entry.getKey();
+                if (entry.getValue() == Kind.DELETE) {
+                    removed.add(path);
+                } else if (Files.isRegularFile(path)) {
+                    (entry.getValue() == Kind.CREATE ? added : modified).add(path);
+                }
+            }
+            Changes changes = new Changes(root, added, modified, removed, overflow);
+            pending.clear();
+            overflow = false;
+            if (changes.size() == 0 && !changes.isOverflow()) {
+                return;
+            }
+            log.debug("目录变化: {} - 新增: {}, 修改: {}, 删除: {}, 溢出: {}", root, added.size(), modified.size(),
+                    removed.size(), changes.isOverflow());
+            try {
+                listener.onChanges(changes);
+            } catch (RuntimeException e) {
+                log.warn("处理目录变化失败: {}", root, e);
+            }
+        }
+    }
+}
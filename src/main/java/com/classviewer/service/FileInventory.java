@@ -0,0 +1,207 @@
+package com.classviewer.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 目录文件清单
+ * 选择目录时并行扫描一次，按相对路径（以 {@code /} 分隔）有序保存全部普通文件；
+ * 之后解压、反编译写出或删除文件时增量更新，JAR查找、CLASS查找和文件树都从清单查询，不再重复遍历目录。
+ * <p>
+ * 清单只反映本程序的写入和实时监听到的变化；未监听目录时，每次开始反编译前重新扫描，
+ * 选择目录后在程序之外新增或删除的文件不会被跳过或计为失败。线程安全。
+ */
+@Slf4j
+public final class FileInventory {
+
+    // 扫描是IO密集的，线程数多于CPU核数
+    private static final int SCAN_PARALLELISM = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private final Path root;
+    private final NavigableSet<String> files = new ConcurrentSkipListSet<>();
+    private final AtomicInteger directories = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private FileInventory(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * 并行扫描目录，每个子目录一个任务
+     * 不跟随指向目录的符号链接（避免循环），指向普通文件的符号链接照常记录
+     */
+    public static FileInventory scan(Path directory) throws IOException {
+        Path root = directory.toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            throw new IOException("目录不存在: " + root);
+        }
+        long startTime = System.currentTimeMillis();
+        FileInventory inventory = new FileInventory(root);
+        Queue<List<String>> found = new ConcurrentLinkedQueue<>();
+        ForkJoinPool pool = new ForkJoinPool(SCAN_PARALLELISM);
+        try {
+            pool.invoke(new ScanTask(inventory, found, root, ""));
+        } finally {
+            pool.shutdown();
+        }
+        // 各目录的结果排序后按顺序插入，避免扫描线程争用同一个有序集合
+        List<String> all = new ArrayList<>();
+        found.forEach(all::addAll);
+        Collections.sort(all);
+        inventory.files.addAll(all);
+        log.info("目录扫描完成: {} - 文件: {}, 目录: {}（读取失败 {}），耗时: {}ms", root, inventory.files.size(),
+                inventory.directories.get(), inventory.failures.get(), System.currentTimeMillis() - startTime);
+        return inventory;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public int size() {
+        return files.size();
+    }
+
+    /**
+     * 目录是否在清单范围内（清单根目录或其子目录）
+     */
+    public boolean covers(Path directory) {
+        return directory.toAbsolutePath().normalize().startsWith(root);
+    }
+
+    /**
+     * 记录新写出的文件，清单范围外的文件忽略
+     */
+    public void added(Path file) {
+        String relative = relativize(file);
+        if (relative != null && !relative.isEmpty()) {
+            files.add(relative);
+        }
+    }
+
+    /**
+     * 记录已删除的文件；删除的是目录时移除其下的全部文件
+     */
+    public void removed(Path file) {
+        String relative = relativize(file);
+        if (relative == null) {
+            return;
+        }
+        if (relative.isEmpty()) {
+            files.clear();
+            return;
+        }
+        files.remove(relative);
+        files.subSet(relative + "/", true, relative + "/" + Character.MAX_VALUE, false).clear();
+    }
+
+    /**
+     * 全部文件的相对路径（有序快照）
+     */
+    public List<String> relativePaths() {
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * 查找目录下（含子目录）扩展名匹配的文件，扩展名不区分大小写
+     * 只查询有序集合中该目录前缀对应的区间，不访问文件系统
+     * @param extension 如 {@code .jar}
+     * @return 有序的绝对路径快照；目录不在清单范围内时为空
+     */
+    public List<Path> find(Path directory, String extension) {
+        String prefix = relativize(directory);
+        List<Path> result = new ArrayList<>();
+        if (prefix == null) {
+            return result;
+        }
+        NavigableSet<String> range = prefix.isEmpty() ? files
+                : files.subSet(prefix + "/", true, prefix + "/" + Character.MAX_VALUE, false);
+        int length = extension.length();
+        for (String file : range) {
+            if (file.regionMatches(true, file.length() - length, extension, 0, length)) {
+                result.add(root.resolve(file));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return 以 {@code /} 分隔的相对路径，清单根目录本身为空串，范围外为null
+     */
+    private String relativize(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        if (!absolute.startsWith(root)) {
+            return null;
+        }
+        return root.relativize(absolute).toString().replace('\\', '/');
+    }
+
+    /**
+     * 扫描单个目录，子目录拆分为新任务
+     */
+    private static final class ScanTask extends RecursiveAction {
+        private final FileInventory inventory;
+        private final Queue<List<String>> found;
+        private final Path directory;
+        // 目录的相对路径前缀，根目录为空串，其余以 / 结尾
+        private final String prefix;
+
+        ScanTask(FileInventory inventory, Queue<List<String>> found, Path directory, String prefix) {
+            this.inventory = inventory;
+            this.found = found;
+            this.directory = directory;
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected void compute() {
+            inventory.directories.incrementAndGet();
+            List<ScanTask> subtasks = new ArrayList<>();
+            List<String> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path child : stream) {
+                    String relative = prefix + child.getFileName();
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class,
+                                LinkOption.NOFOLLOW_LINKS);
+                        if (attributes.isSymbolicLink()) {
+                            if (Files.isRegularFile(child)) {
+                                files.add(relative);
+                            }
+                        } else if (attributes.isDirectory()) {
+                            subtasks.add(new ScanTask(inventory, found, child, relative + "/"));
+                        } else if (attributes.isRegularFile()) {
+                            files.add(relative);
+                        }
+                    } catch (IOException e) {
+                        inventory.failures.incrementAndGet();
+                        log.debug("读取文件属性失败: {}", child, e);
+                    }
+                }
+            } catch (IOException e) {
+                inventory.failures.incrementAndGet();
+                log.debug("读取目录失败: {}", directory, e);
+            }
+            if (!files.isEmpty()) {
+                found.add(files);
+            }
+            invokeAll(subtasks);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.classviewer.service;
+
+import java.util.Arrays;
+
+/**
+ * 指纹表：64位指纹 -> 文件序号
+ * 开放寻址（线性探测），键和值分别存放在基本类型数组中，不产生装箱对象。
+ * 每个槽12字节（long键 + int值），负载因子0.5且容量取2的幂，按存入的条目计约24～48字节。
+ * 非线程安全，由单个线程构建。
+ */
+public class FingerprintTable {
+
+    private static final int EMPTY = -1;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    FingerprintTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * 若指纹不存在则写入
+     * @return 已存在的序号；不存在时写入并返回-1
+     */
+    int putIfAbsent(long fingerprint, int value) {
+        int slot = slot(fingerprint);
+        while (values[slot] != EMPTY) {
+            if (keys[slot] == fingerprint) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = fingerprint;
+        values[slot] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+        return EMPTY;
+    }
+
+    /**
+     * @return 指纹对应的序号；不存在时返回-1
+     */
+    int get(long fingerprint) {
+        int slot = slot(fingerprint);
+        while (values[slot] != EMPTY) {
+            if (keys[slot] == fingerprint) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 计算字节内容的64位指纹（FNV-1a，最后做一次混淆以打散低位）
+     */
+    public static long fingerprint(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash ^ bytes.length);
+    }
+
+    private int slot(long fingerprint) {
+        return (int) mix(fingerprint) & mask;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
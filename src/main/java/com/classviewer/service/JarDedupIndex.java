@@ -0,0 +1,138 @@
+package com.classviewer.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JAR去重索引（单次运行内有效）
+ * 按内容摘要（SHA-256）识别重复的JAR：同一内容只解压、反编译一次，其余位置记录为引用。
+ */
+@Slf4j
+public class JarDedupIndex {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 内容摘要 -> 首次解压的目录
+    private final Map<String, Path> canonicalDirs = new ConcurrentHashMap<>();
+    // JAR路径 -> 内容摘要（缓存，避免重复计算）
+    private final Map<Path, String> digests = new ConcurrentHashMap<>();
+
+    /**
+     * 并行计算一批JAR的摘要并缓存
+     */
+    public void digestAll(List<Path> jarFiles) {
+        jarFiles.parallelStream().forEach(jar -> {
+            try {
+                digestOf(jar);
+            } catch (IOException e) {
+                log.warn("计算JAR摘要失败: {}", jar, e);
+            }
+        });
+    }
+
+    /**
+     * 获取JAR的内容摘要
+     */
+    public String digestOf(Path jarFile) throws IOException {
+        Path key = jarFile.toAbsolutePath().normalize();
+        String digest = digests.get(key);
+        if (digest == null) {
+            digest = sha256(key);
+            digests.put(key, digest);
+        }
+        return digest;
+    }
+
+    /**
+     * 计算内存中JAR内容（如嵌套JAR的映射切片）的摘要，不改变缓冲区位置
+     */
+    public static String digestOf(ByteBuffer content) {
+        MessageDigest md = newDigest();
+        md.update(content.duplicate());
+        return toHex(md.digest());
+    }
+
+    /**
+     * 登记JAR将要解压到的目录
+     * @return 若相同内容已被登记，返回首次解压的目录；否则登记成功并返回null
+     */
+    public Path claim(Path jarFile, Path extractDir) {
+        String digest;
+        try {
+            digest = digestOf(jarFile);
+        } catch (IOException e) {
+            // 无法计算摘要时按独立JAR处理
+            log.warn("计算JAR摘要失败，不参与去重: {}", jarFile, e);
+            return null;
+        }
+        return claim(digest, extractDir);
+    }
+
+    /**
+     * 按摘要登记JAR将要解压到的目录
+     * @return 若相同内容已被登记，返回首次解压的目录；否则登记成功并返回null
+     */
+    public Path claim(String digest, Path extractDir) {
+        Path existing = canonicalDirs.putIfAbsent(digest, extractDir);
+        return existing != null && !existing.equals(extractDir) ? existing : null;
+    }
+
+    /**
+     * 查询相同内容的JAR是否已登记，不做登记
+     * @return 首次解压的目录；未登记或登记的就是 extractDir 时返回null
+     */
+    public Path claimedDir(Path jarFile, Path extractDir) {
+        try {
+            Path existing = canonicalDirs.get(digestOf(jarFile));
+            return existing != null && !existing.equals(extractDir) ? existing : null;
+        } catch (IOException e) {
+            // 与 claim 一致：无法计算摘要时按独立JAR处理
+            return null;
+        }
+    }
+
+    /**
+     * 已登记的不同JAR数量
+     */
+    public int size() {
+        return canonicalDirs.size();
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest md = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+        }
+        return toHex(md.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] digest) {
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -1,12 +1,27 @@
 package com.classviewer.service;
 
+import com.classviewer.jfr.ExtractJarEvent;
+import com.classviewer.jfr.NestedJarScanEvent;
+import com.classviewer.jfr.Outcome;
+import com.classviewer.metrics.MetricsService;
+import com.classviewer.metrics.Phase;
+import com.classviewer.metrics.RunMetrics;
+import com.classviewer.zip.MappedZipArchive;
+import com.classviewer.zip.ZipEntryTable;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
@@ -19,12 +34,41 @@ import java.nio.file.Paths;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class JarExtractorService {
 
+    private final MetricsService metricsService;
+
     // 白名单：这些依赖包会被排除（不解压）
-    private static final Set<String> JAR_WHITELIST = new HashSet<>();
+    // 以不可变快照的形式发布，读取方无需加锁，修改时整体替换
+    private static volatile WhitelistMatcher whitelist = WhitelistMatcher.EMPTY;
     private static final String WHITELIST_FILE = "jar-whitelist.txt";
+
+    // 嵌套JAR的最大解压层数
+    private static final int MAX_NESTED_DEPTH = 10;
+
+    // 解压后即删除的JAR读入堆内存的大小上限
+    private static final long MAX_LOADED_SIZE = 64L * 1024 * 1024;
+
+    // 重复JAR引用文件的扩展名
+    public static final String DUPLICATE_SUFFIX = ".duplicate";
     private static Path whitelistFilePath;
+
+    // 用户白名单文件监听
+    private WatchService whitelistWatchService;
+
+    // 解压出CLASS文件时的监听器（如类型层次索引）
+    private final List<ClassFileListener> classFileListeners = new CopyOnWriteArrayList<>();
+
+    // 依赖库指纹：按中央目录识别改名、重新打包的依赖库
+    private final LibraryFingerprints libraryFingerprints = LibraryFingerprints.load();
+
+    // 按内容识别为依赖库并跳过的最低置信度
+    @Value("${classviewer.library.min-confidence:0.9}")
+    private double libraryMinConfidence = 0.9;
+
+    // 目录文件清单：查找嵌套JAR时不再遍历目录，解压写出、删除的文件同步更新到清单
+    private volatile FileInventory inventory;
     
     static {
         // 从配置文件加载白名单
@@ -35,6 +79,7 @@ public class JarExtractorService {
      * 从配置文件加载白名单
      */
     private static void loadWhitelistFromFile() {
+        Set<String> rules = new LinkedHashSet<>();
         try {
             // 先尝试加载resources中的文件
             ClassPathResource resource = new ClassPathResource(WHITELIST_FILE);
@@ -46,56 +91,67 @@ public class JarExtractorService {
                         line = line.trim();
                         // 跳过空行和注释
                         if (!line.isEmpty() && !line.startsWith("#")) {
-                            JAR_WHITELIST.add(line);
+                            rules.add(line);
                         }
                     }
-                    log.info("从配置文件加载白名单，共 {} 条规则", JAR_WHITELIST.size());
+                    log.info("从配置文件加载白名单，共 {} 条规则", rules.size());
                 }
             } else {
                 // 如果配置文件不存在，使用默认白名单
-                loadDefaultWhitelist();
+                loadDefaultWhitelist(rules);
             }
             
             // 设置用户目录下的持久化文件路径
             String userHome = System.getProperty("user.home");
             whitelistFilePath = Paths.get(userHome, ".classviewer", WHITELIST_FILE);
             
-            // 如果用户目录下有自定义白名单，合并加载
+            // 用户目录下的白名单保存的是完整规则集（移除、清空规则也会写回），存在时以它为准，与热加载一致
             if (Files.exists(whitelistFilePath)) {
-                loadUserWhitelist();
+                loadUserWhitelist(rules);
+                whitelist = WhitelistMatcher.compile(rules);
             } else {
                 // 创建默认的用户白名单文件
+                whitelist = WhitelistMatcher.compile(rules);
                 saveWhitelistToFile();
             }
         } catch (Exception e) {
             log.warn("加载白名单配置文件失败，使用默认配置", e);
-            loadDefaultWhitelist();
+            loadDefaultWhitelist(rules);
+            whitelist = WhitelistMatcher.compile(rules);
         }
     }
     
     /**
-     * 加载用户自定义白名单
+     * 加载用户自定义白名单，替换内置规则；读取失败时保留内置规则
      */
-    private static void loadUserWhitelist() {
+    private static void loadUserWhitelist(Set<String> rules) {
         try {
-            List<String> lines = Files.readAllLines(whitelistFilePath);
-            int addedCount = 0;
-            for (String line : lines) {
-                line = line.trim();
-                if (!line.isEmpty() && !line.startsWith("#")) {
-                    if (JAR_WHITELIST.add(line)) {
-                        addedCount++;
-                    }
-                }
-            }
-            log.info("从用户配置加载 {} 条新规则，总计 {} 条", addedCount, JAR_WHITELIST.size());
+            Set<String> userRules = readUserWhitelist();
+            rules.clear();
+            rules.addAll(userRules);
+            log.info("从用户配置加载白名单，共 {} 条规则", rules.size());
         } catch (IOException e) {
             log.error("加载用户白名单失败", e);
         }
     }
+
+    /**
+     * 读取用户白名单文件中的规则
+     */
+    private static Set<String> readUserWhitelist() throws IOException {
+        Set<String> rules = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(whitelistFilePath)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                rules.add(line);
+            }
+        }
+        return rules;
+    }
     
     /**
      * 保存白名单到文件
+     * 先写临时文件再原子替换，避免文件监听读到写了一半的内容
      */
     private static void saveWhitelistToFile() {
         try {
@@ -107,21 +163,118 @@ public class JarExtractorService {
             lines.add("# ClassViewer JAR过滤白名单");
             lines.add("# 包含以下关键词的JAR包将被跳过（不解压、不反编译）");
             lines.add("# 每行一个关键词，支持部分匹配");
-            lines.add("# 修改后重启应用生效，或使用界面动态添加");
+            lines.add("# 修改保存后自动生效，无需重启应用");
             lines.add("");
             
             // 按字母顺序排序
-            List<String> sortedRules = new ArrayList<>(JAR_WHITELIST);
+            List<String> sortedRules = new ArrayList<>(whitelist.getRules());
             Collections.sort(sortedRules);
             lines.addAll(sortedRules);
             
-            Files.write(whitelistFilePath, lines, StandardOpenOption.CREATE, 
+            Path tempFile = whitelistFilePath.resolveSibling(WHITELIST_FILE + ".tmp");
+            Files.write(tempFile, lines, StandardOpenOption.CREATE, 
                        StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                Files.move(tempFile, whitelistFilePath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, whitelistFilePath, StandardCopyOption.REPLACE_EXISTING);
+            }
             log.info("白名单已保存到: {}", whitelistFilePath);
         } catch (IOException e) {
             log.error("保存白名单失败", e);
         }
     }
+
+    /**
+     * 启动用户白名单文件监听，文件被修改后自动重新加载
+     */
+    @PostConstruct
+    public void startWhitelistWatcher() {
+        if (whitelistFilePath == null || !Files.isDirectory(whitelistFilePath.getParent())) {
+            log.warn("白名单目录不存在，不启用文件监听");
+            return;
+        }
+        try {
+            whitelistWatchService = FileSystems.getDefault().newWatchService();
+            whitelistFilePath.getParent().register(whitelistWatchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            log.warn("启动白名单文件监听失败", e);
+            return;
+        }
+
+        Thread watcher = new Thread(this::watchWhitelistFile, "whitelist-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("已启用白名单文件监听: {}", whitelistFilePath);
+    }
+
+    /**
+     * 停止白名单文件监听
+     */
+    @PreDestroy
+    public void stopWhitelistWatcher() {
+        if (whitelistWatchService != null) {
+            try {
+                whitelistWatchService.close();
+            } catch (IOException e) {
+                log.debug("关闭白名单文件监听失败", e);
+            }
+        }
+    }
+
+    private void watchWhitelistFile() {
+        Path fileName = whitelistFilePath.getFileName();
+        try {
+            while (true) {
+                WatchKey key = whitelistWatchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+
+                if (changed) {
+                    // 编辑器保存时往往连续触发多次事件，稍作等待后合并处理
+                    Thread.sleep(200);
+                    WatchKey pending;
+                    while ((pending = whitelistWatchService.poll()) != null) {
+                        pending.pollEvents();
+                        pending.reset();
+                    }
+                    reloadUserWhitelist();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("白名单文件监听已关闭");
+        }
+    }
+
+    /**
+     * 重新加载用户白名单文件
+     * 用户文件保存的是完整规则集，以文件内容为准替换当前快照
+     */
+    private synchronized void reloadUserWhitelist() {
+        if (!Files.exists(whitelistFilePath)) {
+            return;
+        }
+        try {
+            Set<String> rules = readUserWhitelist();
+            if (rules.equals(whitelist.getRules())) {
+                // 自身保存触发的事件，内容未变化
+                return;
+            }
+            whitelist = WhitelistMatcher.compile(rules);
+            log.info("检测到白名单文件变化，已重新加载，共 {} 条规则", rules.size());
+        } catch (IOException e) {
+            log.error("重新加载白名单失败", e);
+        }
+    }
     
     /**
      * 加载默认白名单
@@ -144,8 +297,8 @@ public class JarExtractorService {
 //                "servlet-api", "validation-api"
 //        ));
 //    }
-    private static void loadDefaultWhitelist() {
-        JAR_WHITELIST.addAll(Arrays.asList(
+    private static void loadDefaultWhitelist(Set<String> rules) {
+        rules.addAll(Arrays.asList(
                 // ==== Java/JDK 运行时 ====
                 "rt-", "tools-", "dt-", "javaws-", "deploy-", "jfxrt-", "jfr-", "jaccess-",
                 "jconsole-", "jce-", "jsse-", "sunrsasign-", "localedata-", "dnsns-", "zipfs-",
@@ -352,7 +505,20 @@ public class JarExtractorService {
      * @return 解压统计信息
      */
     public ExtractionResult extractJarRecursively(File jarFile, Path outputDir) throws IOException {
+        return extractJarRecursively(jarFile, outputDir, new JarDedupIndex());
+    }
+
+    /**
+     * 递归解压JAR包（按内容去重）
+     * 同一去重索引内内容相同的JAR只解压一次，其余位置写入引用文件
+     * @param jarFile 要解压的JAR文件
+     * @param outputDir 输出目录
+     * @param dedupIndex 本次运行共享的去重索引
+     * @return 解压统计信息
+     */
+    public ExtractionResult extractJarRecursively(File jarFile, Path outputDir, JarDedupIndex dedupIndex) throws IOException {
         ExtractionResult result = new ExtractionResult();
+        long startTime = System.currentTimeMillis();
         
         if (!jarFile.exists()) {
             throw new FileNotFoundException("JAR文件不存在: " + jarFile.getAbsolutePath());
@@ -363,12 +529,28 @@ public class JarExtractorService {
         // 创建输出目录
         Files.createDirectories(outputDir);
         
+        // 按内容识别为依赖库的JAR不解压
+        MappedZipArchive archive = openArchive(jarFile, false);
+        if (archive != null && skipKnownLibrary(jarFile.getName(), jarFile.getPath(), archive.entries(), result)) {
+            result.setDuration(System.currentTimeMillis() - startTime);
+            return result;
+        }
+
         // 第一层解压
         Path extractPath = outputDir.resolve(removeJarExtension(jarFile.getName()));
-        extractJar(jarFile, extractPath, result);
+        Path canonicalDir = dedupIndex.claim(jarFile.toPath(), extractPath);
+        if (canonicalDir != null) {
+            recordDuplicateJar(jarFile.getAbsolutePath(), dedupIndex.digestOf(jarFile.toPath()), extractPath,
+                    canonicalDir, result);
+            result.setDuration(System.currentTimeMillis() - startTime);
+            return result;
+        }
+        extractJar(jarFile, archive, extractPath, result, dedupIndex, 0);
         
         // 递归处理嵌套的JAR
-        processNestedJars(extractPath, result, 1);
+        processNestedJars(extractPath, result, 1, dedupIndex);
+        saveLibraryFingerprints();
+        result.setDuration(System.currentTimeMillis() - startTime);
         
         log.info("JAR解压完成 - 总JAR数: {}, 已解压: {}, 已跳过: {}, CLASS文件: {}", 
                 result.getTotalJars(), result.getExtractedJars(), result.getSkippedJars(), result.getClassFiles());
@@ -379,97 +561,472 @@ public class JarExtractorService {
     /**
      * 递归处理嵌套的JAR包
      */
-    private void processNestedJars(Path directory, ExtractionResult result, int depth) throws IOException {
-        if (depth > 10) {
-            log.warn("递归深度超过10层，停止解压: {}", directory);
+    private void processNestedJars(Path directory, ExtractionResult result, int depth,
+                                   JarDedupIndex dedupIndex) throws IOException {
+        if (depth > MAX_NESTED_DEPTH) {
+            log.warn("递归深度超过{}层，停止解压: {}", MAX_NESTED_DEPTH, directory);
             return;
         }
 
-        List<Path> jarFiles = findJarFiles(directory);
-        
-        if (jarFiles.isEmpty()) {
-            log.debug("目录 {} 中没有发现JAR文件", directory);
-            return;
-        }
-
-        log.info("在第{}层发现 {} 个JAR文件", depth, jarFiles.size());
-        
-        for (Path jarPath : jarFiles) {
-            String jarName = jarPath.getFileName().toString();
+        NestedJarScanEvent event = new NestedJarScanEvent();
+        event.begin();
+        List<Path> jarFiles = Collections.emptyList();
+        int skipped = 0;
+        String outcome = Outcome.ERROR;
+        try {
+            jarFiles = findJarFiles(directory);
             
-            // 检查是否在白名单中（需要跳过）
-            if (isInWhitelist(jarName)) {
-                log.debug("跳过白名单JAR: {}", jarName);
-                result.addSkippedJar(jarName);
-                continue;
+            if (jarFiles.isEmpty()) {
+                log.debug("目录 {} 中没有发现JAR文件", directory);
+                outcome = Outcome.SUCCESS;
+                return;
             }
 
-            try {
-                // 解压嵌套的JAR
-                Path nestedExtractPath = jarPath.getParent().resolve(removeJarExtension(jarName));
+            log.info("在第{}层发现 {} 个JAR文件", depth, jarFiles.size());
+            
+            List<Path> candidates = new ArrayList<>(jarFiles.size());
+            for (Path jarPath : jarFiles) {
+                String jarName = jarPath.getFileName().toString();
                 
-                // 避免重复解压
-                if (Files.exists(nestedExtractPath)) {
-                    log.debug("目录已存在，跳过: {}", nestedExtractPath);
+                // 检查是否在白名单中（需要跳过）
+                if (isInWhitelist(jarName)) {
+                    log.debug("跳过白名单JAR: {}", jarName);
+                    result.addSkippedJar(jarName);
+                    learnLibrary(jarPath);
+                    skipped++;
                     continue;
                 }
-                
-                extractJar(jarPath.toFile(), nestedExtractPath, result);
-                
-                // 删除原JAR文件（可选）
-                Files.delete(jarPath);
-                
-                // 继续递归处理
-                processNestedJars(nestedExtractPath, result, depth + 1);
-                
-            } catch (Exception e) {
-                log.error("解压嵌套JAR失败: {}", jarName, e);
-                result.addError(jarName, e.getMessage());
+                candidates.add(jarPath);
             }
+
+            // 并行计算摘要，下面按顺序登记和解压
+            dedupIndex.digestAll(candidates);
+
+            for (Path jarPath : candidates) {
+                String jarName = jarPath.getFileName().toString();
+
+                try {
+                    // 解压嵌套的JAR
+                    Path nestedExtractPath = jarPath.getParent().resolve(removeJarExtension(jarName));
+
+                    // 内容相同的JAR已在其他位置解压：摘要已算好，不必读入JAR内容
+                    if (skipDuplicate(jarPath, nestedExtractPath,
+                            dedupIndex.claimedDir(jarPath, nestedExtractPath), dedupIndex, result)) {
+                        continue;
+                    }
+                    
+                    // 避免重复解压；登记为该内容的解压位置，之后相同内容的JAR引用它
+                    if (Files.exists(nestedExtractPath)) {
+                        dedupIndex.claim(jarPath, nestedExtractPath);
+                        log.debug("目录已存在，跳过: {}", nestedExtractPath);
+                        continue;
+                    }
+
+                    // 只有确实要识别或解压的JAR才读入内存
+                    // 按内容识别为依赖库时与白名单JAR一样保留原文件，不登记解压位置
+                    MappedZipArchive archive = openArchive(jarPath.toFile(), true);
+                    if (archive != null && skipKnownLibrary(jarName, jarPath.toString(), archive.entries(), result)) {
+                        skipped++;
+                        continue;
+                    }
+
+                    if (skipDuplicate(jarPath, nestedExtractPath,
+                            dedupIndex.claim(jarPath, nestedExtractPath), dedupIndex, result)) {
+                        continue;
+                    }
+                    
+                    extractJar(jarPath.toFile(), archive, nestedExtractPath, result, dedupIndex, depth);
+                    
+                    // 删除原JAR文件（可选）
+                    deleteFile(jarPath);
+                    
+                    // 继续递归处理
+                    processNestedJars(nestedExtractPath, result, depth + 1, dedupIndex);
+                    
+                } catch (Exception e) {
+                    log.error("解压嵌套JAR失败: {}", jarName, e);
+                    result.addError(jarName, e.getMessage());
+                }
+            }
+            outcome = Outcome.SUCCESS;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.directory = directory.toString();
+                event.depth = depth;
+                event.jarsFound = jarFiles.size();
+                event.jarsSkipped = skipped;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * 相同内容已解压到 canonicalDir 时记录为重复并删除该JAR
+     * @return 是否为重复的JAR
+     */
+    private boolean skipDuplicate(Path jarPath, Path extractPath, Path canonicalDir, JarDedupIndex dedupIndex,
+                                  ExtractionResult result) throws IOException {
+        if (canonicalDir == null) {
+            return false;
+        }
+        recordDuplicateJar(jarPath.toAbsolutePath().toString(), dedupIndex.digestOf(jarPath),
+                extractPath, canonicalDir, result);
+        deleteFile(jarPath);
+        return true;
+    }
+
+    /**
+     * 记录重复的JAR：不再解压，在原本的解压位置旁写入引用文件（名称.duplicate），内容为摘要和已解压的目录
+     */
+    private void recordDuplicateJar(String jarLocation, String digest, Path extractPath, Path canonicalDir,
+                                    ExtractionResult result) throws IOException {
+        String jarName = jarLocation.substring(Math.max(jarLocation.lastIndexOf('/'), jarLocation.lastIndexOf(File.separatorChar)) + 1);
+        Path referenceFile = extractPath.resolveSibling(extractPath.getFileName() + DUPLICATE_SUFFIX);
+        List<String> lines = Arrays.asList(
+                "# 该JAR与已解压的JAR内容相同，未重复解压和反编译",
+                "jar=" + jarLocation,
+                "sha256=" + digest,
+                "canonical=" + canonicalDir.toAbsolutePath());
+        Files.write(referenceFile, lines, java.nio.charset.StandardCharsets.UTF_8);
+        FileInventory current = inventory;
+        if (current != null) {
+            current.added(referenceFile);
+        }
+        result.addDuplicateJar(jarName, canonicalDir.toString());
+        log.info("重复JAR: {} -> {}", jarName, canonicalDir);
+    }
+
+    /**
+     * 解压单个JAR文件
+     */
+    void extractJar(File jarFile, Path outputPath, ExtractionResult result) throws IOException {
+        extractJar(jarFile, openArchive(jarFile, false), outputPath, result, new JarDedupIndex(), 0);
+    }
+
+    /**
+     * 打开JAR文件的中央目录
+     * 2GB以内的JAR直接映射，其中STORED方式的嵌套JAR在内存中展开，不再写出到磁盘
+     * @param deleteAfter 解压后是否会删除该文件，此时读入堆内存而不做映射（Windows上映射期间无法删除文件）
+     * @return 更大的JAR（以及解压后要删除、超过64MB的JAR）返回null，使用JarFile逐条目解压
+     */
+    private MappedZipArchive openArchive(File jarFile, boolean deleteAfter) throws IOException {
+        long limit = deleteAfter ? MAX_LOADED_SIZE : MappedZipArchive.MAX_MAPPED_SIZE;
+        if (jarFile.length() > limit) {
+            return null;
         }
+        return deleteAfter ? MappedZipArchive.load(jarFile.toPath()) : MappedZipArchive.open(jarFile.toPath());
     }
 
     /**
      * 解压单个JAR文件
+     * @param archive {@link #openArchive} 打开的归档，为null时使用JarFile逐条目解压
+     * @param depth 该JAR的嵌套层数
+     */
+    private void extractJar(File jarFile, MappedZipArchive archive, Path outputPath, ExtractionResult result,
+                            JarDedupIndex dedupIndex, int depth) throws IOException {
+        metricsService.current().addBytesRead(jarFile.length());
+        if (archive == null) {
+            extractTracked(jarFile.getName(), jarFile.getPath(), jarFile.length(), outputPath, result,
+                    stats -> extractWithJarFile(jarFile, outputPath, result, stats));
+            return;
+        }
+        extractTracked(jarFile.getName(), jarFile.getPath(), jarFile.length(), outputPath, result,
+                stats -> extractArchive(archive, outputPath, result, dedupIndex, depth, stats));
+    }
+
+    /**
+     * 按中央目录识别依赖库，置信度达到阈值时跳过该JAR并记录到解压结果
+     * 只有仍命中白名单的库参与识别
+     * @return 是否跳过
+     */
+    private boolean skipKnownLibrary(String jarName, String location, ZipEntryTable entries,
+                                     ExtractionResult result) {
+        LibraryFingerprints.LibraryMatch match = identifyLibrary(location, entries);
+        if (match == null) {
+            return false;
+        }
+        log.info("按内容识别为依赖库，跳过: {} -> {}", location, match);
+        result.addLibraryJar(jarName, match);
+        return true;
+    }
+
+    /**
+     * @return 置信度达到阈值的依赖库，否则为null
+     */
+    private LibraryFingerprints.LibraryMatch identifyLibrary(String location, ZipEntryTable entries) {
+        long startTime = System.nanoTime();
+        WhitelistMatcher matcher = whitelist;
+        LibraryFingerprints.LibraryMatch match = libraryFingerprints.identify(entries,
+                matcher::matches);
+        metricsService.current().record(Phase.LIBRARY_MATCH, System.nanoTime() - startTime);
+        if (match != null && match.getConfidence() < libraryMinConfidence) {
+            log.debug("未达到依赖库置信度，照常解压: {} - {}", location, match);
+            return null;
+        }
+        return match;
+    }
+
+    /**
+     * 学习按名称跳过的白名单JAR的CLASS摘要，之后改名、去掉版本号的同一JAR可按内容识别
+     */
+    public void learnLibrary(Path jarFile) {
+        long startTime = System.nanoTime();
+        try {
+            MappedZipArchive archive = openArchive(jarFile.toFile(), false);
+            if (archive != null) {
+                libraryFingerprints.learn(jarFile.getFileName().toString(), archive.entries());
+            }
+        } catch (IOException e) {
+            log.debug("读取白名单JAR的中央目录失败: {}", jarFile, e);
+        } finally {
+            metricsService.current().record(Phase.LIBRARY_MATCH, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * 将新学习的依赖库指纹写回 ~/.classviewer/library-fingerprints.db
+     */
+    public void saveLibraryFingerprints() {
+        try {
+            libraryFingerprints.saveIfChanged();
+        } catch (IOException e) {
+            log.warn("保存依赖库指纹失败: {}", libraryFingerprints.getDbFile(), e);
+        }
+    }
+
+    /**
+     * 解压JAR并记录统计、性能指标和JFR事件
      */
-    private void extractJar(File jarFile, Path outputPath, ExtractionResult result) throws IOException {
+    private void extractTracked(String jarName, String location, long jarSize, Path outputPath,
+                                ExtractionResult result, ArchiveExtraction extraction) throws IOException {
         Files.createDirectories(outputPath);
         result.incrementTotalJars();
+        long startTime = System.nanoTime();
+        ExtractStats stats = new ExtractStats(result, classFileListeners, inventory);
+        String outcome = Outcome.ERROR;
+        ExtractJarEvent event = new ExtractJarEvent();
+        event.begin();
 
+        try {
+            extraction.extractTo(stats);
+            result.addExtractedJar(jarName);
+            log.info("已解压: {} -> {}", jarName, outputPath.getFileName());
+            outcome = Outcome.SUCCESS;
+        } finally {
+            RunMetrics metrics = metricsService.current();
+            metrics.recordJar(jarName, System.nanoTime() - startTime, jarSize);
+            metrics.addBytesWritten(stats.bytesWritten);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.jarFile = location;
+                event.jarSize = jarSize;
+                event.entries = stats.entries;
+                event.classFiles = stats.classFiles;
+                event.bytesWritten = stats.bytesWritten;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * 从映射的归档中解压所有条目
+     */
+    private void extractArchive(MappedZipArchive archive, Path outputPath, ExtractionResult result,
+                                JarDedupIndex dedupIndex, int depth, ExtractStats stats) throws IOException {
+        ZipEntryTable entries = archive.entries();
+        PackageFilter filter = PackageFilter.current();
+        for (int entry = 0; entry < entries.size(); entry++) {
+            String entryName = entries.name(entry);
+            Path entryPath = outputPath.resolve(entryName);
+            stats.entries++;
+
+            if (entries.isDirectory(entry)) {
+                Files.createDirectories(entryPath);
+                continue;
+            }
+            if (entries.nameEndsWith(entry, ".class") && !filter.accepts(entryName)) {
+                stats.classFiltered();
+                continue;
+            }
+            // 创建父目录
+            Files.createDirectories(entryPath.getParent());
+
+            if (isNestedStoredJar(entries, entry)
+                    && extractNestedArchive(archive, entry, entryPath, result, dedupIndex, depth)) {
+                continue;
+            }
+
+            try (FileChannel out = FileChannel.open(entryPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                stats.entryWritten(entryName, entryPath, archive.copyTo(entry, out));
+            }
+        }
+    }
+
+    private boolean isNestedStoredJar(ZipEntryTable entries, int entry) {
+        return entries.method(entry) == MappedZipArchive.STORED && entries.nameEndsWith(entry, ".jar");
+    }
+
+    /**
+     * 直接在外层映射的切片上解压STORED嵌套JAR，结果与先写出JAR再解压、删除相同
+     * @return 是否已处理；未处理（白名单、层数过深、解压失败）时照常写出JAR文件，由嵌套扫描处理
+     */
+    private boolean extractNestedArchive(MappedZipArchive archive, int entry, Path entryPath,
+                                         ExtractionResult result, JarDedupIndex dedupIndex, int depth) {
+        String jarName = entryPath.getFileName().toString();
+        if (depth + 1 > MAX_NESTED_DEPTH || isInWhitelist(jarName)) {
+            return false;
+        }
+        Path nestedExtractPath = entryPath.resolveSibling(removeJarExtension(jarName));
+        String location = archive.getName() + "!/" + archive.entries().name(entry);
+        try {
+            MappedZipArchive nested = archive.openNested(entry);
+            if (identifyLibrary(location, nested.entries()) != null) {
+                // 与白名单JAR一样写出原文件，由嵌套扫描记录并跳过
+                return false;
+            }
+            ByteBuffer data = archive.data(entry);
+            String digest = JarDedupIndex.digestOf(data);
+            Path canonicalDir = dedupIndex.claim(digest, nestedExtractPath);
+            if (canonicalDir != null) {
+                recordDuplicateJar(location, digest, nestedExtractPath, canonicalDir, result);
+                return true;
+            }
+            extractTracked(jarName, location, nested.size(), nestedExtractPath, result,
+                    stats -> extractArchive(nested, nestedExtractPath, result, dedupIndex, depth + 1, stats));
+            return true;
+        } catch (Exception e) {
+            log.error("解压嵌套JAR失败: {}", location, e);
+            result.addError(jarName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 使用JarFile逐条目解压（超过2GB无法映射的JAR）
+     */
+    private void extractWithJarFile(File jarFile, Path outputPath, ExtractionResult result,
+                                    ExtractStats stats) throws IOException {
+        PackageFilter filter = PackageFilter.current();
         try (JarFile jar = new JarFile(jarFile)) {
             Enumeration<JarEntry> entries = jar.entries();
             
             while (entries.hasMoreElements()) {
                 JarEntry entry = entries.nextElement();
                 Path entryPath = outputPath.resolve(entry.getName());
+                stats.entries++;
 
                 if (entry.isDirectory()) {
                     Files.createDirectories(entryPath);
+                } else if (entry.getName().endsWith(".class") && !filter.accepts(entry.getName())) {
+                    stats.classFiltered();
                 } else {
                     // 创建父目录
                     Files.createDirectories(entryPath.getParent());
                     
                     // 复制文件
                     try (InputStream is = jar.getInputStream(entry)) {
-                        Files.copy(is, entryPath, StandardCopyOption.REPLACE_EXISTING);
-                        
-                        // 统计CLASS文件
-                        if (entry.getName().endsWith(".class")) {
-                            result.incrementClassFiles();
-                        }
+                        stats.entryWritten(entry.getName(), entryPath,
+                                Files.copy(is, entryPath, StandardCopyOption.REPLACE_EXISTING));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 解压出CLASS文件的监听器
+     * 在解压线程中调用，实现应尽快返回
+     */
+    @FunctionalInterface
+    public interface ClassFileListener {
+        void onClassExtracted(Path classFile);
+    }
+
+    public void addClassFileListener(ClassFileListener listener) {
+        classFileListeners.add(listener);
+    }
+
+    public void removeClassFileListener(ClassFileListener listener) {
+        classFileListeners.remove(listener);
+    }
+
+    /**
+     * 设置目录文件清单，为null时查找JAR回退为遍历目录
+     */
+    public void setInventory(FileInventory inventory) {
+        this.inventory = inventory;
+    }
+
+    public FileInventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * 单个JAR的解压过程
+     */
+    @FunctionalInterface
+    private interface ArchiveExtraction {
+        void extractTo(ExtractStats stats) throws IOException;
+    }
+
+    /**
+     * 单个JAR的解压计数
+     */
+    private static class ExtractStats {
+        private final ExtractionResult result;
+        private final List<ClassFileListener> listeners;
+        private final FileInventory inventory;
+        int entries;
+        int classFiles;
+        long bytesWritten;
+
+        ExtractStats(ExtractionResult result, List<ClassFileListener> listeners, FileInventory inventory) {
+            this.result = result;
+            this.listeners = listeners;
+            this.inventory = inventory;
+        }
+
+        /**
+         * CLASS条目被包过滤规则排除，不写出
+         */
+        void classFiltered() {
+            result.incrementFilteredClasses();
+        }
+
+        void entryWritten(String name, Path file, long bytes) {
+            bytesWritten += bytes;
+            if (inventory != null) {
+                inventory.added(file);
+            }
+            // 统计CLASS文件
+            if (name.endsWith(".class")) {
+                result.incrementClassFiles();
+                classFiles++;
+                for (ClassFileListener listener : listeners) {
+                    try {
+                        listener.onClassExtracted(file);
+                    } catch (RuntimeException e) {
+                        log.warn("CLASS文件监听器处理失败: {}", file, e);
                     }
                 }
             }
-            
-            result.addExtractedJar(jarFile.getName());
-            log.info("已解压: {} -> {}", jarFile.getName(), outputPath.getFileName());
         }
     }
 
     /**
      * 查找目录中的所有JAR文件
+     * 目录在文件清单范围内时直接查询清单，否则遍历目录
      */
     private List<Path> findJarFiles(Path directory) throws IOException {
+        FileInventory current = inventory;
+        if (current != null && current.covers(directory)) {
+            return current.find(directory, ".jar");
+        }
         if (!Files.exists(directory)) {
             return Collections.emptyList();
         }
@@ -482,12 +1039,25 @@ public class JarExtractorService {
         }
     }
 
+    /**
+     * 删除已解压的JAR并从文件清单中移除
+     */
+    private void deleteFile(Path file) throws IOException {
+        Files.delete(file);
+        FileInventory current = inventory;
+        if (current != null) {
+            current.removed(file);
+        }
+    }
+
     /**
      * 检查JAR名称是否在白名单中
      */
-    private boolean isInWhitelist(String jarName) {
-        String lowerName = jarName.toLowerCase();
-        return JAR_WHITELIST.stream().anyMatch(lowerName::contains);
+    public boolean isInWhitelist(String jarName) {
+        long startTime = System.nanoTime();
+        boolean matched = whitelist.matches(jarName);
+        metricsService.current().record(Phase.WHITELIST_MATCH, System.nanoTime() - startTime);
+        return matched;
     }
 
     /**
@@ -508,7 +1078,9 @@ public class JarExtractorService {
             return;
         }
         pattern = pattern.trim();
-        if (JAR_WHITELIST.add(pattern)) {
+        Set<String> rules = new LinkedHashSet<>(whitelist.getRules());
+        if (rules.add(pattern)) {
+            whitelist = WhitelistMatcher.compile(rules);
             log.info("已添加白名单规则: {}", pattern);
             saveWhitelistToFile();
         }
@@ -518,16 +1090,18 @@ public class JarExtractorService {
      * 批量添加白名单规则
      */
     public synchronized void addWhitelistPatterns(List<String> patterns) {
+        Set<String> rules = new LinkedHashSet<>(whitelist.getRules());
         int addedCount = 0;
         for (String pattern : patterns) {
             if (pattern != null && !pattern.trim().isEmpty()) {
                 pattern = pattern.trim();
-                if (JAR_WHITELIST.add(pattern)) {
+                if (rules.add(pattern)) {
                     addedCount++;
                 }
             }
         }
         if (addedCount > 0) {
+            whitelist = WhitelistMatcher.compile(rules);
             log.info("已添加 {} 条白名单规则", addedCount);
             saveWhitelistToFile();
         }
@@ -537,7 +1111,9 @@ public class JarExtractorService {
      * 移除白名单规则
      */
     public synchronized void removeWhitelistPattern(String pattern) {
-        if (JAR_WHITELIST.remove(pattern)) {
+        Set<String> rules = new LinkedHashSet<>(whitelist.getRules());
+        if (rules.remove(pattern)) {
+            whitelist = WhitelistMatcher.compile(rules);
             log.info("已移除白名单规则: {}", pattern);
             saveWhitelistToFile();
         }
@@ -547,7 +1123,7 @@ public class JarExtractorService {
      * 清空所有白名单规则
      */
     public synchronized void clearWhitelist() {
-        JAR_WHITELIST.clear();
+        whitelist = WhitelistMatcher.EMPTY;
         log.info("已清空白名单");
         saveWhitelistToFile();
     }
@@ -556,8 +1132,9 @@ public class JarExtractorService {
      * 重置为默认白名单
      */
     public synchronized void resetToDefault() {
-        JAR_WHITELIST.clear();
-        loadDefaultWhitelist();
+        Set<String> rules = new LinkedHashSet<>();
+        loadDefaultWhitelist(rules);
+        whitelist = WhitelistMatcher.compile(rules);
         log.info("已重置为默认白名单");
         saveWhitelistToFile();
     }
@@ -573,7 +1150,7 @@ public class JarExtractorService {
      * 获取当前白名单
      */
     public Set<String> getWhitelist() {
-        return new HashSet<>(JAR_WHITELIST);
+        return new HashSet<>(whitelist.getRules());
     }
 
     /**
@@ -584,8 +1161,13 @@ public class JarExtractorService {
         private int extractedJars = 0;
         private int skippedJars = 0;
         private int classFiles = 0;
+        private int duplicateJars = 0;
+        private int filteredClasses = 0;
+        private long duration = 0;
         private final List<String> extractedJarNames = new ArrayList<>();
         private final List<String> skippedJarNames = new ArrayList<>();
+        private final Map<String, String> duplicateJarNames = new LinkedHashMap<>();
+        private final Map<String, LibraryFingerprints.LibraryMatch> libraryJars = new LinkedHashMap<>();
         private final Map<String, String> errors = new HashMap<>();
 
         public void incrementTotalJars() {
@@ -596,6 +1178,17 @@ public class JarExtractorService {
             classFiles++;
         }
 
+        /**
+         * 被包过滤规则排除、未解压的CLASS
+         */
+        public void incrementFilteredClasses() {
+            filteredClasses++;
+        }
+
+        public void addFilteredClasses(int count) {
+            filteredClasses += count;
+        }
+
         public void addExtractedJar(String name) {
             extractedJars++;
             extractedJarNames.add(name);
@@ -606,23 +1199,44 @@ public class JarExtractorService {
             skippedJarNames.add(name);
         }
 
+        public void addDuplicateJar(String name, String canonicalDir) {
+            duplicateJars++;
+            duplicateJarNames.put(name, canonicalDir);
+        }
+
+        /**
+         * 按内容识别为依赖库而跳过的JAR，同时计入已跳过
+         */
+        public void addLibraryJar(String name, LibraryFingerprints.LibraryMatch match) {
+            addSkippedJar(name);
+            libraryJars.put(name, match);
+        }
+
         public void addError(String jar, String error) {
             errors.put(jar, error);
         }
 
+        public void setDuration(long duration) { this.duration = duration; }
+
         public int getTotalJars() { return totalJars; }
         public int getExtractedJars() { return extractedJars; }
         public int getSkippedJars() { return skippedJars; }
         public int getClassFiles() { return classFiles; }
+        public int getDuplicateJars() { return duplicateJars; }
+        public int getFilteredClasses() { return filteredClasses; }
+        public long getDuration() { return duration; }
         public List<String> getExtractedJarNames() { return extractedJarNames; }
         public List<String> getSkippedJarNames() { return skippedJarNames; }
+        public Map<String, String> getDuplicateJarNames() { return duplicateJarNames; }
+        public Map<String, LibraryFingerprints.LibraryMatch> getLibraryJars() { return libraryJars; }
         public Map<String, String> getErrors() { return errors; }
 
         @Override
         public String toString() {
             return String.format(
-                "解压统计:\n总JAR数: %d\n已解压: %d\n已跳过: %d\nCLASS文件: %d\n错误: %d",
-                totalJars, extractedJars, skippedJars, classFiles, errors.size()
+                "解压统计:\n总JAR数: %d\n已解压: %d\n已跳过: %d（按内容识别 %d）\n重复: %d\nCLASS文件: %d（按包过滤 %d）\n错误: %d\n耗时: %dms",
+                totalJars, extractedJars, skippedJars, libraryJars.size(), duplicateJars, classFiles, filteredClasses,
+                errors.size(), duration
             );
         }
     }
@@ -0,0 +1,514 @@
+package com.classviewer.service;
+
+import com.classviewer.zip.ZipEntryTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * 依赖库指纹库
+ * 只根据JAR的中央目录（条目名、CRC和大小）判断其内容是否为已知的依赖库，用于识别改名、重新打包或去掉版本号的依赖
+ * （如实际是Jackson的 {@code lib1.jar}）。两种依据：
+ * <ul>
+ *   <li>包前缀：内置（及用户补充）的常见依赖库包名，如 {@code com.fasterxml.jackson}，JAR中几乎全部CLASS都在这些包下时认为是该库，
+ *       对版本变化不敏感；</li>
+ *   <li>CLASS摘要草图：按名称跳过白名单JAR时顺便学习其全部CLASS的摘要，存为布隆过滤器，
+ *       之后内容相同（只是文件名不同）的JAR按摘要命中比例识别，不依赖包名是否在内置列表中。</li>
+ * </ul>
+ * 每个库对应一个JAR文件名（内置库为"库名称.jar"，学习得到的库为学习时的文件名），只有该文件名仍命中白名单时才参与识别，
+ * 从白名单中移除规则即同时停用对应的指纹。
+ * 全部方法同步，可被多个线程同时调用。
+ */
+@Slf4j
+public final class LibraryFingerprints {
+
+    private static final String PREFIX_FILE = "library-prefixes.txt";
+    private static final String DB_FILE = "library-fingerprints.db";
+
+    private static final int MAGIC = 0x4356464C;
+    private static final int VERSION = 1;
+
+    // 按包前缀识别时置信度打的折扣：包名相同不等于内容相同
+    private static final double PREFIX_WEIGHT = 0.95;
+    // 每个库保留的草图数（不同版本），超过时丢弃最早学习的
+    private static final int MAX_SKETCHES = 8;
+    // 布隆过滤器每个CLASS的位数和哈希函数个数，误判率约1%
+    private static final int BITS_PER_CLASS = 10;
+    private static final int HASHES = 7;
+    // 候选索引中包名保留的层数
+    private static final int PACKAGE_DEPTH = 3;
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+    private static final String MODULE_INFO = "module-info.class";
+
+    /**
+     * 识别结果
+     */
+    public static final class LibraryMatch {
+        private final String library;
+        private final double confidence;
+        private final int matchedClasses;
+        private final int totalClasses;
+        private final boolean byContent;
+
+        LibraryMatch(String library, double confidence, int matchedClasses, int totalClasses, boolean byContent) {
+            this.library = library;
+            this.confidence = confidence;
+            this.matchedClasses = matchedClasses;
+            this.totalClasses = totalClasses;
+            this.byContent = byContent;
+        }
+
+        public String getLibrary() { return library; }
+
+        /**
+         * 置信度，0到1
+         */
+        public double getConfidence() { return confidence; }
+
+        public int getMatchedClasses() { return matchedClasses; }
+
+        public int getTotalClasses() { return totalClasses; }
+
+        /**
+         * 是否按CLASS摘要（内容）命中，否则为按包前缀命中
+         */
+        public boolean isByContent() { return byContent; }
+
+        @Override
+        public String toString() {
+            return String.format("%s（置信度 %.1f%%，%s %d/%d）", library, confidence * 100,
+                    byContent ? "内容相同" : "包名匹配", matchedClasses, totalClasses);
+        }
+    }
+
+    /**
+     * 一个版本的CLASS摘要集合（布隆过滤器）
+     */
+    private static final class Sketch {
+        final int classCount;
+        final long signature;
+        final long[] bits;
+
+        Sketch(int classCount, long signature, long[] bits) {
+            this.classCount = classCount;
+            this.signature = signature;
+            this.bits = bits;
+        }
+
+        static Sketch of(ClassSet classes) {
+            int bitCount = Math.max(64, Integer.highestOneBit(classes.size() * BITS_PER_CLASS - 1) << 1);
+            Sketch sketch = new Sketch(classes.size(), classes.signature, new long[bitCount >>> 6]);
+            for (long digest : classes.digests) {
+                int h1 = (int) digest;
+                int h2 = (int) (digest >>> 32) | 1;
+                for (int i = 0; i < HASHES; i++) {
+                    int bit = (h1 + i * h2) & (bitCount - 1);
+                    sketch.bits[bit >>> 6] |= 1L << bit;
+                }
+            }
+            return sketch;
+        }
+
+        boolean mightContain(long digest) {
+            int mask = (bits.length << 6) - 1;
+            int h1 = (int) digest;
+            int h2 = (int) (digest >>> 32) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                int bit = (h1 + i * h2) & mask;
+                if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 学习得到的库：包名（前几层，只用于挑选候选）和各版本的草图
+     */
+    private static final class LearnedLibrary {
+        final String name;
+        // 最近一次学习时的JAR文件名，用于判断是否仍在白名单中
+        String jarName;
+        final Set<String> packages = new LinkedHashSet<>();
+        final LinkedList<Sketch> sketches = new LinkedList<>();
+
+        LearnedLibrary(String name, String jarName) {
+            this.name = name;
+            this.jarName = jarName;
+        }
+    }
+
+    /**
+     * 一个JAR中的CLASS：每个CLASS的摘要、各包（完整包名）的CLASS数
+     */
+    private static final class ClassSet {
+        final long[] digests;
+        final Map<String, Integer> packages;
+        final long signature;
+
+        ClassSet(long[] digests, Map<String, Integer> packages) {
+            this.digests = digests;
+            this.packages = packages;
+            long sum = digests.length;
+            for (long digest : digests) {
+                sum += digest;
+            }
+            this.signature = mix(sum);
+        }
+
+        int size() {
+            return digests.length;
+        }
+
+        static ClassSet of(ZipEntryTable entries) {
+            long[] digests = new long[entries.size()];
+            int count = 0;
+            Map<String, Integer> packages = new HashMap<>();
+            for (int entry = 0; entry < entries.size(); entry++) {
+                if (entries.isDirectory(entry) || !entries.nameEndsWith(entry, ".class")
+                        || entries.nameEndsWith(entry, MODULE_INFO)) {
+                    continue;
+                }
+                String name = entries.name(entry);
+                digests[count++] = mix(name.hashCode() * 0x9E3779B97F4A7C15L
+                        ^ ((long) entries.crc(entry) << 32) ^ entries.uncompressedSize(entry));
+                packages.merge(packageOf(name), 1, Integer::sum);
+            }
+            return new ClassSet(Arrays.copyOf(digests, count), packages);
+        }
+    }
+
+    // 内置及用户补充的包前缀：库名称 -> 包前缀（内部名称形式，以/结尾）
+    private final Map<String, List<String>> prefixLibraries = new LinkedHashMap<>();
+    // 包前缀 -> 库名称
+    private final Map<String, List<String>> prefixIndex = new HashMap<>();
+    private final Map<String, LearnedLibrary> learned = new LinkedHashMap<>();
+    // 包名前几层 -> 学习得到的库
+    private final Map<String, List<LearnedLibrary>> packageIndex = new HashMap<>();
+    private final Path dbFile;
+    private boolean dirty;
+
+    LibraryFingerprints(Path dbFile) {
+        this.dbFile = dbFile;
+    }
+
+    /**
+     * 加载内置包前缀、用户目录下的同名补充文件和学习得到的指纹
+     */
+    public static LibraryFingerprints load() {
+        Path directory = Paths.get(System.getProperty("user.home"), ".classviewer");
+        LibraryFingerprints fingerprints = new LibraryFingerprints(directory.resolve(DB_FILE));
+        try {
+            ClassPathResource resource = new ClassPathResource(PREFIX_FILE);
+            if (resource.exists()) {
+                try (InputStream in = resource.getInputStream()) {
+                    fingerprints.loadPrefixes(in);
+                }
+            }
+            Path userPrefixes = directory.resolve(PREFIX_FILE);
+            if (Files.exists(userPrefixes)) {
+                try (InputStream in = Files.newInputStream(userPrefixes)) {
+                    fingerprints.loadPrefixes(in);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("加载依赖库包前缀失败", e);
+        }
+        try {
+            if (Files.exists(fingerprints.dbFile)) {
+                fingerprints.read();
+            }
+        } catch (IOException e) {
+            log.warn("读取依赖库指纹失败，将重新学习: {}", fingerprints.dbFile, e);
+            fingerprints.learned.clear();
+            fingerprints.packageIndex.clear();
+        }
+        log.info("已加载依赖库指纹 - 包前缀: {} 个库，已学习: {} 个库",
+                fingerprints.prefixLibraries.size(), fingerprints.learned.size());
+        return fingerprints;
+    }
+
+    /**
+     * 读取包前缀配置，每行 {@code 库名称=包名1,包名2}，#开头为注释
+     */
+    synchronized void loadPrefixes(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            int separator = line.indexOf('=');
+            if (line.isEmpty() || line.startsWith("#") || separator <= 0) {
+                continue;
+            }
+            String library = line.substring(0, separator).trim();
+            for (String prefix : line.substring(separator + 1).split(",")) {
+                prefix = prefix.trim().replace('.', '/');
+                if (prefix.isEmpty()) {
+                    continue;
+                }
+                if (!prefix.endsWith("/")) {
+                    prefix += "/";
+                }
+                List<String> prefixes = prefixLibraries.computeIfAbsent(library, key -> new ArrayList<>());
+                if (!prefixes.contains(prefix)) {
+                    prefixes.add(prefix);
+                    prefixIndex.computeIfAbsent(prefix, key -> new ArrayList<>(1)).add(library);
+                }
+            }
+        }
+    }
+
+    /**
+     * 从JAR文件名得到库名称：去掉扩展名和版本号，如 {@code jackson-databind-2.13.4.jar} -> {@code jackson-databind}
+     */
+    static String libraryName(String jarName) {
+        String name = jarName.toLowerCase().endsWith(".jar") ? jarName.substring(0, jarName.length() - 4) : jarName;
+        for (int i = 0; i + 1 < name.length(); i++) {
+            if ((name.charAt(i) == '-' || name.charAt(i) == '_') && Character.isDigit(name.charAt(i + 1)) && i > 0) {
+                return name.substring(0, i);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * 学习一个依赖库JAR的CLASS摘要，同一库（文件名去掉版本号后相同）的不同版本各保存一份
+     * @return 是否有新内容（同一版本重复学习时返回false）
+     */
+    public synchronized boolean learn(String jarName, ZipEntryTable entries) {
+        ClassSet classes = ClassSet.of(entries);
+        if (classes.size() == 0) {
+            return false;
+        }
+        String library = libraryName(jarName);
+        LearnedLibrary entry = learned.get(library);
+        if (entry == null) {
+            entry = new LearnedLibrary(library, jarName);
+            learned.put(library, entry);
+        } else if (!entry.jarName.equals(jarName)) {
+            entry.jarName = jarName;
+            dirty = true;
+        }
+        for (Sketch sketch : entry.sketches) {
+            if (sketch.signature == classes.signature && sketch.classCount == classes.size()) {
+                return false;
+            }
+        }
+        entry.sketches.addLast(Sketch.of(classes));
+        if (entry.sketches.size() > MAX_SKETCHES) {
+            entry.sketches.removeFirst();
+        }
+        for (String pkg : classes.packages.keySet()) {
+            index(entry, truncate(pkg));
+        }
+        dirty = true;
+        log.debug("已学习依赖库指纹: {} - {} 个CLASS", library, classes.size());
+        return true;
+    }
+
+    /**
+     * 根据中央目录识别依赖库
+     * @param enabled 参与识别的库（按库对应的JAR文件名判断，如仍在白名单中）
+     * @return 置信度最高的库；没有任何CLASS或没有候选库时为null
+     */
+    public LibraryMatch identify(ZipEntryTable entries, Predicate<String> enabled) {
+        ClassSet classes = ClassSet.of(entries);
+        if (classes.size() == 0) {
+            return null;
+        }
+        synchronized (this) {
+            LibraryMatch best = null;
+
+            // 按包前缀：统计每个库的包前缀下的CLASS数
+            Map<String, Integer> prefixHits = new HashMap<>();
+            for (Map.Entry<String, Integer> pkg : classes.packages.entrySet()) {
+                Set<String> libraries = new HashSet<>();
+                String name = pkg.getKey();
+                for (int slash = name.indexOf('/'); slash >= 0; slash = name.indexOf('/', slash + 1)) {
+                    List<String> matched = prefixIndex.get(name.substring(0, slash + 1));
+                    if (matched != null) {
+                        libraries.addAll(matched);
+                    }
+                }
+                for (String library : libraries) {
+                    prefixHits.merge(library, pkg.getValue(), Integer::sum);
+                }
+            }
+            for (Map.Entry<String, Integer> hit : prefixHits.entrySet()) {
+                if (enabled.test(hit.getKey() + ".jar")) {
+                    double confidence = hit.getValue() * PREFIX_WEIGHT / classes.size();
+                    best = better(best, new LibraryMatch(hit.getKey(), confidence, hit.getValue(), classes.size(), false));
+                }
+            }
+
+            // 按摘要：只检查包名有重叠的已学习库
+            Set<LearnedLibrary> candidates = new LinkedHashSet<>();
+            for (String pkg : classes.packages.keySet()) {
+                List<LearnedLibrary> libraries = packageIndex.get(truncate(pkg));
+                if (libraries != null) {
+                    candidates.addAll(libraries);
+                }
+            }
+            for (LearnedLibrary library : candidates) {
+                if (!enabled.test(library.jarName)) {
+                    continue;
+                }
+                for (Sketch sketch : library.sketches) {
+                    int hits = 0;
+                    for (long digest : classes.digests) {
+                        if (sketch.mightContain(digest)) {
+                            hits++;
+                        }
+                    }
+                    best = better(best, new LibraryMatch(library.name, (double) hits / classes.size(),
+                            hits, classes.size(), true));
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * 有新学习的内容时写回指纹文件（先写临时文件再原子替换）
+     */
+    public synchronized void saveIfChanged() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        Files.createDirectories(dbFile.getParent());
+        Path temp = dbFile.resolveSibling(dbFile.getFileName() + ".tmp");
+        try (OutputStream fileOut = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(learned.size());
+            for (LearnedLibrary library : learned.values()) {
+                out.writeUTF(library.name);
+                out.writeUTF(library.jarName);
+                out.writeInt(library.packages.size());
+                for (String pkg : library.packages) {
+                    out.writeUTF(pkg);
+                }
+                out.writeInt(library.sketches.size());
+                for (Sketch sketch : library.sketches) {
+                    out.writeInt(sketch.classCount);
+                    out.writeLong(sketch.signature);
+                    out.writeInt(sketch.bits.length);
+                    for (long word : sketch.bits) {
+                        out.writeLong(word);
+                    }
+                }
+            }
+        }
+        try {
+            Files.move(temp, dbFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, dbFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        dirty = false;
+    }
+
+    /**
+     * 按包前缀识别的库数
+     */
+    public synchronized int prefixLibraryCount() {
+        return prefixLibraries.size();
+    }
+
+    /**
+     * 已学习的库数
+     */
+    public synchronized int learnedLibraryCount() {
+        return learned.size();
+    }
+
+    public Path getDbFile() {
+        return dbFile;
+    }
+
+    private void read() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dbFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("指纹文件格式不匹配");
+            }
+            int libraryCount = in.readInt();
+            for (int i = 0; i < libraryCount; i++) {
+                LearnedLibrary library = new LearnedLibrary(in.readUTF(), in.readUTF());
+                int packageCount = in.readInt();
+                for (int j = 0; j < packageCount; j++) {
+                    index(library, in.readUTF());
+                }
+                int sketchCount = in.readInt();
+                for (int j = 0; j < sketchCount; j++) {
+                    int classCount = in.readInt();
+                    long signature = in.readLong();
+                    long[] bits = new long[in.readInt()];
+                    if (Integer.bitCount(bits.length) != 1) {
+                        throw new IOException("指纹文件已损坏");
+                    }
+                    for (int k = 0; k < bits.length; k++) {
+                        bits[k] = in.readLong();
+                    }
+                    library.sketches.add(new Sketch(classCount, signature, bits));
+                }
+                learned.put(library.name, library);
+            }
+        }
+    }
+
+    private void index(LearnedLibrary library, String pkg) {
+        if (library.packages.add(pkg)) {
+            packageIndex.computeIfAbsent(pkg, key -> new ArrayList<>(1)).add(library);
+        }
+    }
+
+    private static LibraryMatch better(LibraryMatch current, LibraryMatch candidate) {
+        return current == null || candidate.confidence > current.confidence ? candidate : current;
+    }
+
+    /**
+     * CLASS条目所在的包（以/结尾），多版本JAR中 META-INF/versions/N/ 下的按原包名计
+     */
+    private static String packageOf(String entryName) {
+        int start = 0;
+        if (entryName.startsWith(VERSIONS_PREFIX)) {
+            int slash = entryName.indexOf('/', VERSIONS_PREFIX.length());
+            start = slash >= 0 ? slash + 1 : 0;
+        }
+        return entryName.substring(start, entryName.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * 包名只保留前几层，如 com/fasterxml/jackson/databind/ -> com/fasterxml/jackson/
+     */
+    private static String truncate(String pkg) {
+        int end = 0;
+        for (int depth = 0; depth < PACKAGE_DEPTH; depth++) {
+            int slash = pkg.indexOf('/', end);
+            if (slash < 0) {
+                break;
+            }
+            end = slash + 1;
+        }
+        return pkg.substring(0, end);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,276 @@
+package com.classviewer.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 逐行文本对比（Myers差分算法），输出左右对齐的行，用于并排显示
+ * 先去掉相同的开头和结尾，中间部分的行映射为整数后再比较。
+ * 编辑距离超过 {@link #MAX_EDIT_DISTANCE} 时不再寻找最短编辑，中间部分整体作为修改，避免大文件完全重写时耗时和内存过大。
+ */
+public final class LineDiff {
+
+    static final int MAX_EDIT_DISTANCE = 2000;
+
+    private static final byte SAME = 0;
+    private static final byte DELETE = 1;
+    private static final byte INSERT = 2;
+
+    public enum Kind {
+        SAME, CHANGED, REMOVED, ADDED
+    }
+
+    /**
+     * 并排显示的一行：左侧为旧版本，右侧为新版本，没有对应行的一侧为null
+     */
+    public static final class Row {
+        private final Kind kind;
+        private final int oldLine;
+        private final String oldText;
+        private final int newLine;
+        private final String newText;
+
+        Row(Kind kind, int oldLine, String oldText, int newLine, String newText) {
+            this.kind = kind;
+            this.oldLine = oldLine;
+            this.oldText = oldText;
+            this.newLine = newLine;
+            this.newText = newText;
+        }
+
+        public Kind getKind() { return kind; }
+
+        /**
+         * 旧版本中的行号（从1开始），没有对应行时为0
+         */
+        public int getOldLine() { return oldLine; }
+        public String getOldText() { return oldText; }
+
+        /**
+         * 新版本中的行号（从1开始），没有对应行时为0
+         */
+        public int getNewLine() { return newLine; }
+        public String getNewText() { return newText; }
+    }
+
+    private LineDiff() {
+    }
+
+    /**
+     * 按行拆分文本，忽略 \r
+     */
+    public static List<String> lines(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        while (start <= text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                if (start < text.length()) {
+                    lines.add(stripCarriageReturn(text.substring(start)));
+                }
+                break;
+            }
+            lines.add(stripCarriageReturn(text.substring(start, end)));
+            start = end + 1;
+        }
+        return lines;
+    }
+
+    private static String stripCarriageReturn(String line) {
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+
+    public static List<Row> diff(List<String> oldLines, List<String> newLines) {
+        int oldSize = oldLines.size();
+        int newSize = newLines.size();
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize && oldLines.get(prefix).equals(newLines.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+                && oldLines.get(oldSize - 1 - suffix).equals(newLines.get(newSize - 1 - suffix))) {
+            suffix++;
+        }
+
+        // 中间部分的行映射为整数，比较时不再比较字符串
+        Map<String, Integer> ids = new HashMap<>();
+        int[] a = new int[oldSize - prefix - suffix];
+        int[] b = new int[newSize - prefix - suffix];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = ids.computeIfAbsent(oldLines.get(prefix + i), line -> ids.size());
+        }
+        for (int i = 0; i < b.length; i++) {
+            b[i] = ids.computeIfAbsent(newLines.get(prefix + i), line -> ids.size());
+        }
+
+        RowBuilder builder = new RowBuilder(oldLines, newLines, oldSize + newSize);
+        for (int i = 0; i < prefix; i++) {
+            builder.same();
+        }
+        byte[] script = editScript(a, b);
+        if (script == null) {
+            for (int i = 0; i < a.length; i++) {
+                builder.delete();
+            }
+            for (int i = 0; i < b.length; i++) {
+                builder.insert();
+            }
+        } else {
+            for (byte op : script) {
+                if (op == SAME) {
+                    builder.same();
+                } else if (op == DELETE) {
+                    builder.delete();
+                } else {
+                    builder.insert();
+                }
+            }
+        }
+        for (int i = 0; i < suffix; i++) {
+            builder.same();
+        }
+        return builder.finish();
+    }
+
+    /**
+     * Myers O(ND)算法求最短编辑脚本
+     * 每一轮保存 [-d, d] 范围内的最远到达位置用于回溯，内存为O(D²)。
+     * @return 按顺序的SAME/DELETE/INSERT操作，编辑距离超过上限时返回null
+     */
+    static byte[] editScript(int[] a, int[] b) {
+        int n = a.length;
+        int m = b.length;
+        int max = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+        int distance = -1;
+        for (int d = 0; d <= max && distance < 0; d++) {
+            if (d > 0) {
+                trace.add(Arrays.copyOfRange(v, offset - d + 1, offset + d));
+            }
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (d == 0) {
+                    x = 0;
+                } else if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];
+                } else {
+                    x = v[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && a[x] == b[y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    distance = d;
+                    break;
+                }
+            }
+        }
+        if (distance < 0) {
+            return null;
+        }
+
+        // 从终点回溯，操作倒序写入
+        byte[] script = new byte[n + m - (n + m - distance) / 2];
+        int pos = script.length;
+        int x = n;
+        int y = m;
+        for (int d = distance; d > 0; d--) {
+            int[] previous = trace.get(d - 1);
+            int base = d - 1;
+            int k = x - y;
+            int previousK;
+            if (k == -d || (k != d && previous[base + k - 1] < previous[base + k + 1])) {
+                previousK = k + 1;
+            } else {
+                previousK = k - 1;
+            }
+            int previousX = previous[base + previousK];
+            int previousY = previousX - previousK;
+            while (x > previousX && y > previousY) {
+                script[--pos] = SAME;
+                x--;
+                y--;
+            }
+            script[--pos] = previousK == k + 1 ? INSERT : DELETE;
+            x = previousX;
+            y = previousY;
+        }
+        while (x > 0 && y > 0) {
+            script[--pos] = SAME;
+            x--;
+            y--;
+        }
+        return script;
+    }
+
+    /**
+     * 按编辑操作生成对齐的行：连续的删除和插入两两配对为修改行，多出的部分单独成行
+     */
+    private static final class RowBuilder {
+        private final List<String> oldLines;
+        private final List<String> newLines;
+        private final List<Row> rows;
+        private int oldPos;
+        private int newPos;
+        private int pendingDeletes;
+        private int pendingInserts;
+
+        RowBuilder(List<String> oldLines, List<String> newLines, int capacity) {
+            this.oldLines = oldLines;
+            this.newLines = newLines;
+            this.rows = new ArrayList<>(capacity);
+        }
+
+        void same() {
+            flush();
+            rows.add(new Row(Kind.SAME, oldPos + 1, oldLines.get(oldPos), newPos + 1, newLines.get(newPos)));
+            oldPos++;
+            newPos++;
+        }
+
+        void delete() {
+            pendingDeletes++;
+        }
+
+        void insert() {
+            pendingInserts++;
+        }
+
+        List<Row> finish() {
+            flush();
+            return rows;
+        }
+
+        private void flush() {
+            int paired = Math.min(pendingDeletes, pendingInserts);
+            for (int i = 0; i < paired; i++) {
+                rows.add(new Row(Kind.CHANGED, oldPos + 1, oldLines.get(oldPos), newPos + 1, newLines.get(newPos)));
+                oldPos++;
+                newPos++;
+            }
+            for (int i = paired; i < pendingDeletes; i++) {
+                rows.add(new Row(Kind.REMOVED, oldPos + 1, oldLines.get(oldPos), 0, null));
+                oldPos++;
+            }
+            for (int i = paired; i < pendingInserts; i++) {
+                rows.add(new Row(Kind.ADDED, 0, null, newPos + 1, newLines.get(newPos)));
+                newPos++;
+            }
+            pendingDeletes = 0;
+            pendingInserts = 0;
+        }
+    }
+}
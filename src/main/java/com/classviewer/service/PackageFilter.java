@@ -0,0 +1,222 @@
+package com.classviewer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * 按包名过滤CLASS（不可变快照）
+ * 用于排除业务JAR中shade进来的第三方代码（如 {@code com.google.common}、{@code io.netty}），被排除的CLASS不解压、不反编译。
+ * 规则每行一条：{@code -包名} 排除，{@code +包名} 包含（在排除的包中保留某个子包），不带符号视为排除；
+ * {@code -*} 表示未被任何规则覆盖的CLASS也排除（即只保留包含规则中的包）。
+ * <p>
+ * 规则编译为Aho-Corasick自动机（{@link AhoCorasick}），只在完整的包名段上匹配，因此不论CLASS在路径中的哪一层
+ * （JAR根目录、{@code BOOT-INF/classes/}、解压目录下的任意位置，以及 {@code shaded/com/google/common/} 这样的重定位包）都能命中，
+ * 每个路径只需扫描一遍；同一路径命中多条规则时以最长（最具体）的为准。
+ * 当前生效的规则保存在 {@code ~/.classviewer/package-filter.txt}，首次使用时从内置默认规则创建。
+ */
+@Slf4j
+public final class PackageFilter {
+
+    private static final String FILTER_FILE = "package-filter.txt";
+
+    private static volatile PackageFilter current;
+    private static Path filterFilePath;
+
+    private final List<String> rules;
+    private final boolean excludeByDefault;
+    private final AhoCorasick automaton;
+    // 按自动机的模式下标：包名段的长度和是否为排除规则
+    private final int[] patternLength;
+    private final boolean[] patternExclude;
+
+    private PackageFilter(List<String> rules, boolean excludeByDefault, AhoCorasick automaton,
+                          int[] patternLength, boolean[] patternExclude) {
+        this.rules = rules;
+        this.excludeByDefault = excludeByDefault;
+        this.automaton = automaton;
+        this.patternLength = patternLength;
+        this.patternExclude = patternExclude;
+    }
+
+    /**
+     * 编译过滤规则
+     * 规则按原样保留（用于展示和持久化）；同一包名出现多次时以最后一条为准
+     */
+    public static PackageFilter compile(Collection<String> rawRules) {
+        List<String> rules = new ArrayList<>();
+        Map<String, Boolean> patterns = new LinkedHashMap<>();
+        boolean excludeByDefault = false;
+        for (String rule : rawRules) {
+            if (rule == null || rule.trim().isEmpty() || rule.trim().startsWith("#")) {
+                continue;
+            }
+            rule = rule.trim();
+            boolean include = rule.charAt(0) == '+';
+            String name = rule.charAt(0) == '+' || rule.charAt(0) == '-' ? rule.substring(1).trim() : rule;
+            if (name.isEmpty()) {
+                continue;
+            }
+            rules.add(rule);
+            if (name.equals("*")) {
+                excludeByDefault = !include;
+                continue;
+            }
+            String pattern = "/" + name.replace('.', '/').replace('\\', '/') + "/";
+            pattern = pattern.replaceAll("/+", "/");
+            patterns.remove(pattern);
+            patterns.put(pattern, !include);
+        }
+
+        List<String> keys = new ArrayList<>(patterns.keySet());
+        int[] patternLength = new int[keys.size()];
+        boolean[] patternExclude = new boolean[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            patternLength[i] = keys.get(i).length();
+            patternExclude[i] = patterns.get(keys.get(i));
+        }
+        return new PackageFilter(Collections.unmodifiableList(rules), excludeByDefault, AhoCorasick.build(keys),
+                patternLength, patternExclude);
+    }
+
+    /**
+     * 判断CLASS是否保留
+     * @param path CLASS的条目名或相对路径，如 {@code BOOT-INF/classes/com/google/common/base/Strings.class}
+     */
+    public boolean accepts(String path) {
+        if (rules.isEmpty()) {
+            return true;
+        }
+        int state = 0;
+        int bestLength = 0;
+        boolean exclude = false;
+        // 路径前补一个分隔符，使规则也能在第一段命中
+        for (int i = -1; i < path.length(); i++) {
+            char c = i < 0 ? '/' : path.charAt(i);
+            state = automaton.step(state, c == '\\' ? '/' : c);
+            int match = automaton.match(state);
+            if (match >= 0 && (patternLength[match] > bestLength
+                    || (patternLength[match] == bestLength && patternExclude[match]))) {
+                bestLength = patternLength[match];
+                exclude = patternExclude[match];
+            }
+        }
+        return bestLength > 0 ? !exclude : !excludeByDefault;
+    }
+
+    /**
+     * 获取原始规则（只读）
+     */
+    public List<String> getRules() {
+        return rules;
+    }
+
+    /**
+     * 当前生效的过滤规则
+     */
+    public static PackageFilter current() {
+        PackageFilter filter = current;
+        if (filter == null) {
+            synchronized (PackageFilter.class) {
+                if (current == null) {
+                    current = load();
+                }
+                filter = current;
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * 替换全部规则并保存
+     */
+    public static synchronized PackageFilter update(Collection<String> rules) {
+        current();
+        PackageFilter filter = compile(rules);
+        current = filter;
+        save(filter);
+        log.info("包过滤规则已更新，共 {} 条", filter.rules.size());
+        return filter;
+    }
+
+    /**
+     * 重置为内置默认规则
+     */
+    public static synchronized PackageFilter resetToDefault() {
+        return update(readDefaultRules());
+    }
+
+    public static synchronized String getFilterFilePath() {
+        current();
+        return filterFilePath.toString();
+    }
+
+    private static PackageFilter load() {
+        filterFilePath = Paths.get(System.getProperty("user.home"), ".classviewer", FILTER_FILE);
+        if (Files.exists(filterFilePath)) {
+            try {
+                PackageFilter filter = compile(Files.readAllLines(filterFilePath, StandardCharsets.UTF_8));
+                log.info("从用户配置加载包过滤规则，共 {} 条", filter.rules.size());
+                return filter;
+            } catch (IOException e) {
+                log.error("加载包过滤规则失败，使用默认配置", e);
+            }
+        }
+        PackageFilter filter = compile(readDefaultRules());
+        save(filter);
+        return filter;
+    }
+
+    private static List<String> readDefaultRules() {
+        List<String> rules = new ArrayList<>();
+        ClassPathResource resource = new ClassPathResource(FILTER_FILE);
+        if (!resource.exists()) {
+            return rules;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    rules.add(line);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("加载默认包过滤规则失败", e);
+        }
+        return rules;
+    }
+
+    /**
+     * 保存当前规则，先写临时文件再原子替换
+     */
+    private static void save(PackageFilter filter) {
+        try {
+            Files.createDirectories(filterFilePath.getParent());
+            List<String> lines = new ArrayList<>();
+            lines.add("# ClassViewer 包过滤规则");
+            lines.add("# -包名 排除（不解压、不反编译），+包名 包含（在排除的包中保留子包），不带符号视为排除");
+            lines.add("# -* 表示未被任何规则覆盖的CLASS也排除；同一CLASS命中多条规则时以最长的包名为准");
+            lines.add("");
+            lines.addAll(filter.rules);
+
+            Path tempFile = filterFilePath.resolveSibling(FILTER_FILE + ".tmp");
+            Files.write(tempFile, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(tempFile, filterFilePath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, filterFilePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.error("保存包过滤规则失败", e);
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package com.classviewer.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 堆外的源码存储区
+ * 源码以UTF-8保存在内存映射的临时文件中（按 {@value #DEFAULT_SEGMENT_SIZE} 字节分段映射），不占用Java堆，
+ * 内存紧张时由操作系统换出到文件；堆上只有每个条目约20字节的索引（原始类型数组）。
+ * <p>
+ * 条目布局：行数（int）、每行起始的字节偏移（int × 行数）、UTF-8内容。读取时按行解码，
+ * 显示5万行源码的可见部分只生成几十个字符串。
+ * <p>
+ * 空间只在末尾追加；释放的条目留下空洞，空洞超过一半且需要扩展映射时，把存活的条目依次前移压缩。
+ * 条目以句柄（代数 &lt;&lt; 32 | 槽位）引用，槽位复用后旧句柄失效；{@link #open} 打开的条目在关闭前不会被回收。线程安全。
+ */
+@Slf4j
+public final class SourceArena implements Closeable {
+
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int INITIAL_SLOTS = 1024;
+    private static final byte FREE = 0;
+    private static final byte LIVE = 1;
+    // 已释放，但还有打开的 SourceText，关闭后回收
+    private static final byte RELEASED = 2;
+
+    private final int segmentSize;
+    private final Path file;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 按槽位的索引
+    private long[] addresses = new long[INITIAL_SLOTS];
+    private int[] lengths = new int[INITIAL_SLOTS];
+    private int[] generations = new int[INITIAL_SLOTS];
+    private int[] pins = new int[INITIAL_SLOTS];
+    private byte[] states = new byte[INITIAL_SLOTS];
+    private int[] freeSlots = new int[INITIAL_SLOTS];
+    private int freeCount;
+    private int slotCount;
+
+    // 下一个条目的写入位置（各段首尾相接的地址）
+    private long top;
+    // 仍占用空间的字节数和条目数（含已释放但仍打开的条目）
+    private long retainedBytes;
+    private int entries;
+    private int compactions;
+    private boolean closed;
+
+    public SourceArena() throws IOException {
+        this(DEFAULT_SEGMENT_SIZE);
+    }
+
+    SourceArena(int segmentSize) throws IOException {
+        this.segmentSize = segmentSize;
+        this.file = Files.createTempFile("classviewer-sources-", ".arena");
+        file.toFile().deleteOnExit();
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * 保存源码
+     * @return 句柄；源码比一个分段还大时为-1
+     */
+    public long store(String source) throws IOException {
+        return store(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 保存UTF-8编码的源码
+     * @return 句柄；源码比一个分段还大时为-1
+     */
+    public long store(byte[] utf8) throws IOException {
+        int lineCount = 1;
+        for (byte b : utf8) {
+            if (b == '\n') {
+                lineCount++;
+            }
+        }
+        long length = 4L + 4L * lineCount + utf8.length;
+        if (length > segmentSize) {
+            return -1;
+        }
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            long address = allocate((int) length);
+            ByteBuffer segment = segments.get((int) (address / segmentSize));
+            int offset = (int) (address % segmentSize);
+            segment.putInt(offset, lineCount);
+            int index = offset + 4;
+            segment.putInt(index, 0);
+            for (int i = 0; i < utf8.length; i++) {
+                if (utf8[i] == '\n') {
+                    index += 4;
+                    segment.putInt(index, i + 1);
+                }
+            }
+            ByteBuffer target = segment.duplicate();
+            target.position(offset + 4 + 4 * lineCount);
+            target.put(utf8);
+
+            int slot = acquireSlot();
+            addresses[slot] = address;
+            lengths[slot] = (int) length;
+            states[slot] = LIVE;
+            retainedBytes += length;
+            entries++;
+            return (long) generations[slot] << 32 | slot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 解码完整的源码
+     * @return 句柄已失效时为null
+     */
+    public String read(long handle) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            int slot = liveSlot(handle);
+            if (slot < 0) {
+                return null;
+            }
+            ByteBuffer segment = segments.get((int) (addresses[slot] / segmentSize));
+            int offset = (int) (addresses[slot] % segmentSize);
+            int lineCount = segment.getInt(offset);
+            int textStart = offset + 4 + 4 * lineCount;
+            return decode(segment, textStart, offset + lengths[slot]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按行打开源码，关闭前条目不会被回收
+     * @return 句柄已失效时为null
+     */
+    public SourceText open(long handle) {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            int slot = liveSlot(handle);
+            if (slot < 0) {
+                return null;
+            }
+            pins[slot]++;
+            ByteBuffer segment = segments.get((int) (addresses[slot] / segmentSize));
+            int lineCount = segment.getInt((int) (addresses[slot] % segmentSize));
+            return new ArenaText(slot, lineCount);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 释放条目，句柄随即失效；条目仍被打开时等关闭后再回收空间
+     */
+    public void free(long handle) {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            int slot = liveSlot(handle);
+            if (slot < 0) {
+                return;
+            }
+            if (pins[slot] > 0) {
+                states[slot] = RELEASED;
+            } else {
+                reclaim(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 条目占用的字节数（含行索引）
+     * @return 句柄已失效时为0
+     */
+    public int sizeOf(long handle) {
+        lock.readLock().lock();
+        try {
+            int slot = closed ? -1 : liveSlot(handle);
+            return slot < 0 ? 0 : lengths[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getEntries() {
+        lock.readLock().lock();
+        try {
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 条目占用的字节数（不含空洞）
+     */
+    public long getRetainedBytes() {
+        lock.readLock().lock();
+        try {
+            return retainedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已映射的字节数
+     */
+    public long getMappedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) segments.size() * segmentSize;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int getCompactions() {
+        return compactions;
+    }
+
+    /**
+     * 关闭并删除临时文件，之后打开的 SourceText 不能再读取
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            segments.clear();
+            try {
+                channel.close();
+                // Windows上映射未被回收前无法删除，退出时再删除
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.debug("删除源码存储文件失败: {}", file, e);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("源码存储区已关闭");
+        }
+    }
+
+    /**
+     * @return 句柄对应的存活槽位，已失效时为-1
+     */
+    private int liveSlot(long handle) {
+        int slot = (int) handle;
+        if (handle < 0 || slot >= slotCount || states[slot] != LIVE || generations[slot] != (int) (handle >>> 32)) {
+            return -1;
+        }
+        return slot;
+    }
+
+    private int acquireSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == addresses.length) {
+            int capacity = slotCount * 2;
+            addresses = Arrays.copyOf(addresses, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+            pins = Arrays.copyOf(pins, capacity);
+            states = Arrays.copyOf(states, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+        }
+        return slotCount++;
+    }
+
+    private void reclaim(int slot) {
+        retainedBytes -= lengths[slot];
+        entries--;
+        states[slot] = FREE;
+        // 槽位复用后旧句柄失效
+        generations[slot]++;
+        freeSlots[freeCount++] = slot;
+    }
+
+    /**
+     * 在末尾分配空间，条目不跨段；空间不足时先尝试压缩，仍不足再映射新的分段
+     */
+    private long allocate(int length) throws IOException {
+        boolean compacted = false;
+        while (true) {
+            long address = alignToSegment(top, length);
+            if (address + length <= (long) segments.size() * segmentSize) {
+                top = address + length;
+                return address;
+            }
+            if (!compacted && top - retainedBytes > retainedBytes) {
+                compact();
+                compacted = true;
+                continue;
+            }
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * segmentSize,
+                    segmentSize));
+        }
+    }
+
+    private long alignToSegment(long address, int length) {
+        if (address % segmentSize + length > segmentSize) {
+            return (address / segmentSize + 1) * segmentSize;
+        }
+        return address;
+    }
+
+    /**
+     * 按地址顺序把存活的条目前移到空洞中（目标地址总不大于原地址）
+     */
+    private void compact() {
+        long startTime = System.nanoTime();
+        long before = top;
+        List<Integer> retained = new ArrayList<>(entries);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (states[slot] != FREE) {
+                retained.add(slot);
+            }
+        }
+        retained.sort((a, b) -> Long.compare(addresses[a], addresses[b]));
+        byte[] buffer = new byte[0];
+        long next = 0;
+        for (int slot : retained) {
+            int length = lengths[slot];
+            long target = alignToSegment(next, length);
+            long source = addresses[slot];
+            if (target != source) {
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                ByteBuffer from = segments.get((int) (source / segmentSize)).duplicate();
+                from.position((int) (source % segmentSize));
+                from.get(buffer, 0, length);
+                ByteBuffer to = segments.get((int) (target / segmentSize)).duplicate();
+                to.position((int) (target % segmentSize));
+                to.put(buffer, 0, length);
+                addresses[slot] = target;
+            }
+            next = target + length;
+        }
+        top = next;
+        compactions++;
+        log.debug("源码存储区压缩完成 - 条目: {}, {} MB -> {} MB, 耗时: {}ms", retained.size(), before >> 20, top >> 20,
+                (System.nanoTime() - startTime) / 1000000);
+    }
+
+    private static String decode(ByteBuffer segment, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer source = segment.duplicate();
+        source.position(start);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 按行读取存储区中的源码，每次读取时按当前地址定位（压缩可能移动条目）
+     */
+    private final class ArenaText implements SourceText {
+        private final int slot;
+        private final int lineCount;
+        private boolean released;
+
+        ArenaText(int slot, int lineCount) {
+            this.slot = slot;
+            this.lineCount = lineCount;
+        }
+
+        @Override
+        public int lineCount() {
+            return lineCount;
+        }
+
+        @Override
+        public String line(int index) {
+            if (index < 0 || index >= lineCount) {
+                throw new IndexOutOfBoundsException("行号越界: " + index);
+            }
+            lock.readLock().lock();
+            try {
+                if (released || closed) {
+                    throw new IllegalStateException("源码已关闭");
+                }
+                ByteBuffer segment = segments.get((int) (addresses[slot] / segmentSize));
+                int offset = (int) (addresses[slot] % segmentSize);
+                int textStart = offset + 4 + 4 * lineCount;
+                int start = textStart + segment.getInt(offset + 4 + 4 * index);
+                // 下一行的起始位置前是换行符
+                int end = index + 1 < lineCount
+                        ? textStart + segment.getInt(offset + 8 + 4 * index) - 1 : offset + lengths[slot];
+                if (end > start && segment.get(end - 1) == '\r') {
+                    end--;
+                }
+                return decode(segment, start, end);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            lock.writeLock().lock();
+            try {
+                if (released) {
+                    return;
+                }
+                released = true;
+                if (closed) {
+                    return;
+                }
+                if (--pins[slot] == 0 && states[slot] == RELEASED) {
+                    reclaim(slot);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
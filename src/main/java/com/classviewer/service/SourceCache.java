@@ -0,0 +1,484 @@
+package com.classviewer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 最近查看的源码缓存
+ * 条目默认以UTF-8保存在堆外的 {@link SourceArena} 中，显示时按行解码，大量源码不会增加GC压力；
+ * 关闭堆外存储（或无法创建临时文件）时以Deflate压缩后保存在堆上。按条目占用的总字节数限制大小，文件的修改时间或大小变化后自动失效。
+ * <p>
+ * 淘汰策略为W-TinyLFU：新条目先进入占总容量1/10的LRU窗口（最近查看的源码总能命中），
+ * 从窗口淘汰时与主区的LRU淘汰者比较近期访问频率（Count-Min Sketch，定期减半衰减），频率更高才进入主区，
+ * 避免一次性浏览大量文件时把反复查看的源码挤出去。
+ */
+@Slf4j
+@Service
+public class SourceCache {
+
+    private static final int WINDOW_PERCENT = 10;
+
+    // 堆上（压缩后）的总字节数上限
+    @Value("${classviewer.source-cache.max-bytes:33554432}")
+    private long maxBytes = 32L * 1024 * 1024;
+
+    // 源码是否保存在堆外
+    @Value("${classviewer.source-cache.off-heap:true}")
+    private boolean offHeap = true;
+
+    // 堆外（未压缩）的总字节数上限
+    @Value("${classviewer.source-cache.off-heap-max-bytes:268435456}")
+    private long offHeapMaxBytes = 256L * 1024 * 1024;
+
+    private SourceArena arena;
+    private boolean arenaFailed;
+
+    private final LinkedHashMap<String, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry> main = new LinkedHashMap<>(64, 0.75f, true);
+    private final FrequencySketch sketch = new FrequencySketch();
+    private long windowBytes;
+    private long mainBytes;
+    private long rawBytes;
+    private long hits;
+    private long misses;
+    private long rejected;
+
+    /**
+     * 读取缓存的源码
+     * @param file 源码对应的文件（CLASS文件或Java文件），用修改时间和大小校验缓存是否有效
+     * @return 未缓存或文件已变化时为null
+     */
+    public String get(Path file) {
+        Entry entry = lookup(file);
+        return entry != null ? entry.text() : null;
+    }
+
+    /**
+     * 按行打开缓存的源码，用完后需要关闭
+     * @return 未缓存或文件已变化时为null
+     */
+    public SourceText open(Path file) {
+        Entry entry = lookup(file);
+        return entry != null ? entry.open() : null;
+    }
+
+    private Entry lookup(Path file) {
+        String key = file.toAbsolutePath().normalize().toString();
+        long stamp = stampOf(file);
+        Entry entry;
+        synchronized (this) {
+            sketch.increment(key);
+            entry = window.get(key);
+            if (entry == null) {
+                entry = main.get(key);
+            }
+            if (entry != null && entry.stamp != stamp) {
+                remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        return entry;
+    }
+
+    /**
+     * 缓存源码（编码或压缩在调用线程中完成）
+     */
+    public void put(Path file, String source) {
+        String key = file.toAbsolutePath().normalize().toString();
+        long stamp = stampOf(file);
+        if (stamp == 0) {
+            return;
+        }
+        Entry entry = createEntry(stamp, source);
+        synchronized (this) {
+            remove(key);
+            if (entry == null || entry.size() > windowCapacity()) {
+                // 比整个窗口还大的源码不缓存
+                rejected++;
+                if (entry != null) {
+                    entry.release();
+                }
+                return;
+            }
+            window.put(key, entry);
+            windowBytes += entry.size();
+            rawBytes += entry.rawLength;
+            while (windowBytes > windowCapacity()) {
+                Iterator<Map.Entry<String, Entry>> eldest = window.entrySet().iterator();
+                Map.Entry<String, Entry> candidate = eldest.next();
+                eldest.remove();
+                windowBytes -= candidate.getValue().size();
+                admitToMain(candidate.getKey(), candidate.getValue());
+            }
+        }
+    }
+
+    /**
+     * 从窗口淘汰的条目：主区放得下时直接进入，否则与需要淘汰的主区条目比较频率
+     */
+    private void admitToMain(String key, Entry candidate) {
+        long capacity = capacity() - windowCapacity();
+        List<String> victims = new ArrayList<>();
+        long freed = 0;
+        int victimFrequency = 0;
+        Iterator<Map.Entry<String, Entry>> iterator = main.entrySet().iterator();
+        while (mainBytes - freed + candidate.size() > capacity && iterator.hasNext()) {
+            Map.Entry<String, Entry> victim = iterator.next();
+            victims.add(victim.getKey());
+            freed += victim.getValue().size();
+            victimFrequency = Math.max(victimFrequency, sketch.frequency(victim.getKey()));
+        }
+        if (mainBytes - freed + candidate.size() > capacity
+                || (!victims.isEmpty() && sketch.frequency(key) <= victimFrequency)) {
+            rawBytes -= candidate.rawLength;
+            rejected++;
+            candidate.release();
+            return;
+        }
+        for (String victim : victims) {
+            Entry removed = main.remove(victim);
+            mainBytes -= removed.size();
+            rawBytes -= removed.rawLength;
+            removed.release();
+        }
+        main.put(key, candidate);
+        mainBytes += candidate.size();
+    }
+
+    private void remove(String key) {
+        Entry removed = window.remove(key);
+        if (removed != null) {
+            windowBytes -= removed.size();
+        } else {
+            removed = main.remove(key);
+            if (removed == null) {
+                return;
+            }
+            mainBytes -= removed.size();
+        }
+        rawBytes -= removed.rawLength;
+        removed.release();
+    }
+
+    private long windowCapacity() {
+        return Math.max(1, capacity() * WINDOW_PERCENT / 100);
+    }
+
+    private synchronized long capacity() {
+        return arena != null ? offHeapMaxBytes : maxBytes;
+    }
+
+    /**
+     * 堆外存储可用时存入存储区，否则压缩后保存在堆上
+     * @return 源码超过存储区的单个分段时为null
+     */
+    private Entry createEntry(long stamp, String source) {
+        SourceArena current = arena();
+        if (current == null) {
+            return CompressedEntry.compress(stamp, source);
+        }
+        try {
+            long handle = current.store(source);
+            return handle < 0 ? null : new ArenaEntry(stamp, current, handle);
+        } catch (IOException | IllegalStateException e) {
+            log.warn("源码存入堆外存储失败", e);
+            return null;
+        }
+    }
+
+    private synchronized SourceArena arena() {
+        if (arena == null && offHeap && !arenaFailed) {
+            try {
+                arena = new SourceArena();
+            } catch (IOException e) {
+                arenaFailed = true;
+                log.warn("无法创建堆外源码存储，改为在堆上压缩缓存", e);
+            }
+        }
+        return arena;
+    }
+
+    public synchronized void clear() {
+        window.values().forEach(Entry::release);
+        main.values().forEach(Entry::release);
+        window.clear();
+        main.clear();
+        windowBytes = 0;
+        mainBytes = 0;
+        rawBytes = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, rejected, window.size() + main.size(), windowBytes + mainBytes, rawBytes,
+                arena != null);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        clear();
+        if (arena != null) {
+            arena.close();
+            arena = null;
+        }
+    }
+
+    /**
+     * 文件的修改时间和大小，文件不存在时为0
+     */
+    public static long stampOf(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.lastModifiedTime().toMillis() * 31 + attributes.size() + 1;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 缓存统计
+     */
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long rejected;
+        private final int entries;
+        private final long bytes;
+        private final long rawBytes;
+        private final boolean offHeap;
+
+        Stats(long hits, long misses, long rejected, int entries, long bytes, long rawBytes, boolean offHeap) {
+            this.hits = hits;
+            this.misses = misses;
+            this.rejected = rejected;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.rawBytes = rawBytes;
+            this.offHeap = offHeap;
+        }
+
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getRejected() { return rejected; }
+        public int getEntries() { return entries; }
+        public long getBytes() { return bytes; }
+        public long getRawBytes() { return rawBytes; }
+        public boolean isOffHeap() { return offHeap; }
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            if (offHeap) {
+                return String.format("命中率 %.0f%%（%d/%d），%d 个，堆外 %.1f MB", getHitRate() * 100, hits,
+                        hits + misses, entries, bytes / 1048576.0);
+            }
+            return String.format("命中率 %.0f%%（%d/%d），%d 个，%.1f MB（压缩前 %.1f MB）", getHitRate() * 100, hits,
+                    hits + misses, entries, bytes / 1048576.0, rawBytes / 1048576.0);
+        }
+    }
+
+    /**
+     * 缓存的源码
+     */
+    private abstract static class Entry {
+        final long stamp;
+        final int rawLength;
+
+        Entry(long stamp, int rawLength) {
+            this.stamp = stamp;
+            this.rawLength = rawLength;
+        }
+
+        abstract long size();
+
+        /**
+         * @return 已被释放时为null
+         */
+        abstract String text();
+
+        /**
+         * @return 已被释放时为null
+         */
+        abstract SourceText open();
+
+        /**
+         * 从缓存移除时释放占用的空间
+         */
+        void release() {
+        }
+    }
+
+    /**
+     * 堆外存储区中的源码
+     */
+    private static final class ArenaEntry extends Entry {
+        private final SourceArena arena;
+        private final long handle;
+        private final int size;
+
+        ArenaEntry(long stamp, SourceArena arena, long handle) {
+            // 未压缩，原始大小即占用的大小
+            super(stamp, arena.sizeOf(handle));
+            this.arena = arena;
+            this.handle = handle;
+            this.size = rawLength;
+        }
+
+        @Override
+        long size() {
+            return size;
+        }
+
+        @Override
+        String text() {
+            return arena.read(handle);
+        }
+
+        @Override
+        SourceText open() {
+            return arena.open(handle);
+        }
+
+        @Override
+        void release() {
+            arena.free(handle);
+        }
+    }
+
+    /**
+     * 压缩后保存在堆上的源码
+     */
+    private static final class CompressedEntry extends Entry {
+        private final byte[] compressed;
+
+        private CompressedEntry(long stamp, byte[] compressed, int rawLength) {
+            super(stamp, rawLength);
+            this.compressed = compressed;
+        }
+
+        static CompressedEntry compress(long stamp, String source) {
+            byte[] raw = source.getBytes(StandardCharsets.UTF_8);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+            try {
+                deflater.setInput(raw);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+                byte[] buffer = new byte[8192];
+                while (!deflater.finished()) {
+                    int length = deflater.deflate(buffer);
+                    out.write(buffer, 0, length);
+                }
+                return new CompressedEntry(stamp, out.toByteArray(), raw.length);
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Override
+        String text() {
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(compressed);
+                byte[] raw = new byte[rawLength];
+                int offset = 0;
+                while (offset < rawLength && !inflater.finished()) {
+                    int length = inflater.inflate(raw, offset, rawLength - offset);
+                    if (length == 0 && inflater.needsInput()) {
+                        break;
+                    }
+                    offset += length;
+                }
+                return new String(raw, 0, offset, StandardCharsets.UTF_8);
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("缓存的源码已损坏", e);
+            } finally {
+                inflater.end();
+            }
+        }
+
+        @Override
+        SourceText open() {
+            return SourceText.of(text());
+        }
+
+        @Override
+        long size() {
+            return compressed.length;
+        }
+    }
+
+    /**
+     * 近期访问频率的Count-Min Sketch（4行，4位饱和计数器，访问次数达到宽度的10倍时全部减半）
+     */
+    static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int WIDTH = 4096;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[] counters = new byte[DEPTH * WIDTH];
+        private int additions;
+
+        void increment(String key) {
+            int hash = key.hashCode();
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = indexOf(hash, row);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= WIDTH * 10) {
+                reset();
+            }
+        }
+
+        int frequency(String key) {
+            int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, counters[indexOf(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * 0x45D9F3B;
+            h ^= h >>> 16;
+            return row * WIDTH + (h & (WIDTH - 1));
+        }
+
+        private void reset() {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = (byte) (counters[i] >>> 1);
+            }
+            additions /= 2;
+        }
+    }
+}
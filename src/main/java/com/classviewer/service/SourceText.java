@@ -0,0 +1,62 @@
+package com.classviewer.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按行访问的源码
+ * 来自 {@link SourceArena} 时逐行从堆外内存解码，只有正在显示的行才生成字符串；
+ * 用完后需要 {@link #close()}，否则对应的堆外空间不会被回收。
+ */
+public interface SourceText {
+
+    int lineCount();
+
+    /**
+     * 第 index 行（不含换行符，兼容 \r\n）
+     * @throws IllegalStateException 已关闭
+     */
+    String line(int index);
+
+    /**
+     * 释放对源码的引用，可重复调用
+     */
+    default void close() {
+    }
+
+    /**
+     * 堆上的源码
+     */
+    static SourceText of(String source) {
+        String[] lines = splitLines(source);
+        return new SourceText() {
+            @Override
+            public int lineCount() {
+                return lines.length;
+            }
+
+            @Override
+            public String line(int index) {
+                return lines[index];
+            }
+        };
+    }
+
+    /**
+     * 按行切分（兼容 \r\n），比正则切分快一个数量级
+     */
+    static String[] splitLines(String source) {
+        List<String> lines = new ArrayList<>(source.length() / 32 + 1);
+        int start = 0;
+        int length = source.length();
+        for (int i = 0; i < length; i++) {
+            if (source.charAt(i) == '\n') {
+                int end = i > start && source.charAt(i - 1) == '\r' ? i - 1 : i;
+                lines.add(source.substring(start, end));
+                start = i + 1;
+            }
+        }
+        lines.add(source.substring(start));
+        return lines.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,87 @@
+package com.classviewer.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 把文本按UTF-8逐块编码写入通道
+ * 编码器和缓冲区按线程复用，文本不再整体转换为字节数组，每个类只剩CFR自身生成的字符串。
+ * 每段文本独立编码（CFR每次输出的是完整的源文件），无法编码的字符替换为 '?'，与 String.getBytes 一致。
+ */
+final class Utf8ChannelWriter {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final ThreadLocal<Utf8ChannelWriter> WRITERS = ThreadLocal.withInitial(Utf8ChannelWriter::new);
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private WritableByteChannel channel;
+    private long bytesWritten;
+    private long writeNanos;
+
+    private Utf8ChannelWriter() {
+    }
+
+    /**
+     * 取当前线程的写入器，写完后调用 {@link #finish()}
+     */
+    static Utf8ChannelWriter open(WritableByteChannel channel) {
+        Utf8ChannelWriter writer = WRITERS.get();
+        writer.buffer.clear();
+        writer.channel = channel;
+        writer.bytesWritten = 0;
+        writer.writeNanos = 0;
+        return writer;
+    }
+
+    void write(CharSequence text) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+        while (encoder.encode(chars, buffer, true).isOverflow()) {
+            drain();
+        }
+        CoderResult result;
+        while ((result = encoder.flush(buffer)).isOverflow()) {
+            drain();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+
+    /**
+     * 写出缓冲区中剩余的字节
+     * @return 写入的总字节数
+     */
+    long finish() throws IOException {
+        drain();
+        channel = null;
+        return bytesWritten;
+    }
+
+    /**
+     * 等待通道写入的耗时（纳秒），不含编码
+     */
+    long getWriteNanos() {
+        return writeNanos;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        long startTime = System.nanoTime();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        writeNanos += System.nanoTime() - startTime;
+        buffer.clear();
+    }
+}
@@ -0,0 +1,129 @@
+package com.classviewer.service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 两个版本之间CLASS文件的差异
+ * 只列出新增、删除和修改的CLASS；源码在需要查看时才反编译（见 {@link VersionDiffService#sourceDiff}）。
+ * 嵌套JAR中的CLASS以 {@code BOOT-INF/lib/a.jar!/com/example/A.class} 的形式表示。
+ */
+public class VersionDiff {
+
+    public enum ChangeType {
+        ADDED("新增"), REMOVED("删除"), CHANGED("修改");
+
+        private final String label;
+
+        ChangeType(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final String oldName;
+    private final String newName;
+    private final List<Change> changes;
+    private final int unchangedClasses;
+    private final int unchangedArchives;
+    private final long duration;
+
+    VersionDiff(String oldName, String newName, List<Change> changes,
+                int unchangedClasses, int unchangedArchives, long duration) {
+        this.oldName = oldName;
+        this.newName = newName;
+        this.changes = Collections.unmodifiableList(changes);
+        this.unchangedClasses = unchangedClasses;
+        this.unchangedArchives = unchangedArchives;
+        this.duration = duration;
+    }
+
+    public String getOldName() {
+        return oldName;
+    }
+
+    public String getNewName() {
+        return newName;
+    }
+
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * 内容相同而跳过的CLASS数
+     */
+    public int getUnchangedClasses() {
+        return unchangedClasses;
+    }
+
+    /**
+     * 内容相同而整体跳过（未打开）的嵌套JAR数
+     */
+    public int getUnchangedArchives() {
+        return unchangedArchives;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public long count(ChangeType type) {
+        return changes.stream().filter(change -> change.type == type).count();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("版本对比: %s -> %s%n新增: %d, 删除: %d, 修改: %d, 相同: %d（另有 %d 个相同的嵌套JAR）%n耗时: %dms",
+                oldName, newName, count(ChangeType.ADDED), count(ChangeType.REMOVED), count(ChangeType.CHANGED),
+                unchangedClasses, unchangedArchives, duration);
+    }
+
+    /**
+     * 一个有变化的CLASS文件
+     */
+    public static class Change {
+        private final String path;
+        private final ChangeType type;
+        private final VersionDiffService.ClassSource oldSource;
+        private final int oldIndex;
+        private final VersionDiffService.ClassSource newSource;
+        private final int newIndex;
+
+        Change(String path, ChangeType type, VersionDiffService.ClassSource oldSource, int oldIndex,
+               VersionDiffService.ClassSource newSource, int newIndex) {
+            this.path = path;
+            this.type = type;
+            this.oldSource = oldSource;
+            this.oldIndex = oldIndex;
+            this.newSource = newSource;
+            this.newIndex = newIndex;
+        }
+
+        public String getPath() { return path; }
+        public ChangeType getType() { return type; }
+
+        /**
+         * 旧版本中的大小，新增的CLASS为-1
+         */
+        public long getOldSize() { return oldSource != null ? oldSource.length(oldIndex) : -1; }
+
+        /**
+         * 新版本中的大小，删除的CLASS为-1
+         */
+        public long getNewSize() { return newSource != null ? newSource.length(newIndex) : -1; }
+
+        VersionDiffService.ClassSource getOldSource() { return oldSource; }
+        int getOldIndex() { return oldIndex; }
+        VersionDiffService.ClassSource getNewSource() { return newSource; }
+        int getNewIndex() { return newIndex; }
+
+        @Override
+        public String toString() {
+            return "[" + type.getLabel() + "] " + path;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.classviewer.service;
+
+import com.classviewer.zip.MappedZipArchive;
+import com.classviewer.zip.ZipEntryTable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 版本对比服务
+ * 比较两个JAR或目录中的CLASS文件：按路径对齐，先比较大小和CRC（JAR取自中央目录，目录中的文件只在大小相同时才计算），
+ * 两侧都是目录中的文件时再用读取CRC时一并算出的SHA-256确认；JAR中的条目只信任中央目录的大小和CRC，不为确认而解压。
+ * 内容相同的CLASS直接跳过；内容相同的嵌套JAR整体跳过，不打开。
+ * 只有新增和修改的CLASS在查看时才反编译，工作量与变化的多少成正比，而不是与产品的大小成正比。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VersionDiffService {
+
+    private static final String NESTED_SEPARATOR = "!/";
+
+    private final DecompilerService decompilerService;
+
+    /**
+     * 比较两个版本
+     * @param oldPath 旧版本的JAR文件或目录
+     * @param newPath 新版本的JAR文件或目录
+     */
+    public VersionDiff compare(Path oldPath, Path newPath) throws IOException {
+        long startTime = System.currentTimeMillis();
+        log.info("开始版本对比: {} -> {}", oldPath, newPath);
+
+        DiffCollector collector = new DiffCollector();
+        collector.compare(open(oldPath), open(newPath), "");
+
+        VersionDiff diff = new VersionDiff(oldPath.toString(), newPath.toString(), collector.changes,
+                collector.unchangedClasses, collector.unchangedArchives, System.currentTimeMillis() - startTime);
+        log.info("版本对比完成 - {}", diff);
+        return diff;
+    }
+
+    /**
+     * 反编译一个变化的CLASS在两个版本中的源码，并逐行对比
+     */
+    public List<LineDiff.Row> sourceDiff(VersionDiff.Change change) throws Exception {
+        String oldSource = decompile(change.getOldSource(), change.getOldIndex());
+        String newSource = decompile(change.getNewSource(), change.getNewIndex());
+        return LineDiff.diff(LineDiff.lines(oldSource), LineDiff.lines(newSource));
+    }
+
+    private String decompile(ClassSource source, int index) throws Exception {
+        if (source == null) {
+            return "";
+        }
+        Path localFile = source.localFile(index);
+        if (localFile != null) {
+            return decompilerService.decompileClass(localFile.toFile());
+        }
+        Path tempDir = Files.createTempDirectory("classviewer_diff_");
+        try {
+            String path = source.path(index);
+            Path classFile = tempDir.resolve(path.substring(path.lastIndexOf('/') + 1));
+            source.copyTo(index, classFile);
+            return decompilerService.decompileClass(classFile.toFile());
+        } finally {
+            try (Stream<Path> files = Files.walk(tempDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    private static ClassSource open(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            return new DirectorySource(path);
+        }
+        if (!Files.isRegularFile(path)) {
+            throw new IOException("文件不存在: " + path);
+        }
+        return new ArchiveSource(MappedZipArchive.open(path));
+    }
+
+    /**
+     * 对两个版本做归并对齐，收集差异
+     */
+    private static final class DiffCollector {
+        private final List<VersionDiff.Change> changes = new ArrayList<>();
+        private int unchangedClasses;
+        private int unchangedArchives;
+
+        void compare(ClassSource oldSource, ClassSource newSource, String prefix) throws IOException {
+            int i = 0;
+            int j = 0;
+            while (i < oldSource.size() || j < newSource.size()) {
+                int cmp = i >= oldSource.size() ? 1
+                        : j >= newSource.size() ? -1
+                        : oldSource.path(i).compareTo(newSource.path(j));
+                if (cmp < 0) {
+                    addAll(VersionDiff.ChangeType.REMOVED, oldSource, i++, prefix);
+                } else if (cmp > 0) {
+                    addAll(VersionDiff.ChangeType.ADDED, newSource, j++, prefix);
+                } else {
+                    compareEntry(oldSource, i++, newSource, j++, prefix);
+                }
+            }
+        }
+
+        private void compareEntry(ClassSource oldSource, int oldIndex, ClassSource newSource, int newIndex,
+                                  String prefix) throws IOException {
+            boolean archive = oldSource.isArchive(oldIndex);
+            if (oldSource.length(oldIndex) == newSource.length(newIndex)
+                    && oldSource.crc(oldIndex) == newSource.crc(newIndex)
+                    && sameDigest(oldSource.digest(oldIndex), newSource.digest(newIndex))) {
+                if (archive) {
+                    unchangedArchives++;
+                } else {
+                    unchangedClasses++;
+                }
+                return;
+            }
+            String path = prefix + oldSource.path(oldIndex);
+            if (archive) {
+                ClassSource oldNested = openArchive(oldSource, oldIndex, path);
+                ClassSource newNested = openArchive(newSource, newIndex, path);
+                if (oldNested != null && newNested != null) {
+                    compare(oldNested, newNested, path + NESTED_SEPARATOR);
+                }
+                return;
+            }
+            changes.add(new VersionDiff.Change(path, VersionDiff.ChangeType.CHANGED,
+                    oldSource, oldIndex, newSource, newIndex));
+        }
+
+        /**
+         * 两侧都有摘要时比较摘要，否则以大小和CRC为准
+         */
+        private static boolean sameDigest(byte[] oldDigest, byte[] newDigest) {
+            return oldDigest == null || newDigest == null || Arrays.equals(oldDigest, newDigest);
+        }
+
+        /**
+         * 记录只在一侧存在的条目，嵌套JAR展开为其中的全部CLASS
+         */
+        private void addAll(VersionDiff.ChangeType type, ClassSource source, int index, String prefix) {
+            String path = prefix + source.path(index);
+            if (!source.isArchive(index)) {
+                boolean added = type == VersionDiff.ChangeType.ADDED;
+                changes.add(new VersionDiff.Change(path, type,
+                        added ? null : source, added ? -1 : index, added ? source : null, added ? index : -1));
+                return;
+            }
+            ClassSource nested = openArchive(source, index, path);
+            if (nested != null) {
+                for (int i = 0; i < nested.size(); i++) {
+                    addAll(type, nested, i, path + NESTED_SEPARATOR);
+                }
+            }
+        }
+
+        private static ClassSource openArchive(ClassSource source, int index, String path) {
+            try {
+                return source.openArchive(index);
+            } catch (IOException e) {
+                log.warn("无法打开嵌套JAR，跳过: {} ({})", path, e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 一个版本中按路径排序的CLASS文件和嵌套JAR
+     */
+    interface ClassSource {
+
+        int size();
+
+        /**
+         * 相对路径，以 / 分隔
+         */
+        String path(int index);
+
+        long length(int index);
+
+        /**
+         * 内容的CRC32
+         */
+        long crc(int index) throws IOException;
+
+        /**
+         * 内容的SHA-256，无法低成本获得时返回null（只比较大小和CRC）
+         */
+        byte[] digest(int index) throws IOException;
+
+        boolean isArchive(int index);
+
+        ClassSource openArchive(int index) throws IOException;
+
+        /**
+         * 磁盘上的文件，不在磁盘上时返回null
+         */
+        Path localFile(int index);
+
+        void copyTo(int index, Path target) throws IOException;
+    }
+
+    private static boolean isArchiveName(String name) {
+        return name.regionMatches(true, name.length() - 4, ".jar", 0, 4)
+                || name.regionMatches(true, name.length() - 4, ".war", 0, 4);
+    }
+
+    /**
+     * JAR中的条目，大小和CRC取自中央目录
+     */
+    private static final class ArchiveSource implements ClassSource {
+        private final MappedZipArchive archive;
+        private final ZipEntryTable table;
+        private final int[] entries;
+        private final String[] paths;
+
+        ArchiveSource(MappedZipArchive archive) {
+            this.archive = archive;
+            this.table = archive.entries();
+            int[] selected = new int[table.size()];
+            int count = 0;
+            for (int rank = 0; rank < table.size(); rank++) {
+                int entry = table.sortedEntry(rank);
+                if (!table.isDirectory(entry) && (table.nameEndsWith(entry, ".class")
+                        || table.nameEndsWith(entry, ".jar") || table.nameEndsWith(entry, ".war"))) {
+                    selected[count++] = entry;
+                }
+            }
+            String[] names = new String[count];
+            boolean sorted = true;
+            for (int i = 0; i < count; i++) {
+                names[i] = table.name(selected[i]);
+                sorted &= i == 0 || names[i - 1].compareTo(names[i]) < 0;
+            }
+            if (!sorted) {
+                // 条目表按UTF-8字节排序，与String的顺序只在少数非ASCII名称上不同；重复名称只保留第一个
+                Integer[] order = new Integer[count];
+                for (int i = 0; i < count; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, Comparator.comparing(i -> names[i]));
+                int[] sortedEntries = new int[count];
+                String[] sortedNames = new String[count];
+                int unique = 0;
+                for (Integer i : order) {
+                    if (unique == 0 || !sortedNames[unique - 1].equals(names[i])) {
+                        sortedEntries[unique] = selected[i];
+                        sortedNames[unique++] = names[i];
+                    }
+                }
+                this.entries = Arrays.copyOf(sortedEntries, unique);
+                this.paths = Arrays.copyOf(sortedNames, unique);
+            } else {
+                this.entries = Arrays.copyOf(selected, count);
+                this.paths = names;
+            }
+        }
+
+        @Override
+        public int size() {
+            return entries.length;
+        }
+
+        @Override
+        public String path(int index) {
+            return paths[index];
+        }
+
+        @Override
+        public long length(int index) {
+            return table.uncompressedSize(entries[index]);
+        }
+
+        @Override
+        public long crc(int index) {
+            return table.crc(entries[index]) & 0xFFFFFFFFL;
+        }
+
+        @Override
+        public byte[] digest(int index) {
+            // 需要解压条目才能计算，信任中央目录的CRC
+            return null;
+        }
+
+        @Override
+        public boolean isArchive(int index) {
+            return isArchiveName(paths[index]);
+        }
+
+        @Override
+        public ClassSource openArchive(int index) throws IOException {
+            return new ArchiveSource(archive.readNested(entries[index]));
+        }
+
+        @Override
+        public Path localFile(int index) {
+            return null;
+        }
+
+        @Override
+        public void copyTo(int index, Path target) throws IOException {
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                archive.copyTo(entries[index], out);
+            }
+        }
+    }
+
+    /**
+     * 目录中的文件，CRC和SHA-256在需要时一次读取算出
+     */
+    private static final class DirectorySource implements ClassSource {
+        private final Path root;
+        private final String[] paths;
+        private final long[] lengths;
+        private final long[] crcs;
+        private final byte[][] digests;
+
+        DirectorySource(Path root) throws IOException {
+            this.root = root;
+            try (Stream<Path> stream = Files.walk(root)) {
+                this.paths = stream
+                        .filter(Files::isRegularFile)
+                        .map(file -> root.relativize(file).toString().replace('\\', '/'))
+                        .filter(path -> path.endsWith(".class") || isArchiveName(path))
+                        .sorted()
+                        .toArray(String[]::new);
+            }
+            this.lengths = new long[paths.length];
+            this.crcs = new long[paths.length];
+            this.digests = new byte[paths.length][];
+            for (int i = 0; i < paths.length; i++) {
+                lengths[i] = Files.size(root.resolve(paths[i]));
+                crcs[i] = -1;
+            }
+        }
+
+        @Override
+        public int size() {
+            return paths.length;
+        }
+
+        @Override
+        public String path(int index) {
+            return paths[index];
+        }
+
+        @Override
+        public long length(int index) {
+            return lengths[index];
+        }
+
+        @Override
+        public long crc(int index) throws IOException {
+            checksum(index);
+            return crcs[index];
+        }
+
+        @Override
+        public byte[] digest(int index) throws IOException {
+            checksum(index);
+            return digests[index];
+        }
+
+        private void checksum(int index) throws IOException {
+            if (crcs[index] >= 0) {
+                return;
+            }
+            CRC32 crc = new CRC32();
+            MessageDigest sha256;
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            byte[] buffer = new byte[8192];
+            try (InputStream in = Files.newInputStream(localFile(index))) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    crc.update(buffer, 0, read);
+                    sha256.update(buffer, 0, read);
+                }
+            }
+            digests[index] = sha256.digest();
+            crcs[index] = crc.getValue();
+        }
+
+        @Override
+        public boolean isArchive(int index) {
+            return isArchiveName(paths[index]);
+        }
+
+        @Override
+        public ClassSource openArchive(int index) throws IOException {
+            return new ArchiveSource(MappedZipArchive.open(localFile(index)));
+        }
+
+        @Override
+        public Path localFile(int index) {
+            return root.resolve(paths[index]);
+        }
+
+        @Override
+        public void copyTo(int index, Path target) throws IOException {
+            Files.copy(localFile(index), target);
+        }
+    }
+}
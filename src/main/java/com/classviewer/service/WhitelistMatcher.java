@@ -0,0 +1,75 @@
+package com.classviewer.service;
+
+import java.util.*;
+
+/**
+ * 白名单匹配器（不可变快照）
+ * 将所有关键词预编译为Aho-Corasick自动机（{@link AhoCorasick}），对JAR名称只需扫描一遍即可判断是否命中任意关键词。
+ * 快照创建后不再修改，可被多个线程无锁共享。
+ */
+final class WhitelistMatcher {
+
+    static final WhitelistMatcher EMPTY = compile(Collections.emptySet());
+
+    private final Set<String> rules;
+    private final AhoCorasick automaton;
+
+    private WhitelistMatcher(Set<String> rules, AhoCorasick automaton) {
+        this.rules = rules;
+        this.automaton = automaton;
+    }
+
+    /**
+     * 编译白名单规则
+     * 规则按原样保留（用于展示和持久化），匹配时忽略大小写
+     */
+    static WhitelistMatcher compile(Collection<String> rawRules) {
+        Set<String> rules = new LinkedHashSet<>();
+        Set<String> patterns = new LinkedHashSet<>();
+        for (String rule : rawRules) {
+            if (rule == null || rule.trim().isEmpty()) {
+                continue;
+            }
+            rule = rule.trim();
+            rules.add(rule);
+            patterns.add(lowerCase(rule));
+        }
+        return new WhitelistMatcher(Collections.unmodifiableSet(rules), AhoCorasick.build(new ArrayList<>(patterns)));
+    }
+
+    /**
+     * 判断名称中是否包含任意关键词（忽略大小写）
+     */
+    boolean matches(String name) {
+        if (rules.isEmpty()) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0; i < name.length(); i++) {
+            state = automaton.step(state, Character.toLowerCase(name.charAt(i)));
+            if (automaton.match(state) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取原始规则（只读）
+     */
+    Set<String> getRules() {
+        return rules;
+    }
+
+    int size() {
+        return rules.size();
+    }
+
+    private static String lowerCase(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+}
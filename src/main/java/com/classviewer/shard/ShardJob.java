@@ -0,0 +1,236 @@
+package com.classviewer.shard;
+
+import com.classviewer.service.BatchDecompilerService;
+import com.classviewer.service.BatchDecompilerService.BatchResult;
+import com.classviewer.service.BatchJournal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 分片批量反编译任务
+ * 任务目录的结构：
+ * <pre>
+ * manifest.tsv              完整工作清单
+ * shard-N.tsv               第N个分片的清单
+ * shard-N-out/              第N个分片的输出（Java文件按相对路径存放、journal.log、shard-result.properties）
+ * merge-result.properties   合并后的汇总结果
+ * </pre>
+ * 分片可以在不同进程或主机上运行，输入目录可以是共享目录或副本；合并时按清单中的相对路径对齐结果。
+ */
+@Slf4j
+public final class ShardJob {
+
+    public static final String MANIFEST_FILE = "manifest.tsv";
+    public static final String JOURNAL_FILE = "journal.log";
+    public static final String SHARD_RESULT_FILE = "shard-result.properties";
+    public static final String MERGE_RESULT_FILE = "merge-result.properties";
+
+    static final String MISSING_RESULT = "分片结果缺失";
+
+    private final Path jobDir;
+
+    public ShardJob(Path jobDir) {
+        this.jobDir = jobDir.toAbsolutePath().normalize();
+    }
+
+    public Path manifestFile() {
+        return jobDir.resolve(MANIFEST_FILE);
+    }
+
+    public Path shardManifestFile(int shardIndex) {
+        return jobDir.resolve("shard-" + shardIndex + ".tsv");
+    }
+
+    public Path defaultOutputDir(int shardIndex) {
+        return jobDir.resolve("shard-" + shardIndex + "-out");
+    }
+
+    /**
+     * 生成完整清单并拆分为分片清单
+     */
+    public List<WorkManifest> plan(Path classDir, int shardCount, BatchDecompilerService batchService)
+            throws IOException {
+        WorkManifest manifest = ShardPlanner.inventory(classDir, batchService.findAllClassFiles(classDir));
+        manifest.write(manifestFile());
+        List<WorkManifest> shards = ShardPlanner.partition(manifest, shardCount);
+        for (WorkManifest shard : shards) {
+            shard.write(shardManifestFile(shard.getShardIndex()));
+        }
+        return shards;
+    }
+
+    /**
+     * 运行一个分片
+     * @param inputDir 输入目录，为null时使用清单中记录的目录
+     * @param outputDir 输出目录，为null时使用任务目录下的默认位置
+     */
+    public BatchResult run(int shardIndex, Path inputDir, Path outputDir, int threadCount,
+                           BatchDecompilerService batchService) throws IOException {
+        WorkManifest shard = WorkManifest.read(shardManifestFile(shardIndex));
+        Path input = (inputDir != null ? inputDir : shard.getRoot()).toAbsolutePath().normalize();
+        Path output = (outputDir != null ? outputDir : defaultOutputDir(shardIndex)).toAbsolutePath().normalize();
+        Files.createDirectories(output);
+
+        List<Path> classFiles = new ArrayList<>(shard.getEntries().size());
+        for (WorkManifest.Entry entry : shard.getEntries()) {
+            classFiles.add(input.resolve(entry.getPath()));
+        }
+        log.info("运行分片 {}/{} - 输入: {}, 输出: {}, CLASS文件: {}",
+                shardIndex, shard.getShardCount(), input, output, classFiles.size());
+
+        int step = Math.max(1, classFiles.size() / 20);
+        BatchResult result = batchService.batchDecompile(classFiles,
+                classFile -> output.resolve(javaPath(input.relativize(classFile).toString())),
+                output.resolve(JOURNAL_FILE), threadCount,
+                (current, total, fileName) -> {
+                    if (current % step == 0 || current == total) {
+                        log.info("分片 {} 进度: {}/{}", shardIndex, current, total);
+                    }
+                }, null);
+
+        Properties properties = new Properties();
+        properties.setProperty("shard", Integer.toString(shardIndex));
+        properties.setProperty("input", input.toString());
+        properties.setProperty("total", Integer.toString(result.getTotalFiles()));
+        properties.setProperty("success", Integer.toString(result.getSuccessCount()));
+        properties.setProperty("fail", Integer.toString(result.getFailCount()));
+        properties.setProperty("duplicates", Integer.toString(result.getDuplicateCount()));
+        properties.setProperty("durationMs", Long.toString(result.getDuration()));
+        store(properties, output.resolve(SHARD_RESULT_FILE), "shard result");
+        return result;
+    }
+
+    /**
+     * 合并各分片的输出：Java文件复制到目标目录，结果日志合并为目标目录的日志
+     * 清单中没有任何分片结果的CLASS文件记为失败。耗时取最慢的分片。
+     * @param targetDir 目标目录，为null时使用清单中记录的目录
+     * @param outputDirs 各分片的输出目录，为null时使用任务目录下的默认位置
+     */
+    public BatchResult merge(Path targetDir, List<Path> outputDirs) throws IOException {
+        WorkManifest manifest = WorkManifest.read(manifestFile());
+        Path target = (targetDir != null ? targetDir : manifest.getRoot()).toAbsolutePath().normalize();
+        if (outputDirs == null) {
+            outputDirs = new ArrayList<>();
+            for (int i = 0; Files.exists(shardManifestFile(i)); i++) {
+                outputDirs.add(defaultOutputDir(i));
+            }
+        }
+
+        BatchResult result = new BatchResult();
+        result.setTotalFiles(manifest.getEntries().size());
+        Set<String> merged = new HashSet<>(manifest.getEntries().size() * 2);
+        long duration = 0;
+        try (BatchJournal journal = BatchJournal.create(BatchJournal.journalFileFor(target))) {
+            result.setJournalFile(journal.getFile());
+            for (Path outputDir : outputDirs) {
+                Path resultFile = outputDir.resolve(SHARD_RESULT_FILE);
+                if (!Files.exists(resultFile)) {
+                    log.warn("分片未完成，跳过: {}", outputDir);
+                    continue;
+                }
+                Properties properties = load(resultFile);
+                duration = Math.max(duration, Long.parseLong(properties.getProperty("durationMs", "0")));
+                int duplicates = Integer.parseInt(properties.getProperty("duplicates", "0"));
+                for (int i = 0; i < duplicates; i++) {
+                    result.incrementDuplicate();
+                }
+                mergeShard(outputDir, properties.getProperty("input"), target, merged, journal, result);
+            }
+
+            for (WorkManifest.Entry entry : manifest.getEntries()) {
+                if (!merged.contains(entry.getPath())) {
+                    Path classFile = target.resolve(entry.getPath());
+                    journal.onFailed(classFile, MISSING_RESULT);
+                    result.incrementFail();
+                    result.addError(classFile.toString(), MISSING_RESULT);
+                }
+            }
+        }
+        result.setDuration(duration);
+
+        Properties properties = new Properties();
+        properties.setProperty("target", target.toString());
+        properties.setProperty("total", Integer.toString(result.getTotalFiles()));
+        properties.setProperty("success", Integer.toString(result.getSuccessCount()));
+        properties.setProperty("fail", Integer.toString(result.getFailCount()));
+        properties.setProperty("duplicates", Integer.toString(result.getDuplicateCount()));
+        properties.setProperty("durationMs", Long.toString(duration));
+        properties.setProperty("journal", result.getJournalFile().toString());
+        store(properties, jobDir.resolve(MERGE_RESULT_FILE), "merge result");
+        log.info("分片合并完成 - {}", result);
+        return result;
+    }
+
+    private void mergeShard(Path outputDir, String input, Path target, Set<String> merged, BatchJournal journal,
+                            BatchResult result) throws IOException {
+        Path inputDir = outputDir.getFileSystem().getPath(input);
+        Path shardJournal = outputDir.resolve(JOURNAL_FILE);
+        if (!Files.exists(shardJournal)) {
+            // 空分片不产生结果日志
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(shardJournal, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                // 跳过标记行（#start、#end等）
+                if (line.startsWith("#") || fields.length < 3) {
+                    continue;
+                }
+                String path = inputDir.relativize(inputDir.getFileSystem().getPath(BatchJournal.unescape(fields[1])))
+                        .toString().replace(inputDir.getFileSystem().getSeparator(), "/");
+                if (!merged.add(path)) {
+                    continue;
+                }
+                Path classFile = target.resolve(path);
+                String error = BatchJournal.unescape(fields[2]);
+                if (BatchJournal.OK.equals(fields[0])) {
+                    Path javaFile = target.resolve(javaPath(path));
+                    try {
+                        Files.createDirectories(javaFile.getParent());
+                        Files.copy(outputDir.resolve(javaPath(path)), javaFile, StandardCopyOption.REPLACE_EXISTING);
+                        journal.onDecompiled(classFile, javaFile);
+                        result.incrementSuccess();
+                        continue;
+                    } catch (IOException e) {
+                        error = "复制分片输出失败: " + e.getMessage();
+                    }
+                }
+                journal.onFailed(classFile, error);
+                result.incrementFail();
+                result.addError(classFile.toString(), error);
+            }
+        }
+    }
+
+    private static String javaPath(String classPath) {
+        return classPath.substring(0, classPath.length() - ".class".length()) + ".java";
+    }
+
+    private static Properties load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    private static void store(Properties properties, Path file, String comment) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, comment);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.classviewer.shard;
+
+import com.classviewer.metrics.MetricsService;
+import com.classviewer.service.BatchDecompilerService;
+import com.classviewer.service.BatchDecompilerService.BatchResult;
+import com.classviewer.service.DecompilerService;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分片批量反编译的命令行入口（不启动界面和Spring容器）
+ * <pre>
+ * plan  &lt;CLASS目录&gt; &lt;分片数&gt; &lt;任务目录&gt;
+ * run   &lt;任务目录&gt; &lt;分片序号&gt; [--input 输入目录] [--output 输出目录] [--threads 线程数]
+ * merge &lt;任务目录&gt; [--target 目标目录] [--from 分片输出目录...]
+ * </pre>
+ */
+public final class ShardMain {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "用法:",
+            "  plan  <CLASS目录> <分片数> <任务目录>",
+            "  run   <任务目录> <分片序号> [--input 输入目录] [--output 输出目录] [--threads 线程数]",
+            "  merge <任务目录> [--target 目标目录] [--from 分片输出目录...]");
+
+    private ShardMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            usage();
+        }
+        MetricsService metricsService = new MetricsService();
+        BatchDecompilerService batchService =
+                new BatchDecompilerService(new DecompilerService(metricsService), metricsService);
+
+        switch (args[0]) {
+            case "plan": {
+                if (args.length < 4) {
+                    usage();
+                }
+                List<WorkManifest> shards = new ShardJob(Paths.get(args[3]))
+                        .plan(Paths.get(args[1]), Integer.parseInt(args[2]), batchService);
+                for (WorkManifest shard : shards) {
+                    System.out.printf("分片 %d: %d 个CLASS文件, 预估成本 %d%n",
+                            shard.getShardIndex(), shard.getEntries().size(), shard.totalCost());
+                }
+                break;
+            }
+            case "run": {
+                if (args.length < 3) {
+                    usage();
+                }
+                Path input = null;
+                Path output = null;
+                int threads = Runtime.getRuntime().availableProcessors();
+                for (int i = 3; i < args.length; i++) {
+                    switch (args[i]) {
+                        case "--input": input = Paths.get(value(args, ++i)); break;
+                        case "--output": output = Paths.get(value(args, ++i)); break;
+                        case "--threads": threads = Integer.parseInt(value(args, ++i)); break;
+                        default: usage();
+                    }
+                }
+                BatchResult result = new ShardJob(Paths.get(args[1]))
+                        .run(Integer.parseInt(args[2]), input, output, threads, batchService);
+                System.out.println(result);
+                break;
+            }
+            case "merge": {
+                Path target = null;
+                List<Path> from = null;
+                for (int i = 2; i < args.length; i++) {
+                    if ("--target".equals(args[i])) {
+                        target = Paths.get(value(args, ++i));
+                    } else if ("--from".equals(args[i])) {
+                        from = new ArrayList<>();
+                        while (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                            from.add(Paths.get(args[++i]));
+                        }
+                    } else {
+                        usage();
+                    }
+                }
+                BatchResult result = new ShardJob(Paths.get(args[1])).merge(target, from);
+                System.out.println(result);
+                System.out.println("结果日志: " + result.getJournalFile());
+                break;
+            }
+            default:
+                usage();
+        }
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            usage();
+        }
+        return args[index];
+    }
+
+    private static void usage() {
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+}
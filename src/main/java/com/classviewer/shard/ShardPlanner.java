@@ -0,0 +1,101 @@
+package com.classviewer.shard;
+
+import com.classviewer.service.ClassCost;
+import com.classviewer.service.FingerprintTable;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 工作清单的生成与分片
+ * 分片按预估成本做最长处理时间优先（LPT）的贪心分配：成本从大到小依次放入当前总成本最小的分片。
+ * 内容相同（指纹相同）的CLASS文件作为一组放在同一分片，分片内部的去重仍然有效，组的成本只按一份计算。
+ */
+@Slf4j
+public final class ShardPlanner {
+
+    private ShardPlanner() {
+    }
+
+    /**
+     * 并行计算CLASS文件的指纹和大小，生成完整的工作清单
+     * 预估成本由 {@link ClassCost} 从方法体大小、方法数和常量池大小得出，与单机批量反编译的调度一致。
+     */
+    public static WorkManifest inventory(Path root, List<Path> classFiles) throws IOException {
+        Path absoluteRoot = root.toAbsolutePath().normalize();
+        List<WorkManifest.Entry> entries;
+        try {
+            entries = classFiles.parallelStream().map(classFile -> {
+                try {
+                    byte[] bytes = Files.readAllBytes(classFile);
+                    String path = absoluteRoot.relativize(classFile.toAbsolutePath().normalize()).toString()
+                            .replace(classFile.getFileSystem().getSeparator(), "/");
+                    return new WorkManifest.Entry(FingerprintTable.fingerprint(bytes), bytes.length,
+                            ClassCost.estimate(bytes), path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sorted(Comparator.comparing(WorkManifest.Entry::getPath)).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.info("工作清单生成完成 - 目录: {}, CLASS文件: {}", absoluteRoot, entries.size());
+        return new WorkManifest(absoluteRoot, 0, 1, entries);
+    }
+
+    /**
+     * 将完整清单拆分为成本均衡的若干分片
+     */
+    public static List<WorkManifest> partition(WorkManifest manifest, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("分片数必须大于0: " + shardCount);
+        }
+
+        // 按指纹排序后相同内容相邻，每段为一组
+        List<WorkManifest.Entry> byFingerprint = new ArrayList<>(manifest.getEntries());
+        byFingerprint.sort(Comparator.comparingLong(WorkManifest.Entry::getFingerprint));
+        List<int[]> groups = new ArrayList<>();
+        for (int start = 0; start < byFingerprint.size(); ) {
+            int end = start + 1;
+            while (end < byFingerprint.size()
+                    && byFingerprint.get(end).getFingerprint() == byFingerprint.get(start).getFingerprint()) {
+                end++;
+            }
+            groups.add(new int[]{start, end});
+            start = end;
+        }
+        groups.sort(Comparator.comparingLong((int[] group) -> byFingerprint.get(group[0]).getCost()).reversed());
+
+        long[] loads = new long[shardCount];
+        List<List<WorkManifest.Entry>> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+        for (int[] group : groups) {
+            int target = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (loads[i] < loads[target]) {
+                    target = i;
+                }
+            }
+            loads[target] += byFingerprint.get(group[0]).getCost();
+            shards.get(target).addAll(byFingerprint.subList(group[0], group[1]));
+        }
+
+        List<WorkManifest> result = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            List<WorkManifest.Entry> entries = shards.get(i);
+            entries.sort(Comparator.comparing(WorkManifest.Entry::getPath));
+            result.add(new WorkManifest(manifest.getRoot(), i, shardCount, entries));
+            log.info("分片 {}/{} - CLASS文件: {}, 预估成本: {}", i, shardCount, entries.size(), loads[i]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,164 @@
+package com.classviewer.shard;
+
+import com.classviewer.service.BatchJournal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量反编译的工作清单
+ * 记录一个目录下所有CLASS文件的相对路径、内容指纹、大小和预估成本，可拆分为多个分片分别在不同进程或主机上运行。
+ * 文件格式（UTF-8，字段以制表符分隔，路径按结果日志的规则转义）：
+ * <pre>
+ * #root   \t 输入目录的绝对路径
+ * #shard  \t 分片序号/分片总数（完整清单为 0/1）
+ * 指纹(十六进制) \t 大小 \t 成本 \t 相对路径
+ * </pre>
+ */
+public final class WorkManifest {
+
+    private static final String ROOT_HEADER = "#root";
+    private static final String SHARD_HEADER = "#shard";
+    private static final char SEPARATOR = '\t';
+
+    private final Path root;
+    private final int shardIndex;
+    private final int shardCount;
+    private final List<Entry> entries;
+
+    public WorkManifest(Path root, int shardIndex, int shardCount, List<Entry> entries) {
+        this.root = root;
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * 所有条目的预估成本之和
+     */
+    public long totalCost() {
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.cost;
+        }
+        return total;
+    }
+
+    public void write(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(ROOT_HEADER + SEPARATOR + BatchJournal.escape(root.toString()));
+            writer.write('\n');
+            writer.write(SHARD_HEADER + SEPARATOR + shardIndex + "/" + shardCount);
+            writer.write('\n');
+            for (Entry entry : entries) {
+                writer.write(Long.toHexString(entry.fingerprint));
+                writer.write(SEPARATOR);
+                writer.write(Long.toString(entry.size));
+                writer.write(SEPARATOR);
+                writer.write(Long.toString(entry.cost));
+                writer.write(SEPARATOR);
+                writer.write(BatchJournal.escape(entry.path));
+                writer.write('\n');
+            }
+        }
+    }
+
+    public static WorkManifest read(Path file) throws IOException {
+        Path root = null;
+        int shardIndex = 0;
+        int shardCount = 1;
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+                try {
+                    if (ROOT_HEADER.equals(fields[0])) {
+                        root = Paths.get(BatchJournal.unescape(fields[1]));
+                    } else if (SHARD_HEADER.equals(fields[0])) {
+                        int slash = fields[1].indexOf('/');
+                        shardIndex = Integer.parseInt(fields[1].substring(0, slash));
+                        shardCount = Integer.parseInt(fields[1].substring(slash + 1));
+                    } else if (line.charAt(0) != '#') {
+                        entries.add(new Entry(Long.parseUnsignedLong(fields[0], 16), Long.parseLong(fields[1]),
+                                Long.parseLong(fields[2]), BatchJournal.unescape(fields[3])));
+                    }
+                } catch (RuntimeException e) {
+                    throw new IOException("工作清单格式错误 " + file + ":" + lineNumber + ": " + line, e);
+                }
+            }
+        }
+        if (root == null) {
+            throw new IOException("工作清单缺少输入目录: " + file);
+        }
+        return new WorkManifest(root, shardIndex, shardCount, entries);
+    }
+
+    /**
+     * 清单中的一个CLASS文件
+     */
+    public static final class Entry {
+        private final long fingerprint;
+        private final long size;
+        private final long cost;
+        private final String path;
+
+        /**
+         * @param path 相对输入目录的路径，以/分隔
+         */
+        public Entry(long fingerprint, long size, long cost, String path) {
+            this.fingerprint = fingerprint;
+            this.size = size;
+            this.cost = cost;
+            this.path = path;
+        }
+
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getCost() {
+            return cost;
+        }
+
+        public String getPath() {
+            return path;
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package com.classviewer.ui;
+
+import com.classviewer.service.SourceText;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.geometry.Bounds;
+import javafx.geometry.Insets;
+import javafx.geometry.Point2D;
+import javafx.scene.Node;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Path;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontPosture;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 带语法高亮的源码视图
+ * 每行一个列表单元格，只有可见的行才创建节点，5万行的源码滚动时也只渲染屏幕上的几十行；
+ * 列表直接按行读取 {@link SourceText}，堆外缓存中的源码只为可见的行解码字符串。
+ * 词法切分由 {@link SyntaxHighlighter} 在后台完成，切分到的可见行随即重新渲染，还未切分到的行先以纯文本显示。
+ * 选区按字符记录（锚点和光标的行、列），可跨行拖动、Shift+点击扩展、双击选中单词，每个可见行只绘制自己的选中部分。
+ */
+class CodeView {
+
+    private static final double LINE_HEIGHT = 18;
+    private static final double FONT_SIZE = 13;
+    private static final Color LINE_NUMBER_COLOR = Color.web("#9E9E9E");
+    private static final Color TEXT_COLOR = Color.web("#333333");
+    private static final Color SELECTION_COLOR = Color.web("#cce8ff");
+    private static final Color[] TOKEN_COLORS = {
+            TEXT_COLOR,
+            Color.web("#0033B3"),   // 关键字
+            Color.web("#067D17"),   // 字符串
+            Color.web("#8C8C8C"),   // 注释
+            Color.web("#1750EB"),   // 数字
+            Color.web("#9E880D"),   // 注解
+    };
+
+    private static Font regularFont;
+    private static Font boldFont;
+    private static Font italicFont;
+
+    private final ListView<String> listView = new ListView<>();
+    // 已创建的单元格，拖动选择时按位置查找所在行
+    private final List<CodeCell> cells = new ArrayList<>();
+    private SyntaxHighlighter.Document document;
+    // 当前显示的按行读取的源码，切换时关闭
+    private SourceText openedText;
+    // 以纯文本显示、等待高亮的可见单元格
+    private final Set<CodeCell> pendingCells = new HashSet<>();
+    private final AtomicBoolean renderScheduled = new AtomicBoolean();
+    private int lineNumberWidth = 1;
+    // 选区的锚点和光标（行、行内字符位置），两者相同时没有选中文本；光标也用于取光标处的单词
+    private int anchorLine = -1;
+    private int anchorColumn;
+    private int caretLine = -1;
+    private int caretColumn;
+
+    CodeView() {
+        initFonts();
+        listView.setFixedCellSize(LINE_HEIGHT);
+        listView.setCellFactory(view -> {
+            CodeCell cell = new CodeCell();
+            cells.add(cell);
+            return cell;
+        });
+        // 选中由本视图按字符绘制，去掉列表自身的整行选中和焦点框
+        listView.setStyle("-fx-background-color: #fafafa; -fx-border-color: #e0e0e0; -fx-border-radius: 4; " +
+                          "-fx-background-radius: 4; -fx-focus-color: transparent; " +
+                          "-fx-faint-focus-color: transparent;");
+        KeyCombination copyKey = new KeyCodeCombination(KeyCode.C, KeyCombination.SHORTCUT_DOWN);
+        KeyCombination selectAllKey = new KeyCodeCombination(KeyCode.A, KeyCombination.SHORTCUT_DOWN);
+        listView.setOnKeyPressed(event -> {
+            if (copyKey.match(event)) {
+                copy();
+                event.consume();
+            } else if (selectAllKey.match(event)) {
+                selectAll();
+                event.consume();
+            }
+        });
+    }
+
+    /**
+     * 等宽字体：依次选用 Consolas、Monaco、Courier New，都没有时使用系统等宽字体
+     */
+    private static void initFonts() {
+        if (regularFont != null) {
+            return;
+        }
+        List<String> families = Font.getFamilies();
+        String family = "Monospaced";
+        for (String candidate : Arrays.asList("Consolas", "Monaco", "Courier New")) {
+            if (families.contains(candidate)) {
+                family = candidate;
+                break;
+            }
+        }
+        regularFont = Font.font(family, FontWeight.NORMAL, FontPosture.REGULAR, FONT_SIZE);
+        boldFont = Font.font(family, FontWeight.BOLD, FontPosture.REGULAR, FONT_SIZE);
+        italicFont = Font.font(family, FontWeight.NORMAL, FontPosture.ITALIC, FONT_SIZE);
+    }
+
+    Node getNode() {
+        return listView;
+    }
+
+    /**
+     * 显示源码，高亮在后台进行
+     * @param highlightKey 语法高亮的缓存键（源文件路径和修改时间），为null时不缓存
+     */
+    void setSource(String source, String highlightKey) {
+        show(SyntaxHighlighter.highlight(source, highlightKey, this::onHighlighted), null);
+    }
+
+    /**
+     * 显示按行读取的源码，切换到其他源码时关闭
+     * @param highlightKey 语法高亮的缓存键（源文件路径和修改时间），为null时不缓存
+     */
+    void setSource(SourceText text, String highlightKey) {
+        show(SyntaxHighlighter.highlight(text, highlightKey, this::onHighlighted), text);
+    }
+
+    private void show(SyntaxHighlighter.Document shown, SourceText text) {
+        if (document != null) {
+            document.cancel();
+        }
+        pendingCells.clear();
+        anchorLine = -1;
+        caretLine = -1;
+        document = shown;
+        SourceText lines = shown.getText();
+        lineNumberWidth = String.valueOf(lines.lineCount()).length();
+        // 不复制行：单元格显示时才读取
+        listView.setItems(FXCollections.observableList(new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return lines.line(index);
+            }
+
+            @Override
+            public int size() {
+                return lines.lineCount();
+            }
+        }));
+        listView.scrollTo(0);
+        // 与上一个文档相同的行不会触发单元格更新，重建可见单元格
+        listView.refresh();
+        // 新的行已接管单元格后再关闭上一个源码
+        if (openedText != null && openedText != text) {
+            openedText.close();
+        }
+        openedText = text;
+    }
+
+    /**
+     * 后台每切分完一块调用，合并为一次界面刷新，只重新渲染等待高亮的可见行
+     */
+    private void onHighlighted(SyntaxHighlighter.Document highlighted) {
+        if (renderScheduled.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                renderScheduled.set(false);
+                if (highlighted != document) {
+                    return;
+                }
+                for (CodeCell cell : new ArrayList<>(pendingCells)) {
+                    cell.render();
+                }
+            });
+        }
+    }
+
+    /**
+     * 选中的文本，跨行时以换行连接
+     */
+    String getSelectedText() {
+        if (!hasSelection()) {
+            return "";
+        }
+        boolean forward = anchorLine < caretLine || (anchorLine == caretLine && anchorColumn <= caretColumn);
+        int startLine = forward ? anchorLine : caretLine;
+        int endLine = forward ? caretLine : anchorLine;
+        List<String> items = listView.getItems();
+        StringBuilder text = new StringBuilder();
+        for (int line = startLine; line <= endLine && line < items.size(); line++) {
+            String content = items.get(line);
+            int[] range = selectedRange(line, content.length());
+            if (range != null) {
+                text.append(content, range[0], range[1]);
+            }
+            if (line < endLine) {
+                text.append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private boolean hasSelection() {
+        return anchorLine >= 0 && (anchorLine != caretLine || anchorColumn != caretColumn);
+    }
+
+    /**
+     * 行内选中的区间
+     * @return [起始列, 结束列)，该行没有选中的字符时为null
+     */
+    private int[] selectedRange(int line, int length) {
+        if (!hasSelection()) {
+            return null;
+        }
+        boolean forward = anchorLine < caretLine || (anchorLine == caretLine && anchorColumn <= caretColumn);
+        int startLine = forward ? anchorLine : caretLine;
+        int startColumn = forward ? anchorColumn : caretColumn;
+        int endLine = forward ? caretLine : anchorLine;
+        int endColumn = forward ? caretColumn : anchorColumn;
+        if (line < startLine || line > endLine) {
+            return null;
+        }
+        int from = line == startLine ? Math.min(startColumn, length) : 0;
+        int to = line == endLine ? Math.min(endColumn, length) : length;
+        return from < to ? new int[]{from, to} : null;
+    }
+
+    private void select(int fromLine, int fromColumn, int toLine, int toColumn) {
+        anchorLine = fromLine;
+        anchorColumn = fromColumn;
+        moveCaret(toLine, toColumn);
+    }
+
+    private void moveCaret(int line, int column) {
+        caretLine = line;
+        caretColumn = column;
+        // 可见行重新布局时更新各自的选中区域
+        for (CodeCell cell : cells) {
+            cell.flow.requestLayout();
+        }
+    }
+
+    void copy() {
+        String text = getSelectedText();
+        if (!text.isEmpty()) {
+            ClipboardContent content = new ClipboardContent();
+            content.putString(text);
+            Clipboard.getSystemClipboard().setContent(content);
+        }
+    }
+
+    void selectAll() {
+        List<String> items = listView.getItems();
+        if (!items.isEmpty()) {
+            int last = items.size() - 1;
+            select(0, 0, last, items.get(last).length());
+        }
+    }
+
+    /**
+     * 光标处的标识符
+     */
+    String wordAtCaret() {
+        if (caretLine < 0 || caretLine >= listView.getItems().size()) {
+            return "";
+        }
+        String text = listView.getItems().get(caretLine);
+        int[] word = wordAt(text, caretColumn);
+        return text.substring(word[0], word[1]);
+    }
+
+    /**
+     * 包含指定位置的标识符区间
+     */
+    private static int[] wordAt(String text, int column) {
+        int start = Math.max(0, Math.min(column, text.length()));
+        int end = start;
+        while (start > 0 && Character.isJavaIdentifierPart(text.charAt(start - 1))) {
+            start--;
+        }
+        while (end < text.length() && Character.isJavaIdentifierPart(text.charAt(end))) {
+            end++;
+        }
+        return new int[]{start, end};
+    }
+
+    /**
+     * 拖动选择：光标移到鼠标所在行，拖出列表上下边缘时滚动一行
+     */
+    private void dragTo(double sceneX, double sceneY) {
+        Bounds viewBounds = listView.localToScene(listView.getLayoutBounds());
+        Node virtualFlow = listView.lookup(".virtual-flow");
+        if (virtualFlow instanceof VirtualFlow) {
+            if (sceneY < viewBounds.getMinY()) {
+                ((VirtualFlow<?>) virtualFlow).scrollPixels(-LINE_HEIGHT);
+            } else if (sceneY > viewBounds.getMaxY()) {
+                ((VirtualFlow<?>) virtualFlow).scrollPixels(LINE_HEIGHT);
+            }
+        }
+        CodeCell first = null;
+        CodeCell last = null;
+        for (CodeCell cell : cells) {
+            // 跳过备用和测量用的单元格
+            if (cell.isEmpty() || cell.getIndex() < 0 || !cell.isVisible()
+                    || cell.getParent() == null || !cell.getParent().isVisible()) {
+                continue;
+            }
+            Bounds bounds = cell.localToScene(cell.getLayoutBounds());
+            if (sceneY >= bounds.getMinY() && sceneY < bounds.getMaxY()) {
+                moveCaret(cell.getIndex(), cell.columnAt(sceneX, sceneY));
+                return;
+            }
+            if (first == null || cell.getIndex() < first.getIndex()) {
+                first = cell;
+            }
+            if (last == null || cell.getIndex() > last.getIndex()) {
+                last = cell;
+            }
+        }
+        if (first != null && sceneY < viewBounds.getMinY()) {
+            moveCaret(first.getIndex(), 0);
+        } else if (last != null) {
+            moveCaret(last.getIndex(), last.getItem().length());
+        }
+    }
+
+    /**
+     * 单行：行号 + 按词法单元着色的文本，选中部分在文本下方绘制背景
+     */
+    private final class CodeCell extends ListCell<String> {
+        private final Path highlight = new Path();
+        private final LineFlow flow = new LineFlow();
+        private int gutterLength;
+
+        CodeCell() {
+            setPadding(new Insets(0, 4, 0, 4));
+            setText(null);
+            // 不折行，过长的行由列表横向滚动
+            flow.setMinWidth(Region.USE_PREF_SIZE);
+            flow.setMaxWidth(Region.USE_PREF_SIZE);
+            highlight.setManaged(false);
+            highlight.setStroke(null);
+            highlight.setFill(SELECTION_COLOR);
+            addEventHandler(MouseEvent.MOUSE_PRESSED, this::onPressed);
+            addEventHandler(MouseEvent.MOUSE_DRAGGED, event -> {
+                if (event.getButton() == MouseButton.PRIMARY) {
+                    dragTo(event.getSceneX(), event.getSceneY());
+                }
+            });
+        }
+
+        private void onPressed(MouseEvent event) {
+            String line = getItem();
+            if (isEmpty() || line == null || getIndex() < 0) {
+                return;
+            }
+            int index = getIndex();
+            int column = columnAt(event.getSceneX(), event.getSceneY());
+            if (event.getButton() == MouseButton.PRIMARY) {
+                if (event.getClickCount() == 2) {
+                    int[] word = wordAt(line, column);
+                    select(index, word[0], index, word[1]);
+                } else if (event.isShiftDown() && anchorLine >= 0) {
+                    moveCaret(index, column);
+                } else {
+                    select(index, column, index, column);
+                }
+            } else if (!hasSelection()) {
+                // 右键时保留已有选区，供右键菜单使用
+                select(index, column, index, column);
+            }
+        }
+
+        /**
+         * 场景坐标对应的行内字符位置（不含行号）
+         */
+        int columnAt(double sceneX, double sceneY) {
+            Point2D point = flow.sceneToLocal(sceneX, sceneY);
+            double y = Math.max(0, Math.min(point.getY(), flow.getHeight() - 1));
+            int column = flow.hitTest(new Point2D(point.getX(), y)).getInsertionIndex() - gutterLength;
+            String line = getItem();
+            return Math.max(0, Math.min(column, line != null ? line.length() : 0));
+        }
+
+        @Override
+        public void updateSelected(boolean selected) {
+            // 不使用列表的整行选中
+            super.updateSelected(false);
+        }
+
+        @Override
+        protected void updateItem(String item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                pendingCells.remove(this);
+                flow.getChildren().clear();
+                setGraphic(null);
+                return;
+            }
+            render();
+        }
+
+        void render() {
+            String line = getItem();
+            int index = getIndex();
+            if (line == null || index < 0) {
+                pendingCells.remove(this);
+                return;
+            }
+            SyntaxHighlighter.Document current = document;
+            int[] spans = current != null ? current.spans(index) : null;
+
+            List<Node> nodes = new ArrayList<>();
+            String number = String.valueOf(index + 1);
+            StringBuilder gutter = new StringBuilder();
+            for (int i = number.length(); i < lineNumberWidth; i++) {
+                gutter.append(' ');
+            }
+            gutter.append(number).append("  ");
+            gutterLength = gutter.length();
+            nodes.add(text(gutter.toString(), LINE_NUMBER_COLOR, regularFont));
+
+            if (spans == null) {
+                nodes.add(text(line, TEXT_COLOR, regularFont));
+                pendingCells.add(this);
+            } else {
+                int position = 0;
+                for (int i = 0; i < spans.length; i += 3) {
+                    int start = spans[i];
+                    int end = spans[i + 1];
+                    int type = spans[i + 2];
+                    if (start > position) {
+                        nodes.add(text(line.substring(position, start), TEXT_COLOR, regularFont));
+                    }
+                    Font font = type == SyntaxHighlighter.KEYWORD ? boldFont
+                            : type == SyntaxHighlighter.COMMENT ? italicFont : regularFont;
+                    nodes.add(text(line.substring(start, end), TOKEN_COLORS[type], font));
+                    position = end;
+                }
+                if (position < line.length()) {
+                    nodes.add(text(line.substring(position), TEXT_COLOR, regularFont));
+                }
+                pendingCells.remove(this);
+            }
+            nodes.add(0, highlight);
+            flow.getChildren().setAll(nodes);
+            setGraphic(flow);
+        }
+
+        /**
+         * 文本布局，布局完成后按当前选区更新选中背景（不参与布局的子节点）
+         */
+        private final class LineFlow extends TextFlow {
+            @Override
+            protected void layoutChildren() {
+                super.layoutChildren();
+                String line = getItem();
+                int[] range = line != null && !isEmpty() ? selectedRange(getIndex(), line.length()) : null;
+                if (range == null) {
+                    highlight.getElements().clear();
+                } else {
+                    highlight.getElements().setAll(rangeShape(gutterLength + range[0], gutterLength + range[1]));
+                }
+            }
+        }
+
+        private Text text(String content, Color color, Font font) {
+            Text text = new Text(content);
+            text.setFill(color);
+            text.setFont(font);
+            return text;
+        }
+    }
+}
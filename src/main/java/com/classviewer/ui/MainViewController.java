@@ -1,8 +1,22 @@
 package com.classviewer.ui;
 
+import com.classviewer.metrics.MetricsService;
+import com.classviewer.metrics.Phase;
 import com.classviewer.service.BatchDecompilerService;
+import com.classviewer.service.BatchJournal;
 import com.classviewer.service.DecompilerService;
+import com.classviewer.service.DirectoryWatchService;
+import com.classviewer.service.FileInventory;
+import com.classviewer.service.JarDedupIndex;
 import com.classviewer.service.JarExtractorService;
+import com.classviewer.service.PackageFilter;
+import com.classviewer.service.SourceCache;
+import com.classviewer.service.SourceText;
+import com.classviewer.service.VersionDiffService;
+import com.classviewer.xref.ClassHeader;
+import com.classviewer.xref.TypeHierarchyService;
+import com.classviewer.xref.XrefGraph;
+import com.classviewer.xref.XrefService;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -20,7 +34,13 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 主界面控制器
@@ -30,20 +50,35 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class MainViewController {
 
+    // 一次变化超过这个数量时按文件清单重建文件树，不再逐个插入、删除节点
+    private static final int MAX_TREE_PATCH = 2000;
+
     private final DecompilerService decompilerService;
     private final JarExtractorService jarExtractorService;
     private final BatchDecompilerService batchDecompilerService;
+    private final MetricsService metricsService;
+    private final VersionDiffService versionDiffService;
+    private final XrefService xrefService;
+    private final TypeHierarchyService typeHierarchyService;
+    private final DirectoryWatchService directoryWatchService;
+    private final SourceCache sourceCache;
     
     private Stage primaryStage;
     private TreeView<String> fileTreeView;
-    private TextArea codeTextArea;
+    private TextArea codeTextArea;  // 提示和处理日志
+    private CodeView codeView;  // 带语法高亮的源码
     private TextArea logTextArea;  // 日志输出区
     private Label statusLabel;
     private ProgressBar progressBar;
     private Label progressLabel;  // 进度文本
+    private Label cacheStatsLabel;  // 源码缓存命中率
     private File selectedDirectory;  // 当前选择的目录
     private volatile boolean isDecompiling = false;  // 是否正在反编译
+    // 批量处理期间监听到的新增、修改的JAR和CLASS文件，批量处理结束后统一处理
+    private final Set<Path> pendingChanges = ConcurrentHashMap.newKeySet();
+    private volatile CompletableFuture<FileInventory> inventoryScan;  // 当前目录的文件清单（扫描中或已完成）
     private Button clearBtn;  // 清空按钮引用
+    private ToggleButton watchToggle;  // 实时监听开关
     private StringBuilder processLog = new StringBuilder();  // 处理日志累积
 
     public void show(Stage stage) {
@@ -104,6 +139,29 @@ public class MainViewController {
                                    "-fx-cursor: hand; -fx-effect: dropshadow(gaussian, rgba(76,175,80,0.3), 4, 0, 0, 2);");
         startDecompileBtn.setOnAction(e -> startAutoDecompile());
 
+        // 版本对比按钮
+        Button versionDiffBtn = new Button("⇄ 版本对比");
+        versionDiffBtn.setStyle("-fx-background-color: #673AB7; -fx-text-fill: white; " +
+                               "-fx-font-size: 14px; -fx-padding: 10 24; -fx-background-radius: 6; " +
+                               "-fx-cursor: hand; -fx-effect: dropshadow(gaussian, rgba(103,58,183,0.3), 4, 0, 0, 2);");
+        versionDiffBtn.setOnAction(e -> new VersionDiffWindow(versionDiffService, primaryStage).show());
+
+        // 类型层次按钮
+        Button hierarchyBtn = new Button("🧬 类型层次");
+        hierarchyBtn.setStyle("-fx-background-color: #009688; -fx-text-fill: white; " +
+                             "-fx-font-size: 14px; -fx-padding: 10 24; -fx-background-radius: 6; " +
+                             "-fx-cursor: hand; -fx-effect: dropshadow(gaussian, rgba(0,150,136,0.3), 4, 0, 0, 2);");
+        hierarchyBtn.setOnAction(e -> showTypeHierarchy(null));
+
+        // 实时监听开关
+        watchToggle = new ToggleButton("👁 实时监听");
+        String watchStyle = "-fx-text-fill: white; -fx-font-size: 14px; -fx-padding: 10 24; " +
+                            "-fx-background-radius: 6; -fx-cursor: hand;";
+        watchToggle.setStyle("-fx-background-color: #607D8B; " + watchStyle);
+        watchToggle.selectedProperty().addListener((obs, wasSelected, selected) ->
+                watchToggle.setStyle("-fx-background-color: " + (selected ? "#2196F3; " : "#607D8B; ") + watchStyle));
+        watchToggle.setOnAction(e -> toggleWatch(watchToggle.isSelected()));
+
         Region spacer1 = new Region();
         spacer1.setPrefWidth(20);
 
@@ -119,6 +177,12 @@ public class MainViewController {
                              "-fx-font-size: 13px; -fx-padding: 8 20; -fx-background-radius: 6; -fx-cursor: hand;");
         whitelistBtn.setOnAction(e -> showWhitelistDialog());
 
+        // 包过滤设置按钮
+        Button packageFilterBtn = new Button("⚙ 包过滤");
+        packageFilterBtn.setStyle("-fx-background-color: #795548; -fx-text-fill: white; " +
+                             "-fx-font-size: 13px; -fx-padding: 8 20; -fx-background-radius: 6; -fx-cursor: hand;");
+        packageFilterBtn.setOnAction(e -> showPackageFilterDialog());
+
         // 清空按钮
         clearBtn = new Button("✕ 清空");
         clearBtn.setStyle("-fx-background-color: #f44336; -fx-text-fill: white; " +
@@ -126,9 +190,9 @@ public class MainViewController {
         clearBtn.setOnAction(e -> clearAll());
 
         toolBar.getItems().addAll(
-                selectFolderBtn, startDecompileBtn,
+                selectFolderBtn, startDecompileBtn, watchToggle, versionDiffBtn, hierarchyBtn,
                 spacer1, separator, spacer2,
-                whitelistBtn, clearBtn
+                whitelistBtn, packageFilterBtn, clearBtn
         );
 
         return toolBar;
@@ -165,6 +229,12 @@ public class MainViewController {
             }
         });
         
+        MenuItem treeUsagesItem = new MenuItem("🔍 查找用法");
+        treeUsagesItem.setOnAction(e -> findUsagesOfTreeItem());
+        MenuItem treeHierarchyItem = new MenuItem("🧬 类型层次");
+        treeHierarchyItem.setOnAction(e -> showTypeHierarchyOfTreeItem());
+        fileTreeView.setContextMenu(new ContextMenu(treeUsagesItem, treeHierarchyItem));
+
         VBox.setVgrow(fileTreeView, Priority.ALWAYS);
         leftPane.getChildren().addAll(treeLabel, fileTreeView);
 
@@ -191,8 +261,37 @@ public class MainViewController {
                             "3. 在左侧文件树中选择文件查看反编译结果\n\n" +
                             "提示：可以在 '白名单设置' 中配置需要排除的依赖包");
         
-        VBox.setVgrow(codeTextArea, Priority.ALWAYS);
-        rightPane.getChildren().addAll(codeLabel, codeTextArea);
+        codeView = new CodeView();
+        codeView.getNode().setVisible(false);
+
+        MenuItem copyItem = new MenuItem("复制");
+        copyItem.setOnAction(e -> {
+            if (codeView.getNode().isVisible()) {
+                codeView.copy();
+            } else {
+                codeTextArea.copy();
+            }
+        });
+        MenuItem selectAllItem = new MenuItem("全选");
+        selectAllItem.setOnAction(e -> {
+            if (codeView.getNode().isVisible()) {
+                codeView.selectAll();
+            } else {
+                codeTextArea.selectAll();
+            }
+        });
+        MenuItem codeUsagesItem = new MenuItem("🔍 查找用法");
+        codeUsagesItem.setOnAction(e -> findUsagesOfSelection());
+        MenuItem codeHierarchyItem = new MenuItem("🧬 类型层次");
+        codeHierarchyItem.setOnAction(e -> showTypeHierarchy(selectedName()));
+        ContextMenu codeMenu = new ContextMenu(copyItem, selectAllItem, new SeparatorMenuItem(),
+                codeUsagesItem, codeHierarchyItem);
+        codeTextArea.setContextMenu(codeMenu);
+        ((Control) codeView.getNode()).setContextMenu(codeMenu);
+
+        StackPane codePane = new StackPane(codeTextArea, codeView.getNode());
+        VBox.setVgrow(codePane, Priority.ALWAYS);
+        rightPane.getChildren().addAll(codeLabel, codePane);
 
         splitPane.getItems().addAll(leftPane, rightPane);
         splitPane.setDividerPositions(0.30);
@@ -246,6 +345,10 @@ public class MainViewController {
         
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
+
+        // 源码缓存统计
+        cacheStatsLabel = new Label("");
+        cacheStatsLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #999;");
         
         // 进度标签
         progressLabel = new Label("");
@@ -259,7 +362,7 @@ public class MainViewController {
         progressBar.setStyle("-fx-accent: #4CAF50;");
         progressBar.setVisible(false);
         
-        statusBar.getChildren().addAll(statusIcon, statusLabel, spacer, progressLabel, progressBar);
+        statusBar.getChildren().addAll(statusIcon, statusLabel, spacer, cacheStatsLabel, progressLabel, progressBar);
 
         return statusBar;
     }
@@ -280,7 +383,7 @@ public class MainViewController {
             selectedDirectory = directory;
             updateStatus("已选择目录: " + directory.getName());
             appendLog("✓ 已选择目录: " + directory.getAbsolutePath());
-            codeTextArea.setText("📁 当前选择目录: " + directory.getAbsolutePath() + "\n\n" +
+            showText("📁 当前选择目录: " + directory.getAbsolutePath() + "\n\n" +
                                 "💡 点击 '🚀 开始反编译' 按钮开始自动处理...");
             
             // 显示目录中的文件
@@ -291,26 +394,42 @@ public class MainViewController {
                 appendLog("✗ 加载目录失败: " + e.getMessage());
                 showError("加载目录失败", e.getMessage());
             }
+
+            // 已开启实时监听时改为监听新目录
+            if (watchToggle.isSelected()) {
+                startWatching(directory);
+            }
         }
     }
 
     /**
      * 加载目录结构到文件树
+     * 并行扫描一次建立文件清单，解压和反编译都查询该清单并增量更新，不再重复遍历目录
      */
     private void loadDirectoryStructure(File directory) {
         updateStatus("正在扫描目录...");
+        xrefService.invalidate();
+        CompletableFuture<FileInventory> scan = new CompletableFuture<>();
+        inventoryScan = scan;
         
         new Thread(() -> {
             try {
-                List<String> allFiles = new ArrayList<>();
-                scanDirectory(directory, directory.toPath(), allFiles);
+                FileInventory inventory = FileInventory.scan(directory.toPath());
+                jarExtractorService.setInventory(inventory);
+                batchDecompilerService.setInventory(inventory);
+                scan.complete(inventory);
+                List<String> allFiles = inventory.relativePaths();
                 
                 javafx.application.Platform.runLater(() -> {
                     updateFileTree(directory.getName(), allFiles);
                     updateStatus("目录扫描完成");
                     appendLog(String.format("✓ 目录扫描完成，共发现 %d 个文件", allFiles.size()));
                 });
+
+                // 读取CLASS文件头建立类型层次索引，之后解压出的CLASS文件会增量加入
+                typeHierarchyService.index(directory.toPath(), allFiles);
             } catch (Exception e) {
+                scan.completeExceptionally(e);
                 javafx.application.Platform.runLater(() -> {
                     appendLog("✗ 扫描目录失败: " + e.getMessage());
                     showError("扫描目录失败", e.getMessage());
@@ -320,6 +439,312 @@ public class MainViewController {
         }).start();
     }
 
+    /**
+     * 获取目录的文件清单：选择目录时的扫描还未完成则等待，没有可用的清单时重新扫描
+     */
+    private FileInventory awaitInventory(File directory) throws IOException {
+        CompletableFuture<FileInventory> scan = inventoryScan;
+        if (scan != null) {
+            try {
+                FileInventory inventory = scan.join();
+                if (inventory.getRoot().equals(directory.toPath().toAbsolutePath().normalize())) {
+                    return inventory;
+                }
+            } catch (java.util.concurrent.CompletionException e) {
+                log.warn("目录扫描失败，重新扫描: {}", directory, e);
+            }
+        }
+        return rescanInventory(directory);
+    }
+
+    /**
+     * 开始反编译前获取最新的文件清单
+     * 实时监听该目录时清单已随变化更新，选择目录时的扫描还未完成时其结果也是最新的；
+     * 否则重新扫描，选择目录后在程序之外复制进来的JAR、CLASS文件不会被跳过，已删除的文件也不会计为失败
+     */
+    private FileInventory freshInventory(File directory) throws IOException {
+        CompletableFuture<FileInventory> scan = inventoryScan;
+        if (directoryWatchService.isWatching(directory.toPath()) || (scan != null && !scan.isDone())) {
+            return awaitInventory(directory);
+        }
+        return rescanInventory(directory);
+    }
+
+    private FileInventory rescanInventory(File directory) throws IOException {
+        FileInventory inventory = FileInventory.scan(directory.toPath());
+        jarExtractorService.setInventory(inventory);
+        batchDecompilerService.setInventory(inventory);
+        inventoryScan = CompletableFuture.completedFuture(inventory);
+        return inventory;
+    }
+
+    /**
+     * 按文件清单刷新文件树（清单已随解压、反编译增量更新，无需重新扫描）
+     */
+    private void refreshDirectoryStructure(File directory) {
+        CompletableFuture<FileInventory> scan = inventoryScan;
+        FileInventory inventory = scan != null ? scan.getNow(null) : null;
+        if (inventory == null || !inventory.getRoot().equals(directory.toPath().toAbsolutePath().normalize())) {
+            loadDirectoryStructure(directory);
+            return;
+        }
+        List<String> allFiles = inventory.relativePaths();
+        updateFileTree(directory.getName(), allFiles);
+        appendLog(String.format("✓ 文件树已刷新，共 %d 个文件", allFiles.size()));
+    }
+
+    /**
+     * 开启/关闭实时监听
+     */
+    private void toggleWatch(boolean enabled) {
+        if (!enabled) {
+            directoryWatchService.stop();
+            appendLog("✓ 已关闭实时监听");
+            updateStatus("已关闭实时监听");
+            return;
+        }
+        if (selectedDirectory == null) {
+            watchToggle.setSelected(false);
+            showError("错误", "请先选择项目文件夹！");
+            return;
+        }
+        startWatching(selectedDirectory);
+    }
+
+    /**
+     * 监听目录：新增、修改、删除的文件直接更新文件树，新增和修改的JAR、CLASS文件自动解压、反编译
+     */
+    private void startWatching(File directory) {
+        new Thread(() -> {
+            try {
+                awaitInventory(directory);
+                directoryWatchService.start(directory.toPath(), this::onDirectoryChanges);
+                appendLog("✓ 已开启实时监听: " + directory.getAbsolutePath());
+                updateStatus("实时监听中");
+            } catch (Exception e) {
+                appendLog("✗ 开启实时监听失败: " + e.getMessage());
+                javafx.application.Platform.runLater(() -> {
+                    watchToggle.setSelected(false);
+                    showError("开启实时监听失败", e.getMessage());
+                });
+            }
+        }).start();
+    }
+
+    /**
+     * 处理合并后的目录变化（在监听线程中调用）
+     */
+    private void onDirectoryChanges(DirectoryWatchService.Changes changes) {
+        File directory = selectedDirectory;
+        FileInventory inventory = jarExtractorService.getInventory();
+        if (directory == null || inventory == null || !inventory.getRoot().equals(changes.getRoot())) {
+            return;
+        }
+        if (changes.isOverflow()) {
+            appendLog("⚠ 文件变化过多，重新扫描目录");
+            javafx.application.Platform.runLater(() -> loadDirectoryStructure(directory));
+            return;
+        }
+
+        changes.getAdded().forEach(inventory::added);
+        changes.getRemoved().forEach(inventory::removed);
+        if (Stream.of(changes.getAdded(), changes.getModified(), changes.getRemoved())
+                .flatMap(List::stream)
+                .anyMatch(path -> path.getFileName().toString().endsWith(".class"))) {
+            xrefService.invalidate();
+        }
+        if (isDecompiling) {
+            // 批量处理期间的写入由批量处理完成后按清单刷新文件树，新增、修改的JAR和CLASS文件排队到完成后处理
+            boolean wasEmpty = pendingChanges.isEmpty();
+            Stream.concat(changes.getAdded().stream(), changes.getModified().stream())
+                    .filter(MainViewController::isJarOrClass)
+                    .forEach(pendingChanges::add);
+            changes.getRemoved().forEach(pendingChanges::remove);
+            if (wasEmpty && !pendingChanges.isEmpty()) {
+                appendLog("👁 批量处理中，JAR和CLASS文件的变化将在完成后处理");
+            }
+            if (!isDecompiling) {
+                // 排队时批量处理恰好结束
+                processPendingChanges();
+            }
+            return;
+        }
+
+        Path root = inventory.getRoot();
+        List<String> added = changes.getAdded().stream()
+                .map(path -> root.relativize(path).toString().replace('\\', '/'))
+                .collect(Collectors.toList());
+        List<String> removed = changes.getRemoved().stream()
+                .map(path -> root.relativize(path).toString().replace('\\', '/'))
+                .collect(Collectors.toList());
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            javafx.application.Platform.runLater(() -> patchFileTree(directory.getName(), added, removed, inventory));
+        }
+        appendLog(String.format("👁 文件变化: 新增 %d，修改 %d，删除 %d",
+                added.size(), changes.getModified().size(), removed.size()));
+
+        List<Path> changed = new ArrayList<>(changes.getAdded());
+        changed.addAll(changes.getModified());
+        processChangedFiles(root, changed);
+    }
+
+    private static boolean isJarOrClass(Path file) {
+        String name = file.getFileName().toString();
+        return name.toLowerCase().endsWith(".jar") || name.endsWith(".class");
+    }
+
+    /**
+     * 处理批量处理期间排队的变化（在后台线程中调用）
+     * 跳过已不存在的文件（如解压后删除的嵌套JAR），以及Java文件不比它旧、已由批量处理反编译过的CLASS文件
+     */
+    private void processPendingChanges() {
+        FileInventory inventory = jarExtractorService.getInventory();
+        // 监听线程和批量处理结束的线程可能同时调用，逐个认领，同一文件只由一个线程处理
+        List<Path> queued = new ArrayList<>();
+        for (Path file : pendingChanges) {
+            if (pendingChanges.remove(file)) {
+                queued.add(file);
+            }
+        }
+        if (inventory == null || queued.isEmpty()) {
+            return;
+        }
+        List<Path> changed = new ArrayList<>();
+        for (Path file : queued) {
+            try {
+                if (!Files.exists(file)) {
+                    continue;
+                }
+                String name = file.getFileName().toString();
+                if (name.endsWith(".class")) {
+                    Path javaFile = file.resolveSibling(name.substring(0, name.length() - ".class".length()) + ".java");
+                    if (Files.exists(javaFile) && Files.getLastModifiedTime(javaFile)
+                            .compareTo(Files.getLastModifiedTime(file)) >= 0) {
+                        continue;
+                    }
+                }
+                changed.add(file);
+            } catch (IOException e) {
+                changed.add(file);
+            }
+        }
+        if (!changed.isEmpty()) {
+            appendLog(String.format("👁 处理批量处理期间的文件变化: %d 个", changed.size()));
+            processChangedFiles(inventory.getRoot(), changed);
+        }
+    }
+
+    /**
+     * 解压新增、修改的JAR，反编译新增、修改的CLASS文件
+     * 解压出的CLASS文件会再次触发监听，在下一轮中反编译
+     */
+    private void processChangedFiles(Path root, List<Path> changed) {
+        JarDedupIndex dedupIndex = new JarDedupIndex();
+        PackageFilter filter = PackageFilter.current();
+        List<Path> classFiles = new ArrayList<>();
+        for (Path file : changed) {
+            String name = file.getFileName().toString();
+            if (name.toLowerCase().endsWith(".jar")) {
+                if (isJarInWhitelist(name)) {
+                    jarExtractorService.learnLibrary(file);
+                    appendLog("  跳过白名单JAR: " + name);
+                    continue;
+                }
+                try {
+                    JarExtractorService.ExtractionResult result =
+                            jarExtractorService.extractJarRecursively(file.toFile(), file.getParent(), dedupIndex);
+                    appendLog(String.format("  ✓ 已解压 %s: CLASS文件 %d，错误 %d",
+                            name, result.getClassFiles(), result.getErrors().size()));
+                } catch (Exception e) {
+                    appendLog("  ✗ 解压失败 " + name + ": " + e.getMessage());
+                }
+            } else if (name.endsWith(".class") && filter.accepts(root.relativize(file).toString())) {
+                classFiles.add(file);
+            }
+        }
+        if (classFiles.isEmpty()) {
+            return;
+        }
+        try {
+            BatchDecompilerService.BatchResult result =
+                    batchDecompilerService.decompileFiles(root, classFiles, true, null);
+            appendLog(String.format("  ✓ 反编译 %d 个CLASS文件: 成功 %d，失败 %d，耗时 %dms",
+                    result.getTotalFiles(), result.getSuccessCount(), result.getFailCount(), result.getDuration()));
+        } catch (IOException e) {
+            appendLog("  ✗ 反编译失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按变化就地更新文件树；变化很多时直接按清单重建
+     */
+    private void patchFileTree(String rootName, List<String> added, List<String> removed, FileInventory inventory) {
+        TreeItem<String> rootItem = fileTreeView.getRoot();
+        if (added.size() + removed.size() > MAX_TREE_PATCH || rootItem == null
+                || !rootName.equals(rootItem.getValue())) {
+            updateFileTree(rootName, inventory.relativePaths());
+            return;
+        }
+        long startTime = System.nanoTime();
+        for (String path : removed) {
+            removeTreeItem(rootItem, path.split("/"));
+        }
+        for (String path : added) {
+            addTreeItem(rootItem, path.split("/"));
+        }
+        metricsService.current().record(Phase.UI_RENDER, System.nanoTime() - startTime);
+    }
+
+    /**
+     * 按路径插入节点，缺少的目录一并创建，同级节点按名称排序
+     */
+    static void addTreeItem(TreeItem<String> rootItem, String[] parts) {
+        TreeItem<String> parent = rootItem;
+        for (int i = 0; i < parts.length; i++) {
+            TreeItem<String> child = findChild(parent, parts[i]);
+            if (child == null) {
+                child = new TreeItem<>(parts[i]);
+                child.setExpanded(i < parts.length - 1);
+                List<TreeItem<String>> children = parent.getChildren();
+                int index = 0;
+                while (index < children.size() && children.get(index).getValue().compareTo(parts[i]) < 0) {
+                    index++;
+                }
+                children.add(index, child);
+            }
+            parent = child;
+        }
+    }
+
+    /**
+     * 按路径删除节点，并删除因此变空的目录节点
+     */
+    static void removeTreeItem(TreeItem<String> rootItem, String[] parts) {
+        TreeItem<String> item = rootItem;
+        for (String part : parts) {
+            item = findChild(item, part);
+            if (item == null) {
+                return;
+            }
+        }
+        TreeItem<String> parent = item.getParent();
+        parent.getChildren().remove(item);
+        while (parent != rootItem && parent.getChildren().isEmpty()) {
+            TreeItem<String> empty = parent;
+            parent = parent.getParent();
+            parent.getChildren().remove(empty);
+        }
+    }
+
+    private static TreeItem<String> findChild(TreeItem<String> parent, String name) {
+        for (TreeItem<String> child : parent.getChildren()) {
+            if (name.equals(child.getValue())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
     /**
      * 添加日志
      */
@@ -348,18 +773,22 @@ public class MainViewController {
             }
         });
     }
-    private void scanDirectory(File dir, Path basePath, List<String> files) {
-        File[] fileList = dir.listFiles();
-        if (fileList != null) {
-            for (File file : fileList) {
-                if (file.isDirectory()) {
-                    scanDirectory(file, basePath, files);
-                } else {
-                    String relativePath = basePath.relativize(file.toPath()).toString().replace("\\", "/");
-                    files.add(relativePath);
-                }
-            }
+
+    /**
+     * 预计剩余时间，如"剩余约 2分05秒"
+     */
+    private static String formatRemaining(long remainingMillis) {
+        if (remainingMillis < 0) {
+            return "正在估算剩余时间";
         }
+        long seconds = (remainingMillis + 999) / 1000;
+        if (seconds < 60) {
+            return "剩余约 " + seconds + "秒";
+        }
+        if (seconds < 3600) {
+            return String.format("剩余约 %d分%02d秒", seconds / 60, seconds % 60);
+        }
+        return String.format("剩余约 %d小时%02d分", seconds / 3600, seconds % 3600 / 60);
     }
 
     /**
@@ -377,6 +806,17 @@ public class MainViewController {
             return;
         }
 
+        // 上一次批量反编译未正常结束（崩溃、关闭窗口等）时询问是否从断点继续
+        boolean resume = false;
+        if (BatchJournal.isUnfinished(BatchJournal.journalFileFor(selectedDirectory.toPath()))) {
+            Optional<Boolean> choice = askResume();
+            if (!choice.isPresent()) {
+                return;
+            }
+            resume = choice.get();
+        }
+        boolean resumeBatch = resume;
+
         appendLog("\n━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
         appendLog("🚀 开始自动反编译流程...");
         updateStatus("正在处理...");
@@ -386,6 +826,9 @@ public class MainViewController {
         isDecompiling = true;
         clearBtn.setDisable(true);
         
+        // 开始记录本次运行的性能指标
+        metricsService.startRun(selectedDirectory.getAbsolutePath());
+        
         // 清空之前的处理日志
         processLog.setLength(0);
         processLog.append("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n");
@@ -394,32 +837,50 @@ public class MainViewController {
         
         // 在反编译结果区显示开始信息
         javafx.application.Platform.runLater(() -> {
-            codeTextArea.setText(processLog.toString());
+            showText(processLog.toString());
         });
 
         new Thread(() -> {
             try {
-                // 第一步：递归解压所有JAR包
+                // 解压和反编译都从文件清单查询文件，未实时监听时先重新扫描
+                freshInventory(selectedDirectory);
+
+                // 第一步：递归解压所有JAR包（续传时上次已完成，跳过）
                 appendProcessLog("=== 第1步：递归解压JAR包 ===");
-                appendProcessLog("正在扫描并解压JAR文件...\n");
                 appendLog("=== 第1步：递归解压JAR包 ===");
-                appendLog("正在扫描并解压JAR文件...");
-                
-                JarExtractorService.ExtractionResult extractResult = 
-                    extractAllJarsInDirectory(selectedDirectory);
+                JarExtractorService.ExtractionResult extractResult;
+                if (resumeBatch) {
+                    appendProcessLog("继续上次的进度，跳过JAR解压\n");
+                    appendLog("继续上次的进度，跳过JAR解压");
+                    extractResult = new JarExtractorService.ExtractionResult();
+                } else {
+                    appendProcessLog("正在扫描并解压JAR文件...\n");
+                    appendLog("正在扫描并解压JAR文件...");
+                    extractResult = extractAllJarsInDirectory(selectedDirectory);
+                }
                 
                 appendProcessLog("✓ 解压完成！");
                 appendProcessLog("  • 总JAR数: " + extractResult.getTotalJars());
                 appendProcessLog("  • 已解压: " + extractResult.getExtractedJars());
                 appendProcessLog("  • 已跳过: " + extractResult.getSkippedJars());
+                extractResult.getLibraryJars().forEach((name, match) ->
+                        appendProcessLog("      - " + name + " 识别为 " + match));
+                appendProcessLog("  • 重复: " + extractResult.getDuplicateJars());
                 appendProcessLog("  • CLASS文件: " + extractResult.getClassFiles());
+                appendProcessLog("  • 按包过滤: " + extractResult.getFilteredClasses());
+                appendProcessLog("  • 耗时: " + extractResult.getDuration() + "ms");
                 appendProcessLog("");
                 
                 appendLog("解压完成！");
                 appendLog("  总JAR数: " + extractResult.getTotalJars());
                 appendLog("  已解压: " + extractResult.getExtractedJars());
                 appendLog("  已跳过: " + extractResult.getSkippedJars());
+                extractResult.getLibraryJars().forEach((name, match) ->
+                        appendLog("    " + name + " 识别为 " + match));
+                appendLog("  重复: " + extractResult.getDuplicateJars());
                 appendLog("  CLASS文件: " + extractResult.getClassFiles());
+                appendLog("  按包过滤: " + extractResult.getFilteredClasses());
+                appendLog("  耗时: " + extractResult.getDuration() + "ms");
                 appendLog("");
 
                 // 第二步：批量反编译所有CLASS文件
@@ -428,23 +889,38 @@ public class MainViewController {
                 appendLog("=== 第2步：批量反编译CLASS文件 ===");
                 appendLog("正在反编译，请稍候...");
                 
-                // 使用进度回调实时显示进度
-                BatchDecompilerService.BatchResult batchResult = 
-                    batchDecompilerService.batchDecompile(selectedDirectory.toPath(), true, 
-                        (current, total, fileName) -> {
-                            // 只在日志区显示进度，每处理10个文件或处理到最后一个文件时输出
-                            if (current % 10 == 0 || current == total) {
-                                String progressMsg = String.format("  → 进度: %d/%d (%.1f%%)", 
-                                    current, total, (current * 100.0 / total));
-                                appendLog(progressMsg + " - " + fileName);
-                            }
-                        });
+                // 使用进度回调实时显示进度和预计剩余时间
+                BatchDecompilerService.ProgressCallback progressCallback =
+                        new BatchDecompilerService.ProgressCallback() {
+                    @Override
+                    public void onProgress(int current, int total, String fileName) {
+                        onProgress(current, total, fileName, -1);
+                    }
+
+                    @Override
+                    public void onProgress(int current, int total, String fileName, long remainingMillis) {
+                        // 每处理10个文件或处理到最后一个文件时输出
+                        if (current % 10 == 0 || current == total) {
+                            String progressMsg = String.format("  → 进度: %d/%d (%.1f%%)",
+                                current, total, (current * 100.0 / total));
+                            String remaining = formatRemaining(remainingMillis);
+                            appendLog(progressMsg + "，" + remaining + " - " + fileName);
+                            updateProgress((double) current / total,
+                                    String.format("反编译 %d/%d，%s", current, total, remaining));
+                        }
+                    }
+                };
+                BatchDecompilerService.BatchResult batchResult = resumeBatch
+                    ? batchDecompilerService.resumeBatchDecompile(selectedDirectory.toPath(), true, progressCallback)
+                    : batchDecompilerService.batchDecompile(selectedDirectory.toPath(), true, progressCallback);
+                updateProgress(-1, null);
                 
                 appendProcessLog("");
                 appendProcessLog("✓ 反编译完成！");
                 appendProcessLog("  • 总文件数: " + batchResult.getTotalFiles());
                 appendProcessLog("  • 成功: " + batchResult.getSuccessCount());
                 appendProcessLog("  • 失败: " + batchResult.getFailCount());
+                appendProcessLog("  • 重复: " + formatDuplicates(batchResult));
                 appendProcessLog("  • 耗时: " + batchResult.getDuration() + "ms");
                 appendProcessLog("");
                 appendProcessLog("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
@@ -454,12 +930,15 @@ public class MainViewController {
                 appendProcessLog("📊 处理统计：");
                 appendProcessLog("  JAR包处理：");
                 appendProcessLog("    - 解压: " + extractResult.getExtractedJars() + " 个");
-                appendProcessLog("    - 跳过: " + extractResult.getSkippedJars() + " 个");
+                appendProcessLog("    - 跳过: " + extractResult.getSkippedJars() + " 个（按内容识别为依赖库 "
+                        + extractResult.getLibraryJars().size() + " 个）");
+                appendProcessLog("    - 重复: " + extractResult.getDuplicateJars() + " 个");
                 appendProcessLog("");
                 appendProcessLog("  CLASS文件处理：");
                 appendProcessLog("    - 发现: " + batchResult.getTotalFiles() + " 个");
                 appendProcessLog("    - 成功: " + batchResult.getSuccessCount() + " 个");
                 appendProcessLog("    - 失败: " + batchResult.getFailCount() + " 个");
+                appendProcessLog("    - 重复: " + formatDuplicates(batchResult));
                 appendProcessLog("");
                 appendProcessLog("💡 说明：");
                 appendProcessLog("  反编译结果已保存在原目录中");
@@ -470,21 +949,39 @@ public class MainViewController {
                 appendLog("  总文件数: " + batchResult.getTotalFiles());
                 appendLog("  成功: " + batchResult.getSuccessCount());
                 appendLog("  失败: " + batchResult.getFailCount());
+                appendLog("  重复: " + formatDuplicates(batchResult));
                 appendLog("  耗时: " + batchResult.getDuration() + "ms");
+                if (batchResult.getJournalFile() != null) {
+                    appendLog("  结果日志: " + batchResult.getJournalFile());
+                }
                 appendLog("");
                 appendLog("=== 所有操作完成！===");
                 appendLog("✓ 反编译结果已保存在原目录中，每个.class文件旁边都有对应的.java文件");
                 
+                // 导出本次运行的性能报告
+                String reportStatus;
+                try {
+                    Path reportFile = metricsService.finishRun();
+                    reportStatus = "性能报告已导出: " + reportFile;
+                    appendProcessLog("");
+                    appendProcessLog("📈 性能报告: " + reportFile);
+                    appendLog("✓ 性能报告已导出: " + reportFile);
+                } catch (IOException e) {
+                    reportStatus = "导出性能报告失败: " + e.getMessage();
+                    appendLog("✗ 导出性能报告失败: " + e.getMessage());
+                }
+                String completedReportStatus = reportStatus;
+                
                 javafx.application.Platform.runLater(() -> {
                     showProgress(false);
                     updateStatus("自动反编译完成");
                     
                     // 显示完成对话框
-                    showCompletionDialog(extractResult, batchResult);
+                    showCompletionDialog(extractResult, batchResult, completedReportStatus);
                     
                     // 刷新文件树
                     try {
-                        loadDirectoryStructure(selectedDirectory);
+                        refreshDirectoryStructure(selectedDirectory);
                     } catch (Exception e) {
                         appendLog("✗ 刷新文件树失败: " + e.getMessage());
                     }
@@ -492,10 +989,16 @@ public class MainViewController {
                     // 恢复清空按钮
                     isDecompiling = false;
                     clearBtn.setDisable(false);
+                    new Thread(this::processPendingChanges).start();
                 });
                 
             } catch (Exception e) {
                 appendLog("✗ 错误: " + e.getMessage());
+                try {
+                    appendLog("性能报告已导出: " + metricsService.finishRun());
+                } catch (IOException ex) {
+                    log.warn("导出性能报告失败", ex);
+                }
                 javafx.application.Platform.runLater(() -> {
                     showProgress(false);
                     showError("自动反编译失败", e.getMessage());
@@ -504,47 +1007,44 @@ public class MainViewController {
                     // 恢复清空按钮
                     isDecompiling = false;
                     clearBtn.setDisable(false);
+                    new Thread(this::processPendingChanges).start();
                 });
             }
         }).start();
     }
 
-    /**
-     * 查找JAR文件
-     */
-    private List<File> findJarFiles(File directory) {
-        List<File> jarFiles = new ArrayList<>();
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isFile() && file.getName().toLowerCase().endsWith(".jar")) {
-                    jarFiles.add(file);
-                }
-            }
-        }
-        return jarFiles;
-    }
-    
-
-    private JarExtractorService.ExtractionResult extractAllJarsInDirectory(File directory) {
+    private JarExtractorService.ExtractionResult extractAllJarsInDirectory(File directory) throws IOException {
         JarExtractorService.ExtractionResult totalResult = new JarExtractorService.ExtractionResult();
+        long startTime = System.currentTimeMillis();
         
-        // 查找所有JAR文件
-        List<File> jarFiles = findAllJarFiles(directory);
+        // 从文件清单查找所有JAR文件
+        List<File> jarFiles = awaitInventory(directory).find(directory.toPath(), ".jar").stream()
+                .map(Path::toFile)
+                .collect(Collectors.toList());
         
+        List<File> candidates = new ArrayList<>();
         for (File jarFile : jarFiles) {
             // 检查是否在白名单中
             if (isJarInWhitelist(jarFile.getName())) {
                 totalResult.addSkippedJar(jarFile.getName());
+                // 学习其内容，之后改名的同一依赖也能识别
+                jarExtractorService.learnLibrary(jarFile.toPath());
                 continue;
             }
-            
+            candidates.add(jarFile);
+        }
+
+        // 本次运行共享的去重索引：内容相同的JAR（包括嵌套JAR）只解压一次
+        JarDedupIndex dedupIndex = new JarDedupIndex();
+        dedupIndex.digestAll(candidates.stream().map(File::toPath).collect(Collectors.toList()));
+
+        for (File jarFile : candidates) {
             // 解压到同级目录
             Path outputPath = jarFile.getParentFile().toPath();
             
             try {
                 JarExtractorService.ExtractionResult result = 
-                    jarExtractorService.extractJarRecursively(jarFile, outputPath);
+                    jarExtractorService.extractJarRecursively(jarFile, outputPath, dedupIndex);
                 
                 // 合并结果
                 mergeExtractionResults(totalResult, result);
@@ -557,45 +1057,16 @@ public class MainViewController {
             }
         }
         
+        jarExtractorService.saveLibraryFingerprints();
+        totalResult.setDuration(System.currentTimeMillis() - startTime);
         return totalResult;
     }
 
-    /**
-     * 查找目录中的所有JAR文件
-     */
-    private List<File> findAllJarFiles(File directory) {
-        List<File> jarFiles = new ArrayList<>();
-        findJarFilesRecursive(directory, jarFiles);
-        return jarFiles;
-    }
-
-    /**
-     * 递归查找JAR文件
-     */
-    private void findJarFilesRecursive(File dir, List<File> jarFiles) {
-        File[] files = dir.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    findJarFilesRecursive(file, jarFiles);
-                } else if (file.getName().toLowerCase().endsWith(".jar")) {
-                    jarFiles.add(file);
-                }
-            }
-        }
-    }
-
     /**
      * 检查JAR是否在白名单中
      */
     private boolean isJarInWhitelist(String jarName) {
-        String lowerName = jarName.toLowerCase();
-        for (String pattern : jarExtractorService.getWhitelist()) {
-            if (lowerName.contains(pattern.toLowerCase())) {
-                return true;
-            }
-        }
-        return false;
+        return jarExtractorService.isInWhitelist(jarName);
     }
 
     /**
@@ -604,7 +1075,12 @@ public class MainViewController {
     private void mergeExtractionResults(JarExtractorService.ExtractionResult total, 
                                        JarExtractorService.ExtractionResult current) {
         current.getExtractedJarNames().forEach(total::addExtractedJar);
-        current.getSkippedJarNames().forEach(total::addSkippedJar);
+        current.getSkippedJarNames().stream()
+                .filter(name -> !current.getLibraryJars().containsKey(name))
+                .forEach(total::addSkippedJar);
+        current.getLibraryJars().forEach(total::addLibraryJar);
+        total.addFilteredClasses(current.getFilteredClasses());
+        current.getDuplicateJarNames().forEach(total::addDuplicateJar);
         current.getErrors().forEach(total::addError);
     }
 
@@ -616,7 +1092,7 @@ public class MainViewController {
         
         // 实时更新反编译结果区（仅最终摘要，不包含实时进度）
         javafx.application.Platform.runLater(() -> {
-            codeTextArea.setText(processLog.toString());
+            showText(processLog.toString());
             // 自动滚动到底部
             codeTextArea.setScrollTop(Double.MAX_VALUE);
         });
@@ -628,7 +1104,7 @@ public class MainViewController {
      * 显示完成对话框
      */
     private void showCompletionDialog(JarExtractorService.ExtractionResult extractResult,
-                                     BatchDecompilerService.BatchResult batchResult) {
+                                     BatchDecompilerService.BatchResult batchResult, String reportStatus) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("处理完成");
         alert.setHeaderText("自动反编译流程已完成");
@@ -638,27 +1114,44 @@ public class MainViewController {
         content.append("  总JAR数: ").append(extractResult.getTotalJars()).append("\n");
         content.append("  已解压: ").append(extractResult.getExtractedJars()).append("\n");
         content.append("  已跳过: ").append(extractResult.getSkippedJars()).append("\n");
-        content.append("  CLASS文件: ").append(extractResult.getClassFiles()).append("\n\n");
+        if (!extractResult.getLibraryJars().isEmpty()) {
+            content.append("  按内容识别为依赖库: ").append(extractResult.getLibraryJars().size()).append("\n");
+        }
+        content.append("  重复: ").append(extractResult.getDuplicateJars()).append("\n");
+        content.append("  CLASS文件: ").append(extractResult.getClassFiles()).append("\n");
+        if (extractResult.getFilteredClasses() > 0) {
+            content.append("  按包过滤: ").append(extractResult.getFilteredClasses()).append("\n");
+        }
+        content.append("\n");
         
         content.append("反编译统计：\n");
         content.append("  总文件数: ").append(batchResult.getTotalFiles()).append("\n");
         content.append("  成功: ").append(batchResult.getSuccessCount()).append("\n");
         content.append("  失败: ").append(batchResult.getFailCount()).append("\n");
+        content.append("  重复: ").append(formatDuplicates(batchResult)).append("\n");
         content.append("  耗时: ").append(batchResult.getDuration()).append("ms\n\n");
         
+        content.append(reportStatus).append("\n");
+        
         content.append("所有.java文件已生成在对应.class文件旁边");
         
         alert.setContentText(content.toString());
         alert.showAndWait();
     }
 
+    /**
+     * 重复CLASS数及去重比例
+     */
+    private String formatDuplicates(BatchDecompilerService.BatchResult batchResult) {
+        return String.format("%d 个 (%.1f%%)", batchResult.getDuplicateCount(), batchResult.getDedupRatio() * 100);
+    }
+
     /**
      * 文件选择事件（在文件树中选择文件时显示内容）
      */
     private void onFileSelected(String fileName) {
         if (fileName.endsWith(".class")) {
             updateStatus("正在加载: " + fileName);
-            appendLog("→ 正在反编译: " + fileName);
             
             new Thread(() -> {
                 try {
@@ -670,7 +1163,7 @@ public class MainViewController {
                     
                     if (classFile == null || !classFile.exists()) {
                         javafx.application.Platform.runLater(() -> {
-                            codeTextArea.setText("// 文件不存在: " + fileName);
+                            showText("// 文件不存在: " + fileName);
                             updateStatus("文件不存在");
                         });
                         return;
@@ -679,21 +1172,32 @@ public class MainViewController {
                     // 检查是否已经有对应的.java文件
                     String javaFilePath = classFile.getAbsolutePath().replace(".class", ".java");
                     File javaFile = new File(javaFilePath);
+                    boolean decompiled = javaFile.exists();
+
+                    // 源码按实际读取的文件缓存：已反编译过时为.java文件，重新生成后不再命中旧的源码
+                    if (showCached((decompiled ? javaFile : classFile).toPath(), fileName)) {
+                        return;
+                    }
                     
                     String sourceCode;
-                    if (javaFile.exists()) {
+                    if (decompiled) {
                         // 如果已经反编译过，直接读取.java文件
                         sourceCode = new String(Files.readAllBytes(javaFile.toPath()), java.nio.charset.StandardCharsets.UTF_8);
+                        sourceCache.put(javaFile.toPath(), sourceCode);
+                        String key = highlightKey(javaFile.toPath());
                         javafx.application.Platform.runLater(() -> {
-                            codeTextArea.setText(sourceCode);
+                            showSource(sourceCode, key);
                             updateStatus("✓ 已加载: " + fileName);
                             appendLog("  ✓ 加载成功");
                         });
                     } else {
                         // 如果还没有反编译，现在反编译
+                        javafx.application.Platform.runLater(() -> appendLog("→ 正在反编译: " + fileName));
                         sourceCode = decompilerService.decompileClass(classFile);
+                        sourceCache.put(classFile.toPath(), sourceCode);
+                        String key = highlightKey(classFile.toPath());
                         javafx.application.Platform.runLater(() -> {
-                            codeTextArea.setText(sourceCode);
+                            showSource(sourceCode, key);
                             updateStatus("✓ 反编译完成: " + fileName);
                             appendLog("  ✓ 反编译完成");
                         });
@@ -701,29 +1205,34 @@ public class MainViewController {
                 } catch (Exception e) {
                     javafx.application.Platform.runLater(() -> {
                         String errorMsg = "反编译失败: " + e.getMessage();
-                        codeTextArea.setText("// " + errorMsg + "\n// 文件: " + fileName);
+                        showText("// " + errorMsg + "\n// 文件: " + fileName);
                         updateStatus("✗ " + errorMsg);
                         appendLog("  ✗ 失败: " + e.getMessage());
                         log.error("反编译失败: {}", fileName, e);
                     });
                 }
             }).start();
-        } else if (fileName.endsWith(".java")) {
-            // 如果选择的是.java文件，直接显示
+        } else if (fileName.endsWith(".java") || fileName.endsWith(JarExtractorService.DUPLICATE_SUFFIX)) {
+            // 如果选择的是.java文件或重复JAR的引用文件，直接显示
             new Thread(() -> {
                 try {
                     File javaFile = new File(selectedDirectory, fileName);
+                    if (showCached(javaFile.toPath(), fileName)) {
+                        return;
+                    }
                     if (javaFile.exists()) {
                         String content = new String(Files.readAllBytes(javaFile.toPath()), java.nio.charset.StandardCharsets.UTF_8);
+                        sourceCache.put(javaFile.toPath(), content);
+                        String key = highlightKey(javaFile.toPath());
                         javafx.application.Platform.runLater(() -> {
-                            codeTextArea.setText(content);
+                            showSource(content, key);
                             updateStatus("✓ 已加载: " + fileName);
                             appendLog("  ✓ 加载成功");
                         });
                     }
                 } catch (Exception e) {
                     javafx.application.Platform.runLater(() -> {
-                        codeTextArea.setText("// 读取文件失败: " + e.getMessage());
+                        showText("// 读取文件失败: " + e.getMessage());
                         updateStatus("读取失败");
                     });
                 }
@@ -731,10 +1240,228 @@ public class MainViewController {
         }
     }
 
+    /**
+     * 最近查看过且文件未变化的源码直接从缓存显示（在后台线程中调用，缓存校验需要读取文件属性）
+     * @param sourceFile 源码实际读取自的文件
+     * @return 是否命中缓存
+     */
+    private boolean showCached(Path sourceFile, String fileName) {
+        SourceText cached = sourceCache.open(sourceFile);
+        String key = cached != null ? highlightKey(sourceFile) : null;
+        javafx.application.Platform.runLater(() -> {
+            updateCacheStats();
+            if (cached != null) {
+                showSource(cached, key);
+                updateStatus("✓ 已加载（缓存）: " + fileName);
+            }
+        });
+        return cached != null;
+    }
+
+    /**
+     * 语法高亮的缓存键：源文件路径和修改时间，文件变化后不再命中
+     */
+    private static String highlightKey(Path file) {
+        long stamp = SourceCache.stampOf(file);
+        return stamp != 0 ? file.toAbsolutePath().normalize() + "@" + stamp : null;
+    }
+
+    /**
+     * 在状态栏显示源码缓存的命中率
+     */
+    private void updateCacheStats() {
+        cacheStatsLabel.setText("源码缓存: " + sourceCache.getStats());
+    }
+
+    /**
+     * 查找文件树中选中的CLASS（或其Java文件）中声明的类及其成员的用法
+     */
+    private void findUsagesOfTreeItem() {
+        TreeItem<String> item = fileTreeView.getSelectionModel().getSelectedItem();
+        if (item == null || !item.isLeaf() || item.getParent() == null) {
+            return;
+        }
+        String path = treePath(item);
+        if (path.endsWith(".java")) {
+            path = path.substring(0, path.length() - ".java".length()) + ".class";
+        }
+        if (!path.endsWith(".class")) {
+            showError("查找用法", "请选择CLASS文件或反编译生成的Java文件");
+            return;
+        }
+        String classPath = path;
+        findUsages(item.getValue(), graph -> {
+            List<Integer> symbols = new ArrayList<>();
+            for (int classSymbol : graph.classesIn(classPath)) {
+                symbols.addAll(graph.members(graph.symbol(classSymbol)));
+            }
+            return symbols;
+        });
+    }
+
+    /**
+     * 查找代码区中选中的名称（没有选中时取光标处的单词）对应的类、方法或字段的用法
+     */
+    private void findUsagesOfSelection() {
+        String name = selectedName();
+        if (name.isEmpty()) {
+            showError("查找用法", "请先选中类名、方法名或字段名");
+            return;
+        }
+        findUsages(name, graph -> graph.named(name));
+    }
+
+    /**
+     * 代码区中选中的文本，没有选中时取光标处的单词
+     */
+    private String selectedName() {
+        if (codeView.getNode().isVisible()) {
+            String selected = codeView.getSelectedText().trim();
+            return !selected.isEmpty() ? selected : codeView.wordAtCaret();
+        }
+        String name = codeTextArea.getSelectedText().trim();
+        if (!name.isEmpty()) {
+            return name;
+        }
+        String text = codeTextArea.getText();
+        int start = Math.min(codeTextArea.getCaretPosition(), text.length());
+        int end = start;
+        while (start > 0 && Character.isJavaIdentifierPart(text.charAt(start - 1))) {
+            start--;
+        }
+        while (end < text.length() && Character.isJavaIdentifierPart(text.charAt(end))) {
+            end++;
+        }
+        return text.substring(start, end);
+    }
+
+    /**
+     * 打开类型层次窗口
+     * @param name 要查找的类型名称，为null时只打开窗口
+     */
+    private void showTypeHierarchy(String name) {
+        new TypeHierarchyWindow(typeHierarchyService.getHierarchy(), primaryStage, this::onFileSelected).show(name);
+    }
+
+    /**
+     * 显示文件树中选中的CLASS（或其Java文件）的类型层次
+     */
+    private void showTypeHierarchyOfTreeItem() {
+        TreeItem<String> item = fileTreeView.getSelectionModel().getSelectedItem();
+        if (item == null || !item.isLeaf() || item.getParent() == null || selectedDirectory == null) {
+            return;
+        }
+        String path = treePath(item);
+        if (path.endsWith(".java")) {
+            path = path.substring(0, path.length() - ".java".length()) + ".class";
+        }
+        File classFile = new File(selectedDirectory, path);
+        if (!path.endsWith(".class") || !classFile.exists()) {
+            showError("类型层次", "请选择CLASS文件或反编译生成的Java文件");
+            return;
+        }
+        try {
+            showTypeHierarchy(ClassHeader.read(classFile.toPath()).getName().replace('/', '.'));
+        } catch (IOException e) {
+            showError("类型层次", "读取CLASS文件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 加载（必要时生成）当前目录的交叉引用索引，查询候选符号后打开查找用法窗口
+     */
+    private void findUsages(String title, Function<XrefGraph, List<Integer>> query) {
+        if (selectedDirectory == null) {
+            showError("查找用法", "请先选择文件夹");
+            return;
+        }
+        File directory = selectedDirectory;
+        updateStatus("正在加载交叉引用索引...");
+        appendLog("→ 查找用法: " + title);
+
+        new Thread(() -> {
+            try {
+                XrefGraph graph = xrefService.load(directory.toPath(), (current, total, fileName) ->
+                        updateProgress((double) current / total, String.format("扫描字节码 %d/%d", current, total)));
+                List<Integer> symbols = query.apply(graph);
+                javafx.application.Platform.runLater(() -> {
+                    updateProgress(-1, null);
+                    if (symbols.isEmpty()) {
+                        updateStatus("未找到: " + title);
+                        showInformation("查找用法", "在交叉引用索引中没有找到: " + title);
+                        return;
+                    }
+                    updateStatus("✓ 找到 " + symbols.size() + " 个符号: " + title);
+                    new XrefWindow(graph, primaryStage, this::onFileSelected).show(title, symbols);
+                });
+            } catch (Exception e) {
+                log.error("查找用法失败: {}", title, e);
+                javafx.application.Platform.runLater(() -> {
+                    updateProgress(-1, null);
+                    updateStatus("✗ 查找用法失败");
+                    showError("查找用法失败", e.getMessage());
+                });
+            }
+        }).start();
+    }
+
+    /**
+     * 文件树节点对应的相对路径（不含根节点）
+     */
+    private static String treePath(TreeItem<String> item) {
+        StringBuilder path = new StringBuilder(item.getValue());
+        for (TreeItem<String> parent = item.getParent(); parent != null && parent.getParent() != null;
+             parent = parent.getParent()) {
+            path.insert(0, parent.getValue() + "/");
+        }
+        return path.toString();
+    }
+
+    /**
+     * 在代码区显示源码
+     * @param highlightKey 语法高亮的缓存键，为null时不缓存
+     */
+    private void showSource(String sourceCode, String highlightKey) {
+        long startTime = System.nanoTime();
+        codeView.setSource(sourceCode, highlightKey);
+        codeView.getNode().setVisible(true);
+        codeTextArea.setVisible(false);
+        metricsService.current().record(Phase.UI_RENDER, System.nanoTime() - startTime);
+    }
+
+    /**
+     * 在代码区显示按行读取的源码（如堆外缓存中的源码），只为可见的行解码
+     */
+    private void showSource(SourceText sourceText, String highlightKey) {
+        long startTime = System.nanoTime();
+        codeView.setSource(sourceText, highlightKey);
+        codeView.getNode().setVisible(true);
+        codeTextArea.setVisible(false);
+        metricsService.current().record(Phase.UI_RENDER, System.nanoTime() - startTime);
+    }
+
+    /**
+     * 在代码区显示提示或处理日志（纯文本）
+     */
+    private void showText(String text) {
+        codeTextArea.setText(text);
+        codeTextArea.setVisible(true);
+        codeView.getNode().setVisible(false);
+    }
+
     /**
      * 更新文件树
      */
     private void updateFileTree(String rootName, java.util.List<String> entries) {
+        long startTime = System.nanoTime();
+        fileTreeView.setRoot(buildFileTree(rootName, entries));
+        metricsService.current().record(Phase.UI_RENDER, System.nanoTime() - startTime);
+    }
+
+    /**
+     * 根据相对路径列表构建文件树
+     */
+    static TreeItem<String> buildFileTree(String rootName, java.util.List<String> entries) {
         TreeItem<String> rootItem = new TreeItem<>(rootName);
         rootItem.setExpanded(true);
 
@@ -765,7 +1492,7 @@ public class MainViewController {
             }
         }
 
-        fileTreeView.setRoot(rootItem);
+        return rootItem;
     }
 
     /**
@@ -898,7 +1625,7 @@ public class MainViewController {
             "提示：\n" +
             "1. 关键词支持部分匹配，例如 'spring-' 会匹配所有包含 'spring-' 的JAR\n" +
             "2. 修改会立即生效并持久化到本地文件\n" +
-            "3. 配置文件位于用户目录下的 .classviewer 文件夹"
+            "3. 配置文件位于用户目录下的 .classviewer 文件夹，直接编辑该文件保存后也会自动生效"
         );
         tipLabel.setStyle("-fx-text-fill: #666666; -fx-font-size: 11px;");
         tipLabel.setWrapText(true);
@@ -913,6 +1640,123 @@ public class MainViewController {
         dialog.showAndWait();
     }
 
+    /**
+     * 显示包过滤设置对话框
+     */
+    private void showPackageFilterDialog() {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("包过滤管理");
+        dialog.setHeaderText("CLASS包过滤规则\n被排除的包中的CLASS不解压、不反编译（如业务JAR中shade进来的第三方代码）");
+
+        VBox mainContent = new VBox(10);
+        mainContent.setPadding(new Insets(10));
+
+        Label pathLabel = new Label("配置文件: " + PackageFilter.getFilterFilePath());
+        pathLabel.setStyle("-fx-text-fill: #666666; -fx-font-size: 11px;");
+
+        ListView<String> listView = new ListView<>();
+        listView.setPrefHeight(300);
+        listView.getItems().addAll(PackageFilter.current().getRules());
+        listView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+
+        HBox buttonPanel = new HBox(10);
+        buttonPanel.setAlignment(Pos.CENTER_LEFT);
+
+        Button excludeBtn = new Button("添加排除");
+        excludeBtn.setOnAction(e -> addPackageRule(listView, "-", "排除"));
+
+        Button includeBtn = new Button("添加包含");
+        includeBtn.setOnAction(e -> addPackageRule(listView, "+", "包含"));
+
+        Button removeBtn = new Button("删除选中");
+        removeBtn.setOnAction(e -> {
+            List<String> selected = new ArrayList<>(listView.getSelectionModel().getSelectedItems());
+            if (selected.isEmpty()) {
+                showInformation("提示", "请先选择要删除的规则");
+                return;
+            }
+            listView.getItems().removeAll(selected);
+            PackageFilter.update(listView.getItems());
+        });
+
+        Button resetBtn = new Button("重置默认");
+        resetBtn.setOnAction(e -> {
+            Alert confirmAlert = new Alert(Alert.AlertType.CONFIRMATION);
+            confirmAlert.setTitle("确认重置");
+            confirmAlert.setHeaderText("确认重置为默认包过滤规则？");
+            confirmAlert.showAndWait().ifPresent(response -> {
+                if (response == ButtonType.OK) {
+                    listView.getItems().setAll(PackageFilter.resetToDefault().getRules());
+                }
+            });
+        });
+
+        buttonPanel.getChildren().addAll(excludeBtn, includeBtn, removeBtn, resetBtn);
+
+        // 测试某个类或路径是否会被保留
+        TextField testField = new TextField();
+        testField.setPromptText("输入类名或路径测试，如 com.google.common.base.Strings");
+        HBox.setHgrow(testField, Priority.ALWAYS);
+        Label testResult = new Label();
+        testField.textProperty().addListener((obs, oldVal, newVal) -> {
+            String name = newVal.trim();
+            if (name.isEmpty()) {
+                testResult.setText("");
+                return;
+            }
+            String path = name.endsWith(".class") ? name : name.replace('.', '/') + ".class";
+            boolean accepted = PackageFilter.current().accepts(path);
+            testResult.setText(accepted ? "✓ 保留" : "✕ 排除");
+            testResult.setStyle(accepted ? "-fx-text-fill: #4CAF50;" : "-fx-text-fill: #f44336;");
+        });
+        HBox testPanel = new HBox(10, testField, testResult);
+        testPanel.setAlignment(Pos.CENTER_LEFT);
+
+        Label tipLabel = new Label(
+            "提示：\n" +
+            "1. '-包名' 排除该包及其子包，'+包名' 在排除的包中保留子包，同一CLASS以最长的规则为准\n" +
+            "2. '-*' 表示未被规则覆盖的CLASS也排除，配合 '+包名' 可只保留业务包\n" +
+            "3. 按完整的包名段匹配，shade重定位后的包（如 xxx.shaded.com.google.common）同样生效\n" +
+            "4. 修改会立即生效并持久化到本地文件，对之后的解压和反编译生效"
+        );
+        tipLabel.setStyle("-fx-text-fill: #666666; -fx-font-size: 11px;");
+        tipLabel.setWrapText(true);
+
+        mainContent.getChildren().addAll(pathLabel, listView, buttonPanel, testPanel, tipLabel);
+        dialog.getDialogPane().setContent(mainContent);
+        dialog.getDialogPane().setPrefWidth(560);
+
+        ButtonType closeBtn = new ButtonType("关闭", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().add(closeBtn);
+
+        dialog.showAndWait();
+    }
+
+    /**
+     * 添加一条包过滤规则
+     * @param sign "-" 排除，"+" 包含
+     */
+    private void addPackageRule(ListView<String> listView, String sign, String action) {
+        TextInputDialog inputDialog = new TextInputDialog();
+        inputDialog.setTitle("添加" + action + "规则");
+        inputDialog.setHeaderText("请输入要" + action + "的包名，如 com.google.common");
+        inputDialog.setContentText("包名:");
+        inputDialog.showAndWait().ifPresent(input -> {
+            String name = input.trim();
+            if (name.startsWith("+") || name.startsWith("-")) {
+                name = name.substring(1).trim();
+            }
+            if (name.isEmpty()) {
+                return;
+            }
+            // 同一包名只保留一条规则
+            String packageName = name;
+            listView.getItems().removeIf(existing -> existing.replaceFirst("^[+-]\\s*", "").equals(packageName));
+            listView.getItems().add(sign + name);
+            PackageFilter.update(listView.getItems());
+        });
+    }
+
     /**
      * 显示/隐藏进度条
      */
@@ -933,8 +1777,7 @@ public class MainViewController {
         }
         
         fileTreeView.setRoot(new TreeItem<>("📦 未加载文件"));
-        codeTextArea.clear();
-        codeTextArea.setText("🎯 欢迎使用 ClassViewer\n\n" +
+        showText("🎯 欢迎使用 ClassViewer\n\n" +
                             "使用指南：\n" +
                             "1. 点击 '📁 选择文件夹' 选择项目目录\n" +
                             "2. 点击 '🚀 开始反编译' 自动完成解压和反编译\n" +
@@ -942,6 +1785,18 @@ public class MainViewController {
                             "提示：可以在 '白名单设置' 中配置需要排除的依赖包");
         logTextArea.clear();
         selectedDirectory = null;
+        if (watchToggle.isSelected()) {
+            watchToggle.setSelected(false);
+            toggleWatch(false);
+        }
+        inventoryScan = null;
+        pendingChanges.clear();
+        jarExtractorService.setInventory(null);
+        batchDecompilerService.setInventory(null);
+        xrefService.clear();
+        typeHierarchyService.clear();
+        sourceCache.clear();
+        updateCacheStats();
         updateStatus("已清空");
         appendLog("✓ 已清空所有内容");
     }
@@ -969,6 +1824,25 @@ public class MainViewController {
         alert.showAndWait();
     }
 
+    /**
+     * 询问是否继续上次未完成的批量反编译
+     * @return true继续，false重新开始；取消时为空
+     */
+    private Optional<Boolean> askResume() {
+        ButtonType resumeButton = new ButtonType("继续上次进度");
+        ButtonType restartButton = new ButtonType("重新开始");
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "", resumeButton, restartButton, ButtonType.CANCEL);
+        alert.setTitle("继续反编译");
+        alert.setHeaderText(null);
+        alert.setContentText("该目录上一次的批量反编译没有正常结束。\n继续将跳过JAR解压和已处理的CLASS文件，只处理剩余部分。");
+        alert.getDialogPane().setStyle("-fx-font-family: 'Microsoft YaHei', 'SimHei'; -fx-font-size: 13px;");
+        Optional<ButtonType> result = alert.showAndWait();
+        if (!result.isPresent() || result.get() == ButtonType.CANCEL) {
+            return Optional.empty();
+        }
+        return Optional.of(result.get() == resumeButton);
+    }
+
     /**
      * 显示信息对话框
      */
@@ -0,0 +1,276 @@
+package com.classviewer.ui;
+
+import com.classviewer.service.SourceText;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Java源码语法高亮
+ * 在后台线程中按块（每块 {@value #CHUNK_LINES} 行）逐行切分词法单元，每完成一块通知一次，界面只为可见的行应用样式；
+ * 完整切分的结果按调用方给出的键（源文件路径和修改时间）缓存，只缓存各行的词法单元，不持有源码本身，
+ * 再次打开同一文件时无需重新切分，文件变化后键随之变化。
+ */
+@Slf4j
+final class SyntaxHighlighter {
+
+    static final int KEYWORD = 1;
+    static final int STRING = 2;
+    static final int COMMENT = 3;
+    static final int NUMBER = 4;
+    static final int ANNOTATION = 5;
+
+    private static final int CHUNK_LINES = 2000;
+    private static final int CACHE_SIZE = 16;
+
+    // 行首所处的词法状态
+    private static final int STATE_CODE = 0;
+    private static final int STATE_BLOCK_COMMENT = 1;
+
+    private static final int[] NO_SPANS = new int[0];
+
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+            "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+            "volatile", "while", "var", "record", "yield", "true", "false", "null"));
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "syntax-highlighter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 按源文件缓存已完整切分的词法单元（访问顺序LRU）
+    private static final Map<String, int[][]> CACHE = new LinkedHashMap<String, int[][]>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, int[][]> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private SyntaxHighlighter() {
+    }
+
+    /**
+     * 打开源码
+     * @param key 缓存键，为null时不缓存
+     * @param onChunk 每完成一块在后台线程中调用
+     */
+    static Document highlight(String source, String key, Consumer<Document> onChunk) {
+        return highlight(SourceText.of(source), key, onChunk);
+    }
+
+    /**
+     * 打开按行读取的源码（如堆外缓存中的源码）：命中缓存时直接使用已切分的词法单元，否则提交后台切分，切分时逐行解码
+     * @param key 缓存键，为null时不缓存
+     * @param onChunk 每完成一块在后台线程中调用
+     */
+    static Document highlight(SourceText text, String key, Consumer<Document> onChunk) {
+        if (key != null) {
+            int[][] cached;
+            synchronized (CACHE) {
+                cached = CACHE.get(key);
+            }
+            if (cached != null && cached.length == text.lineCount()) {
+                return new Document(text, cached);
+            }
+        }
+        Document document = new Document(text, new int[text.lineCount()][]);
+        WORKER.execute(() -> document.tokenize(key, onChunk));
+        return document;
+    }
+
+    /**
+     * 已打开的源码
+     * 后台线程写入spans后再增加highlightedLines（volatile），界面线程先读highlightedLines再读spans
+     */
+    static final class Document {
+        private final SourceText text;
+        private final int[][] spans;
+        private volatile int highlightedLines;
+        private volatile boolean cancelled;
+
+        private Document(SourceText text, int[][] spans) {
+            this.text = text;
+            this.spans = spans;
+            // 来自缓存时已全部切分
+            if (spans.length > 0 && spans[spans.length - 1] != null) {
+                this.highlightedLines = spans.length;
+            }
+        }
+
+        SourceText getText() {
+            return text;
+        }
+
+        /**
+         * 行的词法单元，每3个int为一组：起始列、结束列、类型；还未切分到该行时返回null
+         */
+        int[] spans(int line) {
+            return line < highlightedLines ? spans[line] : null;
+        }
+
+        /**
+         * 不再显示时停止切分
+         */
+        void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * @param key 缓存键，为null时不缓存
+         */
+        private void tokenize(String key, Consumer<Document> onChunk) {
+            if (cancelled) {
+                return;
+            }
+            long startTime = System.nanoTime();
+            SpanBuilder builder = new SpanBuilder();
+            int state = STATE_CODE;
+            int lineCount = spans.length;
+            try {
+                for (int chunkStart = 0; chunkStart < lineCount; chunkStart += CHUNK_LINES) {
+                    int chunkEnd = Math.min(lineCount, chunkStart + CHUNK_LINES);
+                    for (int line = chunkStart; line < chunkEnd; line++) {
+                        state = tokenizeLine(text.line(line), state, builder);
+                        spans[line] = builder.build();
+                    }
+                    highlightedLines = chunkEnd;
+                    onChunk.accept(this);
+                    if (cancelled) {
+                        return;
+                    }
+                }
+            } catch (IllegalStateException e) {
+                // 切换到其他源码后，按行读取的源码已关闭
+                log.debug("源码已关闭，停止语法高亮");
+                return;
+            }
+            if (key != null) {
+                synchronized (CACHE) {
+                    CACHE.put(key, spans);
+                }
+            }
+            log.debug("语法高亮完成 - 行数: {}, 耗时: {}ms", lineCount, (System.nanoTime() - startTime) / 1000000);
+        }
+    }
+
+    /**
+     * 切分一行
+     * @param state 行首状态（是否处于多行注释中）
+     * @return 行尾状态
+     */
+    static int tokenizeLine(String line, int state, SpanBuilder out) {
+        int length = line.length();
+        int i = 0;
+        if (state == STATE_BLOCK_COMMENT) {
+            int end = line.indexOf("*/");
+            if (end < 0) {
+                out.add(0, length, COMMENT);
+                return STATE_BLOCK_COMMENT;
+            }
+            out.add(0, end + 2, COMMENT);
+            i = end + 2;
+        }
+        while (i < length) {
+            char c = line.charAt(i);
+            if (c == '/' && i + 1 < length && line.charAt(i + 1) == '/') {
+                out.add(i, length, COMMENT);
+                return STATE_CODE;
+            }
+            if (c == '/' && i + 1 < length && line.charAt(i + 1) == '*') {
+                int end = line.indexOf("*/", i + 2);
+                if (end < 0) {
+                    out.add(i, length, COMMENT);
+                    return STATE_BLOCK_COMMENT;
+                }
+                out.add(i, end + 2, COMMENT);
+                i = end + 2;
+            } else if (c == '"' || c == '\'') {
+                int j = i + 1;
+                while (j < length) {
+                    char d = line.charAt(j);
+                    if (d == '\\') {
+                        j += 2;
+                    } else {
+                        j++;
+                        if (d == c) {
+                            break;
+                        }
+                    }
+                }
+                j = Math.min(j, length);
+                out.add(i, j, STRING);
+                i = j;
+            } else if (c == '@' && i + 1 < length && Character.isJavaIdentifierStart(line.charAt(i + 1))) {
+                int j = i + 1;
+                while (j < length && (Character.isJavaIdentifierPart(line.charAt(j)) || line.charAt(j) == '.')) {
+                    j++;
+                }
+                out.add(i, j, ANNOTATION);
+                i = j;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int j = i + 1;
+                while (j < length && Character.isJavaIdentifierPart(line.charAt(j))) {
+                    j++;
+                }
+                if (j - i <= 12 && KEYWORDS.contains(line.substring(i, j))) {
+                    out.add(i, j, KEYWORD);
+                }
+                i = j;
+            } else if (Character.isDigit(c)
+                    || (c == '.' && i + 1 < length && Character.isDigit(line.charAt(i + 1)))) {
+                int j = i + 1;
+                while (j < length) {
+                    char d = line.charAt(j);
+                    if (Character.isLetterOrDigit(d) || d == '_' || d == '.') {
+                        j++;
+                    } else if ((d == '+' || d == '-') && (line.charAt(j - 1) == 'e' || line.charAt(j - 1) == 'E')
+                            && !line.startsWith("0x", i) && !line.startsWith("0X", i)) {
+                        j++;
+                    } else {
+                        break;
+                    }
+                }
+                out.add(i, j, NUMBER);
+                i = j;
+            } else {
+                i++;
+            }
+        }
+        return STATE_CODE;
+    }
+
+    /**
+     * 一行词法单元的缓冲区，逐行复用
+     */
+    static final class SpanBuilder {
+        private int[] data = new int[48];
+        private int size;
+
+        void add(int start, int end, int type) {
+            if (size + 3 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = start;
+            data[size++] = end;
+            data[size++] = type;
+        }
+
+        int[] build() {
+            int[] spans = size == 0 ? NO_SPANS : Arrays.copyOf(data, size);
+            size = 0;
+            return spans;
+        }
+    }
+}
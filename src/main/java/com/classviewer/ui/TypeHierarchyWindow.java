@@ -0,0 +1,176 @@
+package com.classviewer.ui;
+
+import com.classviewer.xref.TypeHierarchy;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.*;
+import javafx.stage.Stage;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 类型层次窗口
+ * 按名称查找类型，显示其父类型、直接子类型（可逐层展开）以及全部实现类/子类（传递）。
+ */
+class TypeHierarchyWindow {
+
+    private final TypeHierarchy hierarchy;
+    private final Consumer<String> openFile;
+    private final Stage stage = new Stage();
+
+    private TextField nameField;
+    private Label statusLabel;
+    private ListView<TypeHierarchy.TypeInfo> matchListView;
+    private ListView<TypeHierarchy.TypeInfo> supertypeListView;
+    private TreeView<TypeHierarchy.TypeInfo> subtypeTreeView;
+    private Label implementationLabel;
+    private ListView<TypeHierarchy.TypeInfo> implementationListView;
+
+    /**
+     * @param openFile 打开CLASS文件（相对路径）
+     */
+    TypeHierarchyWindow(TypeHierarchy hierarchy, Stage owner, Consumer<String> openFile) {
+        this.hierarchy = hierarchy;
+        this.openFile = openFile;
+        stage.initOwner(owner);
+        stage.setTitle("类型层次");
+    }
+
+    void show(String initialName) {
+        nameField = new TextField();
+        nameField.setPromptText("类名、全名或简单名，如 Filter、javax.servlet.http.HttpServlet");
+        nameField.setOnAction(e -> search());
+        HBox.setHgrow(nameField, Priority.ALWAYS);
+
+        Button searchBtn = new Button("查找");
+        searchBtn.setOnAction(e -> search());
+
+        statusLabel = new Label(String.format("已索引 %d 个CLASS文件，%d 个类型",
+                hierarchy.declaredCount(), hierarchy.size()));
+        statusLabel.setStyle("-fx-text-fill: #666;");
+
+        HBox searchBox = new HBox(8, nameField, searchBtn, statusLabel);
+        searchBox.setAlignment(Pos.CENTER_LEFT);
+        searchBox.setPadding(new Insets(10));
+        searchBox.setStyle("-fx-background-color: #ffffff; -fx-border-color: #e0e0e0; -fx-border-width: 0 0 1 0;");
+
+        matchListView = new ListView<>();
+        matchListView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) {
+                showType(newVal);
+            }
+        });
+        VBox leftPane = titled("🔍 匹配的类型", matchListView);
+
+        supertypeListView = new ListView<>();
+        supertypeListView.setPrefHeight(140);
+        supertypeListView.setOnMouseClicked(openOnDoubleClick(() ->
+                supertypeListView.getSelectionModel().getSelectedItem()));
+
+        subtypeTreeView = new TreeView<>();
+        subtypeTreeView.setOnMouseClicked(openOnDoubleClick(() -> {
+            TreeItem<TypeHierarchy.TypeInfo> item = subtypeTreeView.getSelectionModel().getSelectedItem();
+            return item != null ? item.getValue() : null;
+        }));
+
+        implementationLabel = new Label("全部实现类/子类");
+        implementationLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 14px; -fx-text-fill: #333;");
+        implementationListView = new ListView<>();
+        implementationListView.setOnMouseClicked(openOnDoubleClick(() ->
+                implementationListView.getSelectionModel().getSelectedItem()));
+
+        VBox supertypePane = titled("⬆ 父类型", supertypeListView);
+        VBox subtypePane = titled("⬇ 直接子类型", subtypeTreeView);
+        VBox implementationPane = new VBox(8, implementationLabel, implementationListView);
+        implementationPane.setPadding(new Insets(10));
+        VBox.setVgrow(implementationListView, Priority.ALWAYS);
+
+        SplitPane detailPane = new SplitPane(supertypePane, subtypePane, implementationPane);
+        detailPane.setOrientation(javafx.geometry.Orientation.VERTICAL);
+        detailPane.setDividerPositions(0.22, 0.6);
+
+        SplitPane splitPane = new SplitPane(leftPane, detailPane);
+        splitPane.setDividerPositions(0.32);
+
+        BorderPane root = new BorderPane(splitPane);
+        root.setTop(searchBox);
+        stage.setScene(new Scene(root, 1100, 700));
+        stage.show();
+
+        if (initialName != null && !initialName.isEmpty()) {
+            nameField.setText(initialName);
+            search();
+        }
+    }
+
+    private VBox titled(String title, Control content) {
+        Label label = new Label(title);
+        label.setStyle("-fx-font-weight: bold; -fx-font-size: 14px; -fx-text-fill: #333;");
+        VBox pane = new VBox(8, label, content);
+        pane.setPadding(new Insets(10));
+        VBox.setVgrow(content, Priority.ALWAYS);
+        return pane;
+    }
+
+    private void search() {
+        String name = nameField.getText().trim();
+        if (name.isEmpty()) {
+            return;
+        }
+        List<TypeHierarchy.TypeInfo> matches = hierarchy.find(name);
+        matchListView.getItems().setAll(matches);
+        statusLabel.setText(matches.isEmpty() ? "未找到: " + name : "找到 " + matches.size() + " 个类型");
+        if (!matches.isEmpty()) {
+            matchListView.getSelectionModel().select(0);
+        }
+    }
+
+    private void showType(TypeHierarchy.TypeInfo type) {
+        long startTime = System.nanoTime();
+        List<TypeHierarchy.TypeInfo> supertypes = hierarchy.supertypes(type.getName());
+        List<TypeHierarchy.TypeInfo> implementations = hierarchy.implementations(type.getName());
+        long micros = (System.nanoTime() - startTime) / 1000;
+
+        supertypeListView.getItems().setAll(supertypes);
+        TreeItem<TypeHierarchy.TypeInfo> rootItem = subtypeItem(type);
+        rootItem.setExpanded(true);
+        subtypeTreeView.setRoot(rootItem);
+        implementationLabel.setText(String.format("%s %d 个（传递，耗时 %dµs）",
+                type.isInterface() ? "全部实现类" : "全部子类", implementations.size(), micros));
+        implementationListView.getItems().setAll(implementations);
+    }
+
+    /**
+     * 子类型树节点，展开时才查询下一层
+     */
+    private TreeItem<TypeHierarchy.TypeInfo> subtypeItem(TypeHierarchy.TypeInfo type) {
+        TreeItem<TypeHierarchy.TypeInfo> item = new TreeItem<>(type);
+        List<TypeHierarchy.TypeInfo> children = hierarchy.directSubtypes(type.getName());
+        if (!children.isEmpty()) {
+            item.getChildren().add(new TreeItem<>());
+            item.expandedProperty().addListener((obs, wasExpanded, expanded) -> {
+                if (expanded && item.getChildren().size() == 1 && item.getChildren().get(0).getValue() == null) {
+                    item.getChildren().setAll(children.stream().map(this::subtypeItem).collect(Collectors.toList()));
+                }
+            });
+        }
+        return item;
+    }
+
+    private javafx.event.EventHandler<MouseEvent> openOnDoubleClick(Supplier<TypeHierarchy.TypeInfo> selection) {
+        return event -> {
+            TypeHierarchy.TypeInfo type = selection.get();
+            if (event.getClickCount() == 2 && type != null && type.getFile() != null
+                    && !Paths.get(type.getFile()).isAbsolute()) {
+                openFile.accept(type.getFile());
+            }
+        };
+    }
+}
@@ -0,0 +1,334 @@
+package com.classviewer.ui;
+
+import com.classviewer.service.LineDiff;
+import com.classviewer.service.VersionDiff;
+import com.classviewer.service.VersionDiffService;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 版本对比窗口
+ * 上方选择旧版本和新版本（JAR或目录），左侧列出有变化的CLASS，右侧并排显示选中CLASS两个版本的反编译源码差异。
+ */
+@Slf4j
+class VersionDiffWindow {
+
+    private static final String CODE_FONT = "-fx-font-family: 'Consolas', 'Monaco', 'Courier New', monospace; " +
+                                            "-fx-font-size: 13px;";
+    private static final int SOURCE_CACHE_SIZE = 32;
+
+    private final VersionDiffService versionDiffService;
+    private final Stage stage = new Stage();
+
+    private TextField oldPathField;
+    private TextField newPathField;
+    private Button compareBtn;
+    private Label summaryLabel;
+    private ListView<VersionDiff.Change> changeListView;
+    private Label sourceLabel;
+    private ListView<LineDiff.Row> sourceListView;
+
+    /**
+     * 已反编译过的源码差异，重复选中时不再反编译
+     */
+    private final Map<VersionDiff.Change, List<LineDiff.Row>> sourceCache =
+            new LinkedHashMap<VersionDiff.Change, List<LineDiff.Row>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<VersionDiff.Change, List<LineDiff.Row>> eldest) {
+                    return size() > SOURCE_CACHE_SIZE;
+                }
+            };
+    private VersionDiff.Change selectedChange;
+
+    VersionDiffWindow(VersionDiffService versionDiffService, Stage owner) {
+        this.versionDiffService = versionDiffService;
+        stage.initOwner(owner);
+        stage.setTitle("版本对比");
+    }
+
+    void show() {
+        BorderPane root = new BorderPane();
+        root.setStyle("-fx-background-color: #f5f5f5;");
+        root.setTop(createInputPane());
+        root.setCenter(createSplitPane());
+
+        stage.setScene(new Scene(root, 1300, 800));
+        stage.show();
+    }
+
+    private VBox createInputPane() {
+        oldPathField = new TextField();
+        newPathField = new TextField();
+
+        compareBtn = new Button("⇄ 开始对比");
+        compareBtn.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white; " +
+                           "-fx-font-size: 14px; -fx-padding: 8 24; -fx-background-radius: 6; -fx-cursor: hand;");
+        compareBtn.setOnAction(e -> startCompare());
+
+        summaryLabel = new Label("选择两个版本的JAR或目录后开始对比，内容相同的CLASS不会反编译");
+        summaryLabel.setStyle("-fx-font-size: 13px; -fx-text-fill: #666;");
+
+        HBox actionBox = new HBox(12, compareBtn, summaryLabel);
+        actionBox.setAlignment(Pos.CENTER_LEFT);
+
+        VBox inputPane = new VBox(8,
+                createPathRow("旧版本:", oldPathField),
+                createPathRow("新版本:", newPathField),
+                actionBox);
+        inputPane.setPadding(new Insets(10));
+        inputPane.setStyle("-fx-background-color: #ffffff; -fx-border-color: #e0e0e0; -fx-border-width: 0 0 1 0;");
+        return inputPane;
+    }
+
+    private HBox createPathRow(String title, TextField pathField) {
+        Label label = new Label(title);
+        label.setMinWidth(60);
+        pathField.setPromptText("JAR文件或目录");
+        HBox.setHgrow(pathField, Priority.ALWAYS);
+
+        Button jarBtn = new Button("JAR...");
+        jarBtn.setOnAction(e -> {
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("选择" + title.substring(0, title.length() - 1) + "的JAR文件");
+            chooser.getExtensionFilters().addAll(
+                    new FileChooser.ExtensionFilter("JAR/WAR文件", "*.jar", "*.war"),
+                    new FileChooser.ExtensionFilter("所有文件", "*.*"));
+            File file = chooser.showOpenDialog(stage);
+            if (file != null) {
+                pathField.setText(file.getAbsolutePath());
+            }
+        });
+
+        Button dirBtn = new Button("目录...");
+        dirBtn.setOnAction(e -> {
+            DirectoryChooser chooser = new DirectoryChooser();
+            chooser.setTitle("选择" + title.substring(0, title.length() - 1) + "的目录");
+            File directory = chooser.showDialog(stage);
+            if (directory != null) {
+                pathField.setText(directory.getAbsolutePath());
+            }
+        });
+
+        HBox row = new HBox(8, label, pathField, jarBtn, dirBtn);
+        row.setAlignment(Pos.CENTER_LEFT);
+        return row;
+    }
+
+    private SplitPane createSplitPane() {
+        // 左侧：变化列表
+        VBox leftPane = new VBox(8);
+        leftPane.setPadding(new Insets(10));
+        leftPane.setStyle("-fx-background-color: white;");
+
+        Label changesLabel = new Label("📋 变化的CLASS");
+        changesLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 15px; -fx-text-fill: #333;");
+
+        changeListView = new ListView<>();
+        changeListView.setCellFactory(list -> new ListCell<VersionDiff.Change>() {
+            @Override
+            protected void updateItem(VersionDiff.Change change, boolean empty) {
+                super.updateItem(change, empty);
+                if (empty || change == null) {
+                    setText(null);
+                    setStyle("");
+                    return;
+                }
+                setText(change.toString());
+                setStyle("-fx-text-fill: " + changeColor(change.getType()) + ";");
+            }
+        });
+        changeListView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) {
+                showSourceDiff(newVal);
+            }
+        });
+        VBox.setVgrow(changeListView, Priority.ALWAYS);
+        leftPane.getChildren().addAll(changesLabel, changeListView);
+
+        // 右侧：并排源码差异
+        VBox rightPane = new VBox(8);
+        rightPane.setPadding(new Insets(10));
+        rightPane.setStyle("-fx-background-color: white;");
+
+        sourceLabel = new Label("📄 源码对比");
+        sourceLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 15px; -fx-text-fill: #333;");
+
+        // 每行一个单元格，ListView只创建可见行的节点，大文件也能流畅滚动
+        sourceListView = new ListView<>();
+        sourceListView.setCellFactory(list -> new DiffRowCell());
+        sourceListView.setStyle("-fx-background-color: #fafafa;");
+        VBox.setVgrow(sourceListView, Priority.ALWAYS);
+        rightPane.getChildren().addAll(sourceLabel, sourceListView);
+
+        SplitPane splitPane = new SplitPane(leftPane, rightPane);
+        splitPane.setDividerPositions(0.28);
+        return splitPane;
+    }
+
+    private void startCompare() {
+        String oldText = oldPathField.getText().trim();
+        String newText = newPathField.getText().trim();
+        if (oldText.isEmpty() || newText.isEmpty()) {
+            summaryLabel.setText("⚠ 请先选择旧版本和新版本");
+            return;
+        }
+        Path oldPath = Paths.get(oldText);
+        Path newPath = Paths.get(newText);
+
+        compareBtn.setDisable(true);
+        summaryLabel.setText("正在对比...");
+        changeListView.getItems().clear();
+        sourceListView.getItems().clear();
+        sourceCache.clear();
+        selectedChange = null;
+
+        new Thread(() -> {
+            try {
+                VersionDiff diff = versionDiffService.compare(oldPath, newPath);
+                Platform.runLater(() -> {
+                    changeListView.getItems().setAll(diff.getChanges());
+                    summaryLabel.setText(String.format(
+                            "新增 %d，删除 %d，修改 %d，相同 %d（跳过 %d 个相同的嵌套JAR），耗时 %dms",
+                            diff.count(VersionDiff.ChangeType.ADDED), diff.count(VersionDiff.ChangeType.REMOVED),
+                            diff.count(VersionDiff.ChangeType.CHANGED), diff.getUnchangedClasses(),
+                            diff.getUnchangedArchives(), diff.getDuration()));
+                    compareBtn.setDisable(false);
+                });
+            } catch (Exception e) {
+                log.error("版本对比失败", e);
+                Platform.runLater(() -> {
+                    summaryLabel.setText("✗ 对比失败: " + e.getMessage());
+                    compareBtn.setDisable(false);
+                });
+            }
+        }, "version-diff").start();
+    }
+
+    private void showSourceDiff(VersionDiff.Change change) {
+        selectedChange = change;
+        sourceLabel.setText("📄 " + change.getPath());
+        List<LineDiff.Row> cached = sourceCache.get(change);
+        if (cached != null) {
+            sourceListView.getItems().setAll(cached);
+            return;
+        }
+        sourceListView.getItems().clear();
+        sourceLabel.setText("⏳ 正在反编译: " + change.getPath());
+
+        new Thread(() -> {
+            List<LineDiff.Row> rows;
+            String title;
+            try {
+                rows = versionDiffService.sourceDiff(change);
+                title = "📄 " + change.getPath();
+            } catch (Exception e) {
+                log.error("反编译对比失败: {}", change.getPath(), e);
+                rows = Collections.emptyList();
+                title = "✗ 反编译失败: " + change.getPath() + " - " + e.getMessage();
+            }
+            List<LineDiff.Row> result = rows;
+            String label = title;
+            Platform.runLater(() -> {
+                if (!result.isEmpty()) {
+                    sourceCache.put(change, result);
+                }
+                // 反编译期间用户可能已选中其他CLASS
+                if (change == selectedChange) {
+                    sourceLabel.setText(label);
+                    sourceListView.getItems().setAll(result);
+                }
+            });
+        }, "version-diff-source").start();
+    }
+
+    private static String changeColor(VersionDiff.ChangeType type) {
+        switch (type) {
+            case ADDED:
+                return "#2E7D32";
+            case REMOVED:
+                return "#C62828";
+            default:
+                return "#E65100";
+        }
+    }
+
+    /**
+     * 并排显示一行：左侧旧版本，右侧新版本
+     */
+    private static final class DiffRowCell extends ListCell<LineDiff.Row> {
+        private final Label oldLabel = createSide();
+        private final Label newLabel = createSide();
+        private final HBox box = new HBox(oldLabel, newLabel);
+
+        DiffRowCell() {
+            HBox.setHgrow(oldLabel, Priority.ALWAYS);
+            HBox.setHgrow(newLabel, Priority.ALWAYS);
+            oldLabel.prefWidthProperty().bind(box.widthProperty().divide(2));
+            newLabel.prefWidthProperty().bind(box.widthProperty().divide(2));
+            setPadding(Insets.EMPTY);
+        }
+
+        private static Label createSide() {
+            Label label = new Label();
+            label.setMaxWidth(Double.MAX_VALUE);
+            label.setMinWidth(0);
+            label.setTextOverrun(OverrunStyle.CLIP);
+            return label;
+        }
+
+        @Override
+        protected void updateItem(LineDiff.Row row, boolean empty) {
+            super.updateItem(row, empty);
+            if (empty || row == null) {
+                setGraphic(null);
+                return;
+            }
+            oldLabel.setText(format(row.getOldLine(), row.getOldText()));
+            newLabel.setText(format(row.getNewLine(), row.getNewText()));
+            String oldBackground = "transparent";
+            String newBackground = "transparent";
+            switch (row.getKind()) {
+                case CHANGED:
+                    oldBackground = "#FFF3E0";
+                    newBackground = "#FFF3E0";
+                    break;
+                case REMOVED:
+                    oldBackground = "#FFEBEE";
+                    newBackground = "#EEEEEE";
+                    break;
+                case ADDED:
+                    oldBackground = "#EEEEEE";
+                    newBackground = "#E8F5E9";
+                    break;
+                default:
+                    break;
+            }
+            oldLabel.setStyle(CODE_FONT + "-fx-background-color: " + oldBackground + ";");
+            newLabel.setStyle(CODE_FONT + "-fx-background-color: " + newBackground + ";");
+            setGraphic(box);
+        }
+
+        private static String format(int line, String text) {
+            if (text == null) {
+                return "";
+            }
+            return String.format("%5d  %s", line, text.replace("\t", "    "));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.classviewer.ui;
+
+import com.classviewer.xref.XrefGraph;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+import javafx.stage.Stage;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 查找用法窗口
+ * 左侧列出候选符号（类、方法、字段）及其用法数，右侧列出选中符号的用法；
+ * 双击用法打开所在的CLASS文件，"查找该成员的用法"沿调用链继续向上查找。
+ */
+class XrefWindow {
+
+    private final XrefGraph graph;
+    private final Consumer<String> openFile;
+    private final Stage stage = new Stage();
+
+    private ListView<Integer> symbolListView;
+    private ListView<XrefGraph.Reference> usageListView;
+    private Label usageLabel;
+
+    /**
+     * @param openFile 打开CLASS文件（相对路径）
+     */
+    XrefWindow(XrefGraph graph, Stage owner, Consumer<String> openFile) {
+        this.graph = graph;
+        this.openFile = openFile;
+        stage.initOwner(owner);
+    }
+
+    void show(String title, List<Integer> symbols) {
+        stage.setTitle("查找用法 - " + title);
+
+        symbolListView = new ListView<>();
+        symbolListView.setCellFactory(list -> new ListCell<Integer>() {
+            @Override
+            protected void updateItem(Integer symbol, boolean empty) {
+                super.updateItem(symbol, empty);
+                setText(empty || symbol == null ? null
+                        : XrefGraph.describe(graph.symbol(symbol)) + "  (" + graph.usageCount(symbol) + ")");
+            }
+        });
+        symbolListView.getItems().setAll(symbols);
+        symbolListView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) {
+                showUsages(newVal);
+            }
+        });
+
+        Label symbolLabel = new Label("🔍 " + title + " - " + symbols.size() + " 个符号");
+        symbolLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 14px; -fx-text-fill: #333;");
+        VBox leftPane = new VBox(8, symbolLabel, symbolListView);
+        leftPane.setPadding(new Insets(10));
+        VBox.setVgrow(symbolListView, Priority.ALWAYS);
+
+        usageListView = new ListView<>();
+        usageListView.setCellFactory(list -> new ListCell<XrefGraph.Reference>() {
+            @Override
+            protected void updateItem(XrefGraph.Reference reference, boolean empty) {
+                super.updateItem(reference, empty);
+                if (empty || reference == null) {
+                    setText(null);
+                    return;
+                }
+                String file = graph.file(reference.getSymbol());
+                setText("[" + XrefGraph.kindLabel(reference.getKind()) + "] "
+                        + XrefGraph.describe(graph.symbol(reference.getSymbol()))
+                        + (file != null ? "  —  " + file : ""));
+            }
+        });
+        usageListView.setOnMouseClicked(event -> {
+            XrefGraph.Reference reference = usageListView.getSelectionModel().getSelectedItem();
+            if (event.getClickCount() == 2 && reference != null) {
+                String file = graph.file(reference.getSymbol());
+                if (file != null) {
+                    openFile.accept(file);
+                }
+            }
+        });
+
+        usageLabel = new Label("选择左侧的符号查看用法，双击用法打开所在文件");
+        usageLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 14px; -fx-text-fill: #333;");
+
+        Button followBtn = new Button("查找该成员的用法");
+        followBtn.setOnAction(e -> {
+            XrefGraph.Reference reference = usageListView.getSelectionModel().getSelectedItem();
+            if (reference != null) {
+                symbolListView.getItems().setAll(reference.getSymbol());
+                symbolListView.getSelectionModel().select(0);
+            }
+        });
+        HBox usageHeader = new HBox(12, usageLabel, followBtn);
+        usageHeader.setAlignment(Pos.CENTER_LEFT);
+
+        VBox rightPane = new VBox(8, usageHeader, usageListView);
+        rightPane.setPadding(new Insets(10));
+        VBox.setVgrow(usageListView, Priority.ALWAYS);
+
+        SplitPane splitPane = new SplitPane(leftPane, rightPane);
+        splitPane.setDividerPositions(0.4);
+
+        stage.setScene(new Scene(splitPane, 1100, 600));
+        stage.show();
+        if (symbols.size() == 1) {
+            symbolListView.getSelectionModel().select(0);
+        }
+    }
+
+    private void showUsages(int symbol) {
+        List<XrefGraph.Reference> usages = graph.usages(symbol);
+        usageListView.getItems().setAll(usages);
+        usageLabel.setText(XrefGraph.describe(graph.symbol(symbol)) + " - " + usages.size() + " 处用法");
+    }
+}
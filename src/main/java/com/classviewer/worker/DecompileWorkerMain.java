@@ -0,0 +1,72 @@
+package com.classviewer.worker;
+
+import com.classviewer.metrics.MetricsService;
+import com.classviewer.service.DecompilerService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 反编译工作进程入口
+ * 由 {@link WorkerProcessPool} 启动，逐行读取请求，反编译结果直接编码写入Java文件后回复结果。
+ * 标准输出只用于协议，CFR和日志的输出全部转到标准错误。
+ */
+@Slf4j
+public final class DecompileWorkerMain {
+
+    private DecompileWorkerMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Writer protocolOut = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8));
+        System.setOut(System.err);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+        DecompilerService decompilerService = new DecompilerService(new MetricsService());
+        reply(protocolOut, WorkerProtocol.line(WorkerProtocol.READY));
+        log.info("反编译工作进程已启动");
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] request = WorkerProtocol.fields(line);
+            reply(protocolOut, handle(decompilerService, Paths.get(request[0]), Paths.get(request[1])));
+        }
+    }
+
+    private static String handle(DecompilerService decompilerService, Path classFile, Path javaFile) {
+        try {
+            Files.createDirectories(javaFile.getParent());
+            // 与进程内写入一致：先删除再写入，避免改写硬链接共享的文件
+            Files.deleteIfExists(javaFile);
+            long startTime = System.nanoTime();
+            long bytes;
+            try (FileChannel out = FileChannel.open(javaFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                bytes = decompilerService.decompileClassTo(classFile.toFile(), out);
+            } catch (Exception e) {
+                Files.deleteIfExists(javaFile);
+                throw e;
+            }
+            long nanos = System.nanoTime() - startTime;
+            return WorkerProtocol.line(WorkerProtocol.OK, String.valueOf(bytes), String.valueOf(nanos));
+        } catch (Exception e) {
+            log.error("反编译失败: {}", classFile, e);
+            return WorkerProtocol.line(WorkerProtocol.FAIL, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    private static void reply(Writer out, String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+    }
+}
@@ -0,0 +1,362 @@
+package com.classviewer.worker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.jar.JarFile;
+
+/**
+ * 反编译工作进程池（协调端）
+ * 启动若干个独立的JVM运行 {@link DecompileWorkerMain}，每个工作进程由一个分发线程负责，从共享队列取任务。
+ * 工作进程有独立的堆上限，OOM时直接退出；进程崩溃或超时会被重启，崩溃的任务在新进程中重试一次。
+ * CFR的栈溢出、内存溢出和死循环因此不会影响界面所在的JVM。
+ */
+@Slf4j
+public class WorkerProcessPool {
+
+    /**
+     * 崩溃后的最大重试次数
+     */
+    private static final int MAX_RETRIES = 1;
+    private static final long SHUTDOWN_WAIT_SECONDS = 5;
+    private static final String BOOT_LAUNCHER = "org.springframework.boot.loader.PropertiesLauncher";
+
+    private final int processes;
+    private final String maxHeap;
+    private final long taskTimeoutMillis;
+    private final List<Worker> activeWorkers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger restarts = new AtomicInteger();
+
+    /**
+     * @param processes 工作进程数
+     * @param maxHeap 每个工作进程的最大堆（-Xmx的值，如512m）
+     * @param taskTimeoutMillis 单个CLASS的反编译超时
+     */
+    public WorkerProcessPool(int processes, String maxHeap, long taskTimeoutMillis) {
+        this.processes = processes;
+        this.maxHeap = maxHeap;
+        this.taskTimeoutMillis = taskTimeoutMillis;
+    }
+
+    /**
+     * 在工作进程中反编译所有CLASS文件，全部完成后返回
+     * 回调由各分发线程并发调用。
+     * @param outputFor CLASS文件对应的Java文件路径
+     * @throws IOException 没有任何工作进程能够启动
+     */
+    public void run(List<Path> classFiles, Function<Path, Path> outputFor, TaskListener listener)
+            throws IOException, InterruptedException {
+        Queue<Task> queue = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < classFiles.size(); i++) {
+            Path classFile = classFiles.get(i);
+            queue.add(new Task(i, classFile, outputFor.apply(classFile)));
+        }
+
+        List<Worker> workers = startWorkers(Math.min(processes, Math.max(1, classFiles.size())));
+        if (workers.isEmpty()) {
+            throw new IOException("无法启动反编译工作进程");
+        }
+        log.info("已启动 {} 个反编译工作进程", workers.size());
+
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "decompile-worker-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(this::killTimedOutWorkers, 1, 1, TimeUnit.SECONDS);
+
+        AtomicInteger liveDispatchers = new AtomicInteger(workers.size());
+        List<Thread> dispatchers = new ArrayList<>();
+        for (int i = 0; i < workers.size(); i++) {
+            Worker worker = workers.get(i);
+            Thread thread = new Thread(() -> dispatch(worker, queue, listener, liveDispatchers),
+                    "decompile-dispatcher-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            dispatchers.add(thread);
+        }
+
+        try {
+            for (Thread thread : dispatchers) {
+                thread.join();
+            }
+        } finally {
+            watchdog.shutdownNow();
+            for (Worker worker : activeWorkers) {
+                worker.destroy();
+            }
+            activeWorkers.clear();
+        }
+        log.info("工作进程全部结束，重启次数: {}", restarts.get());
+    }
+
+    /**
+     * 本次运行中工作进程的重启次数
+     */
+    public int getRestarts() {
+        return restarts.get();
+    }
+
+    /**
+     * 分发线程：独占一个工作进程，逐个发送任务
+     */
+    private void dispatch(Worker initial, Queue<Task> queue, TaskListener listener, AtomicInteger liveDispatchers) {
+        Worker worker = initial;
+        Task task;
+        try {
+            while ((task = queue.poll()) != null) {
+                if (worker == null) {
+                    worker = restartWorker();
+                    if (worker == null) {
+                        // 无法重启，任务交给其他分发线程
+                        queue.add(task);
+                        return;
+                    }
+                }
+
+                long callStart = System.nanoTime();
+                String[] reply = worker.call(task);
+                task.elapsedNanos += System.nanoTime() - callStart;
+                if (reply == null) {
+                    String error = worker.timedOut
+                            ? "反编译超时（" + taskTimeoutMillis / 1000 + "秒），工作进程已终止"
+                            : "工作进程异常退出" + worker.exitDescription();
+                    log.warn("{}: {}", error, task.classFile);
+                    boolean retry = !worker.timedOut && task.attempts++ < MAX_RETRIES;
+                    worker.destroy();
+                    worker = null;
+                    if (retry) {
+                        queue.add(task);
+                    } else {
+                        listener.onFailed(task.index, task.classFile, error, task.elapsedNanos);
+                    }
+                    continue;
+                }
+
+                if (WorkerProtocol.OK.equals(reply[0]) && reply.length >= 3) {
+                    listener.onCompleted(task.index, task.classFile, task.javaFile,
+                            Long.parseLong(reply[1]), Long.parseLong(reply[2]));
+                } else {
+                    listener.onFailed(task.index, task.classFile,
+                            reply.length > 1 ? reply[1] : "工作进程返回无效结果", task.elapsedNanos);
+                }
+            }
+        } finally {
+            if (worker != null) {
+                worker.shutdown();
+            }
+            // 最后一个退出的分发线程负责处理剩余任务（所有工作进程都无法重启时）
+            if (liveDispatchers.decrementAndGet() == 0) {
+                while ((task = queue.poll()) != null) {
+                    listener.onFailed(task.index, task.classFile, "无法启动反编译工作进程", task.elapsedNanos);
+                }
+            }
+        }
+    }
+
+    private List<Worker> startWorkers(int count) {
+        List<Process> started = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            try {
+                started.add(launch());
+            } catch (IOException e) {
+                log.error("启动反编译工作进程失败", e);
+            }
+        }
+        // 先全部启动再等待就绪，JVM启动时间可以重叠
+        List<Worker> workers = new ArrayList<>();
+        for (Process process : started) {
+            Worker worker = awaitReady(process);
+            if (worker != null) {
+                workers.add(worker);
+            }
+        }
+        return workers;
+    }
+
+    private Worker restartWorker() {
+        restarts.incrementAndGet();
+        try {
+            return awaitReady(launch());
+        } catch (IOException e) {
+            log.error("重启反编译工作进程失败", e);
+            return null;
+        }
+    }
+
+    private Worker awaitReady(Process process) {
+        Worker worker = new Worker(process);
+        try {
+            String line = worker.output.readLine();
+            if (line != null && WorkerProtocol.READY.equals(line)) {
+                activeWorkers.add(worker);
+                return worker;
+            }
+            log.error("反编译工作进程未能就绪{}", worker.exitDescription());
+        } catch (IOException e) {
+            log.error("反编译工作进程未能就绪", e);
+        }
+        worker.destroy();
+        return null;
+    }
+
+    private Process launch() throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(command());
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    /**
+     * 工作进程的启动命令
+     * 使用当前JVM和类路径；以Spring Boot可执行JAR运行时通过PropertiesLauncher指定入口类
+     */
+    List<String> command() {
+        String classPath = System.getProperty("java.class.path");
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xmx" + maxHeap);
+        command.add("-XX:+ExitOnOutOfMemoryError");
+        command.add("-Dlogback.configurationFile=logback-worker.xml");
+        command.add("-cp");
+        command.add(classPath);
+        if (isBootJar(classPath)) {
+            command.add("-Dloader.main=" + DecompileWorkerMain.class.getName());
+            command.add(BOOT_LAUNCHER);
+        } else {
+            command.add(DecompileWorkerMain.class.getName());
+        }
+        return command;
+    }
+
+    private static boolean isBootJar(String classPath) {
+        if (classPath.contains(File.pathSeparator) || !classPath.toLowerCase().endsWith(".jar")) {
+            return false;
+        }
+        try (JarFile jar = new JarFile(classPath)) {
+            return jar.getEntry(BOOT_LAUNCHER.replace('.', '/') + ".class") != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void killTimedOutWorkers() {
+        long now = System.nanoTime();
+        for (Worker worker : activeWorkers) {
+            long busySince = worker.busySince;
+            if (busySince != 0 && now - busySince > TimeUnit.MILLISECONDS.toNanos(taskTimeoutMillis)) {
+                worker.timedOut = true;
+                worker.process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * 工作进程的结果回调
+     */
+    public interface TaskListener {
+        /**
+         * @param index 任务在 {@link #run} 的文件列表中的下标
+         */
+        void onCompleted(int index, Path classFile, Path javaFile, long outputBytes, long decompileNanos);
+
+        /**
+         * @param index 任务在 {@link #run} 的文件列表中的下标
+         * @param elapsedNanos 任务在工作进程中占用的时间（含超时等待和重试），从未发出时为0
+         */
+        void onFailed(int index, Path classFile, String error, long elapsedNanos);
+    }
+
+    private static class Task {
+        final int index;
+        final Path classFile;
+        final Path javaFile;
+        int attempts;
+        long elapsedNanos;
+
+        Task(int index, Path classFile, Path javaFile) {
+            this.index = index;
+            this.classFile = classFile;
+            this.javaFile = javaFile;
+        }
+    }
+
+    /**
+     * 单个工作进程及其管道
+     */
+    private class Worker {
+        final Process process;
+        final BufferedWriter input;
+        final BufferedReader output;
+        volatile long busySince;
+        volatile boolean timedOut;
+
+        Worker(Process process) {
+            this.process = process;
+            this.input = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            this.output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * 发送一个任务并等待回复
+         * @return 回复字段；进程已退出时返回null
+         */
+        String[] call(Task task) {
+            busySince = System.nanoTime();
+            try {
+                input.write(WorkerProtocol.line(task.classFile.toString(), task.javaFile.toString()));
+                input.write('\n');
+                input.flush();
+                String line = output.readLine();
+                return line != null ? WorkerProtocol.fields(line) : null;
+            } catch (IOException e) {
+                return null;
+            } finally {
+                busySince = 0;
+            }
+        }
+
+        String exitDescription() {
+            try {
+                if (process.waitFor(1, TimeUnit.SECONDS)) {
+                    return "（退出码 " + process.exitValue() + "）";
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "";
+        }
+
+        /**
+         * 关闭标准输入，让工作进程正常退出
+         */
+        void shutdown() {
+            try {
+                input.close();
+                if (!process.waitFor(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (IOException e) {
+                process.destroyForcibly();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            } finally {
+                activeWorkers.remove(this);
+            }
+        }
+
+        void destroy() {
+            process.destroyForcibly();
+            activeWorkers.remove(this);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.classviewer.worker;
+
+import com.classviewer.service.BatchJournal;
+
+/**
+ * 协调进程与反编译工作进程之间的行协议（UTF-8，每行一条，字段以制表符分隔，转义规则与结果日志相同）
+ * <pre>
+ * 工作进程启动完成:  READY
+ * 请求:            CLASS文件路径 \t Java文件路径
+ * 成功:            OK \t 写入字节数 \t 反编译耗时(纳秒)
+ * 失败:            FAIL \t 错误信息
+ * </pre>
+ * 协调进程关闭工作进程的标准输入即表示结束。
+ */
+final class WorkerProtocol {
+
+    static final String READY = "READY";
+    static final String OK = "OK";
+    static final String FAIL = "FAIL";
+
+    private static final char SEPARATOR = '\t';
+
+    private WorkerProtocol() {
+    }
+
+    static String line(String... fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append(SEPARATOR);
+            }
+            line.append(BatchJournal.escape(fields[i]));
+        }
+        return line.toString();
+    }
+
+    static String[] fields(String line) {
+        String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = BatchJournal.unescape(fields[i]);
+        }
+        return fields;
+    }
+}
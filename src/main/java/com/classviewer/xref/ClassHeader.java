@@ -0,0 +1,179 @@
+package com.classviewer.xref;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * CLASS文件头：访问标志、类名、父类和接口
+ * 只读取到接口表为止（常量池之后的几个字段），不读取字段、方法和属性。
+ */
+public final class ClassHeader {
+
+    public static final int ACC_INTERFACE = 0x0200;
+    public static final int ACC_ABSTRACT = 0x0400;
+    public static final int ACC_ANNOTATION = 0x2000;
+    public static final int ACC_ENUM = 0x4000;
+    public static final int ACC_MODULE = 0x8000;
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int INITIAL_READ = 4096;
+
+    private final int access;
+    private final String name;
+    private final String superName;
+    private final String[] interfaces;
+
+    ClassHeader(int access, String name, String superName, String[] interfaces) {
+        this.access = access;
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+    }
+
+    public int getAccess() { return access; }
+
+    /**
+     * 内部名称，如 {@code com/example/A}
+     */
+    public String getName() { return name; }
+
+    /**
+     * 父类的内部名称，java/lang/Object和module-info为null
+     */
+    public String getSuperName() { return superName; }
+
+    public String[] getInterfaces() { return interfaces; }
+
+    public boolean isInterface() {
+        return (access & ACC_INTERFACE) != 0;
+    }
+
+    public static ClassHeader read(Path classFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(classFile, StandardOpenOption.READ)) {
+            return new Parser(channel).parse();
+        }
+    }
+
+    /**
+     * 按需从通道读取：先读4KB，常量池更大时每次翻倍，读到接口表结束即停止
+     */
+    private static final class Parser {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_READ);
+        private int position;
+
+        Parser(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        ClassHeader parse() throws IOException {
+            if (u4() != MAGIC) {
+                throw new IOException("不是CLASS文件");
+            }
+            position += 4;
+            int constantCount = u2();
+            // 常量池中每个UTF8和Class常量的位置，其他常量只跳过
+            int[] offsets = new int[constantCount];
+            for (int i = 1; i < constantCount; i++) {
+                int tag = u1();
+                offsets[i] = position;
+                switch (tag) {
+                    case 1:
+                        position += u2At(position);
+                        position += 2;
+                        break;
+                    case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+                        position += 4;
+                        break;
+                    case 5: case 6:
+                        position += 8;
+                        i++;
+                        break;
+                    case 7: case 8: case 16: case 19: case 20:
+                        position += 2;
+                        break;
+                    case 15:
+                        position += 3;
+                        break;
+                    default:
+                        throw new IOException("未知的常量类型: " + tag);
+                }
+            }
+            int access = u2();
+            String name = className(offsets, u2());
+            int superIndex = u2();
+            String superName = superIndex == 0 ? null : className(offsets, superIndex);
+            String[] interfaces = new String[u2()];
+            int[] interfaceIndexes = new int[interfaces.length];
+            for (int i = 0; i < interfaces.length; i++) {
+                interfaceIndexes[i] = u2();
+            }
+            for (int i = 0; i < interfaces.length; i++) {
+                interfaces[i] = className(offsets, interfaceIndexes[i]);
+            }
+            return new ClassHeader(access, name, superName, interfaces);
+        }
+
+        private String className(int[] offsets, int classIndex) throws IOException {
+            if (classIndex <= 0 || classIndex >= offsets.length) {
+                throw new IOException("常量池下标越界: " + classIndex);
+            }
+            int utf8 = offsets[u2At(offsets[classIndex])];
+            int length = u2At(utf8);
+            ensure(utf8 + 2 + length);
+            return new String(buffer.array(), utf8 + 2, length, StandardCharsets.UTF_8);
+        }
+
+        private int u1() throws IOException {
+            ensure(position + 1);
+            return buffer.get(position++) & 0xFF;
+        }
+
+        private int u2() throws IOException {
+            int value = u2At(position);
+            position += 2;
+            return value;
+        }
+
+        private int u4() throws IOException {
+            ensure(position + 4);
+            int value = buffer.getInt(position);
+            position += 4;
+            return value;
+        }
+
+        private int u2At(int offset) throws IOException {
+            ensure(offset + 2);
+            return buffer.getShort(offset) & 0xFFFF;
+        }
+
+        /**
+         * 保证缓冲区中已有前 end 个字节
+         */
+        private void ensure(int end) throws IOException {
+            while (buffer.limit() < end) {
+                if (end > buffer.capacity()) {
+                    int limit = buffer.limit();
+                    ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, end));
+                    larger.put(Arrays.copyOf(buffer.array(), limit));
+                    buffer = larger;
+                    buffer.limit(limit);
+                }
+                int limit = buffer.limit();
+                buffer.position(limit).limit(buffer.capacity());
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    throw new EOFException("CLASS文件不完整");
+                }
+                buffer.limit(limit + read).position(0);
+            }
+        }
+    }
+}
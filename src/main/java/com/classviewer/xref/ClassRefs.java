@@ -0,0 +1,60 @@
+package com.classviewer.xref;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 单个CLASS文件的扫描结果：声明的成员和成员之间的引用
+ * 符号用类内的局部编号表示，合并时再映射为全局编号。
+ */
+final class ClassRefs {
+
+    final String owner;
+    final int file;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    String[] symbols = new String[16];
+    int symbolCount;
+    int[] declared = new int[8];
+    int declaredCount;
+    /**
+     * 引用三元组：来源、目标、类型
+     */
+    int[] edges = new int[48];
+    int edgeCount;
+
+    ClassRefs(String owner, int file) {
+        this.owner = owner;
+        this.file = file;
+    }
+
+    int symbol(String key) {
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+        if (symbolCount == symbols.length) {
+            symbols = Arrays.copyOf(symbols, symbolCount * 2);
+        }
+        symbols[symbolCount] = key;
+        ids.put(key, symbolCount);
+        return symbolCount++;
+    }
+
+    void declare(String key) {
+        if (declaredCount == declared.length) {
+            declared = Arrays.copyOf(declared, declaredCount * 2);
+        }
+        declared[declaredCount++] = symbol(key);
+    }
+
+    void reference(int source, String target, int kind) {
+        if (edgeCount + 3 > edges.length) {
+            edges = Arrays.copyOf(edges, edges.length * 2);
+        }
+        edges[edgeCount++] = source;
+        edges[edgeCount++] = symbol(target);
+        edges[edgeCount++] = kind;
+    }
+}
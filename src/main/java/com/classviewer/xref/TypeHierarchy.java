@@ -0,0 +1,324 @@
+package com.classviewer.xref;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 类型层次索引
+ * 每个类型一个编号，记录父类、接口和反向的直接子类型（继承和实现都算），传递查询是在子类型边上的广度优先遍历，
+ * 只访问结果中的类型。只被引用、不在扫描范围内的类型（如JDK和白名单中的依赖）也有节点，
+ * 因此可以查询 {@code javax/servlet/Filter} 的实现类。
+ * 可以随时增量加入新的CLASS文件；全部方法同步，可被多个线程同时调用。
+ */
+public final class TypeHierarchy {
+
+    private static final int UNKNOWN = -1;
+
+    /**
+     * 查询结果中的一个类型
+     */
+    public static final class TypeInfo {
+        private final String name;
+        private final int access;
+        private final String file;
+
+        TypeInfo(String name, int access, String file) {
+            this.name = name;
+            this.access = access;
+            this.file = file;
+        }
+
+        /**
+         * 内部名称，如 {@code com/example/A}
+         */
+        public String getName() { return name; }
+
+        /**
+         * 声明该类型的CLASS文件，不在扫描范围内时为null
+         */
+        public String getFile() { return file; }
+
+        /**
+         * 是否在扫描范围内（有CLASS文件）
+         */
+        public boolean isIndexed() { return access != UNKNOWN; }
+
+        public boolean isInterface() {
+            return isIndexed() && (access & ClassHeader.ACC_INTERFACE) != 0;
+        }
+
+        public boolean isAbstract() {
+            return isIndexed() && (access & ClassHeader.ACC_ABSTRACT) != 0;
+        }
+
+        public String getDisplayName() {
+            return name.replace('/', '.');
+        }
+
+        @Override
+        public String toString() {
+            String kind = !isIndexed() ? "外部" : isInterface() ? "接口" : isAbstract() ? "抽象类" : "类";
+            return "[" + kind + "] " + getDisplayName();
+        }
+    }
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Map<String, List<Integer>> simpleNames = new HashMap<>();
+    private String[] names = new String[1024];
+    private int[] access = new int[1024];
+    private String[] files = new String[1024];
+    private int[] superIds = new int[1024];
+    private int[][] interfaceIds = new int[1024][];
+    private int[][] children = new int[1024][];
+    private int[] childCounts = new int[1024];
+    private int size;
+
+    /**
+     * 遍历时的访问标记，每次遍历递增 epoch，不需要清空
+     */
+    private int[] visited = new int[1024];
+    private int epoch;
+    private int[] queue = new int[1024];
+    private int declaredCount;
+
+    /**
+     * 加入或更新一个CLASS文件的头信息
+     * 同名类型已从其他文件加入时（如多个shade包中的同一个类）保留先加入的；同一文件重新加入时替换原来的父类型。
+     */
+    public synchronized void add(ClassHeader header, String file) {
+        int id = id(header.getName());
+        if (access[id] != UNKNOWN) {
+            if (!file.equals(files[id])) {
+                return;
+            }
+            unlink(id);
+        } else {
+            declaredCount++;
+        }
+        access[id] = header.getAccess();
+        files[id] = file;
+        superIds[id] = header.getSuperName() != null ? id(header.getSuperName()) : UNKNOWN;
+        if (superIds[id] != UNKNOWN) {
+            addChild(superIds[id], id);
+        }
+        int[] interfaces = new int[header.getInterfaces().length];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaces[i] = id(header.getInterfaces()[i]);
+            addChild(interfaces[i], id);
+        }
+        interfaceIds[id] = interfaces;
+    }
+
+    public synchronized void clear() {
+        ids.clear();
+        simpleNames.clear();
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(files, 0, size, null);
+        Arrays.fill(interfaceIds, 0, size, null);
+        Arrays.fill(children, 0, size, null);
+        Arrays.fill(childCounts, 0, size, 0);
+        size = 0;
+        declaredCount = 0;
+    }
+
+    /**
+     * 类型总数（包括只被引用的外部类型）
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 已加入的CLASS文件数
+     */
+    public synchronized int declaredCount() {
+        return declaredCount;
+    }
+
+    public synchronized TypeInfo get(String name) {
+        Integer id = ids.get(name);
+        return id != null ? info(id) : null;
+    }
+
+    /**
+     * 按名称查找类型：内部名称、带点的全名或简单名（不含包名和外部类名）
+     */
+    public synchronized List<TypeInfo> find(String name) {
+        String internal = name.replace('.', '/');
+        Integer id = ids.get(internal);
+        if (id != null) {
+            return Collections.singletonList(info(id));
+        }
+        List<Integer> matches = simpleNames.get(name);
+        if (matches == null) {
+            return Collections.emptyList();
+        }
+        List<TypeInfo> result = new ArrayList<>(matches.size());
+        for (int match : matches) {
+            result.add(info(match));
+        }
+        return result;
+    }
+
+    /**
+     * 父类链和全部父接口（传递），从近到远
+     */
+    public synchronized List<TypeInfo> supertypes(String name) {
+        Integer start = ids.get(name);
+        if (start == null) {
+            return Collections.emptyList();
+        }
+        List<TypeInfo> result = new ArrayList<>();
+        int head = 0;
+        int tail = 0;
+        epoch++;
+        visited[start] = epoch;
+        queue[tail++] = start;
+        while (head < tail) {
+            int current = queue[head++];
+            if (current != start) {
+                result.add(info(current));
+            }
+            if (superIds[current] != UNKNOWN && visited[superIds[current]] != epoch) {
+                visited[superIds[current]] = epoch;
+                queue[tail++] = superIds[current];
+            }
+            int[] interfaces = interfaceIds[current];
+            if (interfaces != null) {
+                for (int parent : interfaces) {
+                    if (visited[parent] != epoch) {
+                        visited[parent] = epoch;
+                        queue[tail++] = parent;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 直接子类型：直接继承该类或直接实现（继承）该接口的类型
+     */
+    public synchronized List<TypeInfo> directSubtypes(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            return Collections.emptyList();
+        }
+        List<TypeInfo> result = new ArrayList<>(childCounts[id]);
+        for (int i = 0; i < childCounts[id]; i++) {
+            result.add(info(children[id][i]));
+        }
+        return result;
+    }
+
+    /**
+     * 全部子类型（传递），包括子接口
+     */
+    public synchronized List<TypeInfo> subtypes(String name) {
+        return subtypes(name, false);
+    }
+
+    /**
+     * 全部实现类或子类（传递），不包括接口
+     * 对接口即"实现了该接口的所有类"（包括通过父类或子接口间接实现的），对类即"所有子类"。
+     */
+    public synchronized List<TypeInfo> implementations(String name) {
+        return subtypes(name, true);
+    }
+
+    private List<TypeInfo> subtypes(String name, boolean classesOnly) {
+        Integer start = ids.get(name);
+        if (start == null) {
+            return Collections.emptyList();
+        }
+        List<TypeInfo> result = new ArrayList<>();
+        int head = 0;
+        int tail = 0;
+        epoch++;
+        visited[start] = epoch;
+        queue[tail++] = start;
+        while (head < tail) {
+            int current = queue[head++];
+            if (current != start && (!classesOnly || (access[current] & ClassHeader.ACC_INTERFACE) == 0)) {
+                result.add(info(current));
+            }
+            for (int i = 0; i < childCounts[current]; i++) {
+                int child = children[current][i];
+                if (visited[child] != epoch) {
+                    visited[child] = epoch;
+                    queue[tail++] = child;
+                }
+            }
+        }
+        return result;
+    }
+
+    private TypeInfo info(int id) {
+        return new TypeInfo(names[id], access[id], files[id]);
+    }
+
+    private int id(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (size == names.length) {
+            grow();
+        }
+        int newId = size++;
+        names[newId] = name;
+        access[newId] = UNKNOWN;
+        superIds[newId] = UNKNOWN;
+        ids.put(name, newId);
+        int start = Math.max(name.lastIndexOf('/'), name.lastIndexOf('$')) + 1;
+        simpleNames.computeIfAbsent(name.substring(start), key -> new ArrayList<>(1)).add(newId);
+        return newId;
+    }
+
+    private void addChild(int parent, int child) {
+        int[] list = children[parent];
+        if (list == null) {
+            list = new int[2];
+        } else if (childCounts[parent] == list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+        }
+        list[childCounts[parent]++] = child;
+        children[parent] = list;
+    }
+
+    private void removeChild(int parent, int child) {
+        int[] list = children[parent];
+        for (int i = 0; i < childCounts[parent]; i++) {
+            if (list[i] == child) {
+                list[i] = list[--childCounts[parent]];
+                return;
+            }
+        }
+    }
+
+    private void unlink(int id) {
+        if (superIds[id] != UNKNOWN) {
+            removeChild(superIds[id], id);
+        }
+        for (int parent : interfaceIds[id]) {
+            removeChild(parent, id);
+        }
+    }
+
+    private void grow() {
+        int capacity = names.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        access = Arrays.copyOf(access, capacity);
+        files = Arrays.copyOf(files, capacity);
+        superIds = Arrays.copyOf(superIds, capacity);
+        interfaceIds = Arrays.copyOf(interfaceIds, capacity);
+        children = Arrays.copyOf(children, capacity);
+        childCounts = Arrays.copyOf(childCounts, capacity);
+        visited = Arrays.copyOf(visited, capacity);
+        queue = Arrays.copyOf(queue, capacity);
+    }
+}
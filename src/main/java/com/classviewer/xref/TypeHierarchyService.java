@@ -0,0 +1,78 @@
+package com.classviewer.xref;
+
+import com.classviewer.service.JarExtractorService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 类型层次服务
+ * 选择目录时随目录扫描读取全部CLASS文件头建立索引，之后解压JAR时每解压出一个CLASS文件就增量加入。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TypeHierarchyService {
+
+    private final JarExtractorService jarExtractorService;
+
+    private final TypeHierarchy hierarchy = new TypeHierarchy();
+    private volatile Path root;
+
+    @PostConstruct
+    public void registerExtractionListener() {
+        jarExtractorService.addClassFileListener(this::onClassExtracted);
+    }
+
+    public TypeHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * 为目录重新建立索引
+     * @param relativePaths 目录扫描得到的文件相对路径，只处理其中的CLASS文件
+     */
+    public void index(Path directory, List<String> relativePaths) {
+        long startTime = System.currentTimeMillis();
+        Path base = directory.toAbsolutePath().normalize();
+        root = base;
+        hierarchy.clear();
+        AtomicInteger failed = new AtomicInteger();
+        relativePaths.parallelStream()
+                .filter(path -> path.endsWith(".class"))
+                .forEach(path -> {
+                    try {
+                        hierarchy.add(ClassHeader.read(base.resolve(path)), path);
+                    } catch (IOException | RuntimeException e) {
+                        failed.incrementAndGet();
+                        log.debug("读取CLASS文件头失败: {}", path, e);
+                    }
+                });
+        log.info("类型层次索引完成: {} - CLASS文件: {}（失败 {}），类型: {}, 耗时: {}ms", base,
+                hierarchy.declaredCount(), failed.get(), hierarchy.size(), System.currentTimeMillis() - startTime);
+    }
+
+    public void clear() {
+        root = null;
+        hierarchy.clear();
+    }
+
+    private void onClassExtracted(Path classFile) {
+        Path base = root;
+        Path absolute = classFile.toAbsolutePath().normalize();
+        String file = base != null && absolute.startsWith(base)
+                ? base.relativize(absolute).toString().replace('\\', '/')
+                : absolute.toString();
+        try {
+            hierarchy.add(ClassHeader.read(absolute), file);
+        } catch (IOException | RuntimeException e) {
+            log.debug("读取CLASS文件头失败: {}", classFile, e);
+        }
+    }
+}
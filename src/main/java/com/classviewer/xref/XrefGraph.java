@@ -0,0 +1,580 @@
+package com.classviewer.xref;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 交叉引用图（查找用法）
+ * 节点是类、方法和字段的符号（见 {@link #describe}），按符号字符串排序编号，同一个类的成员编号连续；
+ * 边是调用、字段读写和类型引用，按目标和来源各存一份CSR（压缩稀疏行）结构：
+ * 查找某个符号的用法只需读取 {@code inOffsets[id]..inOffsets[id+1]} 这一段，耗时与用法数成正比。
+ * 全部数据都是基本类型数组，原样写入磁盘，读取时整块复制，不需要重新解析CLASS文件。
+ * 实例不可变，可被多个线程同时查询。
+ */
+public final class XrefGraph {
+
+    public static final int CALL = 0;
+    public static final int READ = 1;
+    public static final int WRITE = 2;
+    public static final int TYPE = 3;
+
+    private static final String[] KIND_LABELS = {"调用", "读取", "写入", "类型引用"};
+
+    private static final int MAGIC = 0x43565852;
+    private static final int VERSION = 1;
+
+    private final long stamp;
+    private final byte[] symbolBytes;
+    private final int[] symbolOffsets;
+    /**
+     * 声明符号的文件编号，没有在扫描范围内声明（如JDK和第三方库）时为-1
+     */
+    private final int[] locations;
+    private final byte[] fileBytes;
+    private final int[] fileOffsets;
+    /**
+     * 按成员名排序的符号编号
+     */
+    private final int[] byName;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final byte[] inKinds;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final byte[] outKinds;
+
+    private XrefGraph(long stamp, byte[] symbolBytes, int[] symbolOffsets, int[] locations,
+                      byte[] fileBytes, int[] fileOffsets, int[] byName,
+                      int[] inOffsets, int[] inSources, byte[] inKinds,
+                      int[] outOffsets, int[] outTargets, byte[] outKinds) {
+        this.stamp = stamp;
+        this.symbolBytes = symbolBytes;
+        this.symbolOffsets = symbolOffsets;
+        this.locations = locations;
+        this.fileBytes = fileBytes;
+        this.fileOffsets = fileOffsets;
+        this.byName = byName;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.inKinds = inKinds;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.outKinds = outKinds;
+    }
+
+    /**
+     * 一条引用：另一端的符号和引用类型
+     */
+    public static final class Reference {
+        private final int symbol;
+        private final int kind;
+
+        Reference(int symbol, int kind) {
+            this.symbol = symbol;
+            this.kind = kind;
+        }
+
+        public int getSymbol() { return symbol; }
+        public int getKind() { return kind; }
+    }
+
+    public static String kindLabel(int kind) {
+        return KIND_LABELS[kind];
+    }
+
+    /**
+     * 生成该图时CLASS文件集合的标记，用于判断磁盘上的图是否过期
+     */
+    public long getStamp() {
+        return stamp;
+    }
+
+    public int symbolCount() {
+        return symbolOffsets.length - 1;
+    }
+
+    public int edgeCount() {
+        return inSources.length;
+    }
+
+    public int fileCount() {
+        return fileOffsets.length - 1;
+    }
+
+    /**
+     * 符号字符串：类为 {@code com/example/A}，方法为 {@code com/example/A.save(Lcom/example/User;)V}，
+     * 字段为 {@code com/example/A.name:Ljava/lang/String;}
+     */
+    public String symbol(int id) {
+        return new String(symbolBytes, symbolOffsets[id], symbolOffsets[id + 1] - symbolOffsets[id],
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 声明该符号的CLASS文件（相对路径），不在扫描范围内时返回null
+     */
+    public String file(int id) {
+        int file = locations[id];
+        return file < 0 ? null
+                : new String(fileBytes, fileOffsets[file], fileOffsets[file + 1] - fileOffsets[file],
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 按符号字符串查找
+     * @return 符号编号，不存在时返回-1
+     */
+    public int find(String symbol) {
+        int low = 0;
+        int high = symbolCount() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = symbol(mid).compareTo(symbol);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 类本身及其全部成员（包括只被引用、未在扫描范围内声明的成员）
+     * @param owner 类的内部名称，如 {@code com/example/A}
+     */
+    public List<Integer> members(String owner) {
+        List<Integer> result = new ArrayList<>();
+        int classId = find(owner);
+        if (classId >= 0) {
+            result.add(classId);
+        }
+        String prefix = owner + '.';
+        for (int id = lowerBound(prefix); id < symbolCount() && symbol(id).startsWith(prefix); id++) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * 按名称查找符号：方法名、字段名或类的简单名
+     */
+    public List<Integer> named(String name) {
+        int low = 0;
+        int high = byName.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (memberName(symbol(byName[mid])).compareTo(name) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        List<Integer> result = new ArrayList<>();
+        for (int i = low; i < byName.length && memberName(symbol(byName[i])).equals(name); i++) {
+            result.add(byName[i]);
+        }
+        return result;
+    }
+
+    /**
+     * 文件中声明的类
+     */
+    public List<Integer> classesIn(String file) {
+        int fileIndex = -1;
+        byte[] key = file.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < fileCount() && fileIndex < 0; i++) {
+            if (fileOffsets[i + 1] - fileOffsets[i] == key.length
+                    && Arrays.equals(Arrays.copyOfRange(fileBytes, fileOffsets[i], fileOffsets[i + 1]), key)) {
+                fileIndex = i;
+            }
+        }
+        List<Integer> result = new ArrayList<>();
+        if (fileIndex < 0) {
+            return result;
+        }
+        for (int id = 0; id < locations.length; id++) {
+            if (locations[id] == fileIndex && isClass(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    public boolean isClass(int id) {
+        for (int i = symbolOffsets[id]; i < symbolOffsets[id + 1]; i++) {
+            if (symbolBytes[i] == '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 符号的用法（谁引用了它）
+     */
+    public List<Reference> usages(int id) {
+        return references(inOffsets, inSources, inKinds, id);
+    }
+
+    /**
+     * 符号引用了哪些符号
+     */
+    public List<Reference> referencesFrom(int id) {
+        return references(outOffsets, outTargets, outKinds, id);
+    }
+
+    public int usageCount(int id) {
+        return inOffsets[id + 1] - inOffsets[id];
+    }
+
+    private static List<Reference> references(int[] offsets, int[] ends, byte[] kinds, int id) {
+        int start = offsets[id];
+        int end = offsets[id + 1];
+        if (start == end) {
+            return Collections.emptyList();
+        }
+        List<Reference> result = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            result.add(new Reference(ends[i], kinds[i]));
+        }
+        return result;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = symbolCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (symbol(mid).compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 符号中的名称部分：成员名，或类的简单名（不含包名和外部类名）
+     */
+    static String memberName(String symbol) {
+        int dot = symbol.indexOf('.');
+        if (dot < 0) {
+            int start = Math.max(symbol.lastIndexOf('/'), symbol.lastIndexOf('$')) + 1;
+            return symbol.substring(start);
+        }
+        int end = dot + 1;
+        while (end < symbol.length() && symbol.charAt(end) != '(' && symbol.charAt(end) != ':') {
+            end++;
+        }
+        return symbol.substring(dot + 1, end);
+    }
+
+    /**
+     * 便于阅读的符号名称，如 {@code com.example.A.save(com.example.User)}
+     */
+    public static String describe(String symbol) {
+        int dot = symbol.indexOf('.');
+        if (dot < 0) {
+            return symbol.replace('/', '.');
+        }
+        String owner = symbol.substring(0, dot).replace('/', '.');
+        String name = memberName(symbol);
+        int descStart = dot + 1 + name.length();
+        if (descStart >= symbol.length() || symbol.charAt(descStart) == ':') {
+            return owner + "." + name;
+        }
+        StringBuilder builder = new StringBuilder(owner).append('.').append(name).append('(');
+        String descriptor = symbol.substring(descStart);
+        int i = 1;
+        boolean first = true;
+        while (i < descriptor.length() && descriptor.charAt(i) != ')') {
+            int dims = 0;
+            while (descriptor.charAt(i) == '[') {
+                dims++;
+                i++;
+            }
+            String type;
+            if (descriptor.charAt(i) == 'L') {
+                int end = descriptor.indexOf(';', i);
+                type = descriptor.substring(i + 1, end);
+                type = type.substring(type.lastIndexOf('/') + 1);
+                i = end + 1;
+            } else {
+                type = primitiveName(descriptor.charAt(i));
+                i++;
+            }
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append(type);
+            for (int d = 0; d < dims; d++) {
+                builder.append("[]");
+            }
+        }
+        return builder.append(')').toString();
+    }
+
+    private static String primitiveName(char c) {
+        switch (c) {
+            case 'Z': return "boolean";
+            case 'B': return "byte";
+            case 'C': return "char";
+            case 'S': return "short";
+            case 'I': return "int";
+            case 'J': return "long";
+            case 'F': return "float";
+            case 'D': return "double";
+            default: return "void";
+        }
+    }
+
+    /**
+     * 合并各CLASS文件的扫描结果
+     * @param files 文件编号对应的相对路径
+     */
+    static XrefGraph build(List<ClassRefs> classes, List<String> files, long stamp) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> symbols = new ArrayList<>();
+        int[] locations = new int[1024];
+        long[] edges = new long[1024];
+        int edgeCount = 0;
+        for (ClassRefs refs : classes) {
+            int[] global = new int[refs.symbolCount];
+            for (int i = 0; i < refs.symbolCount; i++) {
+                String symbol = refs.symbols[i];
+                Integer id = ids.get(symbol);
+                if (id == null) {
+                    id = symbols.size();
+                    ids.put(symbol, id);
+                    symbols.add(symbol);
+                    if (id == locations.length) {
+                        locations = Arrays.copyOf(locations, id * 2);
+                    }
+                    locations[id] = -1;
+                }
+                global[i] = id;
+            }
+            for (int i = 0; i < refs.declaredCount; i++) {
+                int id = global[refs.declared[i]];
+                // 同一个类出现在多个位置时（如多个shade包）取第一个
+                if (locations[id] < 0) {
+                    locations[id] = refs.file;
+                }
+            }
+            if (edgeCount + refs.edgeCount / 3 > edges.length) {
+                edges = Arrays.copyOf(edges, Math.max(edges.length * 2, edgeCount + refs.edgeCount / 3));
+            }
+            for (int i = 0; i < refs.edgeCount; i += 3) {
+                edges[edgeCount++] = pack(global[refs.edges[i]], global[refs.edges[i + 1]], refs.edges[i + 2]);
+            }
+        }
+
+        // 按符号字符串重新编号，同一个类的成员编号连续
+        int symbolCount = symbols.size();
+        Integer[] order = new Integer[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(symbols::get));
+        int[] rank = new int[symbolCount];
+        int[] sortedLocations = new int[symbolCount];
+        ByteArrayBuilder symbolBytes = new ByteArrayBuilder(symbolCount * 32);
+        int[] symbolOffsets = new int[symbolCount + 1];
+        for (int i = 0; i < symbolCount; i++) {
+            rank[order[i]] = i;
+            sortedLocations[i] = locations[order[i]];
+            symbolBytes.append(symbols.get(order[i]));
+            symbolOffsets[i + 1] = symbolBytes.size();
+        }
+
+        // 按目标排序去重，生成用法（入边）CSR
+        for (int i = 0; i < edgeCount; i++) {
+            long edge = edges[i];
+            edges[i] = pack(rank[(int) (edge >>> 2)], rank[(int) (edge >>> 34)], (int) (edge & 3));
+        }
+        Arrays.sort(edges, 0, edgeCount);
+        int unique = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (unique == 0 || edges[unique - 1] != edges[i]) {
+                edges[unique++] = edges[i];
+            }
+        }
+        int[] inOffsets = new int[symbolCount + 1];
+        int[] inSources = new int[unique];
+        byte[] inKinds = new byte[unique];
+        for (int i = 0; i < unique; i++) {
+            inOffsets[(int) (edges[i] >>> 34) + 1]++;
+            inSources[i] = (int) (edges[i] >>> 2);
+            inKinds[i] = (byte) (edges[i] & 3);
+        }
+        // 再按来源排序，生成引用（出边）CSR
+        for (int i = 0; i < unique; i++) {
+            long edge = edges[i];
+            edges[i] = pack((int) (edge >>> 2), (int) (edge >>> 34), (int) (edge & 3));
+        }
+        Arrays.sort(edges, 0, unique);
+        int[] outOffsets = new int[symbolCount + 1];
+        int[] outTargets = new int[unique];
+        byte[] outKinds = new byte[unique];
+        for (int i = 0; i < unique; i++) {
+            outOffsets[(int) (edges[i] >>> 34) + 1]++;
+            outTargets[i] = (int) (edges[i] >>> 2);
+            outKinds[i] = (byte) (edges[i] & 3);
+        }
+        for (int i = 0; i < symbolCount; i++) {
+            inOffsets[i + 1] += inOffsets[i];
+            outOffsets[i + 1] += outOffsets[i];
+        }
+
+        Integer[] nameOrder = new Integer[symbolCount];
+        String[] names = new String[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            nameOrder[i] = i;
+            names[i] = memberName(symbols.get(order[i]));
+        }
+        Arrays.sort(nameOrder, Comparator.<Integer, String>comparing(i -> names[i]).thenComparingInt(i -> i));
+        int[] byName = new int[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            byName[i] = nameOrder[i];
+        }
+
+        ByteArrayBuilder fileBytes = new ByteArrayBuilder(files.size() * 64);
+        int[] fileOffsets = new int[files.size() + 1];
+        for (int i = 0; i < files.size(); i++) {
+            fileBytes.append(files.get(i));
+            fileOffsets[i + 1] = fileBytes.size();
+        }
+
+        return new XrefGraph(stamp, symbolBytes.toArray(), symbolOffsets, sortedLocations,
+                fileBytes.toArray(), fileOffsets, byName,
+                inOffsets, inSources, inKinds, outOffsets, outTargets, outKinds);
+    }
+
+    /**
+     * 边编码为一个long：高30位为排序键，中间32位为另一端，低2位为引用类型
+     */
+    private static long pack(int key, int other, int kind) {
+        return ((long) key << 34) | ((other & 0xFFFFFFFFL) << 2) | kind;
+    }
+
+    /**
+     * 写入磁盘：先写临时文件再替换，写入中途崩溃不会留下损坏的图
+     */
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream fileOut = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(stamp);
+            writeBytes(out, symbolBytes);
+            writeInts(out, symbolOffsets);
+            writeInts(out, locations);
+            writeBytes(out, fileBytes);
+            writeInts(out, fileOffsets);
+            writeInts(out, byName);
+            writeInts(out, inOffsets);
+            writeInts(out, inSources);
+            writeBytes(out, inKinds);
+            writeInts(out, outOffsets);
+            writeInts(out, outTargets);
+            writeBytes(out, outKinds);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 从磁盘读取
+     * @throws IOException 文件格式或版本不符
+     */
+    public static XrefGraph read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 16 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("交叉引用索引格式不符: " + file);
+            }
+            try {
+                long stamp = buffer.getLong();
+                return new XrefGraph(stamp, readBytes(buffer), readInts(buffer), readInts(buffer),
+                        readBytes(buffer), readInts(buffer), readInts(buffer),
+                        readInts(buffer), readInts(buffer), readBytes(buffer),
+                        readInts(buffer), readInts(buffer), readBytes(buffer));
+            } catch (RuntimeException e) {
+                throw new IOException("交叉引用索引已损坏: " + file, e);
+            }
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] values) throws IOException {
+        out.writeInt(values.length);
+        out.write(values);
+    }
+
+    private static int[] readInts(ByteBuffer buffer) {
+        int[] values = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * 4);
+        return values;
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] values = new byte[buffer.getInt()];
+        buffer.get(values);
+        return values;
+    }
+
+    private static final class ByteArrayBuilder {
+        private byte[] bytes;
+        private int size;
+
+        ByteArrayBuilder(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void append(String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            if (size + encoded.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + encoded.length));
+            }
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
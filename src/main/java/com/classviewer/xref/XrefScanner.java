@@ -0,0 +1,146 @@
+package com.classviewer.xref;
+
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.FieldVisitor;
+import org.springframework.asm.Handle;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+/**
+ * 字节码引用扫描
+ * 只读取常量池和方法指令（跳过调试信息和栈帧），记录方法调用、字段读写、类型引用（new、checkcast、instanceof、类字面量），
+ * 以及 invokedynamic 引导参数中的方法句柄（lambda和方法引用的实际目标）。
+ */
+final class XrefScanner {
+
+    private XrefScanner() {
+    }
+
+    static ClassRefs scan(byte[] bytes, int file) {
+        ClassReader reader = new ClassReader(bytes);
+        ClassRefs refs = new ClassRefs(reader.getClassName(), file);
+        reader.accept(new RefClassVisitor(refs), ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return refs;
+    }
+
+    /**
+     * 成员的符号：方法为 owner.name(desc)ret，字段为 owner.name:desc，类本身为 owner
+     */
+    static String methodKey(String owner, String name, String descriptor) {
+        return owner + '.' + name + descriptor;
+    }
+
+    static String fieldKey(String owner, String name, String descriptor) {
+        return owner + '.' + name + ':' + descriptor;
+    }
+
+    private static final class RefClassVisitor extends ClassVisitor {
+        private final ClassRefs refs;
+
+        RefClassVisitor(ClassRefs refs) {
+            super(Opcodes.ASM9);
+            this.refs = refs;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                          String[] interfaces) {
+            refs.declare(name);
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            refs.declare(fieldKey(refs.owner, name, descriptor));
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                         String[] exceptions) {
+            String key = methodKey(refs.owner, name, descriptor);
+            refs.declare(key);
+            return new RefMethodVisitor(refs, refs.symbol(key));
+        }
+    }
+
+    private static final class RefMethodVisitor extends MethodVisitor {
+        private final ClassRefs refs;
+        private final int caller;
+
+        RefMethodVisitor(ClassRefs refs, int caller) {
+            super(Opcodes.ASM9);
+            this.refs = refs;
+            this.caller = caller;
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            // 数组的clone()等方法没有对应的类
+            if (owner.charAt(0) != '[') {
+                refs.reference(caller, methodKey(owner, name, descriptor), XrefGraph.CALL);
+            }
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            int kind = opcode == Opcodes.GETFIELD || opcode == Opcodes.GETSTATIC ? XrefGraph.READ : XrefGraph.WRITE;
+            refs.reference(caller, fieldKey(owner, name, descriptor), kind);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            typeReference(type.charAt(0) == '[' ? Type.getType(type) : Type.getObjectType(type));
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+            typeReference(Type.getType(descriptor));
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            constantReference(value);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+                                           Object... bootstrapMethodArguments) {
+            for (Object argument : bootstrapMethodArguments) {
+                constantReference(argument);
+            }
+        }
+
+        private void constantReference(Object value) {
+            if (value instanceof Type) {
+                typeReference((Type) value);
+            } else if (value instanceof Handle) {
+                Handle handle = (Handle) value;
+                if (handle.getOwner().charAt(0) == '[') {
+                    return;
+                }
+                int tag = handle.getTag();
+                if (tag == Opcodes.H_GETFIELD || tag == Opcodes.H_GETSTATIC) {
+                    refs.reference(caller, fieldKey(handle.getOwner(), handle.getName(), handle.getDesc()),
+                            XrefGraph.READ);
+                } else if (tag == Opcodes.H_PUTFIELD || tag == Opcodes.H_PUTSTATIC) {
+                    refs.reference(caller, fieldKey(handle.getOwner(), handle.getName(), handle.getDesc()),
+                            XrefGraph.WRITE);
+                } else {
+                    refs.reference(caller, methodKey(handle.getOwner(), handle.getName(), handle.getDesc()),
+                            XrefGraph.CALL);
+                }
+            }
+        }
+
+        private void typeReference(Type type) {
+            while (type.getSort() == Type.ARRAY) {
+                type = type.getElementType();
+            }
+            if (type.getSort() == Type.OBJECT) {
+                refs.reference(caller, type.getInternalName(), XrefGraph.TYPE);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.classviewer.xref;
+
+import com.classviewer.service.BatchDecompilerService;
+import com.classviewer.service.JarExtractorService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 交叉引用服务
+ * 并行扫描目录中全部CLASS文件的字节码，生成 {@link XrefGraph} 并保存到 ~/.classviewer/xref/。
+ * 再次打开同一目录时，CLASS文件的路径、大小和修改时间都没有变化就直接读取磁盘上的图，不再扫描。
+ * 图加载后只在CLASS文件变化（解压、目录监听、重新扫描目录时调用 {@link #invalidate()}）后才重新核对，
+ * 其余查询直接使用内存中的图，不访问文件系统。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class XrefService {
+
+    private final BatchDecompilerService batchDecompilerService;
+    private final JarExtractorService jarExtractorService;
+
+    private Path currentDirectory;
+    private XrefGraph currentGraph;
+    // CLASS文件的变化次数；已加载的图核对时的次数与之相同时仍然有效
+    private final AtomicLong changes = new AtomicLong();
+    private long validAt = -1;
+
+    @PostConstruct
+    public void registerExtractionListener() {
+        jarExtractorService.addClassFileListener(classFile -> invalidate());
+    }
+
+    /**
+     * CLASS文件有变化，下次加载时重新核对
+     */
+    public void invalidate() {
+        changes.incrementAndGet();
+    }
+
+    /**
+     * 获取目录的交叉引用图，必要时重新扫描
+     * @param progressCallback 扫描进度回调，可为null
+     */
+    public synchronized XrefGraph load(Path directory, BatchDecompilerService.ProgressCallback progressCallback)
+            throws IOException {
+        Path root = directory.toAbsolutePath().normalize();
+        long checkedAt = changes.get();
+        if (currentGraph != null && root.equals(currentDirectory) && validAt == checkedAt) {
+            return currentGraph;
+        }
+        List<Path> classFiles = batchDecompilerService.findAllClassFiles(root);
+        classFiles.sort(null);
+        long stamp = stampOf(root, classFiles);
+        if (currentGraph != null && root.equals(currentDirectory) && currentGraph.getStamp() == stamp) {
+            validAt = checkedAt;
+            return currentGraph;
+        }
+
+        Path indexFile = indexFileFor(root);
+        XrefGraph graph = null;
+        if (Files.exists(indexFile)) {
+            try {
+                long loadStart = System.currentTimeMillis();
+                XrefGraph stored = XrefGraph.read(indexFile);
+                if (stored.getStamp() == stamp) {
+                    graph = stored;
+                    log.info("读取交叉引用索引: {} - 符号: {}, 引用: {}, 耗时: {}ms", indexFile,
+                            graph.symbolCount(), graph.edgeCount(), System.currentTimeMillis() - loadStart);
+                } else {
+                    log.info("CLASS文件有变化，重新生成交叉引用索引: {}", root);
+                }
+            } catch (IOException e) {
+                log.warn("读取交叉引用索引失败，重新生成: {}", indexFile, e);
+            }
+        }
+        if (graph == null) {
+            graph = build(root, classFiles, stamp, progressCallback);
+            try {
+                graph.write(indexFile);
+            } catch (IOException e) {
+                log.warn("保存交叉引用索引失败: {}", indexFile, e);
+            }
+        }
+        currentDirectory = root;
+        currentGraph = graph;
+        // 核对期间又有变化时保持失效，下次重新核对
+        validAt = checkedAt;
+        return graph;
+    }
+
+    /**
+     * 当前已加载的交叉引用图
+     * @param directory 目录，与已加载的目录不同时返回null
+     */
+    public synchronized XrefGraph current(Path directory) {
+        return currentGraph != null && directory.toAbsolutePath().normalize().equals(currentDirectory)
+                ? currentGraph : null;
+    }
+
+    public synchronized void clear() {
+        currentDirectory = null;
+        currentGraph = null;
+        validAt = -1;
+    }
+
+    private XrefGraph build(Path root, List<Path> classFiles, long stamp,
+                            BatchDecompilerService.ProgressCallback progressCallback) {
+        long startTime = System.currentTimeMillis();
+        int total = classFiles.size();
+        List<String> files = new ArrayList<>(total);
+        for (Path classFile : classFiles) {
+            files.add(relativePath(root, classFile));
+        }
+
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        int step = Math.max(1, total / 100);
+        List<ClassRefs> classes = IntStream.range(0, total).parallel()
+                .mapToObj(i -> {
+                    ClassRefs refs = null;
+                    try {
+                        refs = XrefScanner.scan(Files.readAllBytes(classFiles.get(i)), i);
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        log.debug("扫描CLASS文件失败: {}", classFiles.get(i), e);
+                    }
+                    int current = done.incrementAndGet();
+                    if (progressCallback != null && (current % step == 0 || current == total)) {
+                        progressCallback.onProgress(current, total, files.get(i));
+                    }
+                    return refs;
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        long scanned = System.currentTimeMillis();
+
+        XrefGraph graph = XrefGraph.build(classes, files, stamp);
+        log.info("交叉引用索引生成完成: {} - CLASS文件: {}（失败 {}），符号: {}, 引用: {}, 扫描耗时: {}ms, 合并耗时: {}ms",
+                root, total, failed.get(), graph.symbolCount(), graph.edgeCount(),
+                scanned - startTime, System.currentTimeMillis() - scanned);
+        return graph;
+    }
+
+    /**
+     * CLASS文件集合的标记：相对路径、大小和修改时间的FNV-1a散列
+     */
+    private static long stampOf(Path root, List<Path> classFiles) throws IOException {
+        long hash = 0xcbf29ce484222325L;
+        for (Path classFile : classFiles) {
+            BasicFileAttributes attributes = Files.readAttributes(classFile, BasicFileAttributes.class);
+            for (byte b : relativePath(root, classFile).getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+            }
+            hash = (hash ^ attributes.size()) * 0x100000001b3L;
+            hash = (hash ^ attributes.lastModifiedTime().toMillis()) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static String relativePath(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    public static Path indexFileFor(Path directory) {
+        Path absolute = directory.toAbsolutePath().normalize();
+        Path name = absolute.getFileName();
+        String baseName = name != null ? name.toString() : "root";
+        String hash = Integer.toHexString(absolute.toString().hashCode());
+        return Paths.get(System.getProperty("user.home"), ".classviewer", "xref", baseName + "-" + hash + ".xref");
+    }
+}
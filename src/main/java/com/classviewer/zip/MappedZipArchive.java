@@ -0,0 +1,225 @@
+package com.classviewer.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * 基于内存映射的ZIP/JAR读取器
+ * 中央目录解析为 {@link ZipEntryTable}，条目数据以映射缓冲区切片的形式访问，不经过JarFile和临时文件。
+ * STORED方式存放的嵌套JAR（如Spring Boot的BOOT-INF/lib/*.jar）在外层文件中是连续的字节区间，
+ * 可以直接作为切片再次打开，无需复制。
+ * 条目以条目表中的下标表示。实例不可变，切片之间互不影响，可被多个线程同时读取。
+ */
+public class MappedZipArchive {
+
+    public static final int STORED = 0;
+    public static final int DEFLATED = 8;
+
+    /**
+     * 可映射的最大文件大小（单个MappedByteBuffer的上限）
+     */
+    public static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final int COPY_CHUNK = 64 * 1024;
+
+    private final String name;
+    private final ByteBuffer buffer;
+    private final ZipEntryTable entries;
+
+    private MappedZipArchive(String name, ByteBuffer buffer) throws IOException {
+        this.name = name;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.entries = ZipEntryTable.read(this.buffer, name);
+    }
+
+    /**
+     * 以内存映射方式打开文件
+     * 映射在缓冲区被回收前一直有效；在Windows上映射期间无法删除该文件，需要随后删除的文件请使用 {@link #load(Path)}
+     */
+    public static MappedZipArchive open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAX_MAPPED_SIZE) {
+                throw new ZipException("文件超过2GB，无法映射: " + file);
+            }
+            return new MappedZipArchive(file.toString(), channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * 将文件整体读入堆内存后打开
+     */
+    public static MappedZipArchive load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAX_MAPPED_SIZE) {
+                throw new ZipException("文件超过2GB，无法读取: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满为止
+            }
+            buffer.flip();
+            return new MappedZipArchive(file.toString(), buffer);
+        }
+    }
+
+    /**
+     * 把STORED方式存放的嵌套ZIP作为切片打开，不复制数据
+     */
+    public MappedZipArchive openNested(int entry) throws IOException {
+        if (entries.method(entry) != STORED) {
+            throw new ZipException("只能直接打开STORED方式的嵌套条目: " + entries.name(entry));
+        }
+        return new MappedZipArchive(name + "!/" + entries.name(entry), data(entry));
+    }
+
+    /**
+     * 打开嵌套ZIP：STORED方式直接切片，压缩方式解压到堆内存
+     */
+    public MappedZipArchive readNested(int entry) throws IOException {
+        if (entries.method(entry) == STORED) {
+            return openNested(entry);
+        }
+        long size = entries.uncompressedSize(entry);
+        if (size > MAX_MAPPED_SIZE) {
+            throw new ZipException("嵌套条目超过2GB，无法读取: " + entries.name(entry));
+        }
+        ByteBuffer target = ByteBuffer.allocate((int) size);
+        copyTo(entry, new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                int length = src.remaining();
+                if (length > target.remaining()) {
+                    throw new ZipException("解压后大小与中央目录不符: " + entries.name(entry));
+                }
+                target.put(src);
+                return length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        target.flip();
+        return new MappedZipArchive(name + "!/" + entries.name(entry), target);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 归档的字节数
+     */
+    public long size() {
+        return buffer.capacity();
+    }
+
+    /**
+     * 中央目录条目表
+     */
+    public ZipEntryTable entries() {
+        return entries;
+    }
+
+    /**
+     * 条目在归档中的原始数据（压缩后的字节）切片
+     */
+    public ByteBuffer data(int entry) throws IOException {
+        long localOffset = entries.localHeaderOffset(entry);
+        if (localOffset < 0 || localOffset + LOCAL_HEADER_SIZE > buffer.capacity()
+                || buffer.getInt((int) localOffset) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("无效的本地文件头: " + entries.name(entry));
+        }
+        int pos = (int) localOffset;
+        long dataStart = localOffset + LOCAL_HEADER_SIZE
+                + (buffer.getShort(pos + 26) & 0xFFFF) + (buffer.getShort(pos + 28) & 0xFFFF);
+        return slice(dataStart, entries.compressedSize(entry), entries.name(entry));
+    }
+
+    /**
+     * 读取条目内容（解压后）并写入通道
+     * @return 写入的字节数
+     */
+    public long copyTo(int entry, WritableByteChannel target) throws IOException {
+        ByteBuffer data = data(entry);
+        int method = entries.method(entry);
+        if (method == STORED) {
+            long written = 0;
+            while (data.hasRemaining()) {
+                written += target.write(data);
+            }
+            return written;
+        }
+        if (method != DEFLATED) {
+            throw new ZipException("不支持的压缩方式 " + method + ": " + entries.name(entry));
+        }
+        return inflate(entry, data, target);
+    }
+
+    private long inflate(int entry, ByteBuffer data, WritableByteChannel target) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            byte[] input = new byte[COPY_CHUNK];
+            byte[] output = new byte[COPY_CHUNK];
+            ByteBuffer outputBuffer = ByteBuffer.wrap(output);
+            boolean dummyByteSupplied = false;
+            long written = 0;
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (data.hasRemaining()) {
+                        int length = Math.min(input.length, data.remaining());
+                        data.get(input, 0, length);
+                        inflater.setInput(input, 0, length);
+                    } else if (!dummyByteSupplied) {
+                        // nowrap模式下zlib可能需要一个额外的填充字节才能结束
+                        input[0] = 0;
+                        inflater.setInput(input, 0, 1);
+                        dummyByteSupplied = true;
+                    } else {
+                        throw new ZipException("压缩数据不完整: " + entries.name(entry));
+                    }
+                }
+                int count = inflater.inflate(output);
+                if (count == 0 && inflater.needsDictionary()) {
+                    throw new ZipException("压缩数据无效: " + entries.name(entry));
+                }
+                outputBuffer.clear().limit(count);
+                while (outputBuffer.hasRemaining()) {
+                    written += target.write(outputBuffer);
+                }
+            }
+            return written;
+        } catch (DataFormatException e) {
+            throw new ZipException("压缩数据无效: " + entries.name(entry) + " (" + e.getMessage() + ")");
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private ByteBuffer slice(long offset, long length, String what) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > buffer.capacity()) {
+            throw new ZipException("数据超出归档范围: " + what);
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.limit((int) (offset + length)).position((int) offset);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,355 @@
+package com.classviewer.zip;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.ZipException;
+
+/**
+ * 中央目录条目表
+ * 一次顺序扫描中央目录，把每个条目的偏移、大小、压缩方式、CRC存入基本类型数组，
+ * 名称以UTF-8字节连续存放在同一个字节数组中，另附按名称排序的下标，
+ * 不为每个条目创建对象，二十万个条目的表只占几MB。
+ * 条目下标即中央目录中的顺序；排序按UTF-8字节序（即Unicode码点顺序）。
+ * 构建完成后不可变，可被多个线程同时读取。
+ */
+public final class ZipEntryTable {
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_END_SIZE = 56;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final long MAGIC_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+
+    private final int size;
+    private final short[] methods;
+    private final int[] crcs;
+    private final long[] compressedSizes;
+    private final long[] sizes;
+    private final long[] localHeaderOffsets;
+    private final byte[] names;
+    private final int[] nameOffsets;
+    private final int[] sortedIndex;
+
+    private ZipEntryTable(int size, short[] methods, int[] crcs, long[] compressedSizes, long[] sizes,
+                          long[] localHeaderOffsets, byte[] names, int[] nameOffsets) {
+        this.size = size;
+        this.methods = methods;
+        this.crcs = crcs;
+        this.compressedSizes = compressedSizes;
+        this.sizes = sizes;
+        this.localHeaderOffsets = localHeaderOffsets;
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.sortedIndex = sortByName();
+    }
+
+    /**
+     * 解析归档的中央目录
+     * @param archive 整个归档的内容（小端序读取，不改变其位置）
+     * @param archiveName 用于错误信息的归档名称
+     */
+    public static ZipEntryTable read(ByteBuffer archive, String archiveName) throws ZipException {
+        ByteBuffer buffer = archive.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int endPos = findEnd(buffer, archiveName);
+        long entryCount = buffer.getShort(endPos + 10) & 0xFFFF;
+        long directorySize = buffer.getInt(endPos + 12) & MAGIC_32;
+        long directoryOffset = buffer.getInt(endPos + 16) & MAGIC_32;
+        long directoryPos = endPos - directorySize;
+
+        // ZIP64：条目数或偏移溢出时从ZIP64结束记录读取
+        int locatorPos = endPos - ZIP64_LOCATOR_SIZE;
+        if (locatorPos >= 0 && buffer.getInt(locatorPos) == ZIP64_LOCATOR_SIGNATURE) {
+            int zip64EndPos = findZip64End(buffer, locatorPos, buffer.getLong(locatorPos + 8), archiveName);
+            entryCount = buffer.getLong(zip64EndPos + 32);
+            directorySize = buffer.getLong(zip64EndPos + 40);
+            directoryOffset = buffer.getLong(zip64EndPos + 48);
+            directoryPos = zip64EndPos - directorySize;
+        } else if (directorySize >= (MAX_16 + 1L) * CENTRAL_HEADER_SIZE && directoryPos >= 0) {
+            // 没有ZIP64记录时条目数字段只有16位，超过65535个条目的归档只记录了低16位；
+            // 中央目录大到可能溢出时与 java.util.zip 一样逐条计数
+            long counted = countEntries(buffer, directoryPos, directoryPos + directorySize);
+            if ((counted & MAX_16) != entryCount) {
+                throw new ZipException("中央目录条目数不一致: " + archiveName);
+            }
+            entryCount = counted;
+        }
+        if (directoryPos < 0 || directoryOffset > directoryPos
+                || entryCount > directorySize / CENTRAL_HEADER_SIZE) {
+            throw new ZipException("无效的中央目录: " + archiveName);
+        }
+        // 归档前可能有附加数据（如可执行JAR的启动脚本），中央目录中的偏移需要加上这段前缀
+        long base = directoryPos - directoryOffset;
+
+        int count = (int) entryCount;
+        short[] methods = new short[count];
+        int[] crcs = new int[count];
+        long[] compressedSizes = new long[count];
+        long[] sizes = new long[count];
+        long[] localHeaderOffsets = new long[count];
+        int[] nameOffsets = new int[count + 1];
+        // 名称总长度不超过中央目录大小
+        byte[] names = new byte[(int) Math.min(directorySize, Integer.MAX_VALUE - 8)];
+        int namesLength = 0;
+
+        int pos = (int) directoryPos;
+        int end = (int) (directoryPos + directorySize);
+        for (int i = 0; i < count; i++) {
+            if (pos + CENTRAL_HEADER_SIZE > end || buffer.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("无效的中央目录条目: " + archiveName);
+            }
+            int nameLength = buffer.getShort(pos + 28) & 0xFFFF;
+            int extraLength = buffer.getShort(pos + 30) & 0xFFFF;
+            int commentLength = buffer.getShort(pos + 32) & 0xFFFF;
+            if (pos + CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength > end) {
+                throw new ZipException("无效的中央目录条目: " + archiveName);
+            }
+            long compressedSize = buffer.getInt(pos + 20) & MAGIC_32;
+            long size = buffer.getInt(pos + 24) & MAGIC_32;
+            long localOffset = buffer.getInt(pos + 42) & MAGIC_32;
+
+            if (size == MAGIC_32 || compressedSize == MAGIC_32 || localOffset == MAGIC_32) {
+                // ZIP64扩展字段按 原始大小、压缩后大小、本地头偏移 的顺序只存放溢出的值
+                int extra = pos + CENTRAL_HEADER_SIZE + nameLength;
+                int extraEnd = extra + extraLength;
+                while (extra + 4 <= extraEnd) {
+                    int id = buffer.getShort(extra) & 0xFFFF;
+                    int length = buffer.getShort(extra + 2) & 0xFFFF;
+                    if (id == ZIP64_EXTRA_ID) {
+                        int field = extra + 4;
+                        if (size == MAGIC_32) {
+                            size = buffer.getLong(field);
+                            field += 8;
+                        }
+                        if (compressedSize == MAGIC_32) {
+                            compressedSize = buffer.getLong(field);
+                            field += 8;
+                        }
+                        if (localOffset == MAGIC_32) {
+                            localOffset = buffer.getLong(field);
+                        }
+                        break;
+                    }
+                    extra += 4 + length;
+                }
+            }
+
+            methods[i] = buffer.getShort(pos + 10);
+            crcs[i] = buffer.getInt(pos + 16);
+            compressedSizes[i] = compressedSize;
+            sizes[i] = size;
+            localHeaderOffsets[i] = base + localOffset;
+            nameOffsets[i] = namesLength;
+            ByteBuffer name = buffer.duplicate();
+            name.position(pos + CENTRAL_HEADER_SIZE);
+            name.get(names, namesLength, nameLength);
+            namesLength += nameLength;
+
+            pos += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        nameOffsets[count] = namesLength;
+        return new ZipEntryTable(count, methods, crcs, compressedSizes, sizes, localHeaderOffsets,
+                Arrays.copyOf(names, namesLength), nameOffsets);
+    }
+
+    /**
+     * 统计中央目录中的条目数，遇到无效条目时停止
+     */
+    private static long countEntries(ByteBuffer buffer, long start, long end) {
+        long count = 0;
+        long pos = start;
+        while (pos + CENTRAL_HEADER_SIZE <= end && buffer.getInt((int) pos) == CENTRAL_HEADER_SIGNATURE) {
+            int nameLength = buffer.getShort((int) pos + 28) & 0xFFFF;
+            int extraLength = buffer.getShort((int) pos + 30) & 0xFFFF;
+            int commentLength = buffer.getShort((int) pos + 32) & 0xFFFF;
+            pos += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+            count++;
+        }
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int index) {
+        return new String(names, nameOffsets[index], nameLength(index), StandardCharsets.UTF_8);
+    }
+
+    public int method(int index) {
+        return methods[index] & 0xFFFF;
+    }
+
+    public int crc(int index) {
+        return crcs[index];
+    }
+
+    public long compressedSize(int index) {
+        return compressedSizes[index];
+    }
+
+    public long uncompressedSize(int index) {
+        return sizes[index];
+    }
+
+    public long localHeaderOffset(int index) {
+        return localHeaderOffsets[index];
+    }
+
+    public boolean isDirectory(int index) {
+        int length = nameLength(index);
+        return length > 0 && names[nameOffsets[index] + length - 1] == '/';
+    }
+
+    /**
+     * 名称是否以指定后缀结尾（忽略ASCII大小写），不创建字符串
+     */
+    public boolean nameEndsWith(int index, String asciiSuffix) {
+        int length = nameLength(index);
+        int suffixLength = asciiSuffix.length();
+        if (length < suffixLength) {
+            return false;
+        }
+        int start = nameOffsets[index] + length - suffixLength;
+        for (int i = 0; i < suffixLength; i++) {
+            int c = names[start + i];
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            int expected = Character.toLowerCase(asciiSuffix.charAt(i));
+            if (c != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按名称排序后第 rank 个条目的下标
+     */
+    public int sortedEntry(int rank) {
+        return sortedIndex[rank];
+    }
+
+    /**
+     * 按名称查找条目（二分查找）
+     * @return 条目下标，不存在时返回-1
+     */
+    public int find(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int index = sortedIndex[mid];
+            int cmp = compareName(index, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private int nameLength(int index) {
+        return nameOffsets[index + 1] - nameOffsets[index];
+    }
+
+    private int compareName(int index, byte[] key) {
+        int offset = nameOffsets[index];
+        int length = nameLength(index);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = (names[offset + i] & 0xFF) - (key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    private int compareNames(int first, int second) {
+        int firstOffset = nameOffsets[first];
+        int secondOffset = nameOffsets[second];
+        int firstLength = nameLength(first);
+        int secondLength = nameLength(second);
+        int common = Math.min(firstLength, secondLength);
+        for (int i = 0; i < common; i++) {
+            int cmp = (names[firstOffset + i] & 0xFF) - (names[secondOffset + i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return firstLength - secondLength;
+    }
+
+    /**
+     * 对下标数组做归并排序（稳定，JAR通常已基本有序，相邻段有序时直接跳过合并）
+     */
+    private int[] sortByName() {
+        int[] index = new int[size];
+        for (int i = 0; i < size; i++) {
+            index[i] = i;
+        }
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width <<= 1) {
+            for (int low = 0; low < size - width; low += width << 1) {
+                int mid = low + width;
+                int high = Math.min(low + (width << 1), size);
+                if (compareNames(index[mid - 1], index[mid]) <= 0) {
+                    continue;
+                }
+                System.arraycopy(index, low, buffer, low, high - low);
+                int left = low;
+                int right = mid;
+                for (int k = low; k < high; k++) {
+                    if (left < mid && (right >= high || compareNames(buffer[left], buffer[right]) <= 0)) {
+                        index[k] = buffer[left++];
+                    } else {
+                        index[k] = buffer[right++];
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    private static int findEnd(ByteBuffer buffer, String archiveName) throws ZipException {
+        int capacity = buffer.limit();
+        int lowest = Math.max(0, capacity - END_SIZE - MAX_COMMENT_SIZE);
+        for (int pos = capacity - END_SIZE; pos >= lowest; pos--) {
+            if (buffer.getInt(pos) == END_SIGNATURE
+                    && pos + END_SIZE + (buffer.getShort(pos + 20) & 0xFFFF) == capacity) {
+                return pos;
+            }
+        }
+        throw new ZipException("找不到ZIP结束记录，不是有效的JAR/ZIP文件: " + archiveName);
+    }
+
+    private static int findZip64End(ByteBuffer buffer, int locatorPos, long declaredOffset,
+                                    String archiveName) throws ZipException {
+        // 优先使用声明的偏移，有前缀数据时在定位记录之前查找
+        if (declaredOffset >= 0 && declaredOffset + ZIP64_END_SIZE <= locatorPos
+                && buffer.getInt((int) declaredOffset) == ZIP64_END_SIGNATURE) {
+            return (int) declaredOffset;
+        }
+        for (int pos = locatorPos - ZIP64_END_SIZE; pos >= 0; pos--) {
+            if (buffer.getInt(pos) == ZIP64_END_SIGNATURE) {
+                return pos;
+            }
+        }
+        throw new ZipException("找不到ZIP64结束记录: " + archiveName);
+    }
+}